@@ -0,0 +1,157 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Reads and encodes the rows of an ISQLServerBulkData source ahead of the thread of a bulk copy that sends them.
+ * <p>
+ * The producer thread of the pipeline reads the rows of the source in chunks of {@link #CHUNK_ROWS}. The worker threads
+ * convert the values of the rows of a chunk and encode them into memory with a TDS writer of their own, and the sending
+ * thread only copies the bytes of each row into its TDS message. A row with a value that is read as it is sent, such as
+ * a stream, is not encoded ahead; the sending thread encodes it as it would without the pipeline.
+ */
+final class BulkCopyPipeline extends OrderedChunkPipeline<BulkCopyPipeline.Chunk> {
+    private static final Logger logger = Logger.getLogger("com.microsoft.sqlserver.jdbc.internals.BulkCopyPipeline");
+
+    // Number of rows the reader thread hands to an encoding thread at a time
+    static final int CHUNK_ROWS = 256;
+
+    /**
+     * Encodes the values of a row, without the ROW token, as the bulk copy sends them.
+     */
+    interface RowEncoder {
+        void encode(TDSWriter tdsWriter, Object[] row) throws SQLServerException;
+    }
+
+    /**
+     * A chunk of rows of the source and the encoded bytes of its rows.
+     */
+    static final class Chunk extends OrderedChunkPipeline.Chunk {
+        final Object[][] rows = new Object[CHUNK_ROWS][];
+        final boolean[] encoded = new boolean[CHUNK_ROWS];
+        final int[] offsets = new int[CHUNK_ROWS + 1];
+        byte[] data;
+    }
+
+    private final ISQLServerBulkData source;
+    private final RowEncoder encoder;
+    private final SQLServerConnection connection;
+    private final Queue<TDSWriter> tdsWriters = new ConcurrentLinkedQueue<>();
+
+    BulkCopyPipeline(ISQLServerBulkData source, RowEncoder encoder, SQLServerConnection connection,
+            int encodingThreads) {
+        super(encodingThreads, "R_bulkCopyInterrupted");
+        this.source = source;
+        this.encoder = encoder;
+        this.connection = connection;
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.finer(connection.toString() + " Encoding bulk copy rows with " + encodingThreads + " threads");
+        }
+        start();
+    }
+
+    /** Returns whether the current row was encoded ahead; if not, the sending thread encodes it */
+    boolean isEncoded() {
+        return chunk().encoded[row()];
+    }
+
+    /** Returns the values of the current row, which was not encoded ahead */
+    Object[] getRowData() {
+        return chunk().rows[row()];
+    }
+
+    /** Writes the encoded values of the current row */
+    void writeRow(TDSWriter tdsWriter) throws SQLServerException {
+        Chunk chunk = chunk();
+        int row = row();
+        tdsWriter.writeBytes(chunk.data, chunk.offsets[row], chunk.offsets[row + 1] - chunk.offsets[row]);
+    }
+
+    /**
+     * Reads the next {@link #CHUNK_ROWS} rows of the source.
+     */
+    @Override
+    Chunk readChunk() {
+        Chunk next = new Chunk();
+        try {
+            while (next.rowCount < CHUNK_ROWS && source.next()) {
+                next.rows[next.rowCount++] = copyRowData(source);
+            }
+        } catch (SQLException | RuntimeException e) {
+            next.error = new SQLServerException(SQLServerException.getErrString("R_unableRetrieveSourceData"), e);
+        }
+        next.last = null != next.error || next.rowCount < CHUNK_ROWS;
+        return next;
+    }
+
+    /**
+     * Encodes the rows of a chunk, up to the first that fails, with a TDS writer of the pipeline.
+     */
+    @Override
+    Chunk processChunk(Chunk encoding) throws SQLServerException {
+        TDSWriter tdsWriter = tdsWriters.poll();
+        if (null == tdsWriter)
+            tdsWriter = connection.newBufferedTDSWriter();
+
+        try {
+            int i = 0;
+            for (; i < encoding.rowCount; i++) {
+                encoding.offsets[i] = tdsWriter.getBufferedLength();
+                Object[] rowData = encoding.rows[i];
+                if (null == rowData || isSentAsRead(rowData))
+                    continue;
+
+                try {
+                    encoder.encode(tdsWriter, rowData);
+                } catch (SQLServerException e) {
+                    encoding.error = e;
+                    break;
+                } catch (RuntimeException e) {
+                    encoding.error = new SQLServerException(e.getMessage(), e);
+                    break;
+                }
+                encoding.rows[i] = null;
+                encoding.encoded[i] = true;
+            }
+
+            if (i < encoding.rowCount) {
+                encoding.rowCount = i;
+                encoding.last = true;
+            } else {
+                encoding.offsets[i] = tdsWriter.getBufferedLength();
+            }
+            encoding.data = tdsWriter.takeBufferedBytes();
+        } finally {
+            tdsWriters.offer(tdsWriter);
+        }
+        return encoding;
+    }
+
+    /**
+     * Returns whether a row has a value that is read as it is sent, which is not encoded ahead so that it is not held
+     * in memory.
+     */
+    private static boolean isSentAsRead(Object[] rowData) {
+        for (Object value : rowData) {
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob
+                    || value instanceof Clob)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+
+/**
+ * InputStream adapter for ByteBuffer parameter values.
+ *
+ * The stream reads the bytes between the buffer's position and limit at the time the value was set, through a
+ * duplicate of the buffer, so the application's buffer itself is never moved. TDSWriter recognizes this stream and
+ * sends the bytes straight from the buffer instead of reading them through the InputStream methods, so that the
+ * contents of a direct buffer do not have to be copied to the heap.
+ *
+ * Unlike other streams, a ByteBuffer value can be sent any number of times. The parameter keeps the stream it was set
+ * with, which is never read, and every execution sends a new stream from {@link #newStream()}.
+ */
+final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer value;
+    private final ByteBuffer buffer;
+    private final int length;
+
+    ByteBufferInputStream(ByteBuffer value) {
+        assert null != value;
+        this.value = value.duplicate();
+        this.buffer = this.value.duplicate();
+        this.length = buffer.remaining();
+    }
+
+    /**
+     * Returns a new stream of the whole value, whatever has been read from this one.
+     */
+    ByteBufferInputStream newStream() {
+        return new ByteBufferInputStream(value);
+    }
+
+    /**
+     * Returns the length of the value, in bytes.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Returns the bytes that have not been read yet, and marks them as read.
+     */
+    ByteBuffer takeRemaining() {
+        ByteBuffer remaining = buffer.slice();
+        ((Buffer) buffer).position(buffer.limit());
+        return remaining;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+
+        if (0 == len)
+            return 0;
+
+        if (!buffer.hasRemaining())
+            return -1;
+
+        int bytesToRead = Math.min(len, buffer.remaining());
+        buffer.get(b, off, bytesToRead);
+        return bytesToRead;
+    }
+
+    @Override
+    public long skip(long n) {
+        int bytesToSkip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        ((Buffer) buffer).position(buffer.position() + bytesToSkip);
+        return bytesToSkip;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Splits the delimited text of a Reader into records and fields for SQLServerBulkCSVFileRecord, without making a
+ * String of every line and field.
+ * <p>
+ * The chars are read into one buffer, which grows to hold the longest record, and every field of the current record is
+ * a slice of that buffer until the next record is read. A field is made a String only when it is asked for as one, and
+ * integers and decimals are parsed straight from the buffer.
+ * <p>
+ * Records end at a line feed, a carriage return or a carriage return and line feed, as with BufferedReader.readLine.
+ * Fields are separated by the delimiter, as with String.split and a limit of -1. When the rules to escape delimiters
+ * are used, a line break or a delimiter between double quotes is part of a field, and the fields with double quotes
+ * are trimmed, checked and unquoted as the rules of SQLServerBulkCSVFileRecord.setEscapeColumnDelimitersCSV describe.
+ */
+final class CSVTokenizer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The largest number of digits a long holds, whatever the digits
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /** Returned by {@link #getLongField} for a field that is not an integer of at most 18 digits */
+    static final long NOT_A_LONG = Long.MIN_VALUE;
+
+    private final Reader reader;
+    private final char[] delimiter;
+
+    // The chars read so far that are not yet part of a record that was read: buffer[position..limit)
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    // The current record, buffer[recordStart..recordEnd), and whether its delimiters between double quotes are kept
+    private int recordStart;
+    private int recordEnd;
+    private boolean recordQuoted;
+
+    // The fields of the current record once it is split, -1 before: field i is buffer[starts[i]..ends[i])
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount = -1;
+
+    // Why the current record could not be split, thrown again if it is split again
+    private SQLServerException splitError;
+
+    CSVTokenizer(Reader reader, String delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter.toCharArray();
+        buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Constructs a tokenizer of the first length chars of an array, which it splits in place.
+     */
+    CSVTokenizer(char[] chars, int length, String delimiter) {
+        this.reader = null;
+        this.delimiter = delimiter.toCharArray();
+        buffer = chars;
+        limit = length;
+        endOfInput = true;
+    }
+
+    /**
+     * Reads the next record, which is split into fields by {@link #splitFields}.
+     *
+     * @param escapeDelimiters
+     *        whether the rules to escape delimiters are used
+     * @return false if there are no more records
+     * @throws IOException
+     *         if reading fails
+     * @throws SQLServerException
+     *         if the record is still between double quotes at the end of the input
+     */
+    boolean nextRecord(boolean escapeDelimiters) throws IOException, SQLServerException {
+        fieldCount = -1;
+        splitError = null;
+        int start = position;
+        int i = start;
+        int quoteCount = 0;
+        int end;
+        while (true) {
+            if (i == limit) {
+                if (endOfInput) {
+                    // A record that is still between double quotes at the end of the input is not valid.
+                    if (escapeDelimiters && 0 != quoteCount % 2) {
+                        throw new SQLServerException(SQLServerException.getErrString("R_InvalidCSVQuotes"), null, 0,
+                                null);
+                    }
+                    if (i == start) {
+                        position = i;
+                        return false;
+                    }
+                    end = i;
+                    break;
+                }
+                int shift = fill(start);
+                start -= shift;
+                i -= shift;
+                continue;
+            }
+
+            char c = buffer[i];
+            if (('\n' == c || '\r' == c) && (!escapeDelimiters || 0 == quoteCount % 2)) {
+                end = i++;
+                // When the rules to escape delimiters are used, a line feed after a line feed is part of the line
+                // break too.
+                if ('\r' == c || escapeDelimiters) {
+                    // The line feed of a carriage return and line feed may not have been read yet.
+                    if (i == limit && !endOfInput) {
+                        int shift = fill(start);
+                        start -= shift;
+                        end -= shift;
+                        i -= shift;
+                    }
+                    if (i < limit && '\n' == buffer[i]) {
+                        i++;
+                    } else if (escapeDelimiters && i == limit && end == start) {
+                        // An empty record that ends the input is no record when the rules to escape delimiters are
+                        // used.
+                        position = i;
+                        return false;
+                    }
+                }
+                break;
+            }
+            if ('"' == c) {
+                quoteCount++;
+            }
+            i++;
+        }
+        position = i;
+
+        recordStart = start;
+        recordEnd = end;
+        recordQuoted = escapeDelimiters && quoteCount > 0;
+        return true;
+    }
+
+    /**
+     * Splits the current record into fields, unless it was split already.
+     *
+     * @throws SQLServerException
+     *         if a field has double quotes that do not follow the rules to escape delimiters
+     */
+    void splitFields() throws SQLServerException {
+        if (null != splitError) {
+            throw splitError;
+        }
+        if (fieldCount < 0) {
+            fieldCount = 0;
+            try {
+                split(recordStart, recordEnd, recordQuoted);
+            } catch (SQLServerException e) {
+                // The fields before the one that failed may be unquoted already, so the record is not split again.
+                fieldCount = -1;
+                splitError = e;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads more chars into the buffer, moving the chars from start on to the start of the buffer first. Returns the
+     * number of chars they moved back by.
+     */
+    private int fill(int start) throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        }
+
+        int count;
+        do {
+            count = reader.read(buffer, limit, buffer.length - limit);
+        } while (0 == count);
+        if (count < 0) {
+            endOfInput = true;
+        } else {
+            limit += count;
+        }
+        return start;
+    }
+
+    /**
+     * Splits buffer[start..end) into fields at the delimiters, other than the delimiters between double quotes if
+     * quoted.
+     */
+    private void split(int start, int end, boolean quoted) throws SQLServerException {
+        int delimiterLength = delimiter.length;
+        if (0 == delimiterLength) {
+            // Every char is a field, followed by an empty one.
+            for (int i = start; i < end; i++) {
+                addField(i, i + 1, 0);
+            }
+            addField(end, end, 0);
+            return;
+        }
+
+        char first = delimiter[0];
+        int fieldStart = start;
+        int fieldQuotes = 0;
+        boolean inQuotes = false;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            if (quoted && '"' == c) {
+                inQuotes = !inQuotes;
+                fieldQuotes++;
+            } else if (first == c && !inQuotes && i + delimiterLength <= end && isDelimiterAt(i)) {
+                addField(fieldStart, i, fieldQuotes);
+                fieldStart = i + delimiterLength;
+                fieldQuotes = 0;
+                i = fieldStart - 1;
+            }
+        }
+        addField(fieldStart, end, fieldQuotes);
+    }
+
+    private boolean isDelimiterAt(int i) {
+        for (int j = 1; j < delimiter.length; j++) {
+            if (delimiter[j] != buffer[i + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a field, trimmed and unquoted in place if it has double quotes.
+     */
+    private void addField(int start, int end, int quoteCount) throws SQLServerException {
+        if (quoteCount > 0) {
+            while (start < end && buffer[start] <= ' ') {
+                start++;
+            }
+            while (end > start && buffer[end - 1] <= ' ') {
+                end--;
+            }
+            if (0 != quoteCount % 2 || '"' != buffer[start] || '"' != buffer[end - 1]) {
+                throw new SQLServerException(SQLServerException.getErrString("R_InvalidCSVQuotes"), null, 0, null);
+            }
+
+            // The first double quote opens the field, a pair of double quotes is one double quote of the data and any
+            // other double quote is dropped.
+            int length = start;
+            boolean escaped = false;
+            for (int j = start; j < end; j++) {
+                char c = buffer[j];
+                if ('"' != c) {
+                    buffer[length++] = c;
+                } else if (!escaped) {
+                    escaped = true;
+                } else if (j < end - 1 && '"' == buffer[j + 1]) {
+                    buffer[length++] = '"';
+                    j++;
+                }
+            }
+            end = length;
+        }
+
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * fieldCount);
+            ends = Arrays.copyOf(ends, 2 * fieldCount);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /** Returns the number of fields of the current record, which is split */
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    /** Returns whether a field of the current record is empty */
+    boolean isEmpty(int field) {
+        return starts[field] == ends[field];
+    }
+
+    /** Returns a field of the current record */
+    String getField(int field) {
+        return new String(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    /** Returns a field of the current record without leading and trailing whitespace, like String.trim */
+    String getTrimmedField(int field) {
+        int start = trimStart(field);
+        return new String(buffer, start, trimEnd(field, start) - start);
+    }
+
+    /** Returns the fields of the current record */
+    String[] getFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Returns a view of a field of the current record, which is valid until the next record is read.
+     */
+    CharSequence getFieldChars(int field) {
+        return CharBuffer.wrap(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    /**
+     * Returns the value of a field of the current record that is a decimal integer of at most 18 digits with an
+     * optional sign, or {@link #NOT_A_LONG} if the field is anything else.
+     */
+    long getLongField(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && ('-' == buffer[i] || '+' == buffer[i])) {
+            negative = '-' == buffer[i];
+            i++;
+        }
+        if (i == end || end - i > MAX_LONG_DIGITS) {
+            return NOT_A_LONG;
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_LONG;
+            }
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the value of a field of the current record without leading and trailing whitespace as a BigDecimal.
+     *
+     * @throws NumberFormatException
+     *         if the field is not a valid BigDecimal
+     */
+    BigDecimal getBigDecimalField(int field) {
+        int start = trimStart(field);
+        return new BigDecimal(buffer, start, trimEnd(field, start) - start);
+    }
+
+    private int trimStart(int field) {
+        int start = starts[field];
+        while (start < ends[field] && buffer[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int field, int start) {
+        int end = ends[field];
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
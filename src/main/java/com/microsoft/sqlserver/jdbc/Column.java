@@ -193,9 +193,94 @@ final class Column {
     }
 
     int getInt(TDSReader tdsReader, SQLServerStatement statement) throws SQLServerException {
+        if (hasIntegerValue())
+            return (int) getLongValue(tdsReader);
         return (Integer) getValue(JDBCType.INTEGER, null, null, tdsReader, statement);
     }
 
+    /**
+     * Returns whether the value of this column can be read with getLongValue, without converting it to an object: the
+     * column is an unencrypted BIT, TINYINT, SMALLINT, INTEGER or BIGINT column whose value comes from the server.
+     */
+    final boolean hasIntegerValue() {
+        if (null != filter || null != cryptoMetadata || !getterDTV.isServerValue())
+            return false;
+
+        switch (typeInfo.getSSType()) {
+            case BIT:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns whether the value of this column can be read with getDoubleValue, without converting it to an object:
+     * the column is an unencrypted REAL or FLOAT column whose value comes from the server.
+     */
+    final boolean hasFloatingPointValue() {
+        if (null != filter || null != cryptoMetadata || !getterDTV.isServerValue())
+            return false;
+
+        switch (typeInfo.getSSType()) {
+            case REAL:
+            case FLOAT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns whether the value of this column can be read straight from the response into a column vector: the column
+     * is neither encrypted nor filtered.
+     */
+    final boolean canReadIntoVector() {
+        return null == filter && null == cryptoMetadata;
+    }
+
+    /**
+     * Returns the type of the values of this column: the type of the plaintext values of an encrypted column.
+     */
+    final TypeInfo getValueTypeInfo() {
+        return (null != cryptoMetadata) ? cryptoMetadata.getBaseTypeInfo() : typeInfo;
+    }
+
+    /**
+     * Retrieves this column's value as a long. Only valid if hasIntegerValue() is true. Returns 0 if the value is SQL
+     * NULL.
+     */
+    final long getLongValue(TDSReader tdsReader) throws SQLServerException {
+        return getterDTV.getLongValue(typeInfo, tdsReader);
+    }
+
+    /**
+     * Retrieves this column's value as a double. Only valid if hasFloatingPointValue() is true. Returns 0 if the value
+     * is SQL NULL.
+     */
+    final double getDoubleValue(TDSReader tdsReader) throws SQLServerException {
+        return getterDTV.getDoubleValue(typeInfo, tdsReader);
+    }
+
+    /**
+     * Retrieves the cipher text of this encrypted column's value. Returns null if the value is SQL NULL.
+     */
+    final byte[] getCipherText(TDSReader tdsReader) throws SQLServerException {
+        assert null != cryptoMetadata;
+        return getterDTV.getCipherText(typeInfo, tdsReader);
+    }
+
+    /**
+     * Sets the decrypted plain text of this encrypted column's value, so that getValue does not decrypt it again.
+     */
+    final void setDecryptedValue(byte[] decryptedValue) {
+        getterDTV.setDecryptedValue(decryptedValue);
+    }
+
     void updateValue(JDBCType jdbcType, Object value, JavaType javaType, StreamSetterArgs streamSetterArgs,
             Calendar cal, Integer scale, SQLServerConnection con,
             SQLServerStatementColumnEncryptionSetting stmtColumnEncriptionSetting, Integer precision,
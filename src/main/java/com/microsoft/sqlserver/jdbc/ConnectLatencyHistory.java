@@ -0,0 +1,171 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Remembers, per server host name and port, how fast each of the addresses the name resolved to answered recent
+ * connection attempts. The staggered parallel connect mode uses it to try the addresses that connected fastest
+ * recently first, and to choose the delay before it starts the next attempt (RFC 8305, "Happy Eyeballs").
+ *
+ * The history is shared by all connections in the JVM. It is bounded both in the number of hosts it remembers and in
+ * how long a sample is trusted.
+ */
+final class ConnectLatencyHistory {
+    /** Delay before the next attempt is started when nothing is known about the address being tried. */
+    static final long DEFAULT_ATTEMPT_DELAY_MS = 250;
+
+    /** Lower bound of the delay before the next attempt is started. */
+    static final long MIN_ATTEMPT_DELAY_MS = 100;
+
+    /** Maximum number of host name and port pairs remembered. The least recently used pair is forgotten first. */
+    static final int MAX_HOSTS = 256;
+
+    /** Samples older than this are ignored. */
+    private static final long SAMPLE_EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private static final ConnectLatencyHistory instance = new ConnectLatencyHistory(MAX_HOSTS);
+
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, Map<InetAddress, Sample>> hosts;
+
+    private static final class Sample {
+        // smoothed connect latency of successful attempts
+        long latencyNanos;
+        // whether the latest attempt failed
+        boolean failed;
+        // System.nanoTime() value when the sample was last updated
+        long updatedNanos;
+    }
+
+    static ConnectLatencyHistory getInstance() {
+        return instance;
+    }
+
+    ConnectLatencyHistory(final int maxHosts) {
+        hosts = new LinkedHashMap<String, Map<InetAddress, Sample>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<InetAddress, Sample>> eldest) {
+                return size() > maxHosts;
+            }
+        };
+    }
+
+    private static String key(String hostName, int portNumber) {
+        return hostName.toLowerCase(Locale.ENGLISH) + ":" + portNumber;
+    }
+
+    /**
+     * Records a successful connection attempt. The latency is smoothed with the previous samples of the address.
+     */
+    void recordSuccess(String hostName, int portNumber, InetAddress address, long latencyNanos) {
+        lock.lock();
+        try {
+            Sample sample = getSample(hostName, portNumber, address);
+            long now = System.nanoTime();
+            if (0 == sample.updatedNanos || sample.failed || isExpired(sample, now))
+                sample.latencyNanos = latencyNanos;
+            else
+                sample.latencyNanos = (3 * sample.latencyNanos + latencyNanos) / 4;
+            sample.failed = false;
+            sample.updatedNanos = now;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a failed connection attempt. The address is tried after all other addresses until it connects again or
+     * the sample expires.
+     */
+    void recordFailure(String hostName, int portNumber, InetAddress address) {
+        lock.lock();
+        try {
+            Sample sample = getSample(hostName, portNumber, address);
+            sample.failed = true;
+            sample.updatedNanos = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Sample getSample(String hostName, int portNumber, InetAddress address) {
+        Map<InetAddress, Sample> samples = hosts.computeIfAbsent(key(hostName, portNumber), k -> new HashMap<>());
+        return samples.computeIfAbsent(address, a -> new Sample());
+    }
+
+    private static boolean isExpired(Sample sample, long now) {
+        return now - sample.updatedNanos > SAMPLE_EXPIRY_NANOS;
+    }
+
+    /**
+     * Returns the addresses in the order in which they should be tried: the addresses that connected recently, fastest
+     * first, then the addresses nothing is known about, then the addresses whose latest attempt failed. Addresses of
+     * the same rank keep the order in which they were resolved.
+     */
+    InetAddress[] order(String hostName, int portNumber, InetAddress[] addresses) {
+        final long[] ranks = new long[addresses.length];
+        lock.lock();
+        try {
+            Map<InetAddress, Sample> samples = hosts.get(key(hostName, portNumber));
+            long now = System.nanoTime();
+            for (int i = 0; i < addresses.length; i++) {
+                Sample sample = (null == samples) ? null : samples.get(addresses[i]);
+                if (null == sample || isExpired(sample, now))
+                    ranks[i] = Long.MAX_VALUE - 1;
+                else if (sample.failed)
+                    ranks[i] = Long.MAX_VALUE;
+                else
+                    ranks[i] = sample.latencyNanos;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Integer[] indexes = new Integer[addresses.length];
+        for (int i = 0; i < indexes.length; i++)
+            indexes[i] = i;
+        // Arrays.sort is stable for objects, so addresses of the same rank keep their order.
+        Arrays.sort(indexes, (a, b) -> Long.compare(ranks[a], ranks[b]));
+
+        InetAddress[] ordered = new InetAddress[addresses.length];
+        for (int i = 0; i < ordered.length; i++)
+            ordered[i] = addresses[indexes[i]];
+        return ordered;
+    }
+
+    /**
+     * Returns how long to wait for an attempt to the given address before the next attempt is started: twice the
+     * latency the address connected with recently, but at least {@link #MIN_ATTEMPT_DELAY_MS}, or
+     * {@link #DEFAULT_ATTEMPT_DELAY_MS} when nothing is known about the address.
+     */
+    long getAttemptDelayMillis(String hostName, int portNumber, InetAddress address) {
+        lock.lock();
+        try {
+            Map<InetAddress, Sample> samples = hosts.get(key(hostName, portNumber));
+            Sample sample = (null == samples) ? null : samples.get(address);
+            if (null == sample || sample.failed || isExpired(sample, System.nanoTime()))
+                return DEFAULT_ATTEMPT_DELAY_MS;
+
+            long delay = TimeUnit.NANOSECONDS.toMillis(2 * sample.latencyNanos);
+            return Math.max(MIN_ATTEMPT_DELAY_MS, Math.min(DEFAULT_ATTEMPT_DELAY_MS, delay));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -24,6 +24,9 @@ import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Locale;
@@ -1188,7 +1191,12 @@ final class DDC {
 
                 java.sql.Timestamp ts = new java.sql.Timestamp(cal.getTimeInMillis());
                 ts.setNanos(subSecondNanos);
-                return microsoft.sql.DateTimeOffset.valueOf(ts, localMillisOffset / (60 * 1000));
+                microsoft.sql.DateTimeOffset dto = microsoft.sql.DateTimeOffset.valueOf(ts,
+                        localMillisOffset / (60 * 1000));
+                if (jdbcType == JDBCType.OFFSETDATETIME) {
+                    return dto.getOffsetDateTime();
+                }
+                return dto;
 
             case CHARACTER:
                 switch (ssType) {
@@ -1368,6 +1376,47 @@ final class DDC {
         }
     }
 
+    /**
+     * Converts a DATETIMEOFFSET value to a java.time.OffsetDateTime or, for LOCALDATETIME, a java.time.LocalDateTime.
+     *
+     * The value is computed from its parts with java.time arithmetic, without creating the Calendar, Timestamp and
+     * DateTimeOffset objects that convertTemporalToObject goes through. java.time uses pure Gregorian rules, like SQL
+     * Server, so the results are the same as those of convertTemporalToObject for values after the standard Gregorian
+     * change date. Earlier values must still be converted by convertTemporalToObject.
+     *
+     * @param connection
+     *        the connection, for the ignoreOffsetOnDateTimeOffsetConversion setting
+     * @param jdbcType
+     *        OFFSETDATETIME or LOCALDATETIME
+     * @param utcDaysIntoCE
+     *        the date part of the value in UTC, as a number of days since 1/1/0001
+     * @param utcNanosSinceMidnight
+     *        the time part of the value in UTC, as a number of nanoseconds since midnight
+     * @param minutesOffset
+     *        the time zone offset of the value, in minutes
+     * @return a java.time.OffsetDateTime or java.time.LocalDateTime
+     */
+    static final Object convertDateTimeOffsetToJavaTime(SQLServerConnection connection, JDBCType jdbcType,
+            int utcDaysIntoCE, long utcNanosSinceMidnight, int minutesOffset) {
+        assert JDBCType.OFFSETDATETIME == jdbcType || JDBCType.LOCALDATETIME == jdbcType;
+        assert utcDaysIntoCE >= GregorianChange.DAYS_SINCE_BASE_DATE_HINT;
+
+        OffsetDateTime offsetDateTime = OffsetDateTime
+                .of(TDS.BASE_LOCAL_DATE.plusDays(utcDaysIntoCE), LocalTime.ofNanoOfDay(utcNanosSinceMidnight),
+                        ZoneOffset.UTC)
+                .withOffsetSameInstant(ZoneOffset.ofTotalSeconds(minutesOffset * 60));
+
+        if (JDBCType.OFFSETDATETIME == jdbcType) {
+            return offsetDateTime;
+        }
+
+        // Like the Calendar path: the local date and time in the value's own offset, or in the VM time zone.
+        if (connection.getIgnoreOffsetOnDateTimeOffsetConversion()) {
+            return offsetDateTime.toLocalDateTime();
+        }
+        return offsetDateTime.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
     /**
      * Returns the number of days elapsed from January 1 of the specified baseYear (Gregorian) to the specified
      * dayOfYear in the specified year, assuming pure Gregorian calendar rules (no Julian to Gregorian cutover).
@@ -697,6 +697,7 @@ enum JDBCType {
     GEOMETRY(Category.GEOMETRY, microsoft.sql.Types.GEOMETRY, Object.class.getName()),
     GEOGRAPHY(Category.GEOGRAPHY, microsoft.sql.Types.GEOGRAPHY, Object.class.getName()),
     LOCALDATETIME(Category.TIMESTAMP, java.sql.Types.TIMESTAMP, LocalDateTime.class.getName()),
+    OFFSETDATETIME(Category.DATETIMEOFFSET, microsoft.sql.Types.DATETIMEOFFSET, OffsetDateTime.class.getName()),
     VECTOR(Category.VECTOR, microsoft.sql.Types.VECTOR, microsoft.sql.Vector.class.getName()),
     JSON(Category.JSON, microsoft.sql.Types.JSON, Object.class.getName());
  
@@ -24,4 +24,11 @@ interface ICounter {
      * Resets the state of Counter
      */
     void resetCounter();
+
+    /**
+     * Returns the limit of Counter
+     *
+     * @return the maximum number of bytes, or a value of 0 or less if there is no limit
+     */
+    long getMaxResultBuffer();
 }
@@ -43,6 +43,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -58,6 +59,7 @@ import java.util.Set;
 import java.util.SimpleTimeZone;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -73,7 +75,9 @@ import java.util.logging.Logger;
 import javax.net.SocketFactory;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
@@ -671,11 +675,32 @@ final class TDSChannel implements Serializable {
     @SuppressWarnings("unused")
     private transient Socket channelSocket;
 
+    // SSL engine used instead of the SSL socket when useSSLEngine is set
+    private transient SSLEngineChannel sslEngineChannel;
+
     // Implementation of a Socket proxy that can switch from TDS-wrapped I/O
     // (using the TDSChannel itself) during SSL handshake to raw I/O over
     // the TCP/IP socket.
     private transient ProxySocket proxySocket = null;
 
+    // Non-blocking channel transport used instead of the TCP/IP socket streams when useSocketChannel is set
+    private transient TDSSocketChannel socketChannel;
+
+    /**
+     * Returns true if packets should be staged in direct buffers, which the channel transport can write without a
+     * copy.
+     */
+    final boolean isDirectTransport() {
+        return null != socketChannel;
+    }
+
+    /**
+     * Returns true if the connection is encrypted by an SSL engine rather than an SSL socket.
+     */
+    final boolean isSSLEngineEnabled() {
+        return null != sslEngineChannel;
+    }
+
     // I/O streams for raw TCP/IP communications with SQL Server
     private transient ProxyInputStream tcpInputStream;
     private transient OutputStream tcpOutputStream;
@@ -701,6 +726,21 @@ final class TDSChannel implements Serializable {
     int numMsgsSent = 0;
     int numMsgsRcvd = 0;
 
+    // Number of complete request messages written, and number of writes to the socket made to write them
+    private final AtomicLong sentMessageCount = new AtomicLong();
+    private final AtomicLong socketWriteCount = new AtomicLong();
+
+    final long getSentMessageCount() {
+        return sentMessageCount.get();
+    }
+
+    final long getSocketWriteCount() {
+        return socketWriteCount.get();
+    }
+
+    // Complete packets of the message being sent that have not been written yet, when write coalescing is enabled
+    private transient ByteBuffer coalescingBuffer;
+
     private final transient Lock tdsChannelLock = new ReentrantLock();
 
     // Last SPID received from the server. Used for logging and to tag subsequent outgoing
@@ -730,6 +770,14 @@ final class TDSChannel implements Serializable {
         this.inputStream = null;
         this.outputStream = null;
         this.tdsWriter = new TDSWriter(this, con);
+        this.packetPool = (con.getPacketPoolSize() > 0) ? new TDSPacketPool(con.getPacketPoolSize()) : null;
+    }
+
+    // Pool of recycled response packets, or null when packet pooling is disabled.
+    private final transient TDSPacketPool packetPool;
+
+    final TDSPacketPool getPacketPool() {
+        return packetPool;
     }
 
     /**
@@ -770,8 +818,20 @@ final class TDSChannel implements Serializable {
 
             tcpSocket.setSoTimeout(socketTimeout);
 
-            inputStream = tcpInputStream = new ProxyInputStream(tcpSocket.getInputStream());
-            outputStream = tcpOutputStream = tcpSocket.getOutputStream();
+            if (con.getUseSocketChannel() && null != tcpSocket.getChannel()) {
+                if (logger.isLoggable(Level.FINER))
+                    logger.finer(this.toString() + ": Using SocketChannel transport");
+
+                socketChannel = new TDSSocketChannel(tcpSocket.getChannel(), traceID);
+                inputStream = tcpInputStream = new ProxyInputStream(socketChannel.getInputStream());
+                outputStream = tcpOutputStream = socketChannel.getOutputStream();
+            } else {
+                if (con.getUseSocketChannel() && logger.isLoggable(Level.FINER))
+                    logger.finer(this.toString() + ": Socket has no SocketChannel, using socket streams");
+
+                inputStream = tcpInputStream = new ProxyInputStream(tcpSocket.getInputStream());
+                outputStream = tcpOutputStream = tcpSocket.getOutputStream();
+            }
         } catch (IOException ex) {
             SQLServerException.convertConnectExceptionToSQLServerException(host, port, con, ex);
         }
@@ -810,6 +870,18 @@ final class TDSChannel implements Serializable {
 
         tdsChannelLock.lock();
         try {
+            // The SSL engine does no I/O of its own, so it is simply dropped.
+            if (null != sslEngineChannel) {
+                sslEngineChannel.close();
+                sslEngineChannel = null;
+                inputStream = tcpInputStream;
+                outputStream = tcpOutputStream;
+
+                if (logger.isLoggable(Level.FINER))
+                    logger.finer(toString() + " SSL disabled");
+                return;
+            }
+
             // Guard in case of disableSSL being called before enableSSL
             if (proxySocket == null) {
                 if (logger.isLoggable(Level.INFO))
@@ -1890,75 +1962,112 @@ final class TDSChannel implements Serializable {
             // Permissive trust manager allows minimum encryption of credentials even when trusted certificates
             // aren't provisioned on the server.
 
-            // Got the SSL context. Now create an SSL socket over our own proxy socket
-            // which we can toggle between TDS-encapsulated and raw communications.
-            // Initially, the proxy is set to encapsulate the SSL handshake in TDS packets.
-            if (logger.isLoggable(Level.FINEST))
-                logger.finest(toString() + " Creating SSL socket");
+            if (con.getUseSSLEngine() || null != socketChannel) {
+                // Got the SSL context. Now create an SSL engine, whose encrypted bytes are carried
+                // in TDS packets during the handshake, or directly over the transport for TDS 8.
+                // The channel transport is always encrypted this way, as the engine reads the
+                // encrypted bytes straight into its direct buffer.
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest(toString() + " Creating SSL engine");
+
+                SSLEngine sslEngine = sslContext.createSSLEngine(host, port);
+                sslEngine.setUseClientMode(true);
+                if (isTDS8) {
+                    // set ALPN values
+                    SSLParameters sslParam = sslEngine.getSSLParameters();
+                    sslParam.setApplicationProtocols(new String[] {TDS.PROTOCOL_TDS80});
+                    sslEngine.setSSLParameters(sslParam);
+                }
 
-            proxySocket = new ProxySocket(this);
+                // The TDS channel keeps writing in the clear until the handshake is complete.
+                SSLEngineChannel engineChannel = new SSLEngineChannel(sslEngine, isDirectTransport(), toString());
+                if (!isTDS8) {
+                    SSLHandshakeOutputStream sslHandshakeOutputStream = new SSLHandshakeOutputStream(this);
+                    engineChannel.setTransport(new SSLHandshakeInputStream(this, sslHandshakeOutputStream),
+                            sslHandshakeOutputStream);
+                } else {
+                    setSSLEngineTransport(engineChannel);
+                }
 
-            if (isTDS8) {
-                sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(channelSocket, host, port, true);
+                if (logger.isLoggable(Level.FINER))
+                    logger.finer(toString() + " Starting SSL handshake");
 
-                // set ALPN values
-                SSLParameters sslParam = sslSocket.getSSLParameters();
-                sslParam.setApplicationProtocols(new String[] {TDS.PROTOCOL_TDS80});
-                sslSocket.setSSLParameters(sslParam);
-            } else {
-                // don't close proxy when SSL socket is closed
-                sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(proxySocket, host, port, false);
-            }
+                handshakeState = SSLHandhsakeState.SSL_HANDHSAKE_STARTED;
+                engineChannel.handshake();
 
-            // At long last, start the SSL handshake ...
-            if (logger.isLoggable(Level.FINER))
-                logger.finer(toString() + " Starting SSL handshake");
+                if (isTDS8)
+                    checkApplicationProtocol(engineChannel.getApplicationProtocol());
 
-            // TLS 1.2 intermittent exception may happen here.
-            handshakeState = SSLHandhsakeState.SSL_HANDHSAKE_STARTED;
-            sslSocket.startHandshake();
+                handshakeState = SSLHandhsakeState.SSL_HANDHSAKE_COMPLETE;
 
-            if (isTDS8) {
-                String negotiatedProtocol = sslSocket.getApplicationProtocol();
+                // After SSL handshake is complete, send the encrypted bytes over the raw transport ...
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest(toString() + " Rewiring SSL engine to raw transport after handshake");
 
-                if (logger.isLoggable(Level.FINEST)) {
-                    logger.finest(toString() + " Application Protocol negotiated: "
-                            + ((negotiatedProtocol == null) ? "null" : negotiatedProtocol));
-                }
+                setSSLEngineTransport(engineChannel);
+
+                // ... and re-wire TDSChannel to use the SSL engine streams.
+                sslEngineChannel = engineChannel;
+                inputStream = new ProxyInputStream(sslEngineChannel.getInputStream());
+                outputStream = sslEngineChannel.getOutputStream();
+            } else {
+                // Got the SSL context. Now create an SSL socket over our own proxy socket
+                // which we can toggle between TDS-encapsulated and raw communications.
+                // Initially, the proxy is set to encapsulate the SSL handshake in TDS packets.
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest(toString() + " Creating SSL socket");
+
+                proxySocket = new ProxySocket(this);
+
+                if (isTDS8) {
+                    sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(channelSocket, host, port,
+                            true);
 
-                // check negotiated ALPN
-                if (null != negotiatedProtocol && !(negotiatedProtocol.isEmpty())
-                        && negotiatedProtocol.compareToIgnoreCase(TDS.PROTOCOL_TDS80) != 0) {
-                    MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_ALPNFailed"));
-                    Object[] msgArgs = {TDS.PROTOCOL_TDS80, negotiatedProtocol};
-                    con.terminate(SQLServerException.DRIVER_ERROR_SSL_FAILED, form.format(msgArgs));
+                    // set ALPN values
+                    SSLParameters sslParam = sslSocket.getSSLParameters();
+                    sslParam.setApplicationProtocols(new String[] {TDS.PROTOCOL_TDS80});
+                    sslSocket.setSSLParameters(sslParam);
+                } else {
+                    // don't close proxy when SSL socket is closed
+                    sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(proxySocket, host, port, false);
                 }
-            }
 
-            handshakeState = SSLHandhsakeState.SSL_HANDHSAKE_COMPLETE;
+                // At long last, start the SSL handshake ...
+                if (logger.isLoggable(Level.FINER))
+                    logger.finer(toString() + " Starting SSL handshake");
 
-            // After SSL handshake is complete, re-wire proxy socket to use raw TCP/IP streams ...
-            if (logger.isLoggable(Level.FINEST))
-                logger.finest(toString() + " Rewiring proxy streams after handshake");
+                // TLS 1.2 intermittent exception may happen here.
+                handshakeState = SSLHandhsakeState.SSL_HANDHSAKE_STARTED;
+                sslSocket.startHandshake();
 
-            proxySocket.setStreams(inputStream, outputStream);
+                if (isTDS8)
+                    checkApplicationProtocol(sslSocket.getApplicationProtocol());
 
-            // ... and re-wire TDSChannel to use SSL streams.
-            if (logger.isLoggable(Level.FINEST))
-                logger.finest(toString() + " Getting SSL InputStream");
+                handshakeState = SSLHandhsakeState.SSL_HANDHSAKE_COMPLETE;
 
-            inputStream = new ProxyInputStream(sslSocket.getInputStream());
+                // After SSL handshake is complete, re-wire proxy socket to use raw TCP/IP streams ...
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest(toString() + " Rewiring proxy streams after handshake");
 
-            if (logger.isLoggable(Level.FINEST))
-                logger.finest(toString() + " Getting SSL OutputStream");
+                proxySocket.setStreams(inputStream, outputStream);
+
+                // ... and re-wire TDSChannel to use SSL streams.
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest(toString() + " Getting SSL InputStream");
+
+                inputStream = new ProxyInputStream(sslSocket.getInputStream());
+
+                if (logger.isLoggable(Level.FINEST))
+                    logger.finest(toString() + " Getting SSL OutputStream");
 
-            outputStream = sslSocket.getOutputStream();
+                outputStream = sslSocket.getOutputStream();
 
-            // SSL is now enabled; switch over the channel socket
-            channelSocket = sslSocket;
+                // SSL is now enabled; switch over the channel socket
+                channelSocket = sslSocket;
+            }
 
             // Check the TLS version
-            String tlsProtocol = sslSocket.getSession().getProtocol();
+            String tlsProtocol = getSSLSession().getProtocol();
             if (SSLProtocol.TLS_V10.toString().equalsIgnoreCase(tlsProtocol)
                     || SSLProtocol.TLS_V11.toString().equalsIgnoreCase(tlsProtocol)) {
                 String warningMsg = tlsProtocol
@@ -2034,9 +2143,47 @@ final class TDSChannel implements Serializable {
         }
     }
 
+    /**
+     * Checks the application protocol negotiated with ALPN during a TDS 8 handshake.
+     */
+    private void checkApplicationProtocol(String negotiatedProtocol) throws SQLServerException {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest(toString() + " Application Protocol negotiated: "
+                    + ((negotiatedProtocol == null) ? "null" : negotiatedProtocol));
+        }
+
+        // check negotiated ALPN
+        if (null != negotiatedProtocol && !(negotiatedProtocol.isEmpty())
+                && negotiatedProtocol.compareToIgnoreCase(TDS.PROTOCOL_TDS80) != 0) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_ALPNFailed"));
+            Object[] msgArgs = {TDS.PROTOCOL_TDS80, negotiatedProtocol};
+            con.terminate(SQLServerException.DRIVER_ERROR_SSL_FAILED, form.format(msgArgs));
+        }
+    }
+
+    /**
+     * Points the SSL engine at the raw transport: the channel transport when in use, otherwise the TCP/IP socket
+     * streams.
+     */
+    private void setSSLEngineTransport(SSLEngineChannel engineChannel) throws IOException {
+        if (null != socketChannel)
+            engineChannel.setTransport(socketChannel);
+        else
+            engineChannel.setTransport(tcpInputStream, tcpOutputStream);
+    }
+
+    /**
+     * Returns the session of the SSL socket or SSL engine, or null if SSL is not enabled.
+     */
+    private SSLSession getSSLSession() {
+        if (null != sslEngineChannel)
+            return sslEngineChannel.getSession();
+        return (null == sslSocket) ? null : sslSocket.getSession();
+    }
+
     private void setChannelBindingInfo() {
         clearChannelBindingInfo();
-        channelBindingInfo = createChannelBindingInfo(null == sslSocket ? null : sslSocket.getSession());
+        channelBindingInfo = createChannelBindingInfo(getSSLSession());
     }
 
     byte[] getChannelBindingInfo() {
@@ -2328,10 +2475,16 @@ final class TDSChannel implements Serializable {
     }
 
     final void write(byte[] data, int offset, int length) throws SQLServerException {
+        flushCoalescedPackets();
+        send(data, offset, length);
+    }
+
+    private void send(byte[] data, int offset, int length) throws SQLServerException {
         try {
             outputStreamLock.lock();
             try {
                 con.idleNetworkTracker.markNetworkActivity();
+                socketWriteCount.incrementAndGet();
                 outputStream.write(data, offset, length);
             } finally {
                 outputStreamLock.unlock();
@@ -2344,7 +2497,158 @@ final class TDSChannel implements Serializable {
         }
     }
 
+    /**
+     * Writes the remaining bytes of a packet buffer to the channel. Direct buffers are written to the channel
+     * transport, or encrypted by the SSL engine, without a copy.
+     */
+    final void write(ByteBuffer data) throws SQLServerException {
+        if (!data.hasRemaining())
+            return;
+
+        flushCoalescedPackets();
+        send(data);
+    }
+
+    private void send(ByteBuffer data) throws SQLServerException {
+        if (!data.hasArray()) {
+            if (null != sslEngineChannel || null != socketChannel) {
+                try {
+                    outputStreamLock.lock();
+                    try {
+                        con.idleNetworkTracker.markNetworkActivity();
+                        socketWriteCount.incrementAndGet();
+                        if (null != sslEngineChannel)
+                            sslEngineChannel.write(data);
+                        else
+                            socketChannel.write(data);
+                    } finally {
+                        outputStreamLock.unlock();
+                    }
+                } catch (IOException e) {
+                    if (logger.isLoggable(Level.FINER))
+                        logger.finer(toString() + " write failed:" + e.getMessage());
+
+                    con.terminate(SQLServerException.DRIVER_ERROR_IO_FAILED, e.getMessage(), e);
+                }
+                return;
+            }
+
+            // SSL streams need the bytes in an array.
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            send(bytes, 0, bytes.length);
+            return;
+        }
+
+        send(data.array(), data.arrayOffset() + ((Buffer) data).position(), data.remaining());
+        ((Buffer) data).position(((Buffer) data).limit());
+    }
+
+    /**
+     * Writes a complete TDS packet of the message being sent.
+     *
+     * When write coalescing is enabled (maxCoalescedPackets greater than 1), the packet is copied to the coalescing
+     * buffer instead, and the packets gathered there are written with a single write once the buffer cannot take
+     * another packet, at the end of the message, or before anything else is written to the channel. Packets thus
+     * always reach the server in order, and a request is complete on the wire once its last packet has been written.
+     *
+     * @param packet
+     *        the packet, from its position to its limit. Its capacity is the packet size.
+     * @param atEOM
+     *        true if this is the last packet of the message
+     */
+    final void writePacket(ByteBuffer packet, boolean atEOM) throws SQLServerException {
+        if (atEOM)
+            sentMessageCount.incrementAndGet();
+
+        int maxCoalescedPackets = con.getMaxCoalescedPackets();
+        // A message that fits in one packet is written as it is.
+        if (maxCoalescedPackets <= 1
+                || (atEOM && (null == coalescingBuffer || 0 == ((Buffer) coalescingBuffer).position()))) {
+            write(packet);
+            return;
+        }
+
+        outputStreamLock.lock();
+        try {
+            // Size the buffer for the current packet size; the packet size changes after login.
+            int capacity = maxCoalescedPackets * packet.capacity();
+            if (null == coalescingBuffer || coalescingBuffer.capacity() != capacity
+                    || coalescingBuffer.isDirect() != packet.isDirect()) {
+                flushCoalescedPackets();
+                coalescingBuffer = packet.isDirect() ? ByteBuffer.allocateDirect(capacity)
+                                                     : ByteBuffer.allocate(capacity);
+            } else if (coalescingBuffer.remaining() < packet.remaining()) {
+                flushCoalescedPackets();
+            }
+
+            coalescingBuffer.put(packet);
+
+            if (atEOM || coalescingBuffer.remaining() < packet.capacity())
+                flushCoalescedPackets();
+        } finally {
+            outputStreamLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the packets gathered by {@link #writePacket(ByteBuffer, boolean)} with a single write.
+     */
+    private void flushCoalescedPackets() throws SQLServerException {
+        if (null == coalescingBuffer || 0 == ((Buffer) coalescingBuffer).position())
+            return;
+
+        outputStreamLock.lock();
+        try {
+            ((Buffer) coalescingBuffer).flip();
+            try {
+                send(coalescingBuffer);
+            } finally {
+                ((Buffer) coalescingBuffer).clear();
+            }
+        } finally {
+            outputStreamLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the channel can send a packet from a separate header buffer and payload buffer without the
+     * payload being copied first. The SSL engine encrypts straight from either kind of buffer; the unencrypted channel
+     * transport writes direct buffers as they are.
+     */
+    final boolean isGatheringWriteSupported(boolean isDirectPayload) {
+        return null != sslEngineChannel || (isDirectPayload && null != socketChannel);
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffers, in order, with a gathering write. Only used when
+     * {@link #isGatheringWriteSupported(boolean)}.
+     */
+    final void write(ByteBuffer[] data) throws SQLServerException {
+        assert null != sslEngineChannel || null != socketChannel;
+        flushCoalescedPackets();
+        try {
+            outputStreamLock.lock();
+            try {
+                con.idleNetworkTracker.markNetworkActivity();
+                socketWriteCount.incrementAndGet();
+                if (null != sslEngineChannel)
+                    sslEngineChannel.write(data);
+                else
+                    socketChannel.write(data);
+            } finally {
+                outputStreamLock.unlock();
+            }
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.FINER))
+                logger.finer(toString() + " write failed:" + e.getMessage());
+
+            con.terminate(SQLServerException.DRIVER_ERROR_IO_FAILED, e.getMessage(), e);
+        }
+    }
+
     final void flush() throws SQLServerException {
+        flushCoalescedPackets();
         try {
             con.idleNetworkTracker.markNetworkActivity();
             outputStream.flush();
@@ -2359,9 +2663,21 @@ final class TDSChannel implements Serializable {
     final void close() {
         clearChannelBindingInfo();
 
-        if (null != sslSocket)
+        if (null != packetPool && logger.isLoggable(Level.FINER))
+            logger.finer(this.toString() + ": Closing with " + packetPool.toString());
+
+        if (logger.isLoggable(Level.FINER))
+            logger.finer(this.toString() + ": Closing after " + socketWriteCount.get() + " socket writes for "
+                    + sentMessageCount.get() + " messages");
+
+        coalescingBuffer = null;
+
+        if (null != sslSocket || null != sslEngineChannel)
             disableSSL();
 
+        if (null != socketChannel)
+            socketChannel.close();
+
         if (null != inputStream) {
             if (logger.isLoggable(Level.FINEST))
                 logger.finest(this.toString() + ": Closing inputStream...");
@@ -2674,53 +2990,8 @@ final class SocketFinder {
                 // Single address so do not start any threads
                 return getConnectedSocket(inetAddrs[0], portNumber, timeoutInMilliSeconds);
             }
-            timeoutInMilliSeconds = Math.max(timeoutInMilliSeconds, MIN_TIMEOUT_FOR_PARALLEL_CONNECTIONS);
-            if (Util.isIBM()) {
-                if (logger.isLoggable(Level.FINER)) {
-                    logger.finer(this.toString() + "Using Java NIO with timeout:" + timeoutInMilliSeconds);
-                }
-                findSocketUsingJavaNIO(inetAddrs, portNumber, timeoutInMilliSeconds);
-            } else {
-                if (logger.isLoggable(Level.FINER)) {
-                    logger.finer(this.toString() + "Using Threading with timeout:" + timeoutInMilliSeconds);
-                }
-                findSocketUsingThreading(inetAddrs, portNumber, timeoutInMilliSeconds);
-            }
-
-            // If the thread continued execution due to timeout, the result may not be known.
-            // In that case, update the result to failure. Note that this case is possible
-            // for both IPv4 and IPv6.
-            // Using double-checked locking for performance reasons.
-            if (result.equals(Result.UNKNOWN)) {
-                socketFinderlock.lock();
-                try {
-                    if (result.equals(Result.UNKNOWN)) {
-                        result = Result.FAILURE;
-                        if (logger.isLoggable(Level.FINER)) {
-                            logger.finer(this.toString() + " The parent thread updated the result to failure");
-                        }
-                    }
-                } finally {
-                    socketFinderlock.unlock();
-                }
-            }
-
-            // After we reach this point, there is no need for synchronization any more.
-            // Because, the result would be known(success/failure).
-            // And no threads would update SocketFinder
-            // as their function calls would now be no-ops.
-            if (result.equals(Result.FAILURE)) {
-                if (selectedException == null) {
-                    if (logger.isLoggable(Level.FINER)) {
-                        logger.finer(this.toString()
-                                + " There is no selectedException. The wait calls timed out before any connect call returned or timed out.");
-                    }
-                    String message = SQLServerException.getErrString("R_connectionTimedOut");
-                    selectedException = new IOException(message);
-                }
-                throw selectedException;
-            }
-
+            findSocketInParallel(hostName, inetAddrs, portNumber, timeoutInMilliSeconds,
+                    conn.getParallelConnectMode());
         } catch (InterruptedException ex) {
             // re-interrupt the current thread, in order to restore the thread's interrupt status.
             Thread.currentThread().interrupt();
@@ -2749,18 +3020,93 @@ final class SocketFinder {
     }
 
     /**
-     * This function uses java NIO to connect to all the addresses in inetAddrs with in a specified timeout. If it
-     * succeeds in connecting, it closes all the other open sockets and updates the result to success.
+     * Connects to one of several addresses of a server at once, as parallelConnectMode says, and returns the socket of
+     * the first attempt to connect. Package-private so that the modes can be tested with addresses of the loopback
+     * interface, which a host name seldom resolves to more than one of.
+     *
+     * @throws IOException
+     *         the exception of an attempt, or a timeout, if no attempt connected
+     */
+    Socket findSocketInParallel(String hostName, InetAddress[] inetAddrs, int portNumber, int timeoutInMilliSeconds,
+            ParallelConnectMode parallelConnectMode) throws IOException, InterruptedException {
+        timeoutInMilliSeconds = Math.max(timeoutInMilliSeconds, MIN_TIMEOUT_FOR_PARALLEL_CONNECTIONS);
+        // The selector and staggered modes open their own SocketChannels, so they cannot be used with a custom
+        // socket factory.
+        if (null != conn.getSocketFactoryClass())
+            parallelConnectMode = ParallelConnectMode.THREADS;
+        if (Util.isIBM() || ParallelConnectMode.THREADS != parallelConnectMode) {
+            boolean staggered = ParallelConnectMode.STAGGERED == parallelConnectMode;
+            if (logger.isLoggable(Level.FINER)) {
+                logger.finer(this.toString() + "Using Java NIO with timeout:" + timeoutInMilliSeconds
+                        + (staggered ? ", staggered" : ""));
+            }
+            findSocketUsingJavaNIO(hostName, inetAddrs, portNumber, timeoutInMilliSeconds, staggered);
+        } else {
+            if (logger.isLoggable(Level.FINER)) {
+                logger.finer(this.toString() + "Using Threading with timeout:" + timeoutInMilliSeconds);
+            }
+            findSocketUsingThreading(inetAddrs, portNumber, timeoutInMilliSeconds);
+        }
+
+        // If the thread continued execution due to timeout, the result may not be known.
+        // In that case, update the result to failure. Note that this case is possible
+        // for both IPv4 and IPv6.
+        // Using double-checked locking for performance reasons.
+        if (result.equals(Result.UNKNOWN)) {
+            socketFinderlock.lock();
+            try {
+                if (result.equals(Result.UNKNOWN)) {
+                    result = Result.FAILURE;
+                    if (logger.isLoggable(Level.FINER)) {
+                        logger.finer(this.toString() + " The parent thread updated the result to failure");
+                    }
+                }
+            } finally {
+                socketFinderlock.unlock();
+            }
+        }
+
+        // After we reach this point, there is no need for synchronization any more.
+        // Because, the result would be known(success/failure).
+        // And no threads would update SocketFinder
+        // as their function calls would now be no-ops.
+        if (result.equals(Result.FAILURE)) {
+            if (selectedException == null) {
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.finer(this.toString()
+                            + " There is no selectedException. The wait calls timed out before any connect call returned or timed out.");
+                }
+                String message = SQLServerException.getErrString("R_connectionTimedOut");
+                selectedException = new IOException(message);
+            }
+            throw selectedException;
+        }
+        return selectedSocket;
+    }
+
+    /**
+     * This function uses java NIO to connect to all the addresses in inetAddrs with in a specified timeout. All of the
+     * connection attempts are driven by the calling thread through a single Selector, so no threads are created no
+     * matter how many addresses there are. Each attempt reports its outcome through updateResult, so the first
+     * connected channel wins as in findSocketUsingThreading. All the other channels are closed.
+     * 
+     * When staggered is true, the addresses are tried in the order of their recent connect latency, and each attempt
+     * after the first is started only when the previous one has not connected after a short delay, or as soon as it
+     * fails. The outcome of every finished attempt is remembered in ConnectLatencyHistory.
      * 
+     * @param hostName
+     *        the host name the addresses were resolved from
      * @param inetAddrs
      *        the array of inetAddress to which connection should be made
      * @param portNumber
      *        the port number at which connection should be made
      * @param timeoutInMilliSeconds
+     * @param staggered
+     *        whether to start the attempts one after another instead of all at once
      * @throws IOException
      */
-    private void findSocketUsingJavaNIO(InetAddress[] inetAddrs, int portNumber,
-            int timeoutInMilliSeconds) throws IOException {
+    private void findSocketUsingJavaNIO(String hostName, InetAddress[] inetAddrs, int portNumber,
+            int timeoutInMilliSeconds, boolean staggered) throws IOException {
         // The driver does not allow a time out of zero.
         // Also, the unit of time the user can specify in the driver is seconds.
         // So, even if the user specifies 1 second(least value), the least possible
@@ -2768,47 +3114,52 @@ final class SocketFinder {
         assert timeoutInMilliSeconds != 0 : "The timeout cannot be zero";
         assert inetAddrs.length != 0 : "Number of inetAddresses should not be zero in this function";
 
+        ConnectLatencyHistory history = staggered ? ConnectLatencyHistory.getInstance() : null;
+        if (null != history)
+            inetAddrs = history.order(hostName, portNumber, inetAddrs);
+
         Selector selector = null;
         LinkedList<SocketChannel> socketChannels = new LinkedList<>();
-        SocketChannel selectedChannel = null;
 
         try {
             selector = Selector.open();
 
-            for (InetAddress inetAddr : inetAddrs) {
-                SocketChannel sChannel = SocketChannel.open();
-                socketChannels.add(sChannel);
-
-                // make the channel non-blocking
-                sChannel.configureBlocking(false);
-
-                // register the channel for connect event
-                @SuppressWarnings("unused")
-                int ops = SelectionKey.OP_CONNECT;
-                SelectionKey key = sChannel.register(selector, ops);
-
-                sChannel.connect(new InetSocketAddress(inetAddr, portNumber));
-
-                if (logger.isLoggable(Level.FINER))
-                    logger.finer(this.toString() + " initiated connection to address: " + inetAddr + ", portNumber: "
-                            + portNumber);
-            }
+            // Every address counts as one attempt that must report its outcome through updateResult.
+            noOfSpawnedThreads = inetAddrs.length;
 
             long timerNow = System.currentTimeMillis();
             long timerExpire = timerNow + timeoutInMilliSeconds;
 
-            // Denotes the no of channels that still need to processed
-            int noOfOutstandingChannels = inetAddrs.length;
+            // index of the next address to try, and the time at which it should be tried
+            int nextAddress = 0;
+            long nextAttemptTime = timerNow;
+            // no of attempts started that have not reported their outcome yet
+            int pendingAttempts = 0;
+
+            while (result.equals(Result.UNKNOWN)) {
+                // Start the attempts that are due. Without staggering, that is all of them.
+                while (nextAddress < inetAddrs.length && result.equals(Result.UNKNOWN)
+                        && (null == history || timerNow >= nextAttemptTime || 0 == pendingAttempts)) {
+                    InetAddress inetAddr = inetAddrs[nextAddress++];
+                    if (startConnect(selector, socketChannels, hostName, inetAddr, portNumber, history))
+                        pendingAttempts++;
+
+                    if (null != history)
+                        nextAttemptTime = timerNow + history.getAttemptDelayMillis(hostName, portNumber, inetAddr);
+                }
 
-            while (true) {
                 long timeRemaining = timerExpire - timerNow;
-                // if the timeout expired or a channel is selected or there are no more channels left to processes
-                if ((timeRemaining <= 0) || (selectedChannel != null) || (noOfOutstandingChannels <= 0))
+                // if the timeout expired, the parent thread marks the result as failure
+                if (!result.equals(Result.UNKNOWN) || timeRemaining <= 0)
                     break;
 
+                long selectTimeout = timeRemaining;
+                if (nextAddress < inetAddrs.length)
+                    selectTimeout = Math.max(1, Math.min(selectTimeout, nextAttemptTime - timerNow));
+
                 // denotes the no of channels that are ready to be processed. i.e. they are either connected
                 // or encountered an exception while trying to connect
-                int readyChannels = selector.select(timeRemaining);
+                int readyChannels = selector.select(selectTimeout);
 
                 if (logger.isLoggable(Level.FINER))
                     logger.finer(this.toString() + " no of channels ready: " + readyChannels);
@@ -2818,11 +3169,9 @@ final class SocketFinder {
                 // a) to guard against cases where the select returns faster than expected.
                 // b) for cases where no channels could connect with in the time out
                 if (readyChannels != 0) {
-                    Set<SelectionKey> selectedKeys = selector.selectedKeys();
-                    Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
-
-                    while (keyIterator.hasNext()) {
+                    Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
 
+                    while (keyIterator.hasNext() && result.equals(Result.UNKNOWN)) {
                         SelectionKey key = keyIterator.next();
                         SocketChannel ch = (SocketChannel) key.channel();
 
@@ -2830,34 +3179,35 @@ final class SocketFinder {
                             logger.finer(this.toString() + " processing the channel :" + ch);// this traces the IP by
                                                                                              // default
 
-                        boolean connected = false;
-                        try {
-                            connected = ch.finishConnect();
+                        // unregister the key and remove from the selector's selectedKeys
+                        key.cancel();
+                        keyIterator.remove();
+                        pendingAttempts--;
 
+                        ConnectAttempt attempt = (ConnectAttempt) key.attachment();
+                        try {
                             // ch.finishConnect should either return true or throw an exception
                             // as we have subscribed for OP_CONNECT.
+                            boolean connected = ch.finishConnect();
                             assert connected : "finishConnect on channel:" + ch + " cannot be false";
 
-                            selectedChannel = ch;
-
-                            if (logger.isLoggable(Level.FINER))
-                                logger.finer(this.toString() + " selected the channel :" + selectedChannel);
-
-                            break;
+                            if (null != history) {
+                                history.recordSuccess(hostName, portNumber, attempt.address,
+                                        System.nanoTime() - attempt.startNanos);
+                                recordSlowerAttempts(selector, history, hostName, portNumber, attempt);
+                            }
+                            updateResult(ch.socket(), null, this.toString());
                         } catch (IOException ex) {
                             if (logger.isLoggable(Level.FINER))
                                 logger.finer(this.toString() + " the exception: " + ex.getClass() + " with message: "
                                         + ex.getMessage() + " occurred while processing the channel: " + ch);
-                            updateSelectedException(ex, this.toString());
                             // close the channel pro-actively so that we do not
                             // rely to network resources
-                            ch.close();
+                            close(ch);
+                            if (null != history)
+                                history.recordFailure(hostName, portNumber, attempt.address);
+                            updateResult(ch.socket(), ex, this.toString());
                         }
-
-                        // unregister the key and remove from the selector's selectedKeys
-                        key.cancel();
-                        keyIterator.remove();
-                        noOfOutstandingChannels--;
                     }
                 }
 
@@ -2867,7 +3217,8 @@ final class SocketFinder {
             // in case of an exception, close the selected channel.
             // All other channels will be closed in the finally block,
             // as they need to be closed irrespective of a success/failure
-            close(selectedChannel);
+            close(selectedSocket);
+            selectedSocket = null;
             throw ex;
         } finally {
             // close the selector
@@ -2885,25 +3236,103 @@ final class SocketFinder {
             // This code is should be in the finally block to guard against cases where
             // we pre-maturely exit try block due to an exception in selector or other places.
             for (SocketChannel s : socketChannels) {
-                if (s != selectedChannel) {
+                if (s.socket() != selectedSocket) {
                     close(s);
                 }
             }
         }
 
         // if a channel was selected, make the necessary updates
-        if (selectedChannel != null) {
+        if (selectedSocket != null) {
             // Note that this must be done after selector is closed. Otherwise,
             // we would get an illegalBlockingMode exception at run time.
-            selectedChannel.configureBlocking(true);
-            selectedSocket = selectedChannel.socket();
+            selectedSocket.getChannel().configureBlocking(true);
+        }
+    }
 
-            result = Result.SUCCESS;
+    /**
+     * A connection attempt started by findSocketUsingJavaNIO. It is attached to the attempt's SelectionKey.
+     */
+    private static final class ConnectAttempt {
+        final InetAddress address;
+        // System.nanoTime() value at which the connect was started
+        final long startNanos;
+
+        ConnectAttempt(InetAddress address, long startNanos) {
+            this.address = address;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Starts a non-blocking connect to the given address, and registers its channel with the selector unless the
+     * connect completed or failed immediately, in which case the outcome is reported right away.
+     * 
+     * @return true if the attempt is pending on the selector
+     */
+    private boolean startConnect(Selector selector, List<SocketChannel> socketChannels, String hostName,
+            InetAddress inetAddr, int portNumber, ConnectLatencyHistory history) throws IOException {
+        SocketChannel sChannel = SocketChannel.open();
+        socketChannels.add(sChannel);
+
+        // make the channel non-blocking
+        sChannel.configureBlocking(false);
+
+        if (logger.isLoggable(Level.FINER))
+            logger.finer(this.toString() + " initiating connection to address: " + inetAddr + ", portNumber: "
+                    + portNumber);
+
+        long startNanos = System.nanoTime();
+        // A connection can be established immediately, e.g. to a local address, in which case no connect
+        // event will follow.
+        try {
+            if (sChannel.connect(new InetSocketAddress(inetAddr, portNumber))) {
+                if (null != history)
+                    history.recordSuccess(hostName, portNumber, inetAddr, System.nanoTime() - startNanos);
+                updateResult(sChannel.socket(), null, this.toString());
+                return false;
+            }
+        } catch (IOException ex) {
+            close(sChannel);
+            if (null != history)
+                history.recordFailure(hostName, portNumber, inetAddr);
+            updateResult(sChannel.socket(), ex, this.toString());
+            return false;
+        }
+
+        // register the channel for connect event
+        sChannel.register(selector, SelectionKey.OP_CONNECT, new ConnectAttempt(inetAddr, startNanos));
+        return true;
+    }
+
+    /**
+     * Records the attempts that are still pending when another attempt connected, and that had been started before
+     * it, as at least as slow as the time they have taken so far. This moves an address that stopped answering behind
+     * the address that connected, rather than trying it first again on the next connect.
+     */
+    private static void recordSlowerAttempts(Selector selector, ConnectLatencyHistory history, String hostName,
+            int portNumber, ConnectAttempt winner) {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            ConnectAttempt attempt = (ConnectAttempt) key.attachment();
+            if (key.isValid() && attempt != winner && attempt.startNanos - winner.startNanos < 0)
+                history.recordSuccess(hostName, portNumber, attempt.address, now - attempt.startNanos);
         }
     }
 
     private SocketFactory socketFactory = null;
 
+    /**
+     * Creates an unconnected socket. The SocketChannel transport needs a socket backed by a channel, which only the
+     * default socket factory can be replaced with.
+     */
+    private Socket createSocket() throws IOException {
+        if (conn.getUseSocketChannel() && null == conn.getSocketFactoryClass())
+            return SocketChannel.open().socket();
+
+        return getSocketFactory().createSocket();
+    }
+
     private SocketFactory getSocketFactory() throws IOException {
         if (socketFactory == null) {
             String socketFactoryClass = conn.getSocketFactoryClass();
@@ -3052,7 +3481,7 @@ final class SocketFinder {
         assert timeoutInMilliSeconds != 0 : "timeout cannot be zero";
         if (addr.isUnresolved())
             throw new java.net.UnknownHostException();
-        selectedSocket = getSocketFactory().createSocket();
+        selectedSocket = createSocket();
         if (!selectedSocket.isConnected()) {
             selectedSocket.connect(addr, timeoutInMilliSeconds);
         }
@@ -3073,7 +3502,7 @@ final class SocketFinder {
             // create a socket, inetSocketAddress and a corresponding socketConnector per inetAddress
             noOfSpawnedThreads = inetAddrs.length;
             for (InetAddress inetAddress : inetAddrs) {
-                Socket s = getSocketFactory().createSocket();
+                Socket s = createSocket();
                 sockets.add(s);
 
                 InetSocketAddress inetSocketAddress = new InetSocketAddress(inetAddress, portNumber);
@@ -3540,8 +3969,16 @@ final class TDSWriter {
     private char[] streamCharBuffer;
     private byte[] streamByteBuffer;
 
+    // Header and buffers of a packet sent straight from the caller's value (see writeDirectPacket)
+    private final ByteBuffer directPacketHeader = ByteBuffer.allocate(TDS_PACKET_HEADER_SIZE);
+    private final ByteBuffer[] directPacketBuffers = new ByteBuffer[2];
+
     private CryptoMetadata cryptoMeta = null;
 
+    // Bytes written to memory instead of being sent, when the writer encodes values ahead of sending them (see
+    // startBuffer)
+    private ByteArrayOutputStream bufferedBytes;
+
     TDSWriter(TDSChannel tdsChannel, SQLServerConnection con) {
         this.tdsChannel = tdsChannel;
         this.con = con;
@@ -3608,8 +4045,15 @@ final class TDSWriter {
         // then allocate new buffers that are the correct size.
         int negotiatedPacketSize = con.getTDSPacketSize();
         if (currentPacketSize != negotiatedPacketSize) {
-            socketBuffer = ByteBuffer.allocate(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
-            stagingBuffer = ByteBuffer.allocate(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
+            // Packets sent over the channel transport are staged in direct buffers so they can be written without a
+            // further copy.
+            if (tdsChannel.isDirectTransport() && null == bufferedBytes) {
+                socketBuffer = ByteBuffer.allocateDirect(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
+                stagingBuffer = ByteBuffer.allocateDirect(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                socketBuffer = ByteBuffer.allocate(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
+                stagingBuffer = ByteBuffer.allocate(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
+            }
             logBuffer = ByteBuffer.allocate(negotiatedPacketSize).order(ByteOrder.LITTLE_ENDIAN);
             currentPacketSize = negotiatedPacketSize;
             streamCharBuffer = new char[2 * currentPacketSize];
@@ -3623,6 +4067,45 @@ final class TDSWriter {
         writeMessageHeader();
     }
 
+    /**
+     * Starts encoding values into memory instead of into a TDS message, so that they can be encoded by a thread other
+     * than the one that sends them. The values are written with the usual write operations, and the bytes are taken
+     * with {@link #takeBufferedBytes}. The writer must not be used for a TDS message afterwards.
+     */
+    void startBuffer() throws SQLServerException {
+        if (null == bufferedBytes)
+            bufferedBytes = new ByteArrayOutputStream();
+        startMessage(null, TDS.PKT_BULK);
+    }
+
+    /**
+     * Returns the number of bytes written since the writer started encoding into memory, or since the bytes were last
+     * taken.
+     */
+    int getBufferedLength() {
+        return bufferedBytes.size() + ((Buffer) stagingBuffer).position() - TDS_PACKET_HEADER_SIZE;
+    }
+
+    /**
+     * Returns the bytes written since the writer started encoding into memory, or since the bytes were last taken.
+     */
+    byte[] takeBufferedBytes() throws SQLServerException {
+        bufferPacket();
+        byte[] bytes = bufferedBytes.toByteArray();
+        bufferedBytes.reset();
+        return bytes;
+    }
+
+    /**
+     * Moves the data in the staging buffer to the buffered bytes, leaving the staging buffer ready for the next data.
+     */
+    private void bufferPacket() throws SQLServerException {
+        bufferedBytes.write(stagingBuffer.array(), stagingBuffer.arrayOffset() + TDS_PACKET_HEADER_SIZE,
+                ((Buffer) stagingBuffer).position() - TDS_PACKET_HEADER_SIZE);
+        ((Buffer) stagingBuffer).clear();
+        preparePacket();
+    }
+
     final void endMessage() throws SQLServerException {
         if (logger.isLoggable(Level.FINEST))
             logger.finest(toString() + " Finishing TDS message");
@@ -4266,6 +4749,14 @@ final class TDSWriter {
             if (0 == stagingBuffer.remaining())
                 writePacket(TDS.STATUS_NORMAL);
 
+            // Send whole packets of a large value straight from the caller's array when the channel allows it.
+            if (canWriteDirectPacket(bytesToWrite, false)) {
+                bytesToWrite = stagingBuffer.remaining();
+                writeDirectPacket(ByteBuffer.wrap(value, offset + bytesWritten, bytesToWrite));
+                bytesWritten += bytesToWrite;
+                continue;
+            }
+
             if (bytesToWrite > stagingBuffer.remaining())
                 bytesToWrite = stagingBuffer.remaining();
 
@@ -4281,6 +4772,83 @@ final class TDSWriter {
         }
     }
 
+    /**
+     * Writes the remaining bytes of value, leaving its position at its limit. Whole packets of a large value are sent
+     * straight from the buffer when the channel allows it, so data in a direct buffer can be sent without being copied
+     * to the heap.
+     */
+    void writeBytes(ByteBuffer value) throws SQLServerException {
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest(toString() + " Writing " + value.remaining() + " bytes");
+        }
+
+        while (value.hasRemaining()) {
+            if (0 == stagingBuffer.remaining())
+                writePacket(TDS.STATUS_NORMAL);
+
+            int bytesToWrite = Math.min(value.remaining(), stagingBuffer.remaining());
+            ByteBuffer chunk = value.duplicate();
+            ((Buffer) chunk).limit(chunk.position() + bytesToWrite);
+
+            if (canWriteDirectPacket(value.remaining(), value.isDirect())) {
+                writeDirectPacket(chunk);
+            } else {
+                stagingBuffer.put(chunk);
+                if (tdsChannel.isLoggingPackets()) {
+                    if (dataIsLoggable) {
+                        ((Buffer) chunk).position(value.position());
+                        logBuffer.put(chunk);
+                    } else {
+                        ((Buffer) logBuffer).position(((Buffer) logBuffer).position() + bytesToWrite);
+                    }
+                }
+            }
+
+            ((Buffer) value).position(value.position() + bytesToWrite);
+        }
+    }
+
+    /**
+     * Returns whether the next packet can be sent straight from the value being written instead of being staged: the
+     * staging buffer holds no data yet, the value fills the packet with bytes to spare (so that it is never the last
+     * packet of the message) and the channel can send it without a copy. Values in heap buffers are staged when write
+     * coalescing is enabled, as gathering their packets into fewer writes saves more than the copy costs.
+     */
+    private boolean canWriteDirectPacket(int bytesToWrite, boolean isDirectValue) {
+        return null == bufferedBytes && TDS_PACKET_HEADER_SIZE == ((Buffer) stagingBuffer).position()
+                && bytesToWrite > stagingBuffer.remaining() && !tdsChannel.isLoggingPackets()
+                && TDS.PKT_LOGON70 != tdsMessageType && (isDirectValue || con.getMaxCoalescedPackets() <= 1)
+                && tdsChannel.isGatheringWriteSupported(isDirectValue);
+    }
+
+    /**
+     * Sends a full packet whose payload is the remaining bytes of the given buffer, with a gathering write of a
+     * separate packet header and the payload. The staging buffer is left as it was, ready for the next packet.
+     */
+    private void writeDirectPacket(ByteBuffer payload) throws SQLServerException {
+        assert TDS_PACKET_HEADER_SIZE + payload.remaining() == currentPacketSize;
+
+        // Before writing each packet to the channel, check if an interrupt has occurred.
+        if (null != command)
+            command.checkForInterrupt();
+
+        ++packetNum;
+        ((Buffer) directPacketHeader).clear();
+        putPacketHeader(directPacketHeader, TDS.STATUS_NORMAL | sendResetConnection, currentPacketSize);
+        sendResetConnection = 0;
+
+        // Packets go out in order, so first send whatever is left of the previous packet.
+        tdsChannel.write(socketBuffer);
+
+        directPacketBuffers[0] = directPacketHeader;
+        directPacketBuffers[1] = payload;
+        try {
+            tdsChannel.write(directPacketBuffers);
+        } finally {
+            directPacketBuffers[1] = null;
+        }
+    }
+
     void writeWrappedBytes(byte[] value, int valueLength) throws SQLServerException {
         // This function should only be used to write a value that is longer than
         // what remains in the current staging buffer. However, the value must
@@ -4347,6 +4915,24 @@ final class TDSWriter {
             boolean writeChunkSizes) throws SQLServerException {
         assert DataTypes.UNKNOWN_STREAM_LENGTH == advertisedLength || advertisedLength >= 0;
 
+        // ByteBuffer values are sent straight from the buffer, as a single chunk when chunked.
+        if (inputStream instanceof ByteBufferInputStream) {
+            ByteBuffer value = ((ByteBufferInputStream) inputStream).takeRemaining();
+            long actualLength = value.remaining();
+            if (DataTypes.UNKNOWN_STREAM_LENGTH != advertisedLength && actualLength != advertisedLength) {
+                MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_mismatchedStreamLength"));
+                Object[] msgArgs = {advertisedLength, actualLength};
+                error(form.format(msgArgs), SQLState.DATA_EXCEPTION_LENGTH_MISMATCH, DriverError.NOT_SET);
+            }
+
+            if (writeChunkSizes && actualLength > 0)
+                writeInt((int) actualLength);
+            writeBytes(value);
+            if (writeChunkSizes)
+                writeInt(0);
+            return;
+        }
+
         long actualLength = 0;
         final byte[] buff = new byte[4 * currentPacketSize];
         int bytesRead = 0;
@@ -4558,8 +5144,11 @@ final class TDSWriter {
     }
 
     final void error(String reason, SQLState sqlState, DriverError driverError) throws SQLServerException {
-        assert null != command;
-        command.interrupt(reason);
+        // A writer that encodes into memory has no command. The command that sends its bytes is interrupted when the
+        // error reaches it.
+        assert null != command || null != bufferedBytes;
+        if (null != command)
+            command.interrupt(reason);
         throw new SQLServerException(reason, sqlState, driverError, null);
     }
 
@@ -4599,7 +5188,12 @@ final class TDSWriter {
         return false;
     }
 
-    private void writePacket(int tdsMessageStatus) throws SQLServerException {
+    private void writePacket(int tdsMessageStatus) throws SQLServerException {
+        if (null != bufferedBytes) {
+            bufferPacket();
+            return;
+        }
+
         final boolean atEOM = (TDS.STATUS_BIT_EOM == (TDS.STATUS_BIT_EOM & tdsMessageStatus));
         final boolean isCancelled = ((TDS.PKT_CANCEL_REQ == tdsMessageType)
                 || ((tdsMessageStatus & TDS.STATUS_BIT_ATTENTION) == TDS.STATUS_BIT_ATTENTION));
@@ -4641,42 +5235,32 @@ final class TDSWriter {
         ++packetNum;
 
         // Write the TDS packet header back at the start of the staging buffer
-        stagingBuffer.put(TDS.PACKET_HEADER_MESSAGE_TYPE, tdsMessageType);
-        stagingBuffer.put(TDS.PACKET_HEADER_MESSAGE_STATUS, (byte) tdsMessageStatus);
-        stagingBuffer.put(TDS.PACKET_HEADER_MESSAGE_LENGTH, (byte) ((tdsMessageLength >> 8) & 0xFF)); // Note: message
-                                                                                                      // length is 16
-                                                                                                      // bits,
-        stagingBuffer.put(TDS.PACKET_HEADER_MESSAGE_LENGTH + 1, (byte) ((tdsMessageLength >> 0) & 0xFF)); // written BIG
-        // ENDIAN
-        stagingBuffer.put(TDS.PACKET_HEADER_SPID, (byte) ((tdsChannel.getSPID() >> 8) & 0xFF)); // Note: SPID is 16
-                                                                                                // bits,
-        stagingBuffer.put(TDS.PACKET_HEADER_SPID + 1, (byte) ((tdsChannel.getSPID() >> 0) & 0xFF)); // written BIG
-        // ENDIAN
-        stagingBuffer.put(TDS.PACKET_HEADER_SEQUENCE_NUM, (byte) (packetNum % 256));
-        stagingBuffer.put(TDS.PACKET_HEADER_WINDOW, (byte) 0); // Window (Reserved/Not used)
+        putPacketHeader(stagingBuffer, tdsMessageStatus, tdsMessageLength);
 
         // Write the header to the log buffer too if logging.
-        if (tdsChannel.isLoggingPackets()) {
-            logBuffer.put(TDS.PACKET_HEADER_MESSAGE_TYPE, tdsMessageType);
-            logBuffer.put(TDS.PACKET_HEADER_MESSAGE_STATUS, (byte) tdsMessageStatus);
-            logBuffer.put(TDS.PACKET_HEADER_MESSAGE_LENGTH, (byte) ((tdsMessageLength >> 8) & 0xFF)); // Note: message
-                                                                                                      // length is 16
-                                                                                                      // bits,
-            logBuffer.put(TDS.PACKET_HEADER_MESSAGE_LENGTH + 1, (byte) ((tdsMessageLength >> 0) & 0xFF)); // written BIG
-            // ENDIAN
-            logBuffer.put(TDS.PACKET_HEADER_SPID, (byte) ((tdsChannel.getSPID() >> 8) & 0xFF)); // Note: SPID is 16
-                                                                                                // bits,
-            logBuffer.put(TDS.PACKET_HEADER_SPID + 1, (byte) ((tdsChannel.getSPID() >> 0) & 0xFF)); // written BIG
-            // ENDIAN
-            logBuffer.put(TDS.PACKET_HEADER_SEQUENCE_NUM, (byte) (packetNum % 256));
-            logBuffer.put(TDS.PACKET_HEADER_WINDOW, (byte) 0); // Window (Reserved/Not used);
-        }
+        if (tdsChannel.isLoggingPackets())
+            putPacketHeader(logBuffer, tdsMessageStatus, tdsMessageLength);
+    }
+
+    /**
+     * Writes the header of the current packet at the start of the given buffer, without moving its position.
+     */
+    private void putPacketHeader(ByteBuffer buffer, int tdsMessageStatus, int tdsMessageLength) {
+        buffer.put(TDS.PACKET_HEADER_MESSAGE_TYPE, tdsMessageType);
+        buffer.put(TDS.PACKET_HEADER_MESSAGE_STATUS, (byte) tdsMessageStatus);
+        // Note: message length is 16 bits, written BIG ENDIAN
+        buffer.put(TDS.PACKET_HEADER_MESSAGE_LENGTH, (byte) ((tdsMessageLength >> 8) & 0xFF));
+        buffer.put(TDS.PACKET_HEADER_MESSAGE_LENGTH + 1, (byte) ((tdsMessageLength >> 0) & 0xFF));
+        // Note: SPID is 16 bits, written BIG ENDIAN
+        buffer.put(TDS.PACKET_HEADER_SPID, (byte) ((tdsChannel.getSPID() >> 8) & 0xFF));
+        buffer.put(TDS.PACKET_HEADER_SPID + 1, (byte) ((tdsChannel.getSPID() >> 0) & 0xFF));
+        buffer.put(TDS.PACKET_HEADER_SEQUENCE_NUM, (byte) (packetNum % 256));
+        buffer.put(TDS.PACKET_HEADER_WINDOW, (byte) 0); // Window (Reserved/Not used)
     }
 
     void flush(boolean atEOM) throws SQLServerException {
         // First, flush any data left in the socket buffer.
-        tdsChannel.write(socketBuffer.array(), ((Buffer) socketBuffer).position(), socketBuffer.remaining());
-        ((Buffer) socketBuffer).position(((Buffer) socketBuffer).limit());
+        tdsChannel.write(socketBuffer);
 
         // If there is data in the staging buffer that needs to be written
         // to the socket, the socket buffer is now empty, so swap buffers
@@ -4708,8 +5292,7 @@ final class TDSWriter {
                 preparePacket();
 
             // Finally, start sending data from the new socket buffer.
-            tdsChannel.write(socketBuffer.array(), ((Buffer) socketBuffer).position(), socketBuffer.remaining());
-            ((Buffer) socketBuffer).position(((Buffer) socketBuffer).limit());
+            tdsChannel.writePacket(socketBuffer, atEOM);
         }
     }
 
@@ -5163,7 +5746,9 @@ final class TDSWriter {
 
                 if (con.equals(srcStmt.getConnection()) && 0 != resultSetServerCursorId) {
                     cachedTVPHeaders = ByteBuffer.allocate(stagingBuffer.capacity()).order(stagingBuffer.order());
-                    cachedTVPHeaders.put(stagingBuffer.array(), 0, ((Buffer) stagingBuffer).position());
+                    ByteBuffer stagedHeaders = stagingBuffer.duplicate();
+                    ((Buffer) stagedHeaders).flip();
+                    cachedTVPHeaders.put(stagedHeaders);
 
                     cachedCommand = this.command;
 
@@ -6892,6 +7477,9 @@ final class TDSPacket {
     int payloadLength;
     volatile TDSPacket next;
 
+    // Position of this packet in the response, as counted by the TDSReader that read it.
+    int packetNum;
+
     final public String toString() {
         return "TDSPacket(SPID:" + Util.readUnsignedShortBigEndian(header, TDS.PACKET_HEADER_SPID) + " Seq:"
                 + header[TDS.PACKET_HEADER_SEQUENCE_NUM] + ")";
@@ -6909,6 +7497,275 @@ final class TDSPacket {
 }
 
 
+/**
+ * TDSPacketPool recycles response packets for a single TDS channel.
+ *
+ * A TDSReader that is streaming through a response returns each packet to the pool once it has moved past it and no
+ * TDSReaderMark can still reach it. Packets that are (or may be) referenced by a mark are never returned; they are left
+ * for GC to reclaim as before. Pooled packets whose payload size no longer matches the negotiated packet size are
+ * discarded on acquire.
+ */
+final class TDSPacketPool {
+    private final int maxIdlePackets;
+    private final ArrayDeque<TDSPacket> idlePackets;
+    private final Lock poolLock = new ReentrantLock();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    TDSPacketPool(int maxIdlePackets) {
+        assert maxIdlePackets > 0;
+        this.maxIdlePackets = maxIdlePackets;
+        this.idlePackets = new ArrayDeque<>(maxIdlePackets);
+    }
+
+    /**
+     * Returns an empty packet with a payload of the given size, reusing an idle packet when one is available.
+     */
+    TDSPacket acquire(int size) {
+        TDSPacket packet;
+        poolLock.lock();
+        try {
+            do {
+                packet = idlePackets.pollFirst();
+            } while (null != packet && packet.payload.length != size);
+        } finally {
+            poolLock.unlock();
+        }
+
+        if (null == packet) {
+            missCount.incrementAndGet();
+            return new TDSPacket(size);
+        }
+
+        hitCount.incrementAndGet();
+        packet.payloadLength = 0;
+        packet.packetNum = 0;
+        return packet;
+    }
+
+    /**
+     * Returns a packet to the pool. The caller must guarantee that nothing else references the packet.
+     */
+    void release(TDSPacket packet) {
+        packet.next = null;
+        poolLock.lock();
+        try {
+            if (idlePackets.size() < maxIdlePackets)
+                idlePackets.offerFirst(packet);
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    int getMaxIdlePackets() {
+        return maxIdlePackets;
+    }
+
+    int getIdleCount() {
+        poolLock.lock();
+        try {
+            return idlePackets.size();
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    final public String toString() {
+        return "TDSPacketPool(idle:" + getIdleCount() + " hits:" + hitCount.get() + " misses:" + missCount.get() + ")";
+    }
+}
+
+
+/**
+ * TDSReadAhead reads the packets of a response on a background thread while the packets already read are being
+ * processed, so that network round trips overlap with row decoding.
+ *
+ * The read-ahead thread only receives packets; the TDSReader takes them in order from readPacket, which does all of
+ * the per-packet bookkeeping on the processing thread as before. Reading stops at the end of the response message, or
+ * while the buffered packets reach the packet limit or the maxResultBuffer limit. Any attention ack that follows the
+ * response is read by the processing thread.
+ *
+ * The read-ahead threads come from a bounded pool. A response that finds every thread busy is read by the processing
+ * thread, which tries again to start reading ahead with its next packet.
+ */
+final class TDSReadAhead implements Runnable {
+    private static final Logger logger = Logger.getLogger("com.microsoft.sqlserver.jdbc.internals.TDS.Reader");
+
+    static final String THREAD_PREFIX = "mssql-jdbc-read-ahead-";
+    private static final AtomicLong threadCounter = new AtomicLong();
+
+    // Maximum number of responses read ahead at once. The threads mostly wait for the network, so there are more of
+    // them than processors.
+    static final int MAX_THREADS = Math.max(64, 8 * Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(0, MAX_THREADS, 60,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), task -> {
+                Thread t = new Thread(task, THREAD_PREFIX + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    // How long a read-ahead thread waits for buffer space before checking whether the connection is still open.
+    private static final long SPACE_WAIT_SECONDS = 1;
+
+    private final TDSReader tdsReader;
+    private final int maxPackets;
+    private final long maxBytes;
+
+    private final ArrayDeque<TDSPacket> packets = new ArrayDeque<>();
+    private long bufferedBytes = 0;
+    private int packetsRead;
+    private boolean isDone = false;
+    private SQLServerException readException = null;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition packetAvailable = lock.newCondition();
+    private final Condition spaceAvailable = lock.newCondition();
+
+    private TDSReadAhead(TDSReader tdsReader, int maxPackets, long maxBytes, int packetsRead) {
+        this.tdsReader = tdsReader;
+        this.maxPackets = maxPackets;
+        this.maxBytes = maxBytes;
+        this.packetsRead = packetsRead;
+    }
+
+    /**
+     * Starts reading ahead the rest of the response of a reader that has read packetsRead packets so far.
+     *
+     * @param maxPackets
+     *        the maximum number of packets to buffer
+     * @param counter
+     *        the maxResultBuffer counter of the command, whose limit also bounds the buffered bytes
+     * @return the read-ahead, or null if every read-ahead thread is busy
+     */
+    static TDSReadAhead start(TDSReader tdsReader, int maxPackets, ICounter counter, int packetsRead) {
+        long maxBytes = (null != counter) ? counter.getMaxResultBuffer() : 0;
+        TDSReadAhead readAhead = new TDSReadAhead(tdsReader, maxPackets, maxBytes, packetsRead);
+        try {
+            threadPoolExecutor.execute(readAhead);
+        } catch (RejectedExecutionException e) {
+            if (logger.isLoggable(Level.FINER))
+                logger.finer(tdsReader.toString() + " No read-ahead thread available");
+            return null;
+        }
+
+        if (logger.isLoggable(Level.FINER))
+            logger.finer(tdsReader.toString() + " Started read-ahead of up to " + maxPackets + " packets");
+        return readAhead;
+    }
+
+    @Override
+    public void run() {
+        SQLServerException failure = null;
+        try {
+            while (waitForSpace()) {
+                TDSPacket packet = tdsReader.receivePacket(packetsRead);
+
+                lock.lock();
+                try {
+                    ++packetsRead;
+                    packets.add(packet);
+                    bufferedBytes += TDS.PACKET_HEADER_SIZE + packet.payloadLength;
+                    if (packet.isEOM())
+                        isDone = true;
+                    packetAvailable.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (SQLServerException e) {
+            failure = e;
+        } catch (Throwable e) {
+            // The response cannot be read any further, so the connection is closed like after a read error.
+            failure = new SQLServerException(e.toString(), null, 0, e);
+            try {
+                tdsReader.getConnection().terminate(SQLServerException.DRIVER_ERROR_IO_FAILED, e.toString(), e);
+            } catch (SQLServerException terminated) {
+                failure = terminated;
+            }
+        } finally {
+            if (null != failure && logger.isLoggable(Level.FINER))
+                logger.finer(tdsReader.toString() + " Read-ahead failed: " + failure.getMessage());
+
+            // The processing thread waits for a packet, the end of the read-ahead or its failure.
+            lock.lock();
+            try {
+                readException = failure;
+                isDone = true;
+                packetAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until there is room to buffer another packet.
+     *
+     * @return false if reading ahead is done, either because the whole response has been read or the connection is
+     *         closed
+     */
+    private boolean waitForSpace() {
+        lock.lock();
+        try {
+            while (!isDone && (packets.size() >= maxPackets || (maxBytes > 0 && !packets.isEmpty()
+                    && bufferedBytes + tdsReader.getConnection().getTDSPacketSize() > maxBytes))) {
+                try {
+                    if (!spaceAvailable.await(SPACE_WAIT_SECONDS, TimeUnit.SECONDS)
+                            && tdsReader.getConnection().isSessionUnAvailable())
+                        isDone = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    isDone = true;
+                }
+            }
+            return !isDone;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next packet read ahead, waiting for the read-ahead thread if necessary.
+     *
+     * @return the next packet, or null if reading ahead has stopped and every packet read has been taken, in which
+     *         case the caller reads any further packets itself
+     * @throws SQLServerException
+     *         if reading the next packet failed
+     */
+    TDSPacket take() throws SQLServerException {
+        lock.lock();
+        try {
+            while (packets.isEmpty() && !isDone)
+                packetAvailable.awaitUninterruptibly();
+
+            TDSPacket packet = packets.poll();
+            if (null != packet) {
+                bufferedBytes -= TDS.PACKET_HEADER_SIZE + packet.payloadLength;
+                spaceAvailable.signal();
+                return packet;
+            }
+
+            if (null != readException)
+                throw readException;
+
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
+
+
 /**
  * TDSReaderMark encapsulates a fixed position in the response data stream.
  *
@@ -6920,6 +7777,9 @@ final class TDSReaderMark {
     final TDSPacket packet;
     final int payloadOffset;
 
+    // Serial number of the row scope this mark holds open until it is released, or 0
+    int rowScope;
+
     TDSReaderMark(TDSPacket packet, int payloadOffset) {
         this.packet = packet;
         this.payloadOffset = payloadOffset;
@@ -6966,6 +7826,30 @@ final class TDSReader implements Serializable {
     private int payloadOffset = 0;
     private int packetNum = 0;
 
+    /*
+     * Highest packet number that may still be reachable from a TDSReaderMark. Packets up to and including this one are
+     * never returned to the packet pool.
+     */
+    private volatile int pinnedPacketNum = 0;
+    private final transient TDSPacketPool packetPool;
+
+    /*
+     * Number of the packet the current row scope started in, or 0 when no row scope is open. Packets consumed within
+     * the scope that could not be released right away are kept in retiredPackets until the scope ends.
+     */
+    private int rowScopePacketNum = 0;
+    private final transient ArrayDeque<TDSPacket> retiredPackets;
+
+    /*
+     * Serial number of the current row scope, and the number of marks taken within it with mark() that have not been
+     * released. The packets of a scope are only recycled if none of those marks is left when it ends.
+     */
+    private int rowScopeSerial = 0;
+    private int rowScopeMarks = 0;
+
+    // Background reader of the rest of the response, once read-ahead has started.
+    private transient TDSReadAhead readAhead;
+
     private boolean isStreaming = true;
     private boolean useColumnEncryption = false;
     private boolean serverSupportsColumnEncryption = false;
@@ -6987,6 +7871,8 @@ final class TDSReader implements Serializable {
         this.tdsChannel = tdsChannel;
         this.con = con;
         this.command = command; // may be null
+        this.packetPool = tdsChannel.getPacketPool(); // may be null
+        this.retiredPackets = (null != packetPool) ? new ArrayDeque<>() : null;
         // if the logging level is not detailed than fine or more we will not have proper reader IDs.
         if (logger.isLoggable(Level.FINE))
             traceID = "TDSReader@" + nextReaderID() + " (" + con.toString() + ")";
@@ -7078,7 +7964,18 @@ final class TDSReader implements Serializable {
                 logger.finest(toString() + " Moving to next packet -- unlinking consumed packet");
 
             consumedPacket.next = null;
+
+            // An unlinked packet past the last marked one is unreachable, so its buffer can be reused.
+            if (null != packetPool && consumedPacket.packetNum > pinnedPacketNum) {
+                packetPool.release(consumedPacket);
+                consumedPacket = null;
+            }
         }
+        // Packets are retired in order; one consumed again after a reset to a mark is already retired.
+        if (0 != rowScopePacketNum && null != consumedPacket
+                && retiredPackets.size() < packetPool.getMaxIdlePackets()
+                && (retiredPackets.isEmpty() || consumedPacket.packetNum > retiredPackets.peekLast().packetNum))
+            retiredPackets.add(consumedPacket);
         currentPacket = nextPacket;
         payloadOffset = 0;
         return true;
@@ -7089,6 +7986,9 @@ final class TDSReader implements Serializable {
      *
      * This method is synchronized to guard against simultaneously reading packets from one thread that is processing
      * the response and another thread that is trying to buffer it with TDSCommand.detach().
+     *
+     * When read-ahead is active, the packet is taken from those buffered by the read-ahead thread instead of being
+     * read from the channel here.
      */
     final boolean readPacket() throws SQLServerException {
         tdsReaderLock.lock();
@@ -7102,67 +8002,13 @@ final class TDSReader implements Serializable {
             assert tdsChannel.numMsgsRcvd < tdsChannel.numMsgsSent : "numMsgsRcvd:" + tdsChannel.numMsgsRcvd
                     + " should be less than numMsgsSent:" + tdsChannel.numMsgsSent;
 
-            TDSPacket newPacket = new TDSPacket(con.getTDSPacketSize());
-            if ((null != command) &&
-            // if cancelQueryTimeout is set, we should wait for the total amount of
-            // queryTimeout + cancelQueryTimeout to
-            // terminate the connection.
-                    (command.getCancelQueryTimeoutSeconds() > 0 && command.getQueryTimeoutSeconds() > 0)) {
-                // if a timeout is configured with this object, add it to the timeout poller
-                int seconds = command.getCancelQueryTimeoutSeconds() + command.getQueryTimeoutSeconds();
-                this.timeout = con.getSharedTimer().schedule(new TDSTimeoutTask(command, con), seconds);
-            }
-
-            // First, read the packet header.
-            for (int headerBytesRead = 0; headerBytesRead < TDS.PACKET_HEADER_SIZE;) {
-                int bytesRead = tdsChannel.read(newPacket.header, headerBytesRead,
-                        TDS.PACKET_HEADER_SIZE - headerBytesRead);
-                if (bytesRead < 0) {
-                    if (logger.isLoggable(Level.FINER))
-                        logger.finer(toString() + " Premature EOS in response. packetNum:" + packetNum
-                                + " headerBytesRead:" + headerBytesRead);
-
-                    con.terminate(SQLServerException.DRIVER_ERROR_IO_FAILED,
-                            ((0 == packetNum && 0 == headerBytesRead)
-                                                                      ? SQLServerException
-                                                                              .getErrString("R_noServerResponse")
-                                                                      : SQLServerException.getErrString(
-                                                                              "R_truncatedServerResponse")));
-                }
-
-                headerBytesRead += bytesRead;
-            }
-
-            // if execution was subject to timeout then stop timing
-            if (this.timeout != null) {
-                this.timeout.cancel(false);
-                this.timeout = null;
-            }
-            // Header size is a 2 byte unsigned short integer in big-endian order.
-            int packetLength = Util.readUnsignedShortBigEndian(newPacket.header, TDS.PACKET_HEADER_MESSAGE_LENGTH);
-
-            // Make header size is properly bounded and compute length of the packet payload.
-            if (packetLength < TDS.PACKET_HEADER_SIZE || packetLength > con.getTDSPacketSize()) {
-                if (logger.isLoggable(Level.WARNING)) {
-                    logger.warning(toString() + " TDS header contained invalid packet length:" + packetLength
-                            + "; packet size:" + con.getTDSPacketSize());
-                }
-                throwInvalidTDS();
-            }
-
-            newPacket.payloadLength = packetLength - TDS.PACKET_HEADER_SIZE;
+            TDSPacket newPacket = (null != readAhead) ? readAhead.take() : null;
+            if (null == newPacket)
+                newPacket = receivePacket(packetNum);
 
             // Just grab the SPID for logging (another big-endian unsigned short).
             tdsChannel.setSPID(Util.readUnsignedShortBigEndian(newPacket.header, TDS.PACKET_HEADER_SPID));
 
-            // Packet header looks good enough.
-            // When logging, copy the packet header to the log buffer.
-            byte[] logBuffer = null;
-            if (tdsChannel.isLoggingPackets()) {
-                logBuffer = new byte[packetLength];
-                System.arraycopy(newPacket.header, 0, logBuffer, 0, TDS.PACKET_HEADER_SIZE);
-            }
-
             // if messageType is RPC or QUERY, then increment Counter's state
             if (tdsChannel.getWriter().checkIfTdsMessageTypeIsBatchOrRPC() && null != command) {
                 if (null == command.getCounter()) {
@@ -7170,27 +8016,24 @@ final class TDSReader implements Serializable {
                     Object[] msgArgs1 = {"TDS command counter"};
                     throw new SQLServerException(form.format(msgArgs1), null);
                 }
-                command.getCounter().increaseCounter(packetLength);
-            }
-
-            // Now for the payload...
-            for (int payloadBytesRead = 0; payloadBytesRead < newPacket.payloadLength;) {
-                int bytesRead = tdsChannel.read(newPacket.payload, payloadBytesRead,
-                        newPacket.payloadLength - payloadBytesRead);
-                if (bytesRead < 0)
-                    con.terminate(SQLServerException.DRIVER_ERROR_IO_FAILED,
-                            SQLServerException.getErrString("R_truncatedServerResponse"));
-
-                payloadBytesRead += bytesRead;
+                command.getCounter().increaseCounter(TDS.PACKET_HEADER_SIZE + newPacket.payloadLength);
             }
 
             ++packetNum;
+            newPacket.packetNum = packetNum;
+
+            // Packets buffered while not streaming may be reached from an earlier mark.
+            if (!isStreaming)
+                pinnedPacketNum = packetNum;
 
             lastPacket.next = newPacket;
             lastPacket = newPacket;
 
-            // When logging, append the payload to the log buffer and write out the whole thing.
-            if (tdsChannel.isLoggingPackets() && logBuffer != null) {
+            // When logging, write out the whole packet.
+            if (tdsChannel.isLoggingPackets()) {
+                int packetLength = TDS.PACKET_HEADER_SIZE + newPacket.payloadLength;
+                byte[] logBuffer = new byte[packetLength];
+                System.arraycopy(newPacket.header, 0, logBuffer, 0, TDS.PACKET_HEADER_SIZE);
                 System.arraycopy(newPacket.payload, 0, logBuffer, TDS.PACKET_HEADER_SIZE, newPacket.payloadLength);
                 tdsChannel.logPacket(logBuffer, 0, packetLength,
                         this.toString() + " received Packet:" + packetNum + " (" + newPacket.payloadLength + " bytes)");
@@ -7205,6 +8048,13 @@ final class TDSReader implements Serializable {
                 // Notify the command (if any) that we've reached the end of the response.
                 if (null != command)
                     command.onResponseEOM();
+
+                // The read-ahead thread (if any) stops after the last packet of the response.
+                readAhead = null;
+            } else if (null == readAhead && null != command && con.getReadAheadPackets() > 0
+                    && tdsChannel.getWriter().checkIfTdsMessageTypeIsBatchOrRPC()) {
+                // Keep reading the rest of the response in the background while this packet is processed.
+                readAhead = TDSReadAhead.start(this, con.getReadAheadPackets(), command.getCounter(), packetNum);
             }
 
             return true;
@@ -7213,16 +8063,127 @@ final class TDSReader implements Serializable {
         }
     }
 
+    /**
+     * Receives the next packet from the TDS channel, without adding it to the packets of this reader. Called either by
+     * readPacket or by the read-ahead thread, never by both at once.
+     *
+     * @param packetsRead
+     *        number of packets of the response read so far, for reporting a premature end of stream
+     */
+    final TDSPacket receivePacket(int packetsRead) throws SQLServerException {
+        TDSPacket newPacket = (null != packetPool) ? packetPool.acquire(con.getTDSPacketSize())
+                                                   : new TDSPacket(con.getTDSPacketSize());
+        if ((null != command) &&
+        // if cancelQueryTimeout is set, we should wait for the total amount of
+        // queryTimeout + cancelQueryTimeout to
+        // terminate the connection.
+                (command.getCancelQueryTimeoutSeconds() > 0 && command.getQueryTimeoutSeconds() > 0)) {
+            // if a timeout is configured with this object, add it to the timeout poller
+            int seconds = command.getCancelQueryTimeoutSeconds() + command.getQueryTimeoutSeconds();
+            this.timeout = con.getSharedTimer().schedule(new TDSTimeoutTask(command, con), seconds);
+        }
+
+        // First, read the packet header.
+        for (int headerBytesRead = 0; headerBytesRead < TDS.PACKET_HEADER_SIZE;) {
+            int bytesRead = tdsChannel.read(newPacket.header, headerBytesRead,
+                    TDS.PACKET_HEADER_SIZE - headerBytesRead);
+            if (bytesRead < 0) {
+                if (logger.isLoggable(Level.FINER))
+                    logger.finer(toString() + " Premature EOS in response. packetNum:" + packetsRead
+                            + " headerBytesRead:" + headerBytesRead);
+
+                con.terminate(SQLServerException.DRIVER_ERROR_IO_FAILED,
+                        ((0 == packetsRead && 0 == headerBytesRead)
+                                                                    ? SQLServerException
+                                                                            .getErrString("R_noServerResponse")
+                                                                    : SQLServerException.getErrString(
+                                                                            "R_truncatedServerResponse")));
+            }
+
+            headerBytesRead += bytesRead;
+        }
+
+        // if execution was subject to timeout then stop timing
+        if (this.timeout != null) {
+            this.timeout.cancel(false);
+            this.timeout = null;
+        }
+        // Header size is a 2 byte unsigned short integer in big-endian order.
+        int packetLength = Util.readUnsignedShortBigEndian(newPacket.header, TDS.PACKET_HEADER_MESSAGE_LENGTH);
+
+        // Make header size is properly bounded and compute length of the packet payload.
+        if (packetLength < TDS.PACKET_HEADER_SIZE || packetLength > con.getTDSPacketSize()) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.warning(toString() + " TDS header contained invalid packet length:" + packetLength
+                        + "; packet size:" + con.getTDSPacketSize());
+            }
+            throwInvalidTDS();
+        }
+
+        newPacket.payloadLength = packetLength - TDS.PACKET_HEADER_SIZE;
+
+        // Now for the payload...
+        for (int payloadBytesRead = 0; payloadBytesRead < newPacket.payloadLength;) {
+            int bytesRead = tdsChannel.read(newPacket.payload, payloadBytesRead,
+                    newPacket.payloadLength - payloadBytesRead);
+            if (bytesRead < 0)
+                con.terminate(SQLServerException.DRIVER_ERROR_IO_FAILED,
+                        SQLServerException.getErrString("R_truncatedServerResponse"));
+
+            payloadBytesRead += bytesRead;
+        }
+
+        return newPacket;
+    }
+
+    /**
+     * Marks the current position. A mark taken within a row scope keeps the packets of the scope out of the packet pool
+     * until it is released with {@link #release(TDSReaderMark)}.
+     */
     final TDSReaderMark mark() {
+        TDSReaderMark mark = markInRow();
+        if (0 != rowScopePacketNum) {
+            mark.rowScope = rowScopeSerial;
+            ++rowScopeMarks;
+        }
+        return mark;
+    }
+
+    /**
+     * Marks the current position for reading a value of the current row. The mark is not used once the row has been
+     * discarded, so it does not keep the packets of a row scope out of the packet pool.
+     */
+    final TDSReaderMark markInRow() {
         TDSReaderMark mark = new TDSReaderMark(currentPacket, payloadOffset);
         isStreaming = false;
 
+        if (null != packetPool) {
+            tdsReaderLock.lock();
+            try {
+                pinnedPacketNum = packetNum;
+            } finally {
+                tdsReaderLock.unlock();
+            }
+        }
+
         if (logger.isLoggable(Level.FINEST))
             logger.finest(this.toString() + ": Buffering from: " + mark.toString());
 
         return mark;
     }
 
+    /**
+     * Releases a mark taken with {@link #mark()} that is no longer used. Releasing a mark more than once, or a mark
+     * taken outside of a row scope, has no effect.
+     */
+    final void release(TDSReaderMark mark) {
+        if (null != mark && 0 != mark.rowScope) {
+            if (mark.rowScope == rowScopeSerial && 0 != rowScopePacketNum)
+                --rowScopeMarks;
+            mark.rowScope = 0;
+        }
+    }
+
     final void reset(TDSReaderMark mark) {
         if (logger.isLoggable(Level.FINEST))
             logger.finest(this.toString() + ": Resetting to: " + mark.toString());
@@ -7235,6 +8196,65 @@ final class TDSReader implements Serializable {
         isStreaming = true;
     }
 
+    /**
+     * Opens a row scope. Called by a forward-only result set after it has positioned on a row and before any of the
+     * row's values have been read.
+     *
+     * The scope is only opened when no earlier mark can reach the current packet, so that packets consumed while
+     * reading the row can be recycled once the row has been discarded, even though the row's values were marked.
+     */
+    final void beginRowScope() {
+        if (null != packetPool && isStreaming && currentPacket.packetNum > pinnedPacketNum) {
+            rowScopePacketNum = currentPacket.packetNum;
+            ++rowScopeSerial;
+            rowScopeMarks = 0;
+        }
+    }
+
+    /**
+     * Abandons the current row scope, leaving the packets of the row pinned as if no scope had been opened.
+     */
+    final void cancelRowScope() {
+        if (0 != rowScopePacketNum) {
+            retiredPackets.clear();
+            rowScopePacketNum = 0;
+            rowScopeMarks = 0;
+        }
+    }
+
+    /**
+     * Closes the current row scope once the row has been discarded. The packets of the row are recycled unless a mark
+     * taken within the scope with {@link #mark()}, e.g. by a stream over one of its values that is still open, has not
+     * been released; the scope is then abandoned as by {@link #cancelRowScope()}.
+     */
+    final void endRowScope() {
+        if (0 == rowScopePacketNum)
+            return;
+
+        if (rowScopeMarks > 0) {
+            if (logger.isLoggable(Level.FINEST))
+                logger.finest(toString() + ": " + rowScopeMarks + " marks still held, keeping the packets of the row");
+            cancelRowScope();
+            return;
+        }
+
+        tdsReaderLock.lock();
+        try {
+            for (TDSPacket packet : retiredPackets) {
+                if (packet.packetNum >= rowScopePacketNum && packet.packetNum < currentPacket.packetNum)
+                    packetPool.release(packet);
+            }
+            retiredPackets.clear();
+
+            // Only marks taken within the scope could reach the current packet, and those are no longer used.
+            pinnedPacketNum = currentPacket.packetNum - 1;
+            isStreaming = true;
+            rowScopePacketNum = 0;
+        } finally {
+            tdsReaderLock.unlock();
+        }
+    }
+
     /**
      * Returns the number of bytes that can be read (or skipped over) from this TDSReader without blocking by the next
      * caller of a method for this TDSReader.
@@ -7611,6 +8631,14 @@ final class TDSReader implements Serializable {
         int utcDaysIntoCE = readDaysIntoCE();
         int localMinutesOffset = readShort();
 
+        // java.time targets are computed without a Calendar, except for values that need the Calendar's
+        // rationalization of the Julian to Gregorian change.
+        if ((JDBCType.OFFSETDATETIME == jdbcType || JDBCType.LOCALDATETIME == jdbcType)
+                && utcDaysIntoCE >= GregorianChange.DAYS_SINCE_BASE_DATE_HINT) {
+            return DDC.convertDateTimeOffsetToJavaTime(con, jdbcType, utcDaysIntoCE, utcNanosSinceMidnight,
+                    localMinutesOffset);
+        }
+
         // Convert the DATETIMEOFFSET value to the desired Java type.
         return DDC.convertTemporalToObject(con, jdbcType, SSType.DATETIMEOFFSET,
                 new GregorianCalendar(new SimpleTimeZone(localMinutesOffset * 60 * 1000, ""), Locale.US), utcDaysIntoCE,
@@ -7649,12 +8677,20 @@ final class TDSReader implements Serializable {
     private long readNanosSinceMidnight(int scale) throws SQLServerException {
         assert 0 <= scale && scale <= TDS.MAX_FRACTIONAL_SECONDS_SCALE;
 
-        byte[] value = new byte[TDS.nanosSinceMidnightLength(scale)];
-        readBytes(value, 0, value.length);
-
+        // Fast path: read the value directly from the current TDS packet, like readDaysIntoCE.
+        final int length = TDS.nanosSinceMidnightLength(scale);
         long hundredNanosSinceMidnight = 0;
-        for (int i = 0; i < value.length; i++)
-            hundredNanosSinceMidnight |= (value[i] & 0xFFL) << (8 * i);
+        if (payloadOffset + length <= currentPacket.payloadLength) {
+            final byte[] p = currentPacket.payload;
+            final int off = payloadOffset;
+            for (int i = 0; i < length; i++)
+                hundredNanosSinceMidnight |= (p[off + i] & 0xFFL) << (8 * i);
+            payloadOffset += length;
+        } else {
+            final byte[] value = readWrappedBytes(length);
+            for (int i = 0; i < length; i++)
+                hundredNanosSinceMidnight |= (value[i] & 0xFFL) << (8 * i);
+        }
 
         hundredNanosSinceMidnight *= SCALED_MULTIPLIERS[scale];
 
@@ -8371,6 +9407,20 @@ abstract class TDSCommand implements Serializable {
     }
 
     final TDSReader startResponse(boolean isAdaptive) throws SQLServerException {
+        endRequest();
+        return readResponse(isAdaptive);
+    }
+
+    /**
+     * Finishes the TDS request without waiting for the response.
+     *
+     * The server executes the request while the caller does other work. The response is read later by readResponse(),
+     * or buffered by detach() if another command executes on the connection first.
+     *
+     * @throws SQLServerException
+     *         if there is any kind of error.
+     */
+    final void endRequest() throws SQLServerException {
         // Finish sending the request message. If this command was interrupted
         // at any point before endMessage() returns, then endMessage() throws an
         // exception with the reason for the interrupt. Request interrupts
@@ -8386,7 +9436,18 @@ abstract class TDSCommand implements Serializable {
 
             throw e;
         }
+    }
 
+    /**
+     * Reads the TDS response to a request finished by endRequest().
+     *
+     * @param isAdaptive
+     *        whether to read only the first packet of the response, the rest being read as it is processed.
+     * @return the TDS reader used to read the response.
+     * @throws SQLServerException
+     *         if there is any kind of error.
+     */
+    final TDSReader readResponse(boolean isAdaptive) throws SQLServerException {
         // If command execution is subject to timeout then start timing until
         // the server returns the first response packet.
         if (queryTimeoutSeconds > 0) {
@@ -0,0 +1,95 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+/**
+ * A bounded cache shared by all connections in the JVM, such as the parsed SQL-text cache. The driver uses its own
+ * implementation unless an application plugs in a different one with
+ * {@link SQLServerConnection#setSQLCacheFactory(ISQLServerCacheFactory)}.
+ *
+ * Implementations must be thread-safe. The cached values can always be computed again, so an implementation may drop
+ * any entry at any time.
+ *
+ * @param <K>
+ *        the type of the keys
+ * @param <V>
+ *        the type of the cached values
+ */
+public interface ISQLServerCache<K, V> {
+
+    /**
+     * Returns the value cached for the key.
+     *
+     * @param key
+     *        the key
+     * @return the cached value, or null if there is none
+     */
+    V get(K key);
+
+    /**
+     * Caches the value for the key unless a value is already cached for it.
+     *
+     * @param key
+     *        the key
+     * @param value
+     *        the value
+     * @return the value already cached for the key, or null if the given value was added
+     */
+    V putIfAbsent(K key, V value);
+
+    /**
+     * Caches the value for the key, replacing the value cached for it before, if any.
+     *
+     * @param key
+     *        the key
+     * @param value
+     *        the value
+     */
+    void put(K key, V value);
+
+    /**
+     * Changes the maximum number of entries. Entries above the new capacity are evicted.
+     *
+     * @param capacity
+     *        the maximum number of entries, at least 1
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return the maximum number of entries
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the hit count
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that found nothing.
+     *
+     * @return the miss count
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of entries removed or declined to stay within the capacity.
+     *
+     * @return the eviction count
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns how often a thread using the cache had to wait for another thread.
+     *
+     * @return the contention count
+     */
+    long getContentionCount();
+}
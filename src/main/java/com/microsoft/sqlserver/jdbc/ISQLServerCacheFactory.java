@@ -0,0 +1,27 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+/**
+ * Creates the caches the driver shares between all connections in the JVM: the parsed SQL-text cache, the prepared
+ * SQL cache and the shared parameter metadata cache. Set with
+ * {@link SQLServerConnection#setSQLCacheFactory(ISQLServerCacheFactory)}.
+ */
+public interface ISQLServerCacheFactory {
+
+    /**
+     * Returns a new, empty cache.
+     *
+     * @param <K>
+     *        the type of the keys
+     * @param <V>
+     *        the type of the cached values
+     * @param capacity
+     *        the maximum number of entries, at least 1
+     * @return the cache
+     */
+    <K, V> ISQLServerCache<K, V> createCache(int capacity);
+}
@@ -371,6 +371,36 @@ public interface ISQLServerConnection extends java.sql.Connection {
      */
     int getStatementHandleCacheEntryCount();
 
+    /**
+     * Returns the current capacity of the prepared statement handle cache. It is the statementPoolingCacheSize unless
+     * the statementPoolingCacheMemoryBudget is set, in which case the capacity adapts to how the cache is used.
+     * 
+     * @return the capacity of the prepared statement handle cache, or 0 if statement pooling is disabled.
+     */
+    int getStatementHandleCacheCapacity();
+
+    /**
+     * Returns the number of lookups in the prepared statement handle cache that found a handle to reuse.
+     * 
+     * @return the statement handle cache hit count.
+     */
+    long getStatementHandleCacheHitCount();
+
+    /**
+     * Returns the number of lookups in the prepared statement handle cache that found no handle, so that the statement
+     * had to be prepared.
+     * 
+     * @return the statement handle cache miss count.
+     */
+    long getStatementHandleCacheMissCount();
+
+    /**
+     * Returns the number of handles evicted from the prepared statement handle cache because it was full.
+     * 
+     * @return the statement handle cache eviction count.
+     */
+    long getStatementHandleCacheEvictionCount();
+
     /**
      * Sets the value to Disable/enable statement pooling.
      * 
@@ -674,4 +704,72 @@ public interface ISQLServerConnection extends java.sql.Connection {
      */
     String getVectorTypeSupport();
 
+    /**
+     * Returns the number of idle response packets currently held in this connection's packet pool.
+     *
+     * @return the number of pooled packets, or 0 if packet pooling is disabled.
+     */
+    int getPacketPoolIdleCount();
+
+    /**
+     * Returns the number of response packets that were served from this connection's packet pool.
+     *
+     * @return the packet pool hit count, or 0 if packet pooling is disabled.
+     */
+    long getPacketPoolHitCount();
+
+    /**
+     * Returns the number of response packets that had to be allocated because this connection's packet pool was empty.
+     *
+     * @return the packet pool miss count, or 0 if packet pooling is disabled.
+     */
+    long getPacketPoolMissCount();
+
+    /**
+     * Returns the number of complete request messages this connection has written to the server. Together with
+     * {@link #getSocketWriteCount()} this gives the number of socket writes made per request message.
+     *
+     * @return the number of request messages sent.
+     */
+    long getSentMessageCount();
+
+    /**
+     * Returns the number of writes to the socket this connection has made. Each write is one or more system calls,
+     * depending on the transport and on how much of the data the socket accepts at once.
+     *
+     * @return the number of socket writes.
+     */
+    long getSocketWriteCount();
+
+    /**
+     * Returns the number of lookups in the parsed SQL-text cache that found the parsed statement. The cache is shared by
+     * all connections in the JVM, so the count covers all of them.
+     *
+     * @return the parsed SQL cache hit count.
+     */
+    long getParsedSQLCacheHitCount();
+
+    /**
+     * Returns the number of lookups in the parsed SQL-text cache that found nothing, so that the statement text had to
+     * be parsed. The cache is shared by all connections in the JVM, so the count covers all of them.
+     *
+     * @return the parsed SQL cache miss count.
+     */
+    long getParsedSQLCacheMissCount();
+
+    /**
+     * Returns the number of entries the parsed SQL-text cache removed or declined to keep because it was full.
+     *
+     * @return the parsed SQL cache eviction count.
+     */
+    long getParsedSQLCacheEvictionCount();
+
+    /**
+     * Returns how often a thread using the parsed SQL-text cache had to wait for another thread, or skipped recording
+     * a lookup because other threads were busy with the same part of the cache.
+     *
+     * @return the parsed SQL cache contention count.
+     */
+    long getParsedSQLCacheContentionCount();
+
 }
@@ -1576,4 +1576,175 @@ public interface ISQLServerDataSource extends javax.sql.CommonDataSource {
      * @return transactionIsolation A String that contains the default transaction isolation level.
      */
     String getDefaultTransactionIsolation();
+
+    /**
+     * Sets the maximum number of idle response packet buffers a connection keeps for reuse. Packets are recycled only
+     * while a response is read forward-only. The default is 0, which disables packet pooling.
+     * 
+     * @param packetPoolSize
+     *        the maximum number of pooled packets per connection.
+     */
+    void setPacketPoolSize(int packetPoolSize);
+
+    /**
+     * Returns the maximum number of idle response packet buffers a connection keeps for reuse.
+     * 
+     * @return the maximum number of pooled packets per connection.
+     */
+    int getPacketPoolSize();
+
+    /**
+     * Sets whether the driver uses a non-blocking SocketChannel with direct buffers for network I/O instead of the
+     * socket streams. TLS over the SocketChannel always uses an SSLEngine, whatever useSSLEngine is set to. Packets are
+     * still copied once from the receive buffer into the heap arrays the driver parses. The setting is ignored when
+     * socketFactoryClass is set. The default is false.
+     * 
+     * @param useSocketChannel
+     *        true to use the SocketChannel transport.
+     */
+    void setUseSocketChannel(boolean useSocketChannel);
+
+    /**
+     * Returns whether the driver uses a non-blocking SocketChannel with direct buffers for network I/O.
+     * 
+     * @return true if the SocketChannel transport is used.
+     */
+    boolean getUseSocketChannel();
+
+    /**
+     * Sets whether the driver encrypts the connection with an SSLEngine that wraps and unwraps whole TDS packets
+     * instead of an SSLSocket layered over the socket streams. The default is false.
+     * 
+     * @param useSSLEngine
+     *        true to use an SSLEngine for TLS.
+     */
+    void setUseSSLEngine(boolean useSSLEngine);
+
+    /**
+     * Returns whether the driver encrypts the connection with an SSLEngine instead of an SSLSocket.
+     * 
+     * @return true if an SSLEngine is used for TLS.
+     */
+    boolean getUseSSLEngine();
+
+    /**
+     * Sets the maximum number of response packets the driver reads ahead on a background thread while the packets
+     * already received are processed. The packets buffered are also bounded by maxResultBuffer. The default is 0, which
+     * disables read-ahead.
+     * 
+     * @param readAheadPackets
+     *        the maximum number of packets read ahead per response.
+     */
+    void setReadAheadPackets(int readAheadPackets);
+
+    /**
+     * Returns the maximum number of response packets the driver reads ahead on a background thread.
+     * 
+     * @return the maximum number of packets read ahead per response.
+     */
+    int getReadAheadPackets();
+
+    /**
+     * Sets the maximum number of complete packets of a request message that the driver gathers into a single socket
+     * write, so that a request spanning several packets is sent with fewer system calls. The packets are written at the
+     * latest when the message is complete, as the driver waits for the reply to a request before sending the next one.
+     * Packets of different messages are therefore never gathered, and a message that fits in one packet takes one write
+     * whatever the setting, so workloads of small requests are not affected. The default is 0, which writes each packet
+     * on its own.
+     * 
+     * @param maxCoalescedPackets
+     *        the maximum number of packets per socket write, from 0 to 64.
+     */
+    void setMaxCoalescedPackets(int maxCoalescedPackets);
+
+    /**
+     * Returns the maximum number of complete packets of a request message that the driver gathers into a single socket
+     * write.
+     * 
+     * @return the maximum number of packets per socket write.
+     */
+    int getMaxCoalescedPackets();
+
+    /**
+     * Sets the maximum number of prepared statement batch entries that executeBatch adds, as sp_executesql calls, to
+     * the request of an entry that prepares or reprepares the statement. Without it, such an entry ends its request so
+     * that the new handle can be read before the next entry is written, which usually costs one round trip per
+     * executeBatch call. Requests are not overlapped: the driver still waits for each response before it sends the
+     * next request. Entries that can be executed with a valid handle are added to the request as before, so a batch
+     * never takes more round trips than it would without coalescing. Statements that use statement pooling, Always
+     * Encrypted, prepareMethod=prepare or callable statements are executed as before. The default is 0, which disables
+     * coalescing.
+     * 
+     * @param prepareBatchCoalesceSize
+     *        the maximum number of batch entries sent with sp_executesql after an entry that (re)prepares the
+     *        statement.
+     */
+    void setPrepareBatchCoalesceSize(int prepareBatchCoalesceSize);
+
+    /**
+     * Returns the maximum number of prepared statement batch entries that executeBatch adds, as sp_executesql calls, to
+     * the request of an entry that prepares or reprepares the statement.
+     * 
+     * @return the maximum number of batch entries sent with sp_executesql after an entry that (re)prepares the
+     *         statement.
+     */
+    int getPrepareBatchCoalesceSize();
+
+    /**
+     * Sets the memory budget in KB of the prepared statement cache of a connection. When it is set, the cache starts at
+     * the statementPoolingCacheSize and grows when evicted statements have to be prepared again, or shrinks when cached
+     * statements go unused, while the estimated memory of the cached statements stays within the budget. The default is
+     * 0, which keeps the cache at the statementPoolingCacheSize.
+     * 
+     * @param statementPoolingCacheMemoryBudget
+     *        the memory budget in KB, or 0 for a cache of fixed size.
+     */
+    void setStatementPoolingCacheMemoryBudget(int statementPoolingCacheMemoryBudget);
+
+    /**
+     * Returns the memory budget in KB of the prepared statement cache of a connection.
+     * 
+     * @return the memory budget in KB, or 0 for a cache of fixed size.
+     */
+    int getStatementPoolingCacheMemoryBudget();
+
+    /**
+     * Sets the maximum number of rows that a forward only, read only server cursor (selectMethod=cursor) fetches in one
+     * block when it prefetches. When it is set, the request for the next block is sent as soon as a block arrives, so
+     * that the server fetches the rows while the application reads the current block. The blocks start at the fetch
+     * size and double with every block the application reads to the end, up to this maximum. The default is 0, which
+     * fetches every block when the previous one has been read.
+     * 
+     * @param cursorPrefetchMaxRows
+     *        the maximum number of rows in a prefetched block, or 0 to disable prefetching.
+     */
+    void setCursorPrefetchMaxRows(int cursorPrefetchMaxRows);
+
+    /**
+     * Returns the maximum number of rows that a forward only, read only server cursor fetches in one block when it
+     * prefetches.
+     * 
+     * @return the maximum number of rows in a prefetched block, or 0 if prefetching is disabled.
+     */
+    int getCursorPrefetchMaxRows();
+
+    /**
+     * Sets how the driver races connection attempts to the IP addresses of a server when multiSubnetFailover or
+     * transparentNetworkIPResolution connects to several addresses at once. "threads" (the default) connects to each
+     * address from a pooled thread. "selector" drives non-blocking connects to all addresses from the connecting
+     * thread, so that no threads are created. "staggered" also connects from the connecting thread, but tries the
+     * addresses that connected fastest recently first and starts each of the others after a short delay, or as soon as
+     * an earlier attempt fails. The "selector" and "staggered" modes are not used when socketFactoryClass is set.
+     * 
+     * @param parallelConnectMode
+     *        "threads", "selector" or "staggered"
+     */
+    void setParallelConnectMode(String parallelConnectMode);
+
+    /**
+     * Returns how the driver races connection attempts to the IP addresses of a server.
+     * 
+     * @return "threads", "selector" or "staggered"
+     */
+    String getParallelConnectMode();
 }
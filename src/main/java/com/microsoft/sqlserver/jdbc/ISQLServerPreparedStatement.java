@@ -6,6 +6,7 @@
 package com.microsoft.sqlserver.jdbc;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ParameterMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLType;
@@ -346,6 +347,23 @@ public interface ISQLServerPreparedStatement extends java.sql.PreparedStatement,
      */
     void setBytes(int parameterIndex, byte[] x, boolean forceEncrypt) throws SQLServerException;
 
+    /**
+     * Sets the designated parameter to the bytes between the position and the limit of the given buffer. The driver
+     * converts this to an SQL <code>VARBINARY</code> or <code>LONGVARBINARY</code> (depending on the argument's size
+     * relative to the driver's limits on <code>VARBINARY</code> values) when it sends it to the database. The bytes are
+     * sent from the buffer when the statement is executed, so a direct buffer does not have to be copied to the heap.
+     * The position of the buffer is not changed, but its contents must not be modified until the statement has been
+     * executed.
+     *
+     * @param parameterIndex
+     *        the first parameter is 1, the second is 2, ...
+     * @param x
+     *        the parameter value
+     * @throws SQLServerException
+     *         when an error occurs
+     */
+    void setBytes(int parameterIndex, ByteBuffer x) throws SQLServerException;
+
     /**
      * Sets the designated parameter to the given String. The driver converts this to an SQL <code>GUID</code>
      * 
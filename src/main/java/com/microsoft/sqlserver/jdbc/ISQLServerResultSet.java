@@ -8,6 +8,7 @@ package com.microsoft.sqlserver.jdbc;
 import java.math.BigDecimal;
 import java.sql.SQLType;
 import java.util.Calendar;
+import java.util.concurrent.Executor;
 
 import com.microsoft.sqlserver.jdbc.dataclassification.SensitivityClassification;
 
@@ -1732,4 +1733,50 @@ public interface ISQLServerResultSet extends java.sql.ResultSet {
      * @return SensitivityClassification
      */
     SensitivityClassification getSensitivityClassification();
+
+    /**
+     * Sets the executor that decrypts the Always Encrypted columns of this result set. When an executor is set, the
+     * values of all encrypted columns of a row are decrypted in parallel when the first column of the row is read, so
+     * that getters return values that are already decrypted. This helps when rows have many encrypted columns. Any
+     * executor can be used, for example {@code ForkJoinPool.commonPool()} or an executor that runs each task on a
+     * virtual thread. By default no executor is set, and each value is decrypted on the calling thread when it is read.
+     * 
+     * With an executor set, an error decrypting any encrypted column of a row is thrown by the first getter called for
+     * that row.
+     * 
+     * @param executor
+     *        the executor, or null to decrypt each value when it is read
+     * @throws SQLServerException
+     *         If the result set is closed.
+     */
+    void setColumnDecryptionExecutor(Executor executor) throws SQLServerException;
+
+    /**
+     * Returns the executor that decrypts the Always Encrypted columns of this result set.
+     * 
+     * @return the executor, or null if each value is decrypted when it is read
+     * @throws SQLServerException
+     *         If the result set is closed.
+     */
+    Executor getColumnDecryptionExecutor() throws SQLServerException;
+
+    /**
+     * Moves the cursor forward over a batch of rows, reading the values of their columns into column vectors. The
+     * values of a forward only result set whose types match the vectors, such as integer values read into an int or
+     * long vector and character values read into a bytes vector, are read straight from the response without creating
+     * an object for each value; any other values are read with the getters of the vectors.
+     * <p>
+     * The batch holds as many rows as the smallest vector, or fewer at the end of the result set. The cursor is left on
+     * the last row of the batch, whose values can still be retrieved with the getters, or after the last row of the
+     * result set when the batch is not full.
+     * 
+     * @param vectors
+     *        the vectors the values are read into, the first for the first column; a null vector, and the columns
+     *        past the last vector, are skipped
+     * @return the number of rows read, 0 at the end of the result set
+     * @throws SQLServerException
+     *         If there are more vectors than columns, the result set is closed, or a value cannot be converted to the
+     *         type of its vector.
+     */
+    int nextColumns(SQLServerColumnVector... vectors) throws SQLServerException;
 }
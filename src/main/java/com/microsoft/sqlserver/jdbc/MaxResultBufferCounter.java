@@ -41,6 +41,10 @@ public class MaxResultBufferCounter implements ICounter {
         counter = 0;
     }
 
+    public long getMaxResultBuffer() {
+        return maxResultBuffer;
+    }
+
     private void checkForMaxResultBufferOverflow(long number) throws SQLServerException {
         if (number > maxResultBuffer) {
             if (logger.isLoggable(Level.SEVERE)) {
@@ -0,0 +1,268 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Processes the rows of a source in chunks on several threads and hands them to the consuming thread in the order of
+ * the source.
+ * <p>
+ * A producer thread cuts the source into chunks with {@link #readChunk} and hands every chunk to one of the worker
+ * threads, which processes it with {@link #processChunk}. The chunks are queued in the order of the source, at most two
+ * per worker thread, and {@link #next} takes them in that order. An error of a chunk is thrown by {@link #next} after
+ * the rows of the chunk, as it would be without the pipeline.
+ * <p>
+ * The threads of all pipelines come from one bounded pool. A chunk that finds every thread busy is processed by the
+ * producer thread, and a pipeline that finds every thread busy when it starts reads and processes its chunks on the
+ * consuming thread.
+ *
+ * @param <C>
+ *        the type of the chunks
+ */
+abstract class OrderedChunkPipeline<C extends OrderedChunkPipeline.Chunk> implements AutoCloseable {
+
+    private static final AtomicLong threadCounter = new AtomicLong();
+
+    static final String THREAD_PREFIX = "mssql-jdbc-chunk-pipeline-";
+
+    // Maximum number of threads of all pipelines. The producer threads mostly wait for their source or for the
+    // consuming thread, so there are more threads than processors.
+    static final int MAX_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    // Holds the pool, which is created when the first pipeline starts
+    private static final class ThreadPool {
+        static final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), newDaemonThreadFactory(THREAD_PREFIX));
+    }
+
+    // How long the producer waits for room on a queue before checking whether the consumer stopped
+    private static final long OFFER_WAIT_MILLIS = 100;
+
+    /**
+     * A chunk of rows of the source.
+     */
+    static class Chunk {
+        int rowCount;
+
+        // Thrown after the rows of the chunk, which is then the last one
+        SQLServerException error;
+        boolean last;
+    }
+
+    private final String interruptedErrorKey;
+    private final BlockingQueue<Future<C>> chunks;
+
+    // Limits the chunks of the pipeline processed at once to its number of worker threads
+    private final Semaphore workers;
+
+    // The producer thread, or null if the consuming thread reads the chunks
+    private Future<?> producer;
+    private volatile boolean closed;
+
+    // The chunk the consuming thread is at, and its row
+    private C chunk;
+    private int row;
+
+    /**
+     * Returns a factory of daemon threads named by a prefix and a counter.
+     */
+    static ThreadFactory newDaemonThreadFactory(String threadPrefix) {
+        return task -> {
+            Thread t = new Thread(task, threadPrefix + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Puts an item on a bounded queue, waiting for room until it is put or the consumer stopped.
+     *
+     * @return false if the consumer stopped before the item was put
+     */
+    static <T> boolean offer(BlockingQueue<T> queue, T item, BooleanSupplier stopped) throws InterruptedException {
+        while (!queue.offer(item, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (stopped.getAsBoolean())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the values of the current row of a bulk copy source, which may reuse its array for the next
+     * row.
+     */
+    static Object[] copyRowData(ISQLServerBulkData source) throws SQLException {
+        Object[] rowData = source.getRowData();
+        return (null != rowData) ? rowData.clone() : null;
+    }
+
+    /**
+     * Creates a pipeline that {@link #start} starts once the subclass is ready to read the source.
+     *
+     * @param interruptedErrorKey
+     *        the resource key of the error thrown if the consuming thread is interrupted while it waits for a chunk
+     */
+    OrderedChunkPipeline(int workerThreads, String interruptedErrorKey) {
+        this.interruptedErrorKey = interruptedErrorKey;
+        this.chunks = new ArrayBlockingQueue<>(2 * workerThreads);
+        this.workers = new Semaphore(workerThreads);
+    }
+
+    /**
+     * Starts the producer thread, or leaves the chunks to the consuming thread if every thread of the pool is busy.
+     */
+    final void start() {
+        FutureTask<Void> task = new FutureTask<>(this::produce, null);
+        try {
+            ThreadPool.executor.execute(task);
+            producer = task;
+        } catch (RejectedExecutionException e) {
+            producer = null;
+        }
+    }
+
+    /**
+     * Reads the next chunk of the source on the producer thread. A chunk that ends the source, or that reading failed
+     * for, is marked as the last one.
+     */
+    abstract C readChunk();
+
+    /**
+     * Processes the rows of a chunk on a worker thread. An error of a row ends the source after the rows before it.
+     */
+    abstract C processChunk(C processing) throws SQLServerException;
+
+    /**
+     * Moves to the next row of the source.
+     *
+     * @return false if there are no more rows
+     * @throws SQLServerException
+     *         if reading or processing the row failed
+     */
+    final boolean next() throws SQLServerException {
+        if (null != chunk && ++row < chunk.rowCount)
+            return true;
+
+        while (true) {
+            if (null != chunk) {
+                if (null != chunk.error)
+                    throw chunk.error;
+                if (chunk.last)
+                    return false;
+            }
+
+            chunk = take();
+            row = 0;
+            if (row < chunk.rowCount)
+                return true;
+        }
+    }
+
+    /** Returns the chunk of the current row */
+    final C chunk() {
+        return chunk;
+    }
+
+    /** Returns the index of the current row in its chunk */
+    final int row() {
+        return row;
+    }
+
+    private C take() throws SQLServerException {
+        if (null == producer)
+            return processChunk(readChunk());
+
+        try {
+            return chunks.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLServerException(SQLServerException.getErrString(interruptedErrorKey), e);
+        } catch (ExecutionException e) {
+            throw new SQLServerException(e.getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Reads chunks and hands them to the worker threads until the source ends or the pipeline is closed.
+     */
+    private void produce() {
+        while (!closed) {
+            C next = readChunk();
+            FutureTask<C> processed = new FutureTask<>(() -> {
+                try {
+                    return processChunk(next);
+                } finally {
+                    workers.release();
+                }
+            });
+            try {
+                // A chunk cancelled by close never releases its worker, so the wait checks whether it was closed.
+                while (!workers.tryAcquire(OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed)
+                        return;
+                }
+                try {
+                    ThreadPool.executor.execute(processed);
+                } catch (RejectedExecutionException e) {
+                    // Every thread of the pool is busy.
+                    processed.run();
+                }
+                if (!offer(chunks, processed, () -> closed)) {
+                    processed.cancel(false);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next.last)
+                return;
+        }
+    }
+
+    /**
+     * Stops reading and processing chunks. Returns once the producer thread is done with the source.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        Future<C> processed;
+        while (null != (processed = chunks.poll()))
+            processed.cancel(false);
+
+        if (null == producer)
+            return;
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                producer.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
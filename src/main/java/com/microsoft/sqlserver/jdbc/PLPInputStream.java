@@ -36,11 +36,15 @@ class PLPInputStream extends BaseInputStream {
      * Non-destructive method for checking whether a PLP value at the current TDSReader location is null.
      */
     static final boolean isNull(TDSReader tdsReader) throws SQLServerException {
-        TDSReaderMark mark = tdsReader.mark();
+        TDSReaderMark mark = tdsReader.markInRow();
         // Temporary stream cannot get closes, since it closes the main stream.
+        PLPInputStream tempStream = null;
         try {
-            return null == PLPInputStream.makeTempStream(tdsReader, false, null);
+            tempStream = PLPInputStream.makeTempStream(tdsReader, false, null);
+            return null == tempStream;
         } finally {
+            if (null != tempStream)
+                tempStream.clearCurrentMark();
             tdsReader.reset(mark);
         }
     }
@@ -373,7 +377,7 @@ class PLPInputStream extends BaseInputStream {
         // Save off current position and how much of the current chunk remains
         // cant throw if the tdsreader is null
         if (null != tdsReader && readLimit > 0) {
-            currentMark = tdsReader.mark();
+            setCurrentMark();
             markedChunkRemain = currentChunkRemain;
             leftOverReadLimit = readLimit;
             setReadLimit(readLimit);
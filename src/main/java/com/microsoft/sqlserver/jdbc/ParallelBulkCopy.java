@@ -0,0 +1,261 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Writes the rows of one ISQLServerBulkData source to the server over several bulk copy streams, each a
+ * SQLServerBulkCopy on its own connection running on a thread of its own.
+ * <p>
+ * The calling thread reads the source and puts its rows, in chunks of {@link #CHUNK_ROWS}, on one bounded queue that
+ * all of the streams take from, so that a stream that is slowed down, e.g. by a lock, takes fewer chunks instead of
+ * holding up the others. Every stream reads its chunks through a {@link Partition}, which the stream sees as an
+ * ordinary source with the columns of the real one. A failure of the source or of a stream cancels the other streams,
+ * and the errors are thrown together as one chain of exceptions.
+ */
+final class ParallelBulkCopy {
+    private static final Logger logger = Logger.getLogger("com.microsoft.sqlserver.jdbc.internals.ParallelBulkCopy");
+
+    static final String THREAD_PREFIX = "mssql-jdbc-bulk-copy-";
+
+    // Number of rows the reading thread hands to a stream at a time
+    static final int CHUNK_ROWS = 1000;
+
+    // Markers on the queue: no more rows, and the bulk copy failed
+    private static final Object[][] END = new Object[0][];
+    private static final Object[][] ABORT = new Object[0][];
+
+    private ParallelBulkCopy() {}
+
+    /**
+     * The rows of the source that one stream writes, the chunks it takes from the shared queue.
+     */
+    static final class Partition implements ISQLServerBulkData {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ISQLServerBulkData source;
+        private final transient BlockingQueue<Object[][]> chunks;
+        private transient Object[][] chunk = new Object[0][];
+        private int position = -1;
+        private long rowCount;
+        private boolean aborted;
+
+        Partition(ISQLServerBulkData source, BlockingQueue<Object[][]> chunks) {
+            this.source = source;
+            this.chunks = chunks;
+        }
+
+        /** Returns the source whose rows this partition holds a part of */
+        ISQLServerBulkData getSource() {
+            return source;
+        }
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            return source.getColumnOrdinals();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return source.getColumnName(column);
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return source.getColumnType(column);
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            return source.getPrecision(column);
+        }
+
+        @Override
+        public int getScale(int column) {
+            return source.getScale(column);
+        }
+
+        @Override
+        public Object[] getRowData() {
+            return chunk[position];
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            while (++position >= chunk.length) {
+                if (END == chunk)
+                    return false;
+
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    aborted = true;
+                    throw new SQLServerException(SQLServerException.getErrString("R_bulkCopyInterrupted"), e);
+                }
+                if (ABORT == chunk) {
+                    aborted = true;
+                    throw new SQLServerException(SQLServerException.getErrString("R_unableRetrieveSourceData"), null);
+                }
+                position = -1;
+            }
+            ++rowCount;
+            return true;
+        }
+    }
+
+    /**
+     * Writes the rows of a source with the given streams, which are set up like the SQLServerBulkCopy that runs the
+     * parallel bulk copy, and returns the number of rows each stream wrote.
+     */
+    static long[] writeToServer(SQLServerBulkCopy[] streams, ISQLServerBulkData source) throws SQLServerException {
+        // Each stream has a thread of its own for the length of the call, as it has a connection of its own.
+        ExecutorService executor = Executors.newFixedThreadPool(streams.length,
+                OrderedChunkPipeline.newDaemonThreadFactory(THREAD_PREFIX));
+        try {
+            return writeToServer(streams, source, executor);
+        } finally {
+            // The streams are done when writeToServer returns, so the threads end right away.
+            executor.shutdown();
+        }
+    }
+
+    private static long[] writeToServer(SQLServerBulkCopy[] streams, ISQLServerBulkData source,
+            ExecutorService executor) throws SQLServerException {
+        int streamCount = streams.length;
+        BlockingQueue<Object[][]> chunks = new ArrayBlockingQueue<>(2 * streamCount);
+        Partition[] partitions = new Partition[streamCount];
+        @SuppressWarnings("unchecked")
+        Future<SQLServerException>[] results = new Future[streamCount];
+        AtomicInteger runningStreams = new AtomicInteger(streamCount);
+        AtomicBoolean failed = new AtomicBoolean();
+
+        for (int i = 0; i < streamCount; i++) {
+            SQLServerBulkCopy stream = streams[i];
+            Partition partition = new Partition(source, chunks);
+            partitions[i] = partition;
+            results[i] = executor.submit(() -> {
+                try {
+                    stream.writeToServer(partition);
+                    return null;
+                } catch (SQLServerException e) {
+                    failed.set(true);
+                    return e;
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    return new SQLServerException(e.getMessage(), e);
+                } finally {
+                    runningStreams.decrementAndGet();
+                }
+            });
+        }
+
+        SQLServerException error = null;
+        boolean interrupted = false;
+        try {
+            if (!readSource(source, chunks, runningStreams, failed, streamCount))
+                failed.set(true);
+        } catch (SQLException e) {
+            failed.set(true);
+            error = new SQLServerException(SQLServerException.getErrString("R_unableRetrieveSourceData"), e);
+        } catch (InterruptedException e) {
+            failed.set(true);
+            interrupted = true;
+            error = new SQLServerException(SQLServerException.getErrString("R_bulkCopyInterrupted"), e);
+        }
+
+        if (failed.get()) {
+            // Streams waiting for a chunk take an ABORT marker, which fails their bulk copy.
+            chunks.clear();
+            for (int i = 0; i < streamCount; i++)
+                chunks.offer(ABORT);
+        }
+
+        // The connections stay open until every stream is done with its own.
+        long[] rowCounts = new long[streamCount];
+        for (int i = 0; i < streamCount; i++) {
+            SQLServerException streamError = null;
+            while (true) {
+                try {
+                    streamError = results[i].get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    streamError = new SQLServerException(e.getMessage(), e.getCause());
+                    break;
+                }
+            }
+            rowCounts[i] = partitions[i].rowCount;
+
+            // A stream cancelled because of another failure adds nothing to the error.
+            if (null != streamError && !partitions[i].aborted) {
+                if (null == error)
+                    error = streamError;
+                else
+                    error.setNextException(streamError);
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Parallel bulk copy of " + streamCount + " streams wrote rows " + Arrays.toString(rowCounts)
+                    + ((null != error) ? ", failed: " + error.getMessage() : ""));
+        }
+        if (null != error)
+            throw error;
+        return rowCounts;
+    }
+
+    /**
+     * Reads the rows of the source into chunks on the queue, followed by an END marker for every stream. Returns false
+     * if the streams stopped before taking all of the rows.
+     */
+    private static boolean readSource(ISQLServerBulkData source, BlockingQueue<Object[][]> chunks,
+            AtomicInteger runningStreams, AtomicBoolean failed,
+            int streamCount) throws SQLException, InterruptedException {
+        Object[][] chunk = new Object[CHUNK_ROWS][];
+        int rowCount = 0;
+        while (source.next()) {
+            chunk[rowCount++] = OrderedChunkPipeline.copyRowData(source);
+            if (CHUNK_ROWS == rowCount) {
+                if (!offer(chunks, chunk, runningStreams, failed))
+                    return false;
+                chunk = new Object[CHUNK_ROWS][];
+                rowCount = 0;
+            }
+        }
+        if (rowCount > 0 && !offer(chunks, Arrays.copyOf(chunk, rowCount), runningStreams, failed))
+            return false;
+        for (int i = 0; i < streamCount; i++) {
+            if (!offer(chunks, END, runningStreams, failed))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean offer(BlockingQueue<Object[][]> chunks, Object[][] chunk, AtomicInteger runningStreams,
+            AtomicBoolean failed) throws InterruptedException {
+        // The streams share one queue and take the chunks in any order, so this is not an OrderedChunkPipeline.
+        return OrderedChunkPipeline.offer(chunks, chunk, () -> failed.get() || 0 == runningStreams.get())
+                && !failed.get();
+    }
+}
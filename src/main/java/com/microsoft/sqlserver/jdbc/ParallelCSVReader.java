@@ -0,0 +1,265 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Reads the records of a delimited file for SQLServerBulkCSVFileRecord with several threads, from a memory mapping of
+ * the file.
+ * <p>
+ * The producer thread of the pipeline cuts the file into chunks of about {@link #CHUNK_BYTES} at line breaks that end
+ * a record, which, with the rules to escape delimiters, are the line breaks that are not between double quotes. The
+ * worker threads decode the chunks and split and convert their records as SQLServerBulkCSVFileRecord does on its own.
+ * <p>
+ * The file is split on its bytes, so the charset has to encode line feeds, carriage returns and double quotes as the
+ * single bytes of ASCII that no other char uses, see {@link #isSupported}.
+ */
+final class ParallelCSVReader extends OrderedChunkPipeline<ParallelCSVReader.Chunk> {
+    private static final Logger logger = Logger.getLogger("com.microsoft.sqlserver.jdbc.internals.ParallelCSVReader");
+
+    // Number of bytes after which the splitting thread looks for the end of a chunk
+    static final int CHUNK_BYTES = 4 * 1024 * 1024;
+
+    // Number of bytes of the file the splitting thread maps at a time
+    private static final int WINDOW_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Converts the current record of a tokenizer to the values of a row.
+     */
+    interface RowParser {
+        Object[] parse(CSVTokenizer tokenizer) throws SQLServerException;
+    }
+
+    /**
+     * A chunk of the file, bytes start to end, and its rows once parsed.
+     */
+    static final class Chunk extends OrderedChunkPipeline.Chunk {
+        final long start;
+        final long end;
+        Object[][] rows = new Object[1024][];
+
+        // The error converting a row, thrown when it is read, or null
+        Exception[] errors;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final Charset charset;
+    private final String delimiter;
+    private final boolean escapeDelimiters;
+    private final RowParser parser;
+
+    // The start of the next chunk, and the part of the file the splitting thread has mapped
+    private long splitStart;
+    private ByteBuffer window;
+    private long windowStart;
+
+    /**
+     * Returns whether a file in a charset can be split on its bytes.
+     */
+    static boolean isSupported(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+            return true;
+        }
+        if (!charset.canEncode() || 1.0f != charset.newEncoder().maxBytesPerChar()) {
+            return false;
+        }
+
+        // Every byte of a single byte charset is a char, so only the bytes of ASCII may be the chars the file is split
+        // at.
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String chars = new String(bytes, charset);
+        if (bytes.length != chars.length()) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            char c = chars.charAt(i);
+            boolean split = '\n' == c || '\r' == c || '"' == c;
+            if (split != ('\n' == i || '\r' == i || '"' == i) || (split && c != i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts reading the records of a file.
+     *
+     * @param skipFirstLine
+     *        whether the first line of the file, the column names, is skipped
+     */
+    ParallelCSVReader(Path file, Charset charset, String delimiter, boolean escapeDelimiters, boolean skipFirstLine,
+            RowParser parser, int parsingThreads) throws IOException {
+        super(parsingThreads, "R_csvParsingInterrupted");
+        this.charset = charset;
+        this.delimiter = delimiter;
+        this.escapeDelimiters = escapeDelimiters;
+        this.parser = parser;
+
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            // The column names are read as one line, without the rules to escape delimiters.
+            splitStart = skipFirstLine ? findRecordEnd(0, 0, false) : 0;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.finer("Parsing " + file + " of " + size + " bytes with " + parsingThreads + " threads");
+        }
+        start();
+    }
+
+    /**
+     * Returns the values of the current record.
+     *
+     * @throws SQLServerException
+     *         if the record could not be converted
+     */
+    Object[] getRowData() throws SQLServerException {
+        Chunk chunk = chunk();
+        Exception error = (null != chunk.errors) ? chunk.errors[row()] : null;
+        if (error instanceof SQLServerException)
+            throw (SQLServerException) error;
+        if (null != error)
+            throw (RuntimeException) error;
+        return chunk.rows[row()];
+    }
+
+    /**
+     * Cuts the next chunk of the file at the end of the first record that ends after {@link #CHUNK_BYTES}.
+     */
+    @Override
+    Chunk readChunk() {
+        Chunk next;
+        try {
+            next = new Chunk(splitStart, findRecordEnd(splitStart, splitStart + CHUNK_BYTES, escapeDelimiters));
+            next.last = size == next.end;
+        } catch (IOException | RuntimeException e) {
+            next = new Chunk(splitStart, splitStart);
+            next.error = new SQLServerException(e.getMessage(), null, 0, e);
+            next.last = true;
+        }
+        splitStart = next.end;
+        return next;
+    }
+
+    /**
+     * Returns the end of the first record that ends at or after target, including its line break, reading the file
+     * from the start of a record on. Only a line break that follows a char other than a line break is taken for the
+     * end of a record, which is then the end of it wherever the records before it started.
+     */
+    private long findRecordEnd(long start, long target, boolean escape) throws IOException {
+        // Double quotes are counted from the start, which is not between double quotes.
+        long position = escape ? start : Math.max(start, target - 1);
+        boolean quoted = false;
+        byte previous = 0;
+        while (position < size) {
+            ByteBuffer bytes = window(position);
+            int limit = bytes.limit();
+            for (int i = (int) (position - windowStart); i < limit; i++) {
+                byte b = bytes.get(i);
+                if ('"' == b) {
+                    quoted = escape && !quoted;
+                } else if (('\n' == b || '\r' == b) && !quoted && '\n' != previous && '\r' != previous
+                        && windowStart + i >= target) {
+                    // As the tokenizer does, a line feed after the char is part of the line break.
+                    long end = windowStart + i + 1;
+                    if (('\r' == b || escape) && end < size && '\n' == byteAt(end)) {
+                        end++;
+                    }
+                    return end;
+                }
+                previous = b;
+            }
+            position = windowStart + limit;
+        }
+        return size;
+    }
+
+    private byte byteAt(long position) throws IOException {
+        ByteBuffer bytes = window(position);
+        return bytes.get((int) (position - windowStart));
+    }
+
+    private ByteBuffer window(long position) throws IOException {
+        if (null == window || position < windowStart || position >= windowStart + window.limit()) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+            windowStart = position;
+        }
+        return window;
+    }
+
+    /**
+     * Decodes the bytes of a chunk and converts its records, up to a record that cannot be read.
+     */
+    @Override
+    Chunk processChunk(Chunk parsing) {
+        try {
+            CharBuffer chars = charset
+                    .decode(channel.map(FileChannel.MapMode.READ_ONLY, parsing.start, parsing.end - parsing.start));
+            CSVTokenizer tokenizer = new CSVTokenizer(chars.array(), chars.limit(), delimiter);
+            while (tokenizer.nextRecord(escapeDelimiters)) {
+                int i = parsing.rowCount++;
+                if (i == parsing.rows.length) {
+                    parsing.rows = Arrays.copyOf(parsing.rows, 2 * i);
+                    if (null != parsing.errors)
+                        parsing.errors = Arrays.copyOf(parsing.errors, 2 * i);
+                }
+
+                try {
+                    parsing.rows[i] = parser.parse(tokenizer);
+                } catch (SQLServerException | RuntimeException e) {
+                    if (null == parsing.errors)
+                        parsing.errors = new Exception[parsing.rows.length];
+                    parsing.errors[i] = e;
+                }
+            }
+        } catch (SQLServerException e) {
+            parsing.error = e;
+            parsing.last = true;
+        } catch (IOException | RuntimeException e) {
+            parsing.error = new SQLServerException(e.getMessage(), null, 0, e);
+            parsing.last = true;
+        }
+        return parsing;
+    }
+
+    /**
+     * Stops reading the file and closes it. Returns once the splitting thread is done with the file.
+     */
+    @Override
+    public void close() {
+        super.close();
+
+        // Ignore errors since we are only cleaning up here
+        try {
+            channel.close();
+        } catch (IOException e) {}
+    }
+}
@@ -1476,7 +1476,10 @@ final class Parameter {
         // Clear the input and setter DTVs to relinquish their hold on the stream resource and ensure
         // that the next call to execute will throw a SQLException (from getTypeDefinitionOp).
         // Don't clear the registered output DTV so that the parameter will still be an OUT (IN/OUT) parameter.
-        if (JavaType.INPUTSTREAM == inputDTV.getJavaType() || JavaType.READER == inputDTV.getJavaType()) {
+        // A ByteBuffer value is not a stream of the application and is sent again by the next execution.
+        if ((JavaType.INPUTSTREAM == inputDTV.getJavaType()
+                && !(inputDTV.getSetterValue() instanceof ByteBufferInputStream))
+                || JavaType.READER == inputDTV.getJavaType()) {
             inputDTV = setterDTV = null;
         }
     }
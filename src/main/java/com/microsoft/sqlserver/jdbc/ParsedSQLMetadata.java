@@ -23,3 +23,55 @@ final class ParsedSQLCacheItem {
         this.bReturnValueSyntax = bReturnValueSyntax;
     }
 }
+
+
+/**
+ * Used for caching the SQL text and parameter type definitions a prepared statement is prepared with. The item is
+ * shared by all connections that prepare the same SQL text with the same parameter types.
+ */
+final class PreparedSQLCacheItem {
+    /** The SQL text with the parameter markers replaced by parameter names. */
+    final String preparedSQL;
+    final String preparedTypeDefinitions;
+    /** The key of the statement in the prepared statement handle cache of each connection. */
+    final SQLServerConnection.CityHash128Key preparedStatementHandleCacheKey;
+
+    PreparedSQLCacheItem(String preparedSQL, String preparedTypeDefinitions) {
+        this.preparedSQL = preparedSQL;
+        this.preparedTypeDefinitions = preparedTypeDefinitions;
+        this.preparedStatementHandleCacheKey = new SQLServerConnection.CityHash128Key(preparedSQL,
+                preparedTypeDefinitions);
+    }
+}
+
+
+/**
+ * Key of a cache entry that depends on the SQL text and on something else, such as the parameter type definitions of
+ * a prepared statement or the database its parameter metadata was described in.
+ */
+final class SQLTextCacheKey {
+    private final SQLServerConnection.CityHash128Key sqlTextCacheKey;
+    private final String qualifier;
+    private final int hashCode;
+
+    SQLTextCacheKey(SQLServerConnection.CityHash128Key sqlTextCacheKey, String qualifier) {
+        this.sqlTextCacheKey = sqlTextCacheKey;
+        this.qualifier = qualifier;
+        this.hashCode = 31 * sqlTextCacheKey.hashCode() + qualifier.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SQLTextCacheKey))
+            return false;
+
+        SQLTextCacheKey other = (SQLTextCacheKey) obj;
+        return hashCode == other.hashCode && qualifier.equals(other.qualifier)
+                && sqlTextCacheKey.equals(other.sqlTextCacheKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
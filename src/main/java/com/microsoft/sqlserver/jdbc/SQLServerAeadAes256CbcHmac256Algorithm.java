@@ -10,6 +10,9 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -61,6 +64,59 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
     private int minimumCipherTextLengthInBytesWithAuthenticationTag = minimumCipherTextLengthInBytesNoAuthenticationTag
             + SQLServerAeadAes256CbcHmac256EncryptionKey.KEYSIZE_IN_BYTES;
 
+    /*
+     * Maximum number of idle crypto contexts kept for reuse. One per processor is enough for every thread that can run
+     * at the same time to find one.
+     */
+    private static final int MAX_IDLE_CONTEXTS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // Keys derived from the column encryption key, created once and shared by all crypto contexts
+    private final SecretKeySpec encryptionKeySpec;
+    private final SecretKeySpec macKeySpec;
+    private final SecretKeySpec ivKeySpec;
+
+    // Crypto contexts that are not in use
+    private final ArrayDeque<CryptoContext> idleContexts = new ArrayDeque<>();
+    private final Lock contextLock = new ReentrantLock();
+
+    /**
+     * The Cipher and Mac objects used for one encryption or decryption at a time. Looking up the providers and creating
+     * these objects costs more than encrypting or decrypting a small cell value, so the algorithm keeps a few idle
+     * contexts for reuse instead of creating new objects for every cell. Cipher and Mac objects are not thread safe;
+     * a context is only used by the thread that acquired it.
+     */
+    private static final class CryptoContext {
+        // AES/CBC/PKCS5Padding, initialized with the IV of each operation
+        final Cipher cipher;
+        // HMAC-SHA256 initialized with the MAC key; doFinal leaves it ready for the next operation
+        final Mac mac;
+        // HMAC-SHA256 initialized with the IV key, created for the first deterministic encryption
+        private Mac ivMac;
+        // random IV source, created for the first randomized encryption
+        private SecureRandom random;
+
+        CryptoContext(SecretKeySpec macKeySpec) throws NoSuchAlgorithmException, NoSuchPaddingException,
+                InvalidKeyException {
+            cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            mac = Mac.getInstance(HMAC_SHA_256);
+            mac.init(macKeySpec);
+        }
+
+        Mac getIVMac(SecretKeySpec ivKeySpec) throws NoSuchAlgorithmException, InvalidKeyException {
+            if (null == ivMac) {
+                ivMac = Mac.getInstance(HMAC_SHA_256);
+                ivMac.init(ivKeySpec);
+            }
+            return ivMac;
+        }
+
+        SecureRandom getRandom() {
+            if (null == random)
+                random = new SecureRandom();
+            return random;
+        }
+    }
+
     /**
      * Initializes a new instance of SQLServerAeadAes256CbcHmac256Algorithm with a given key, encryption type and
      * algorithm version
@@ -81,6 +137,39 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
         }
         this.algorithmVersion = algorithmVersion;
         version[0] = algorithmVersion;
+
+        encryptionKeySpec = new SecretKeySpec(columnEncryptionkey.getEncryptionKey(), "AES");
+        macKeySpec = new SecretKeySpec(columnEncryptionkey.getMacKey(), HMAC_SHA_256);
+        ivKeySpec = new SecretKeySpec(columnEncryptionkey.getIVKey(), HMAC_SHA_256);
+    }
+
+    /**
+     * Returns an idle crypto context, or a new one if none is idle.
+     */
+    private CryptoContext acquireContext() throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException {
+        CryptoContext context;
+        contextLock.lock();
+        try {
+            context = idleContexts.pollFirst();
+        } finally {
+            contextLock.unlock();
+        }
+        return (null != context) ? context : new CryptoContext(macKeySpec);
+    }
+
+    /**
+     * Makes a crypto context available for reuse. Only called after an operation completed, so that a Cipher or Mac
+     * left in the middle of a failed operation is never reused.
+     */
+    private void releaseContext(CryptoContext context) {
+        contextLock.lock();
+        try {
+            if (idleContexts.size() < MAX_IDLE_CONTEXTS)
+                idleContexts.offerFirst(context);
+        } finally {
+            contextLock.unlock();
+        }
     }
 
     @Override
@@ -105,22 +194,20 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
         // this encryption type is deterministic
         assert (plainText != null);
         byte[] iv = new byte[blockSizeInBytes];
-        // Secret/private key to be used in AES encryption
-        SecretKeySpec skeySpec = new SecretKeySpec(columnEncryptionkey.getEncryptionKey(), "AES");
-
-        if (isDeterministic) {
-            // this method makes sure this is 16 bytes key
-            try {
-                iv = SQLServerSecurityUtility.getHMACWithSHA256(plainText, columnEncryptionkey.getIVKey(),
-                        blockSizeInBytes);
-            } catch (InvalidKeyException | NoSuchAlgorithmException e) {
-                MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_EncryptionFailed"));
-                Object[] msgArgs = {e.getMessage()};
-                throw new SQLServerException(this, form.format(msgArgs), null, 0, false);
+        CryptoContext context;
+
+        try {
+            context = acquireContext();
+            if (isDeterministic) {
+                // the IV is the HMAC of the plain text, truncated to 16 bytes
+                System.arraycopy(context.getIVMac(ivKeySpec).doFinal(plainText), 0, iv, 0, blockSizeInBytes);
+            } else {
+                context.getRandom().nextBytes(iv);
             }
-        } else {
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
+        } catch (InvalidKeyException | NoSuchAlgorithmException | NoSuchPaddingException e) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_EncryptionFailed"));
+            Object[] msgArgs = {e.getMessage()};
+            throw new SQLServerException(this, form.format(msgArgs), null, 0, false);
         }
 
         int numBlocks = plainText.length / blockSizeInBytes + 1;
@@ -145,8 +232,8 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
         try {
             // initialization vector
             IvParameterSpec ivector = new IvParameterSpec(iv);
-            Cipher encryptCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            encryptCipher.init(Cipher.ENCRYPT_MODE, skeySpec, ivector);
+            Cipher encryptCipher = context.cipher;
+            encryptCipher.init(Cipher.ENCRYPT_MODE, encryptionKeySpec, ivector);
 
             int count = 0;
             int cipherIndex = cipherStartIndex; // this is where cipherText starts
@@ -162,9 +249,7 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
 
             if (hasAuthenticationTag) {
 
-                Mac hmac = Mac.getInstance(HMAC_SHA_256);
-                SecretKeySpec initkey = new SecretKeySpec(columnEncryptionkey.getMacKey(), HMAC_SHA_256);
-                hmac.init(initkey);
+                Mac hmac = context.mac;
                 hmac.update(version, 0, version.length);
                 hmac.update(iv, 0, iv.length);
                 hmac.update(outBuffer, cipherStartIndex, numBlocks * blockSizeInBytes);
@@ -174,13 +259,14 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
                 System.arraycopy(hash, 0, outBuffer, hmacStartIndex, authenticationTagLen);
 
             }
-        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException | InvalidKeyException
-                | NoSuchPaddingException | IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+        } catch (InvalidAlgorithmParameterException | InvalidKeyException | IllegalBlockSizeException
+                | BadPaddingException | ShortBufferException e) {
 
             MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_EncryptionFailed"));
             Object[] msgArgs = {e.getMessage()};
             throw new SQLServerException(this, form.format(msgArgs), null, 0, false);
         }
+        releaseContext(context);
 
         aeLogger.exiting(SQLServerAeadAes256CbcHmac256Algorithm.class.getName(), "encryptData", "Data encrypted.");
         return outBuffer;
@@ -189,12 +275,42 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
 
     @Override
     byte[] decryptData(byte[] cipherText) throws SQLServerException {
-        return decryptData(cipherText, true);
+        CryptoContext context = acquireDecryptionContext();
+        byte[] plainText = decryptData(context, cipherText, true);
+        releaseContext(context);
+        return plainText;
+    }
+
+    /**
+     * Decrypts several cipher texts, such as the encrypted columns of a row, with one crypto context.
+     */
+    @Override
+    byte[][] decryptData(byte[][] cipherTexts) throws SQLServerException {
+        byte[][] plainTexts = new byte[cipherTexts.length][];
+        CryptoContext context = acquireDecryptionContext();
+        for (int i = 0; i < cipherTexts.length; i++) {
+            if (null != cipherTexts[i])
+                plainTexts[i] = decryptData(context, cipherTexts[i], true);
+        }
+        releaseContext(context);
+        return plainTexts;
+    }
+
+    private CryptoContext acquireDecryptionContext() throws SQLServerException {
+        try {
+            return acquireContext();
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException e) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_DecryptionFailed"));
+            Object[] msgArgs = {e.getMessage()};
+            throw new SQLServerException(this, form.format(msgArgs), null, 0, false);
+        }
     }
 
     /**
      * Decrypt the cipher text and return plain text
      * 
+     * @param context
+     *        crypto context to use
      * @param cipherText
      *        data to be decrypted
      * @param hasAuthenticationTag
@@ -202,7 +318,8 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
      * @return plain text
      * @throws SQLServerException
      */
-    private byte[] decryptData(byte[] cipherText, boolean hasAuthenticationTag) throws SQLServerException {
+    private byte[] decryptData(CryptoContext context, byte[] cipherText,
+            boolean hasAuthenticationTag) throws SQLServerException {
         assert (cipherText != null);
 
         byte[] iv = new byte[blockSizeInBytes];
@@ -250,15 +367,8 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
         int cipherTextCount = cipherText.length - startIndex;
 
         if (hasAuthenticationTag) {
-            byte[] authenticationTag;
-            try {
-                authenticationTag = prepareAuthenticationTag(iv, cipherText, cipherTextOffset, cipherTextCount);
-            } catch (InvalidKeyException | NoSuchAlgorithmException e) {
-                MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_DecryptionFailed"));
-                Object[] msgArgs = {e.getMessage()};
-                throw new SQLServerException(this, form.format(msgArgs), null, 0, false);
-
-            }
+            byte[] authenticationTag = prepareAuthenticationTag(context, iv, cipherText, cipherTextOffset,
+                    cipherTextCount);
             if (!(SQLServerSecurityUtility.compareBytes(authenticationTag, cipherText, authenticationTagOffset,
                     cipherTextCount))) {
 
@@ -270,12 +380,14 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
         }
 
         // Decrypt the text and return
-        return decryptData(iv, cipherText, cipherTextOffset, cipherTextCount);
+        return decryptData(context, iv, cipherText, cipherTextOffset, cipherTextCount);
     }
 
     /**
      * Decrypt data with specified IV
      * 
+     * @param context
+     *        crypto context to use
      * @param iv
      *        initialization vector
      * @param cipherText
@@ -287,21 +399,19 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
      * @return plain text
      * @throws SQLServerException
      */
-    private byte[] decryptData(byte[] iv, byte[] cipherText, int offset, int count) throws SQLServerException {
+    private byte[] decryptData(CryptoContext context, byte[] iv, byte[] cipherText, int offset,
+            int count) throws SQLServerException {
         aeLogger.entering(SQLServerAeadAes256CbcHmac256Algorithm.class.getName(), "decryptData", "Decrypting data.");
         assert (cipherText != null);
         assert (iv != null);
         byte[] plainText = null;
-        // key to be used for decryption
-        SecretKeySpec skeySpec = new SecretKeySpec(columnEncryptionkey.getEncryptionKey(), "AES");
         IvParameterSpec ivector = new IvParameterSpec(iv);
-        Cipher decryptCipher;
+        Cipher decryptCipher = context.cipher;
         try {
-            decryptCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            decryptCipher.init(Cipher.DECRYPT_MODE, skeySpec, ivector);
+            decryptCipher.init(Cipher.DECRYPT_MODE, encryptionKeySpec, ivector);
             plainText = decryptCipher.doFinal(cipherText, offset, count);
-        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException | InvalidKeyException
-                | NoSuchPaddingException | IllegalBlockSizeException | BadPaddingException e) {
+        } catch (InvalidAlgorithmParameterException | InvalidKeyException | IllegalBlockSizeException
+                | BadPaddingException e) {
 
             MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_DecryptionFailed"));
             Object[] msgArgs = {e.getMessage()};
@@ -316,6 +426,8 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
     /**
      * Prepare the authentication tag
      * 
+     * @param context
+     *        crypto context to use
      * @param iv
      *        initialization vector
      * @param cipherText
@@ -323,18 +435,14 @@ class SQLServerAeadAes256CbcHmac256Algorithm extends SQLServerEncryptionAlgorith
      * @param length
      *        length of cipher text
      * @return authentication tag
-     * @throws NoSuchAlgorithmException
-     * @throws InvalidKeyException
      */
-    private byte[] prepareAuthenticationTag(byte[] iv, byte[] cipherText, int offset,
-            int length) throws NoSuchAlgorithmException, InvalidKeyException {
+    private byte[] prepareAuthenticationTag(CryptoContext context, byte[] iv, byte[] cipherText, int offset,
+            int length) {
         assert (cipherText != null);
         byte[] computedHash;
         byte[] authenticationTag = new byte[SQLServerAeadAes256CbcHmac256EncryptionKey.KEYSIZE_IN_BYTES];
 
-        Mac hmac = Mac.getInstance(HMAC_SHA_256);
-        SecretKeySpec key = new SecretKeySpec(columnEncryptionkey.getMacKey(), HMAC_SHA_256);
-        hmac.init(key);
+        Mac hmac = context.mac;
         hmac.update(version, 0, version.length);
         hmac.update(iv, 0, iv.length);
         hmac.update(cipherText, offset, length);
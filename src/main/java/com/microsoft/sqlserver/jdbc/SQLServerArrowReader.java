@@ -0,0 +1,269 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.complex.FixedSizeListVector;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+
+/**
+ * Reads the rows of a result set into Apache Arrow vectors, a batch at a time, like an Arrow reader. Each batch is read
+ * with {@link ISQLServerResultSet#nextColumns} into column vectors that the reader reuses, and then copied into the
+ * vectors of one {@link VectorSchemaRoot}, which the reader also reuses for every batch.
+ * <p>
+ * The columns map to Arrow types as follows: bit to Bool, tinyint and smallint to Int(16), int to Int(32), bigint to
+ * Int(64), real to FloatingPoint(SINGLE), float to FloatingPoint(DOUBLE), decimal, numeric, money and smallmoney to
+ * Decimal(precision, scale, 128), date to Date(DAY), time to Time(MICROSECOND, 64), datetime, smalldatetime and
+ * datetime2 to Timestamp(MICROSECOND) without a time zone, datetimeoffset to Timestamp(MICROSECOND, "UTC"), vector to
+ * FixedSizeList(dimensions) of FloatingPoint(SINGLE), binary types to Binary and any other type to Utf8. The offset of
+ * a datetimeoffset value is not kept: the value is the instant it stands for.
+ * <p>
+ * This class needs the arrow-vector library, an optional dependency of the driver.
+ */
+public final class SQLServerArrowReader implements AutoCloseable {
+
+    private static final long MICROS_PER_DAY = 86_400_000_000L;
+
+    private final ISQLServerResultSet resultSet;
+    private final VectorSchemaRoot root;
+    private final SQLServerColumnVector[] columnVectors;
+
+    /**
+     * Creates a reader of the rows of a result set that is positioned before its first row.
+     *
+     * @param resultSet
+     *        the result set, which the reader does not close
+     * @param allocator
+     *        the allocator of the Arrow vectors
+     * @param batchSize
+     *        the maximum number of rows of a batch
+     * @throws SQLException
+     *         if the result set is closed or the batch size is less than 1
+     */
+    public SQLServerArrowReader(ISQLServerResultSet resultSet, BufferAllocator allocator,
+            int batchSize) throws SQLException {
+        if (batchSize < 1) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidArgument"));
+            throw new SQLServerException(form.format(new Object[] {"batchSize"}), null, 0, null);
+        }
+
+        SQLServerResultSet rs = resultSet.unwrap(SQLServerResultSet.class);
+        int columnCount = rs.getColumnCount();
+        List<Field> fields = new ArrayList<>(columnCount);
+        columnVectors = new SQLServerColumnVector[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            Column column = rs.getColumn(i + 1);
+            TypeInfo typeInfo = column.getValueTypeInfo();
+            ArrowType type;
+            List<Field> children = Collections.emptyList();
+            switch (typeInfo.getSSType()) {
+                case BIT:
+                    type = ArrowType.Bool.INSTANCE;
+                    columnVectors[i] = SQLServerColumnVector.ofInts(new int[batchSize]);
+                    break;
+                case TINYINT:
+                case SMALLINT:
+                    type = new ArrowType.Int(16, true);
+                    columnVectors[i] = SQLServerColumnVector.ofInts(new int[batchSize]);
+                    break;
+                case INTEGER:
+                    type = new ArrowType.Int(32, true);
+                    columnVectors[i] = SQLServerColumnVector.ofInts(new int[batchSize]);
+                    break;
+                case BIGINT:
+                    type = new ArrowType.Int(64, true);
+                    columnVectors[i] = SQLServerColumnVector.ofLongs(new long[batchSize]);
+                    break;
+                case REAL:
+                    type = new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+                    columnVectors[i] = SQLServerColumnVector.ofDoubles(new double[batchSize]);
+                    break;
+                case FLOAT:
+                    type = new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+                    columnVectors[i] = SQLServerColumnVector.ofDoubles(new double[batchSize]);
+                    break;
+                case DECIMAL:
+                case NUMERIC:
+                case MONEY:
+                case SMALLMONEY:
+                    type = new ArrowType.Decimal(typeInfo.getPrecision(), typeInfo.getScale(), 128);
+                    columnVectors[i] = SQLServerColumnVector
+                            .ofDecimals(new byte[batchSize * SQLServerColumnVector.DECIMAL_BYTES], typeInfo.getScale());
+                    break;
+                case DATE:
+                    type = new ArrowType.Date(DateUnit.DAY);
+                    columnVectors[i] = SQLServerColumnVector.ofTimestamps(new long[batchSize]);
+                    break;
+                case TIME:
+                    type = new ArrowType.Time(TimeUnit.MICROSECOND, 64);
+                    columnVectors[i] = SQLServerColumnVector.ofTimestamps(new long[batchSize]);
+                    break;
+                case DATETIME:
+                case SMALLDATETIME:
+                case DATETIME2:
+                    type = new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+                    columnVectors[i] = SQLServerColumnVector.ofTimestamps(new long[batchSize]);
+                    break;
+                case DATETIMEOFFSET:
+                    type = new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+                    columnVectors[i] = SQLServerColumnVector.ofTimestamps(new long[batchSize]);
+                    break;
+                case VECTOR:
+                    // the precision of a vector column is its number of dimensions
+                    type = new ArrowType.FixedSizeList(typeInfo.getPrecision());
+                    children = Collections.singletonList(new Field("$data$",
+                            FieldType.nullable(new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE)), null));
+                    columnVectors[i] = SQLServerColumnVector
+                            .ofFloatLists(new float[batchSize * typeInfo.getPrecision()], typeInfo.getPrecision());
+                    break;
+                default:
+                    type = typeInfo.getSSType().getJDBCType().isBinary() ? ArrowType.Binary.INSTANCE
+                                                                         : ArrowType.Utf8.INSTANCE;
+                    columnVectors[i] = SQLServerColumnVector.ofBytes(new int[batchSize + 1], null);
+                    break;
+            }
+            fields.add(new Field(column.getColumnName(), FieldType.nullable(type), children));
+        }
+
+        this.resultSet = resultSet;
+        this.root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        for (FieldVector vector : root.getFieldVectors())
+            vector.setInitialCapacity(batchSize);
+        root.allocateNew();
+    }
+
+    /**
+     * Returns the schema of the batches.
+     *
+     * @return the schema
+     */
+    public Schema getSchema() {
+        return root.getSchema();
+    }
+
+    /**
+     * Returns the vectors that hold the current batch. The same vectors hold every batch.
+     *
+     * @return the vectors of the current batch
+     */
+    public VectorSchemaRoot getVectorSchemaRoot() {
+        return root;
+    }
+
+    /**
+     * Reads the next batch of rows into the vectors of {@link #getVectorSchemaRoot}.
+     *
+     * @return whether there was a row to read, false once the result set has no more rows
+     * @throws SQLException
+     *         if reading the rows fails
+     */
+    public boolean loadNextBatch() throws SQLException {
+        int rowCount = resultSet.nextColumns(columnVectors);
+        for (int i = 0; i < columnVectors.length; i++) {
+            FieldVector vector = root.getVector(i);
+            vector.reset();
+            copy(columnVectors[i], vector, rowCount);
+        }
+        root.setRowCount(rowCount);
+        return rowCount > 0;
+    }
+
+    /**
+     * Copies the values of a column vector into an Arrow vector of the type that the constructor mapped its column to.
+     */
+    private static void copy(SQLServerColumnVector values, FieldVector vector, int rowCount) {
+        if (vector instanceof DecimalVector) {
+            // The values are already in the layout of the data buffer, only the validity bitmap is inverted.
+            while (vector.getValueCapacity() < rowCount)
+                vector.reAlloc();
+            vector.getDataBuffer().setBytes(0, values.getData(), 0,
+                    (long) rowCount * SQLServerColumnVector.DECIMAL_BYTES);
+            ArrowBuf validity = vector.getValidityBuffer();
+            byte[] nulls = values.getNulls();
+            for (int i = 0; i < (rowCount + 7) >> 3; i++)
+                validity.setByte(i, ~nulls[i]);
+            return;
+        }
+
+        for (int row = 0; row < rowCount; row++) {
+            if (values.isNull(row)) {
+                if (vector instanceof FixedSizeListVector)
+                    ((FixedSizeListVector) vector).setNull(row);
+                continue;
+            }
+
+            if (vector instanceof BitVector) {
+                ((BitVector) vector).setSafe(row, values.getInts()[row]);
+            } else if (vector instanceof SmallIntVector) {
+                ((SmallIntVector) vector).setSafe(row, values.getInts()[row]);
+            } else if (vector instanceof IntVector) {
+                ((IntVector) vector).setSafe(row, values.getInts()[row]);
+            } else if (vector instanceof BigIntVector) {
+                ((BigIntVector) vector).setSafe(row, values.getLongs()[row]);
+            } else if (vector instanceof Float4Vector) {
+                ((Float4Vector) vector).setSafe(row, (float) values.getDoubles()[row]);
+            } else if (vector instanceof Float8Vector) {
+                ((Float8Vector) vector).setSafe(row, values.getDoubles()[row]);
+            } else if (vector instanceof DateDayVector) {
+                ((DateDayVector) vector).setSafe(row, (int) Math.floorDiv(values.getLongs()[row], MICROS_PER_DAY));
+            } else if (vector instanceof TimeMicroVector) {
+                ((TimeMicroVector) vector).setSafe(row, values.getLongs()[row]);
+            } else if (vector instanceof TimeStampVector) {
+                ((TimeStampVector) vector).setSafe(row, values.getLongs()[row]);
+            } else if (vector instanceof FixedSizeListVector) {
+                FixedSizeListVector lists = (FixedSizeListVector) vector;
+                Float4Vector floats = (Float4Vector) lists.getDataVector();
+                int listSize = values.getListSize();
+                lists.setNotNull(row);
+                for (int i = row * listSize; i < (row + 1) * listSize; i++)
+                    floats.setSafe(i, values.getFloats()[i]);
+            } else {
+                int[] offsets = values.getOffsets();
+                int length = offsets[row + 1] - offsets[row];
+                if (vector instanceof VarCharVector)
+                    ((VarCharVector) vector).setSafe(row, values.getData(), offsets[row], length);
+                else
+                    ((VarBinaryVector) vector).setSafe(row, values.getData(), offsets[row], length);
+            }
+        }
+    }
+
+    /**
+     * Releases the vectors of the reader. The result set stays open.
+     */
+    @Override
+    public void close() {
+        root.close();
+    }
+}
@@ -5,7 +5,6 @@
 
 package com.microsoft.sqlserver.jdbc;
 
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,17 +12,17 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.sql.Types;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.logging.Level;
-import java.util.regex.Pattern;
 
 import microsoft.sql.Vector;
 /**
@@ -39,8 +38,8 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
     /**
      * Resources associated with reading in the file
      */
-    /** file reader */
-    private transient BufferedReader fileReader;
+    /** tokenizer of the file */
+    private transient CSVTokenizer tokenizer;
 
     /** input stream reader */
     private transient InputStreamReader sr;
@@ -48,10 +47,25 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
     /** file input stream */
     private transient FileInputStream fis;
 
+    /** name of the file, null for an input stream */
+    private transient String fileName;
+
+    /** encoding of the file */
+    private transient String encoding;
+
+    /** whether the first line of the file is the column names */
+    private transient boolean firstLineIsColumnNames;
+
+    /** reader that parses the rows of the file with several threads, or null */
+    private transient ParallelCSVReader parallelReader;
+
+    /** whether the first row was read */
+    private transient boolean started;
+
     /**
-     * Current line of data to parse.
+     * Whether the tokenizer is at a record of data to parse.
      */
-    private String currentLine = null;
+    private transient boolean hasCurrentRecord;
 
     /**
      * Delimiter to parse lines with.
@@ -64,9 +78,9 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
     private boolean escapeDelimiters;
 
     /**
-     * Double quote character to parse lines with
+     * Number of threads that parse the rows of the file
      */
-    private static final char doubleQuoteChar = '\"';
+    private int parsingThreads;
 
     /*
      * Class names for logging.
@@ -102,6 +116,7 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
         }
 
         this.delimiter = delimiter;
+        this.fileName = fileToParse;
         try {
             // Create the file reader
             fis = new FileInputStream(fileToParse);
@@ -206,57 +221,16 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
 
     private void initFileReader(InputStreamReader sr, String encoding, String demlimeter,
             boolean firstLineIsColumnNames) throws SQLServerException, IOException {
-        fileReader = new BufferedReader(sr);
+        tokenizer = new CSVTokenizer(sr, delimiter);
+        this.encoding = encoding;
+        this.firstLineIsColumnNames = firstLineIsColumnNames;
         if (firstLineIsColumnNames) {
-            currentLine = fileReader.readLine();
-            if (null != currentLine) {
-                columnNames = (escapeDelimiters && currentLine.contains("\""))
-                                                                               ? escapeQuotesRFC4180(parseString(
-                                                                                       currentLine, delimiter))
-                                                                               : currentLine.split(Pattern.quote(delimiter), -1);
-            }
-        }
-    }
-
-    /*
-     * RFC4180 specifies that rules for quoted fields. It allows quoted string data to contain newlines data
-     * provided the contents otherwise conforms to the rules for escaping quotes. For example, the following is valid:
-     * "a","b","c"
-     * "aaa","b <-- newline is retained in data field
-     * bb","c"
-     * "aa","bb","cc"
-     * We cannot simply use fileReader.readLine() to read these records but instead must continue reading until we reach
-     * a newline that is not contained within quotes.
-     */
-    private String readLineEscapeDelimiters() throws SQLServerException {
-        int quoteCount = 0;
-        StringBuilder sb = new StringBuilder();
-        try {
-            int c;
-            while ((c = fileReader.read()) != -1) {
-                if ((c == '\n' || c == '\r') && quoteCount % 2 == 0) { // newlines only end the record if we are not in quotes
-                    fileReader.mark(1);
-                    c = fileReader.read(); // we might have read \r of a \r\n, if so we need to read the \n as well
-                    if (c != '\n') {
-                        fileReader.reset(); // only delimited by \n, unread last char so it goes into the next record
-                    }
-                    break;
-                }
-                sb.append((char) c);
-                if (c == '"') {
-                    quoteCount++;
-                }
-            }
-            if (c == -1 && quoteCount % 2 != 0) { // stream ended, but we are within quotes -- data problem
-                throw new SQLServerException(SQLServerException.getErrString("R_InvalidCSVQuotes"), null, 0, null);
+            hasCurrentRecord = tokenizer.nextRecord(escapeDelimiters);
+            if (hasCurrentRecord) {
+                tokenizer.splitFields();
+                columnNames = tokenizer.getFields();
             }
-            if ((c == -1) && (sb.length() == 0)) { // keep semantics of readLine() by returning a null when there is no more data
-                return null;
-            }
-        } catch (IOException e) {
-            throw new SQLServerException(e.getMessage(), null, 0, e);
         }
-        return sb.toString();
     }
 
     private void initLoggerResources() {
@@ -274,11 +248,10 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
             loggerExternal.entering(loggerPackageName, "close");
         }
 
+        if (null != parallelReader)
+            parallelReader.close();
+
         // Ignore errors since we are only cleaning up here
-        if (fileReader != null)
-            try {
-                fileReader.close();
-            } catch (Exception e) {}
         if (sr != null)
             try {
                 sr.close();
@@ -295,252 +268,286 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
 
     @Override
     public Object[] getRowData() throws SQLServerException {
-        if (null == currentLine)
+        if (!hasCurrentRecord)
             return null;
-        else {
-            /*
-             * Binary data may be corrupted The limit in split() function should be a negative value, otherwise trailing
-             * empty strings are discarded. Empty string is returned if there is no value.
-             */
-            String[] data = (escapeDelimiters && currentLine.contains("\""))
-                                                                             ? escapeQuotesRFC4180(parseString(
-                                                                                     currentLine, delimiter))
-                                                                             : currentLine.split(Pattern.quote(delimiter), -1);
-
-            // Cannot go directly from String[] to Object[] and expect it to act as an array.
-
-            Object[] dataRow = new Object[data.length];
-
-            for (Entry<Integer, ColumnMetadata> pair : columnMetadata.entrySet()) {
-                ColumnMetadata cm = pair.getValue();
-                // Reading a column not available in csv positionInFile > number of columns retrieved after split
-                if (data.length < pair.getKey() - 1) {
-                    MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidColumn"));
-                    Object[] msgArgs = {pair.getKey()};
-                    throw new SQLServerException(form.format(msgArgs), SQLState.COL_NOT_FOUND, DriverError.NOT_SET,
-                            null);
-                }
+        else if (null != parallelReader)
+            return parallelReader.getRowData();
+        else
+            return parseRow(tokenizer);
+    }
 
-                // Source header has more columns than current line read
-                if (columnNames != null && (columnNames.length > data.length)) {
-                    MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_DataSchemaMismatch"));
-                    Object[] msgArgs = {};
-                    throw new SQLServerException(form.format(msgArgs), SQLState.COL_NOT_FOUND, DriverError.NOT_SET,
-                            null);
-                }
+    /**
+     * Converts the current record of a tokenizer to the values of a row. Called by the threads of the parallel reader
+     * too, so it only reads the state of this record.
+     */
+    private Object[] parseRow(CSVTokenizer tokenizer) throws SQLServerException {
+        /*
+         * The fields are slices of the tokenizer's buffer. Trailing empty fields are kept. Empty string is returned
+         * if there is no value. Only the values that are strings are made Strings; numbers are parsed from the
+         * buffer.
+         */
+        tokenizer.splitFields();
+        int fieldCount = tokenizer.getFieldCount();
+
+        Object[] dataRow = new Object[fieldCount];
+
+        for (Entry<Integer, ColumnMetadata> pair : columnMetadata.entrySet()) {
+            ColumnMetadata cm = pair.getValue();
+            int field = pair.getKey() - 1;
+            // Reading a column not available in csv positionInFile > number of columns retrieved after split
+            if (fieldCount < field) {
+                MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidColumn"));
+                Object[] msgArgs = {pair.getKey()};
+                throw new SQLServerException(form.format(msgArgs), SQLState.COL_NOT_FOUND, DriverError.NOT_SET,
+                        null);
+            }
 
-                try {
-                    if (0 == data[pair.getKey() - 1].length()) {
-                        dataRow[pair.getKey() - 1] = null;
-                        continue;
-                    }
+            // Source header has more columns than current line read
+            if (columnNames != null && (columnNames.length > fieldCount)) {
+                MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_DataSchemaMismatch"));
+                Object[] msgArgs = {};
+                throw new SQLServerException(form.format(msgArgs), SQLState.COL_NOT_FOUND, DriverError.NOT_SET,
+                        null);
+            }
 
-                    switch (cm.columnType) {
-                        /*
-                         * Both BCP and BULK INSERT considers double quotes as part of the data and throws error if any
-                         * data (say "10") is to be inserted into an numeric column. Our implementation does the same.
-                         */
-                        case Types.INTEGER: {
-                            // Formatter to remove the decimal part as SQL Server floors the decimal in integer types.
-                            DecimalFormat decimalFormatter = new DecimalFormat("#");
-                            decimalFormatter.setRoundingMode(RoundingMode.DOWN);
-                            String formatedfInput = decimalFormatter
-                                    .format(Double.parseDouble(data[pair.getKey() - 1]));
-                            dataRow[pair.getKey() - 1] = Integer.valueOf(formatedfInput);
-                            break;
-                        }
+            if (fieldCount == field) {
+                throw new SQLServerException(SQLServerException.getErrString("R_DataSchemaMismatch"), null);
+            }
+
+            try {
+                if (tokenizer.isEmpty(field)) {
+                    dataRow[field] = null;
+                    continue;
+                }
 
-                        case Types.TINYINT:
-                        case Types.SMALLINT: {
-                            // Formatter to remove the decimal part as SQL Server floors the decimal in integer types.
-                            DecimalFormat decimalFormatter = new DecimalFormat("#");
-                            decimalFormatter.setRoundingMode(RoundingMode.DOWN);
-                            String formatedfInput = decimalFormatter
-                                    .format(Double.parseDouble(data[pair.getKey() - 1]));
-                            dataRow[pair.getKey() - 1] = Short.valueOf(formatedfInput);
+                switch (cm.columnType) {
+                    /*
+                     * Both BCP and BULK INSERT considers double quotes as part of the data and throws error if any
+                     * data (say "10") is to be inserted into an numeric column. Our implementation does the same.
+                     */
+                    case Types.INTEGER: {
+                        // Plain integers in range are parsed from the buffer.
+                        long longValue = tokenizer.getLongField(field);
+                        if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                            dataRow[field] = (int) longValue;
                             break;
                         }
 
-                        case Types.BIGINT: {
-                            BigDecimal bd = new BigDecimal(data[pair.getKey() - 1].trim());
-                            try {
-                                dataRow[pair.getKey() - 1] = bd.setScale(0, RoundingMode.DOWN).longValueExact();
-                            } catch (ArithmeticException ex) {
-                                String value = "'" + data[pair.getKey() - 1] + "'";
-                                MessageFormat form = new MessageFormat(
-                                        SQLServerException.getErrString("R_errorConvertingValue"));
-                                throw new SQLServerException(
-                                        form.format(new Object[] {value, JDBCType.of(cm.columnType)}), null, 0, ex);
-                            }
+                        // Formatter to remove the decimal part as SQL Server floors the decimal in integer types.
+                        DecimalFormat decimalFormatter = new DecimalFormat("#");
+                        decimalFormatter.setRoundingMode(RoundingMode.DOWN);
+                        String formatedfInput = decimalFormatter
+                                .format(Double.parseDouble(tokenizer.getField(field)));
+                        dataRow[field] = Integer.valueOf(formatedfInput);
+                        break;
+                    }
+
+                    case Types.TINYINT:
+                    case Types.SMALLINT: {
+                        long longValue = tokenizer.getLongField(field);
+                        if (longValue >= Short.MIN_VALUE && longValue <= Short.MAX_VALUE) {
+                            dataRow[field] = (short) longValue;
                             break;
                         }
 
-                        case microsoft.sql.Types.MONEY:
-                        case microsoft.sql.Types.SMALLMONEY:
-                        case Types.DECIMAL:
-                        case Types.NUMERIC: {
-                            BigDecimal bd = new BigDecimal(data[pair.getKey() - 1].trim());
-                            dataRow[pair.getKey() - 1] = bd.setScale(cm.scale, RoundingMode.HALF_UP);
+                        // Formatter to remove the decimal part as SQL Server floors the decimal in integer types.
+                        DecimalFormat decimalFormatter = new DecimalFormat("#");
+                        decimalFormatter.setRoundingMode(RoundingMode.DOWN);
+                        String formatedfInput = decimalFormatter
+                                .format(Double.parseDouble(tokenizer.getField(field)));
+                        dataRow[field] = Short.valueOf(formatedfInput);
+                        break;
+                    }
+
+                    case Types.BIGINT: {
+                        long longValue = tokenizer.getLongField(field);
+                        if (CSVTokenizer.NOT_A_LONG != longValue) {
+                            dataRow[field] = longValue;
                             break;
                         }
 
-                        case Types.BIT: {
-                            // "true" => 1, "false" => 0. Any non-zero value (integer/double) => 1, 0/0.0 => 0
-                            try {
-                                dataRow[pair.getKey()
-                                        - 1] = (0 == Double.parseDouble(data[pair.getKey() - 1])) ? Boolean.FALSE
-                                                                                                  : Boolean.TRUE;
-                            } catch (NumberFormatException e) {
-                                dataRow[pair.getKey() - 1] = Boolean.parseBoolean(data[pair.getKey() - 1]);
-                            }
-                            break;
+                        BigDecimal bd = tokenizer.getBigDecimalField(field);
+                        try {
+                            dataRow[field] = bd.setScale(0, RoundingMode.DOWN).longValueExact();
+                        } catch (ArithmeticException ex) {
+                            String value = "'" + tokenizer.getField(field) + "'";
+                            MessageFormat form = new MessageFormat(
+                                    SQLServerException.getErrString("R_errorConvertingValue"));
+                            throw new SQLServerException(
+                                    form.format(new Object[] {value, JDBCType.of(cm.columnType)}), null, 0, ex);
                         }
+                        break;
+                    }
 
-                        case Types.REAL: {
-                            dataRow[pair.getKey() - 1] = Float.parseFloat(data[pair.getKey() - 1]);
+                    case microsoft.sql.Types.MONEY:
+                    case microsoft.sql.Types.SMALLMONEY:
+                    case Types.DECIMAL:
+                    case Types.NUMERIC: {
+                        BigDecimal bd = tokenizer.getBigDecimalField(field);
+                        dataRow[field] = bd.setScale(cm.scale, RoundingMode.HALF_UP);
+                        break;
+                    }
+
+                    case Types.BIT: {
+                        // "true" => 1, "false" => 0. Any non-zero value (integer/double) => 1, 0/0.0 => 0
+                        long longValue = tokenizer.getLongField(field);
+                        if (CSVTokenizer.NOT_A_LONG != longValue) {
+                            dataRow[field] = (0 == longValue) ? Boolean.FALSE : Boolean.TRUE;
                             break;
                         }
 
-                        case Types.DOUBLE: {
-                            dataRow[pair.getKey() - 1] = Double.parseDouble(data[pair.getKey() - 1]);
-                            break;
+                        String value = tokenizer.getField(field);
+                        try {
+                            dataRow[field] = (0 == Double.parseDouble(value)) ? Boolean.FALSE : Boolean.TRUE;
+                        } catch (NumberFormatException e) {
+                            dataRow[field] = Boolean.parseBoolean(value);
                         }
+                        break;
+                    }
 
-                        case Types.BINARY:
-                        case Types.VARBINARY:
-                        case Types.LONGVARBINARY:
-                        case Types.BLOB: {
-                            /*
-                             * For binary data, the value in file may or may not have the '0x' prefix. We will try to
-                             * match our implementation with 'BULK INSERT' except that we will allow 0x prefix whereas
-                             * 'BULK INSERT' command does not allow 0x prefix. A BULK INSERT example: A sample csv file
-                             * containing data for 2 binary columns and 1 row: 61,62 Table definition: create table
-                             * t1(c1 varbinary(10), c2 varbinary(10)) BULK INSERT command: bulk insert t1 from
-                             * 'C:\in.csv' with(DATAFILETYPE='char',firstrow=1, FIELDTERMINATOR=',') select * from t1
-                             * shows 1 row with columns: 0x61, 0x62
-                             */
-                            // Strip off 0x if present.
-                            String binData = data[pair.getKey() - 1].trim();
-                            if (binData.startsWith("0x") || binData.startsWith("0X")) {
-                                dataRow[pair.getKey() - 1] = binData.substring(2);
-                            } else {
-                                dataRow[pair.getKey() - 1] = binData;
-                            }
-                            break;
+                    case Types.REAL: {
+                        dataRow[field] = Float.parseFloat(tokenizer.getField(field));
+                        break;
+                    }
+
+                    case Types.DOUBLE: {
+                        dataRow[field] = Double.parseDouble(tokenizer.getField(field));
+                        break;
+                    }
+
+                    case Types.BINARY:
+                    case Types.VARBINARY:
+                    case Types.LONGVARBINARY:
+                    case Types.BLOB: {
+                        /*
+                         * For binary data, the value in file may or may not have the '0x' prefix. We will try to
+                         * match our implementation with 'BULK INSERT' except that we will allow 0x prefix whereas
+                         * 'BULK INSERT' command does not allow 0x prefix. A BULK INSERT example: A sample csv file
+                         * containing data for 2 binary columns and 1 row: 61,62 Table definition: create table
+                         * t1(c1 varbinary(10), c2 varbinary(10)) BULK INSERT command: bulk insert t1 from
+                         * 'C:\in.csv' with(DATAFILETYPE='char',firstrow=1, FIELDTERMINATOR=',') select * from t1
+                         * shows 1 row with columns: 0x61, 0x62
+                         */
+                        // Strip off 0x if present.
+                        String binData = tokenizer.getTrimmedField(field);
+                        if (binData.startsWith("0x") || binData.startsWith("0X")) {
+                            dataRow[field] = binData.substring(2);
+                        } else {
+                            dataRow[field] = binData;
                         }
+                        break;
+                    }
 
-                        // For vector data type, allowed format in csv file is : "[1.0, 2.0, 3.0]"
-                        case microsoft.sql.Types.VECTOR: {
-                            int dimensionCount = cm.precision;
-                        
-                            if (dimensionCount <= 0) {
-                                throw new SQLServerException(SQLServerException.getErrString("R_InvalidVectorDimensionCount"), null, 0, null);
+                    // For vector data type, allowed format in csv file is : "[1.0, 2.0, 3.0]"
+                    case microsoft.sql.Types.VECTOR: {
+                        int dimensionCount = cm.precision;
+                    
+                        if (dimensionCount <= 0) {
+                            throw new SQLServerException(SQLServerException.getErrString("R_InvalidVectorDimensionCount"), null, 0, null);
+                        }
+                    
+                        String vectorData = tokenizer.getTrimmedField(field);
+                        // cm.scale is bytes-per-dimension (4=FLOAT32, 2=FLOAT16),
+                        // convert to scale byte (0=FLOAT32, 1=FLOAT16) for getVectorDimensionType()
+                        Vector.VectorDimensionType vectorDimensionType = VectorUtils.getVectorDimensionType(VectorUtils.getScaleByte(cm.scale));
+                    
+                        if ("NULL".equalsIgnoreCase(vectorData) || "\"NULL\"".equalsIgnoreCase(vectorData)) {
+                            dataRow[field] = new Vector(dimensionCount, vectorDimensionType, null);
+                        } else {
+                            // Remove enclosing brackets or braces if present
+                            if ((vectorData.startsWith("[") && vectorData.endsWith("]"))) {
+                                vectorData = vectorData.substring(1, vectorData.length() - 1);
                             }
-                        
-                            String vectorData = data[pair.getKey() - 1].trim();
-                            // cm.scale is bytes-per-dimension (4=FLOAT32, 2=FLOAT16),
-                            // convert to scale byte (0=FLOAT32, 1=FLOAT16) for getVectorDimensionType()
-                            Vector.VectorDimensionType vectorDimensionType = VectorUtils.getVectorDimensionType(VectorUtils.getScaleByte(cm.scale));
-                        
-                            if ("NULL".equalsIgnoreCase(vectorData) || "\"NULL\"".equalsIgnoreCase(vectorData)) {
-                                dataRow[pair.getKey() - 1] = new Vector(dimensionCount, vectorDimensionType, null);
-                            } else {
-                                // Remove enclosing brackets or braces if present
-                                if ((vectorData.startsWith("[") && vectorData.endsWith("]"))) {
-                                    vectorData = vectorData.substring(1, vectorData.length() - 1);
-                                }
-                        
-                                String[] vectorElements = vectorData.split(",");
-                                if (vectorElements.length != dimensionCount) {
-                                    throw new SQLServerException(SQLServerException.getErrString("R_VectorDimensionCountMismatch"), null, 0, null);
-                                }
-                        
-                                Float[] vectorArray = new Float[dimensionCount];
-                                for (int i = 0; i < dimensionCount; i++) {
-                                    vectorArray[i] = Float.parseFloat(vectorElements[i].trim());
-                                }
-                        
-                                dataRow[pair.getKey() - 1] = new Vector(dimensionCount, vectorDimensionType, vectorArray);
+                    
+                            String[] vectorElements = vectorData.split(",");
+                            if (vectorElements.length != dimensionCount) {
+                                throw new SQLServerException(SQLServerException.getErrString("R_VectorDimensionCountMismatch"), null, 0, null);
                             }
-                            break;
-                        }
-                        
-                        case java.sql.Types.TIME_WITH_TIMEZONE: {
-                            OffsetTime offsetTimeValue;
-
-                            // The per-column DateTimeFormatter gets priority.
-                            if (null != cm.dateTimeFormatter)
-                                offsetTimeValue = OffsetTime.parse(data[pair.getKey() - 1], cm.dateTimeFormatter);
-                            else if (timeFormatter != null)
-                                offsetTimeValue = OffsetTime.parse(data[pair.getKey() - 1], timeFormatter);
-                            else
-                                offsetTimeValue = OffsetTime.parse(data[pair.getKey() - 1]);
-
-                            dataRow[pair.getKey() - 1] = offsetTimeValue;
-                            break;
+                    
+                            Float[] vectorArray = new Float[dimensionCount];
+                            for (int i = 0; i < dimensionCount; i++) {
+                                vectorArray[i] = Float.parseFloat(vectorElements[i].trim());
+                            }
+                    
+                            dataRow[field] = new Vector(dimensionCount, vectorDimensionType, vectorArray);
                         }
+                        break;
+                    }
+                    
+                    case java.sql.Types.TIME_WITH_TIMEZONE: {
+                        OffsetTime offsetTimeValue;
+
+                        // The per-column DateTimeFormatter gets priority. The value is parsed from the buffer.
+                        CharSequence value = tokenizer.getFieldChars(field);
+                        if (null != cm.dateTimeFormatter)
+                            offsetTimeValue = OffsetTime.parse(value, cm.dateTimeFormatter);
+                        else if (timeFormatter != null)
+                            offsetTimeValue = OffsetTime.parse(value, timeFormatter);
+                        else
+                            offsetTimeValue = OffsetTime.parse(value);
+
+                        dataRow[field] = offsetTimeValue;
+                        break;
+                    }
 
-                        case java.sql.Types.TIMESTAMP_WITH_TIMEZONE: {
-                            OffsetDateTime offsetDateTimeValue;
+                    case java.sql.Types.TIMESTAMP_WITH_TIMEZONE: {
+                        OffsetDateTime offsetDateTimeValue;
 
-                            // The per-column DateTimeFormatter gets priority.
-                            if (null != cm.dateTimeFormatter)
-                                offsetDateTimeValue = OffsetDateTime.parse(data[pair.getKey() - 1],
-                                        cm.dateTimeFormatter);
-                            else if (dateTimeFormatter != null)
-                                offsetDateTimeValue = OffsetDateTime.parse(data[pair.getKey() - 1], dateTimeFormatter);
-                            else
-                                offsetDateTimeValue = OffsetDateTime.parse(data[pair.getKey() - 1]);
+                        // The per-column DateTimeFormatter gets priority. The value is parsed from the buffer.
+                        CharSequence value = tokenizer.getFieldChars(field);
+                        if (null != cm.dateTimeFormatter)
+                            offsetDateTimeValue = OffsetDateTime.parse(value, cm.dateTimeFormatter);
+                        else if (dateTimeFormatter != null)
+                            offsetDateTimeValue = OffsetDateTime.parse(value, dateTimeFormatter);
+                        else
+                            offsetDateTimeValue = OffsetDateTime.parse(value);
 
-                            dataRow[pair.getKey() - 1] = offsetDateTimeValue;
-                            break;
-                        }
+                        dataRow[field] = offsetDateTimeValue;
+                        break;
+                    }
 
-                        case Types.NULL: {
-                            dataRow[pair.getKey() - 1] = null;
-                            break;
-                        }
+                    case Types.NULL: {
+                        dataRow[field] = null;
+                        break;
+                    }
 
-                        case Types.DATE:
-                        case Types.CHAR:
-                        case Types.NCHAR:
-                        case Types.VARCHAR:
-                        case Types.NVARCHAR:
-                        case Types.LONGVARCHAR:
-                        case Types.LONGNVARCHAR:
-                        case Types.CLOB:
-                        default: {
-                            // The string is copied as is.
-                            /*
-                             * Handling double quotes: Both BCP (without a format file) and BULK INSERT behaves the same
-                             * way for double quotes. They treat double quotes as part of the data. For a CSV file as
-                             * follows, data is inserted as is: ""abc"" "abc" abc a"b"c a""b""c Excel on the other hand,
-                             * shows data as follows. It strips off beginning and ending quotes, and sometimes quotes
-                             * get messed up. When the same CSV is saved from Excel again, Excel adds additional quotes.
-                             * abc"" abc abc a"b"c a""b""c In our implementation we will match the behavior with BCP and
-                             * BULK INSERT. BCP command: bcp table1 in in.csv -c -t , -r 0x0A -S localhost -U sa -P
-                             * <pwd> BULK INSERT command: bulk insert table1 from 'in.csv' with (FIELDTERMINATOR=',')
-                             * Handling delimiters in data: Excel allows comma in data when data is surrounded with
-                             * quotes. For example, "Hello, world" is treated as one cell. BCP and BULK INSERT deos not
-                             * allow field terminators in data: https://technet.microsoft.com/en-us/library/
-                             * aa196735%28v=sql.80%29.aspx?f=255&MSPPError=- 2147217396
-                             */
-                            dataRow[pair.getKey() - 1] = data[pair.getKey() - 1];
-                            break;
-                        }
+                    case Types.DATE:
+                    case Types.CHAR:
+                    case Types.NCHAR:
+                    case Types.VARCHAR:
+                    case Types.NVARCHAR:
+                    case Types.LONGVARCHAR:
+                    case Types.LONGNVARCHAR:
+                    case Types.CLOB:
+                    default: {
+                        // The string is copied as is.
+                        /*
+                         * Handling double quotes: Both BCP (without a format file) and BULK INSERT behaves the same
+                         * way for double quotes. They treat double quotes as part of the data. For a CSV file as
+                         * follows, data is inserted as is: ""abc"" "abc" abc a"b"c a""b""c Excel on the other hand,
+                         * shows data as follows. It strips off beginning and ending quotes, and sometimes quotes
+                         * get messed up. When the same CSV is saved from Excel again, Excel adds additional quotes.
+                         * abc"" abc abc a"b"c a""b""c In our implementation we will match the behavior with BCP and
+                         * BULK INSERT. BCP command: bcp table1 in in.csv -c -t , -r 0x0A -S localhost -U sa -P
+                         * <pwd> BULK INSERT command: bulk insert table1 from 'in.csv' with (FIELDTERMINATOR=',')
+                         * Handling delimiters in data: Excel allows comma in data when data is surrounded with
+                         * quotes. For example, "Hello, world" is treated as one cell. BCP and BULK INSERT deos not
+                         * allow field terminators in data: https://technet.microsoft.com/en-us/library/
+                         * aa196735%28v=sql.80%29.aspx?f=255&MSPPError=- 2147217396
+                         */
+                        dataRow[field] = tokenizer.getField(field);
+                        break;
                     }
-                } catch (IllegalArgumentException e) {
-                    String value = "'" + data[pair.getKey() - 1] + "'";
-                    MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_errorConvertingValue"));
-                    throw new SQLServerException(form.format(new Object[] {value, JDBCType.of(cm.columnType)}), null, 0,
-                            e);
-                } catch (ArrayIndexOutOfBoundsException e) {
-                    throw new SQLServerException(SQLServerException.getErrString("R_DataSchemaMismatch"), e);
                 }
-
+            } catch (IllegalArgumentException e) {
+                String value = "'" + tokenizer.getField(field) + "'";
+                MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_errorConvertingValue"));
+                throw new SQLServerException(form.format(new Object[] {value, JDBCType.of(cm.columnType)}), null, 0,
+                        e);
             }
-            return dataRow;
+
         }
+        return dataRow;
     }
 
     @Override
@@ -627,12 +634,91 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
 
     @Override
     public boolean next() throws SQLServerException {
+        if (!started) {
+            started = true;
+            if (parsingThreads > 0)
+                parallelReader = openParallelReader();
+        }
+        if (null != parallelReader) {
+            hasCurrentRecord = parallelReader.next();
+            return hasCurrentRecord;
+        }
+
         try {
-            currentLine = escapeDelimiters ? readLineEscapeDelimiters() : fileReader.readLine();
+            hasCurrentRecord = tokenizer.nextRecord(escapeDelimiters);
         } catch (IOException e) {
             throw new SQLServerException(e.getMessage(), null, 0, e);
         }
-        return (null != currentLine);
+        return hasCurrentRecord;
+    }
+
+    /**
+     * Returns a reader that parses the rows of the file with the parsing threads, or null if the rows of this record
+     * cannot be parsed that way.
+     */
+    private ParallelCSVReader openParallelReader() throws SQLServerException {
+        Charset charset = null;
+        if (null != fileName) {
+            try {
+                charset = (null == encoding || 0 == encoding.length()) ? Charset.defaultCharset()
+                                                                        : Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                // Read as the InputStreamReader does.
+            }
+        }
+        if (null == charset || !ParallelCSVReader.isSupported(charset)) {
+            if (loggerExternal.isLoggable(Level.FINE)) {
+                loggerExternal.fine("The rows of " + ((null != fileName) ? fileName : "an input stream")
+                        + " are parsed on the thread that reads them.");
+            }
+            return null;
+        }
+
+        try {
+            return new ParallelCSVReader(Paths.get(fileName), charset, delimiter, escapeDelimiters,
+                    firstLineIsColumnNames, this::parseRow, parsingThreads);
+        } catch (IOException | RuntimeException e) {
+            throw new SQLServerException(e.getMessage(), null, 0, e);
+        }
+    }
+
+    /**
+     * Returns the number of threads that parse the rows of the file.
+     *
+     * @return Number of parsing threads.
+     */
+    public int getParsingThreads() {
+        return parsingThreads;
+    }
+
+    /**
+     * Sets the number of threads that parse the rows of the file ahead of the thread that reads them. With one or more
+     * threads, the file is memory mapped and cut into chunks of a few megabytes at the line breaks that end a record,
+     * the threads split and convert the records of the chunks in parallel, and next and getRowData return the rows in
+     * the order of the file. At most two chunks per thread are held at a time. The column names and the column
+     * metadata are handled as without parsing threads.
+     * <p>
+     * The threads are started when the first row is read, so the rules to escape delimiters and the column metadata
+     * have to be set before. The rows are parsed on the thread that reads them when the record was constructed from an
+     * InputStream, or when the charset of the file may use the bytes of a line feed, a carriage return or a double
+     * quote in other chars, as UTF-16 does; UTF-8, US-ASCII and single byte charsets such as ISO-8859-1 are parsed with
+     * threads. To write the rows over more than one connection, see SQLServerBulkCopyOptions.setParallelStreams.
+     * <p>
+     * The threads stop when the record is closed.
+     *
+     * @param parsingThreads
+     *        Number of parsing threads, or 0 to parse the rows on the thread that reads them.
+     * @throws SQLServerException
+     *         If the number of threads is less than 0.
+     */
+    public void setParsingThreads(int parsingThreads) throws SQLServerException {
+        if (parsingThreads >= 0) {
+            this.parsingThreads = parsingThreads;
+        } else {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidParsingThreads"));
+            Object[] msgArgs = {parsingThreads};
+            SQLServerException.makeFromDriverError(null, null, form.format(msgArgs), null, false);
+        }
     }
 
     /**
@@ -657,65 +743,4 @@ public class SQLServerBulkCSVFileRecord extends SQLServerBulkRecord implements j
     public void setEscapeColumnDelimitersCSV(boolean escapeDelimiters) {
         this.escapeDelimiters = escapeDelimiters;
     }
-
-
-    private static String[] escapeQuotesRFC4180(String[] tokens) throws SQLServerException {
-        if (null == tokens) {
-            return tokens;
-        }
-        for (int i = 0; i < tokens.length; i++) {
-            
-            boolean escaped = false;
-            int j = 0;
-            StringBuilder sb = new StringBuilder();
-            long quoteCount = tokens[i].chars().filter(ch -> ch == '"').count();
-            if (quoteCount > 0) {
-                tokens[i] = tokens[i].trim();
-            }
-            if (0 != quoteCount % 2 || (quoteCount > 0
-                    && ('"' != tokens[i].charAt(0) || '"' != tokens[i].charAt(tokens[i].length() - 1)))) {
-                throw new SQLServerException(SQLServerException.getErrString("R_InvalidCSVQuotes"), null, 0, null);
-            }
-            while (j < tokens[i].length()) {
-                if ('"' == tokens[i].charAt(j)) {
-                    if (!escaped) {
-                        escaped = true;
-                    } else {
-                        if ((j < tokens[i].length() - 1) && '"' == tokens[i].charAt(j + 1)) {
-                            sb.append('"');
-                            j++;
-                        }
-                    }
-                } else {
-                    sb.append(tokens[i].charAt(j));
-                }
-                j++;
-            }
-            tokens[i] = sb.toString();
-        }
-        return tokens;
-    }
-
-    private static String[] parseString(String buffer, String delimiter) {
-        ArrayList<String> tokens = new ArrayList<>();
-        int position = 0;
-        boolean quoted = false;
-
-        for (int i = 0; i < buffer.length(); i++) {
-            if (buffer.charAt(i) == doubleQuoteChar) {
-                quoted = !quoted;
-            } else if (!quoted && i + delimiter.length() <= buffer.length()
-                    && buffer.substring(i, i + delimiter.length()).equals(delimiter)) {
-                // Add field to token list when delimiter is found
-                tokens.add(buffer.substring(position, i));
-
-                position = i + delimiter.length();
-                i = position - 1; // Adjust the index to start after the delimiter
-            }
-        }
-
-        // Add the last field
-        tokens.add(buffer.substring(position));
-        return tokens.toArray(new String[0]);
-    }
 }
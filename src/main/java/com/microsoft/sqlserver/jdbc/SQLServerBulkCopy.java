@@ -52,6 +52,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
+import javax.sql.DataSource;
 import javax.sql.RowSet;
 
 import microsoft.sql.DateTimeOffset;
@@ -110,6 +111,13 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
             this.sourceColumnOrdinal = source;
             this.destinationColumnOrdinal = dest;
         }
+
+        ColumnMapping(ColumnMapping columnMapping) {
+            this.sourceColumnName = columnMapping.sourceColumnName;
+            this.sourceColumnOrdinal = columnMapping.sourceColumnOrdinal;
+            this.destinationColumnName = columnMapping.destinationColumnName;
+            this.destinationColumnOrdinal = columnMapping.destinationColumnOrdinal;
+        }
     }
 
     private class ColumnOrderHint implements Serializable {
@@ -163,6 +171,19 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
      */
     private boolean ownsConnection;
 
+    /**
+     * The connection string or DataSource of the connection, from which a parallel bulk copy opens the connections of
+     * its other streams, and the connection that the DataSource returned, which may be a pooled one.
+     */
+    private transient String connectionUrl;
+    private transient DataSource dataSource;
+    private transient Connection dataSourceConnection;
+
+    /**
+     * Number of rows that each stream of the last parallel bulk copy wrote.
+     */
+    private long[] streamRowCounts;
+
     /**
      * Name of destination table on server. If destinationTable has not been set when WriteToServer is called, an
      * Exception is thrown. destinationTable is a three-part name {@code (<database>.<owningschema>.<name>)}. You can
@@ -183,6 +204,11 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
      */
     private transient ResultSet sourceResultSet;
 
+    /**
+     * Reads and encodes the rows of serverBulkData ahead of sending them, while a bulk copy with encoding threads runs.
+     */
+    private transient BulkCopyPipeline rowPipeline;
+
     /**
      * Metadata for the source table columns
      */
@@ -361,6 +387,7 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
         if (null == connection) {
             throw new SQLServerException(null, SQLServerException.getErrString("R_invalidConnection"), null, 0, false);
         }
+        this.connectionUrl = connectionUrl;
 
         copyOptions = new SQLServerBulkCopyOptions();
 
@@ -371,6 +398,71 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
         }
     }
 
+    /**
+     * Constructs a SQLServerBulkCopy with a connection from the supplied DataSource, which the SQLServerBulkCopy
+     * closes when it is closed. A parallel bulk copy opens the connections of its other streams from the same
+     * DataSource.
+     * 
+     * @param dataSource
+     *        DataSource of connections to the destination server. Its connections must be from the Microsoft JDBC
+     *        driver for SQL Server.
+     * @throws SQLServerException
+     *         If a connection cannot be established, or is not a connection from the Microsoft JDBC driver for SQL
+     *         Server.
+     */
+    public SQLServerBulkCopy(DataSource dataSource) throws SQLServerException {
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.entering(loggerClassName, "SQLServerBulkCopy", dataSource);
+        }
+        if (null == dataSource) {
+            throwInvalidArgument("dataSource");
+        }
+
+        dataSourceConnection = getConnection(dataSource);
+        if (dataSourceConnection instanceof SQLServerConnection) {
+            connection = (SQLServerConnection) dataSourceConnection;
+        } else if (dataSourceConnection instanceof SQLServerConnectionPoolProxy) {
+            connection = ((SQLServerConnectionPoolProxy) dataSourceConnection).getWrappedConnection();
+        } else {
+            closeConnection(dataSourceConnection);
+            SQLServerException.makeFromDriverError(null, null,
+                    SQLServerException.getErrString("R_invalidDestConnection"), null, false);
+        }
+        ownsConnection = true;
+        this.dataSource = dataSource;
+
+        copyOptions = new SQLServerBulkCopyOptions();
+
+        initializeDefaults();
+
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.exiting(loggerClassName, "SQLServerBulkCopy");
+        }
+    }
+
+    private static Connection getConnection(DataSource dataSource) throws SQLServerException {
+        try {
+            Connection dataSourceConnection = dataSource.getConnection();
+            if (null == dataSourceConnection) {
+                throw new SQLServerException(null, SQLServerException.getErrString("R_invalidConnection"), null, 0,
+                        false);
+            }
+            return dataSourceConnection;
+        } catch (SQLServerException e) {
+            throw e;
+        } catch (SQLException e) {
+            throw new SQLServerException(e.getMessage(), e);
+        }
+    }
+
+    private static void closeConnection(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Ignore this exception
+        }
+    }
+
     /**
      * Adds a new column mapping, using ordinals to specify both the source and destination columns.
      * 
@@ -551,11 +643,7 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
         }
 
         if (ownsConnection) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                // Ignore this exception
-            }
+            closeConnection((null != dataSourceConnection) ? dataSourceConnection : connection);
         }
 
         if (loggerExternal.isLoggable(Level.FINER)) {
@@ -736,16 +824,89 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
             throwInvalidArgument("sourceData");
         }
 
-        serverBulkData = sourceData;
-        sourceResultSet = null;
+        if (copyOptions.getParallelStreams() > 1) {
+            writeToServerInParallel(sourceData);
+        } else {
+            serverBulkData = sourceData;
+            sourceResultSet = null;
 
-        writeToServer();
+            writeToServer();
+        }
 
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(loggerClassName, "writeToServer");
         }
     }
 
+    /**
+     * Returns the number of rows that each stream of the last parallel bulk copy wrote, the rows of its own INSERT
+     * BULK. A stream writes the rows over the connection of this SQLServerBulkCopy, and every other one over a
+     * connection it opens for the bulk copy.
+     * 
+     * @return Number of rows of each stream, or null if no parallel bulk copy completed.
+     * @see SQLServerBulkCopyOptions#setParallelStreams(int)
+     */
+    public long[] getStreamRowCounts() {
+        return (null != streamRowCounts) ? streamRowCounts.clone() : null;
+    }
+
+    /**
+     * Copies the rows of the source over the number of streams of the parallel streams option.
+     */
+    private void writeToServerInParallel(ISQLServerBulkData sourceData) throws SQLServerException {
+        if (!ownsConnection || (null == connectionUrl && null == dataSource)) {
+            SQLServerException.makeFromDriverError(null, null,
+                    SQLServerException.getErrString("R_parallelBulkCopyConnection"), null, false);
+        }
+
+        streamRowCounts = null;
+        SQLServerBulkCopy[] streams = new SQLServerBulkCopy[copyOptions.getParallelStreams()];
+        List<Connection> streamConnections = new ArrayList<>(streams.length - 1);
+        try {
+            streams[0] = newStream(connection);
+            for (int i = 1; i < streams.length; i++) {
+                Connection streamConnection = openStreamConnection();
+                streamConnections.add(streamConnection);
+                streams[i] = newStream(streamConnection);
+            }
+
+            streamRowCounts = ParallelBulkCopy.writeToServer(streams, sourceData);
+        } finally {
+            for (Connection streamConnection : streamConnections) {
+                closeConnection(streamConnection);
+            }
+        }
+    }
+
+    private Connection openStreamConnection() throws SQLServerException {
+        if (null != dataSource) {
+            return getConnection(dataSource);
+        }
+        Connection streamConnection = new SQLServerDriver().connect(connectionUrl, null);
+        if (null == streamConnection) {
+            throw new SQLServerException(null, SQLServerException.getErrString("R_invalidConnection"), null, 0, false);
+        }
+        return streamConnection;
+    }
+
+    /**
+     * Returns a SQLServerBulkCopy over the given connection with the destination, mappings and options of this one, and
+     * the bulk update lock of a stream of a parallel bulk copy.
+     */
+    private SQLServerBulkCopy newStream(Connection streamConnection) throws SQLServerException {
+        SQLServerBulkCopy stream = new SQLServerBulkCopy(streamConnection);
+        stream.destinationTableName = destinationTableName;
+        stream.copyOptions = new SQLServerBulkCopyOptions(copyOptions);
+        stream.copyOptions.setTableLock(true);
+        stream.copyOptions.setParallelStreams(1);
+        for (ColumnMapping columnMapping : columnMappings) {
+            stream.columnMappings.add(new ColumnMapping(columnMapping));
+        }
+        stream.columnOrderHints.addAll(columnOrderHints);
+        stream.stmtColumnEncriptionSetting = stmtColumnEncriptionSetting;
+        return stream;
+    }
+
     /**
      * Initializes the defaults for member variables that require it.
      */
@@ -1858,7 +2019,19 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
 
         validateColumnMappings();
 
-        sendBulkLoadBCP();
+        if (isRowPipelineUsable()) {
+            rowPipeline = new BulkCopyPipeline(serverBulkData,
+                    (tdsWriter, rowObjects) -> writeRowColumns(tdsWriter, rowObjects, null), connection,
+                    copyOptions.getEncodingThreads());
+        }
+        try {
+            sendBulkLoadBCP();
+        } finally {
+            if (null != rowPipeline) {
+                rowPipeline.close();
+                rowPipeline = null;
+            }
+        }
 
         long end = System.currentTimeMillis();
         if (loggerExternal.isLoggable(Level.FINER)) {
@@ -1868,6 +2041,23 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
         }
     }
 
+    /**
+     * Returns whether the rows can be encoded ahead of sending them: with encoding threads, for a source other than a
+     * batch insert, and for a table without encrypted columns, whose values are encrypted as they are sent.
+     */
+    private boolean isRowPipelineUsable() {
+        if (copyOptions.getEncodingThreads() < 1 || null == serverBulkData
+                || serverBulkData instanceof SQLServerBulkBatchInsertRecord) {
+            return false;
+        }
+        for (BulkColumnMetaData columnMetadata : destColumnMetadata.values()) {
+            if (null != columnMetadata.cryptoMeta) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void validateStringBinaryLengths(Object colValue, int srcCol, int destCol) throws SQLServerException {
         int sourcePrecision;
         int destPrecision = destColumnMetadata.get(destCol).precision;
@@ -2056,8 +2246,7 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
                                 serverBulkData.getColumnName(currentColumn), true,
                                 serverBulkData.getPrecision(currentColumn), serverBulkData.getScale(currentColumn),
                                 serverBulkData.getColumnType(currentColumn),
-                                ((serverBulkData instanceof SQLServerBulkCSVFileRecord) ? ((SQLServerBulkCSVFileRecord) serverBulkData)
-                                        .getColumnDateTimeFormatter(currentColumn) : null)));
+                                getColumnDateTimeFormatter(serverBulkData, currentColumn)));
                     }
                 }
             } else {
@@ -3869,7 +4058,20 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
         }
     }
 
+    private static DateTimeFormatter getColumnDateTimeFormatter(ISQLServerBulkData bulkData, int column) {
+        if (bulkData instanceof ParallelBulkCopy.Partition) {
+            bulkData = ((ParallelBulkCopy.Partition) bulkData).getSource();
+        }
+        return (bulkData instanceof SQLServerBulkCSVFileRecord) ? ((SQLServerBulkCSVFileRecord) bulkData)
+                .getColumnDateTimeFormatter(column) : null;
+    }
+
     private boolean goToNextRow() throws SQLServerException {
+        // The pipeline throws the errors of reading the source, and of encoding the rows ahead, as they would be thrown
+        // without it.
+        if (null != rowPipeline) {
+            return rowPipeline.next();
+        }
         try {
             if (null != sourceResultSet) {
                 return sourceResultSet.next();
@@ -3925,6 +4127,10 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
                     );
                 }
             }
+            // Copy a row that was encoded ahead.
+            else if (null != rowPipeline && rowPipeline.isEncoded()) {
+                rowPipeline.writeRow(tdsWriter);
+            }
             // Copy from a file.
             else {
                 // Get all the column values of the current row.
@@ -3932,7 +4138,7 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
                 Parameter[] params = null;
 
                 try {
-                    rowObjects = serverBulkData.getRowData();
+                    rowObjects = (null != rowPipeline) ? rowPipeline.getRowData() : serverBulkData.getRowData();
                     if (serverBulkData instanceof SQLServerBulkBatchInsertRecord) {
                         params = ((SQLServerBulkBatchInsertRecord) serverBulkData).batchParam.get(row);
                     }
@@ -3941,21 +4147,7 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
                     throw new SQLServerException(SQLServerException.getErrString("R_unableRetrieveSourceData"), ex);
                 }
 
-                for (ColumnMapping columnMapping : columnMappings) {
-
-                    Object rowObject = rowObjects[columnMapping.sourceColumnOrdinal - 1];
-                    Calendar cal = null;
-
-                    if (rowObject instanceof Timestamp && params != null) {
-                        cal = params[columnMapping.sourceColumnOrdinal - 1].getInputDTV().getCalendar();
-                    }
-
-                    // If the SQLServerBulkCSVRecord does not have metadata for columns, it returns strings in the
-                    // object array.
-                    // COnvert the strings using destination table types.
-                    writeColumn(tdsWriter, columnMapping.sourceColumnOrdinal, columnMapping.destinationColumnOrdinal,
-                            rowObject, cal);
-                }
+                writeRowColumns(tdsWriter, rowObjects, params);
             }
             row++;
 
@@ -3969,6 +4161,28 @@ public class SQLServerBulkCopy implements java.lang.AutoCloseable, java.io.Seria
         }
     }
 
+    /**
+     * Writes the values of a row of serverBulkData to the TDSWriter object, without the ROW token.
+     */
+    private void writeRowColumns(TDSWriter tdsWriter, Object[] rowObjects,
+            Parameter[] params) throws SQLServerException {
+        for (ColumnMapping columnMapping : columnMappings) {
+
+            Object rowObject = rowObjects[columnMapping.sourceColumnOrdinal - 1];
+            Calendar cal = null;
+
+            if (rowObject instanceof Timestamp && params != null) {
+                cal = params[columnMapping.sourceColumnOrdinal - 1].getInputDTV().getCalendar();
+            }
+
+            // If the SQLServerBulkCSVRecord does not have metadata for columns, it returns strings in the
+            // object array.
+            // COnvert the strings using destination table types.
+            writeColumn(tdsWriter, columnMapping.sourceColumnOrdinal, columnMapping.destinationColumnOrdinal,
+                    rowObject, cal);
+        }
+    }
+
     void setStmtColumnEncriptionSetting(SQLServerStatementColumnEncryptionSetting stmtColumnEncriptionSetting) {
         this.stmtColumnEncriptionSetting = stmtColumnEncriptionSetting;
     }
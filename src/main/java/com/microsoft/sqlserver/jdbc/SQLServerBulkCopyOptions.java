@@ -89,6 +89,20 @@ public class SQLServerBulkCopyOptions implements Serializable {
      */
     private boolean allowEncryptedValueModifications;
 
+    /**
+     * Number of connections that write the rows in parallel, each with its own INSERT BULK stream.
+     * 
+     * Default: 1 - the rows are written over the connection of the SQLServerBulkCopy instance.
+     */
+    private int parallelStreams;
+
+    /**
+     * Number of threads that encode the rows of an ISQLServerBulkData source ahead of the thread that sends them.
+     * 
+     * Default: 0 - the rows are read, converted and encoded on the thread that sends them.
+     */
+    private int encodingThreads;
+
     /**
      * Constructs a SQLServerBulkCopySettings class using defaults for all of the settings.
      */
@@ -102,6 +116,8 @@ public class SQLServerBulkCopyOptions implements Serializable {
         tableLock = false;
         useInternalTransaction = false;
         allowEncryptedValueModifications = false;
+        parallelStreams = 1;
+        encodingThreads = 0;
     }
     
     /**
@@ -115,6 +131,25 @@ public class SQLServerBulkCopyOptions implements Serializable {
         keepNulls = conn.getBulkCopyForBatchInsertKeepNulls();
         tableLock = conn.getBulkCopyForBatchInsertTableLock();
         allowEncryptedValueModifications = conn.getBulkCopyForBatchInsertAllowEncryptedValueModifications();
+        parallelStreams = 1;
+        encodingThreads = 0;
+    }
+
+    /**
+     * Constructs a SQLServerBulkCopySettings class with the settings of another one.
+     */
+    SQLServerBulkCopyOptions(SQLServerBulkCopyOptions options) {
+        batchSize = options.batchSize;
+        bulkCopyTimeout = options.bulkCopyTimeout;
+        checkConstraints = options.checkConstraints;
+        fireTriggers = options.fireTriggers;
+        keepIdentity = options.keepIdentity;
+        keepNulls = options.keepNulls;
+        tableLock = options.tableLock;
+        useInternalTransaction = options.useInternalTransaction;
+        allowEncryptedValueModifications = options.allowEncryptedValueModifications;
+        parallelStreams = options.parallelStreams;
+        encodingThreads = options.encodingThreads;
     }
     
 
@@ -316,4 +351,75 @@ public class SQLServerBulkCopyOptions implements Serializable {
     public void setAllowEncryptedValueModifications(boolean allowEncryptedValueModifications) {
         this.allowEncryptedValueModifications = allowEncryptedValueModifications;
     }
+
+    /**
+     * Returns the number of connections that write the rows of writeToServer(ISQLServerBulkData) in parallel.
+     * 
+     * @return Number of parallel streams.
+     */
+    public int getParallelStreams() {
+        return parallelStreams;
+    }
+
+    /**
+     * Sets the number of connections that write the rows of writeToServer(ISQLServerBulkData) in parallel. With more
+     * than one stream, the SQLServerBulkCopy instance must have been constructed with a connection string or a
+     * DataSource, from which it opens the connections of the other streams. The rows are read from the source on the
+     * calling thread and handed out in chunks to whichever stream is ready for more, and every stream holds a bulk
+     * update lock on the table, as with tableLock, so that the streams can load a heap or a columnstore index
+     * concurrently. On a table with a rowstore index the streams take turns.
+     * <p>
+     * Each stream commits its own batches. If a stream fails, the other streams are cancelled, and as with a single
+     * stream the batches that completed stay in the table.
+     * 
+     * @param parallelStreams
+     *        Number of parallel streams, at least 1.
+     * @throws SQLServerException
+     *         If the number of streams is less than 1.
+     */
+    public void setParallelStreams(int parallelStreams) throws SQLServerException {
+        if (parallelStreams >= 1) {
+            this.parallelStreams = parallelStreams;
+        } else {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidParallelStreams"));
+            Object[] msgArgs = {parallelStreams};
+            SQLServerException.makeFromDriverError(null, null, form.format(msgArgs), null, false);
+        }
+    }
+
+    /**
+     * Returns the number of threads that encode the rows of writeToServer(ISQLServerBulkData) ahead of the thread that
+     * sends them.
+     * 
+     * @return Number of encoding threads.
+     */
+    public int getEncodingThreads() {
+        return encodingThreads;
+    }
+
+    /**
+     * Sets the number of threads that encode the rows of writeToServer(ISQLServerBulkData) ahead of the thread that
+     * sends them. With one or more encoding threads, another thread reads the rows from the source in chunks, the
+     * encoding threads convert them to the destination types and encode them, and the thread that called writeToServer
+     * only sends the encoded rows, in the order of the source. At most two chunks per encoding thread are held at a
+     * time. The source is then read by a thread other than the caller's, and it is read ahead of the rows that have
+     * been sent.
+     * <p>
+     * Rows with a stream, reader, Blob or Clob value, and all rows of a table with Always Encrypted columns, are
+     * encoded on the thread that sends them.
+     * 
+     * @param encodingThreads
+     *        Number of encoding threads, or 0 to read, convert and encode the rows on the thread that sends them.
+     * @throws SQLServerException
+     *         If the number of threads is less than 0.
+     */
+    public void setEncodingThreads(int encodingThreads) throws SQLServerException {
+        if (encodingThreads >= 0) {
+            this.encodingThreads = encodingThreads;
+        } else {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidEncodingThreads"));
+            Object[] msgArgs = {encodingThreads};
+            SQLServerException.makeFromDriverError(null, null, form.format(msgArgs), null, false);
+        }
+    }
 }
@@ -0,0 +1,585 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+
+/**
+ * Holds the values of one column for a batch of rows, which {@link ISQLServerResultSet#nextColumns} reads into it. An
+ * int, long, double or timestamp vector holds the values in an array supplied by the caller. A bytes vector holds the
+ * values of a character or binary column back to back in one byte array, with characters encoded in UTF-8, and the
+ * offset of the value of each row in an array of offsets. A decimal vector holds each value in 16 bytes and a float
+ * list vector holds a fixed number of floats for each value, the layouts of the decimal128 and fixed size list vectors
+ * of Apache Arrow. A bitmap tells which values are null.
+ * <p>
+ * A vector is meant to be reused for every batch of a result set, so that reading the rows allocates nothing.
+ */
+public final class SQLServerColumnVector {
+
+    private enum Kind {
+        INT,
+        LONG,
+        DOUBLE,
+        BYTES,
+        DECIMAL,
+        TIMESTAMP,
+        FLOAT_LIST
+    }
+
+    /** Number of bytes of a value of a decimal vector */
+    public static final int DECIMAL_BYTES = 16;
+
+    private static final long MICROS_PER_DAY = 86_400_000_000L;
+
+    // days from 0001-01-01, the first day of the TDS date types, to 1970-01-01
+    private static final int EPOCH_DAYS_SINCE_0001 = 719_162;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final Kind kind;
+    private final int capacity;
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private float[] floats;
+    private int[] offsets;
+    private byte[] data;
+    private final byte[] nulls;
+    private int rowCount;
+
+    // the scale of the values of a decimal vector, or the number of floats of a value of a float list vector
+    private int scale;
+    private int listSize;
+
+    // the UTF-16 value of an NCHAR or NVARCHAR column, before it is encoded in UTF-8
+    private byte[] utf16Bytes;
+
+    private SQLServerColumnVector(Kind kind, int capacity) {
+        this.kind = kind;
+        this.capacity = capacity;
+        this.nulls = new byte[(capacity + 7) >> 3];
+    }
+
+    /**
+     * Returns a vector that reads the values of a column into an int array, converted as by
+     * {@link java.sql.ResultSet#getInt}. Null values are read as 0.
+     *
+     * @param values
+     *        the array of values, whose length is the capacity of the vector
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofInts(int[] values) {
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.INT, values.length);
+        vector.ints = values;
+        return vector;
+    }
+
+    /**
+     * Returns a vector that reads the values of a column into a long array, converted as by
+     * {@link java.sql.ResultSet#getLong}. Null values are read as 0.
+     *
+     * @param values
+     *        the array of values, whose length is the capacity of the vector
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofLongs(long[] values) {
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.LONG, values.length);
+        vector.longs = values;
+        return vector;
+    }
+
+    /**
+     * Returns a vector that reads the values of a column into a double array, converted as by
+     * {@link java.sql.ResultSet#getDouble}. Null values are read as 0.
+     *
+     * @param values
+     *        the array of values, whose length is the capacity of the vector
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofDoubles(double[] values) {
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.DOUBLE, values.length);
+        vector.doubles = values;
+        return vector;
+    }
+
+    /**
+     * Returns a vector that reads the values of a column into a byte array. Values of binary columns are read as by
+     * {@link java.sql.ResultSet#getBytes}, values of any other column as by {@link java.sql.ResultSet#getString},
+     * encoded in UTF-8. The value of row i takes the bytes from {@code offsets[i]} up to {@code offsets[i + 1]}; a null
+     * value takes no bytes. When the values of a batch do not fit in the data array, the vector replaces it with a
+     * larger one, which {@link #getData} returns.
+     *
+     * @param offsets
+     *        the array of offsets, whose length is one more than the capacity of the vector
+     * @param data
+     *        the array the values are read into, or null to let the vector allocate it
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofBytes(int[] offsets, byte[] data) {
+        if (offsets.length < 1) {
+            throw new IllegalArgumentException(SQLServerException.getErrString("R_invalidColumnVectorOffsets"));
+        }
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.BYTES, offsets.length - 1);
+        vector.offsets = offsets;
+        vector.data = (null != data) ? data : new byte[0];
+        return vector;
+    }
+
+    /**
+     * Returns a vector that reads the values of a column, as by {@link java.sql.ResultSet#getBigDecimal} rounded to a
+     * scale, into a byte array. The value of row i is the unscaled value in the 16 bytes from {@code 16 * i}, as a
+     * little-endian two's complement integer.
+     *
+     * @param values
+     *        the array of values, whose length is 16 times the capacity of the vector
+     * @param scale
+     *        the scale of the values
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofDecimals(byte[] values, int scale) {
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.DECIMAL, values.length / DECIMAL_BYTES);
+        vector.data = values;
+        vector.scale = scale;
+        return vector;
+    }
+
+    /**
+     * Returns a vector that reads the values of a date or time column into a long array, as microseconds. A
+     * DATETIMEOFFSET value is read as the microseconds since 1970-01-01T00:00:00Z, a TIME value as the microseconds
+     * since midnight, and any other value as the microseconds from 1970-01-01T00:00:00 to its local date and time.
+     * Null values are read as 0.
+     *
+     * @param values
+     *        the array of values, whose length is the capacity of the vector
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofTimestamps(long[] values) {
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.TIMESTAMP, values.length);
+        vector.longs = values;
+        return vector;
+    }
+
+    /**
+     * Returns a vector that reads the values of a VECTOR column, each a list of listSize floats, into a float array.
+     * The value of row i takes the floats from {@code listSize * i}.
+     *
+     * @param values
+     *        the array of values, whose length is listSize times the capacity of the vector
+     * @param listSize
+     *        the number of floats of a value, the number of dimensions of the VECTOR column
+     * @return the vector
+     */
+    public static SQLServerColumnVector ofFloatLists(float[] values, int listSize) {
+        if (listSize < 1) {
+            throw new IllegalArgumentException(SQLServerException.getErrString("R_invalidColumnVectorListSize"));
+        }
+        SQLServerColumnVector vector = new SQLServerColumnVector(Kind.FLOAT_LIST, values.length / listSize);
+        vector.floats = values;
+        vector.listSize = listSize;
+        return vector;
+    }
+
+    /**
+     * Returns the number of rows the vector holds at most.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of rows read into the vector by the last batch.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns whether the value of a row is null.
+     *
+     * @param row
+     *        the row, from 0
+     * @return true if the value is null
+     */
+    public boolean isNull(int row) {
+        return 0 != (nulls[row >> 3] & (1 << (row & 7)));
+    }
+
+    /**
+     * Returns the bitmap of null values: the bit {@code 1 << (i & 7)} of byte {@code i >> 3} is set when the value of
+     * row i is null.
+     *
+     * @return the bitmap
+     */
+    public byte[] getNulls() {
+        return nulls;
+    }
+
+    /**
+     * Returns the values of an int vector.
+     *
+     * @return the values, or null if this is not an int vector
+     */
+    public int[] getInts() {
+        return ints;
+    }
+
+    /**
+     * Returns the values of a long or timestamp vector.
+     *
+     * @return the values, or null if this is not a long or timestamp vector
+     */
+    public long[] getLongs() {
+        return longs;
+    }
+
+    /**
+     * Returns the values of a double vector.
+     *
+     * @return the values, or null if this is not a double vector
+     */
+    public double[] getDoubles() {
+        return doubles;
+    }
+
+    /**
+     * Returns the values of a float list vector.
+     *
+     * @return the values, or null if this is not a float list vector
+     */
+    public float[] getFloats() {
+        return floats;
+    }
+
+    /**
+     * Returns the number of floats of a value of a float list vector.
+     *
+     * @return the number of floats, or 0 if this is not a float list vector
+     */
+    public int getListSize() {
+        return listSize;
+    }
+
+    /**
+     * Returns the scale of the values of a decimal vector.
+     *
+     * @return the scale, or 0 if this is not a decimal vector
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Returns the offsets of the values of a bytes vector.
+     *
+     * @return the offsets, or null if this is not a bytes vector
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns the values of a bytes or decimal vector.
+     *
+     * @return the values, or null if this is not a bytes or decimal vector
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the value of a row of a bytes vector as a string, decoding it from UTF-8.
+     *
+     * @param row
+     *        the row, from 0
+     * @return the value, or null if the value is null
+     */
+    public String getString(int row) {
+        if (isNull(row))
+            return null;
+        return new String(data, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the value of a row of a decimal vector as a BigDecimal.
+     *
+     * @param row
+     *        the row, from 0
+     * @return the value, or null if the value is null
+     */
+    public BigDecimal getBigDecimal(int row) {
+        if (isNull(row))
+            return null;
+        byte[] unscaledValue = new byte[DECIMAL_BYTES];
+        for (int i = 0; i < DECIMAL_BYTES; i++)
+            unscaledValue[i] = data[row * DECIMAL_BYTES + DECIMAL_BYTES - 1 - i];
+        return new BigDecimal(new BigInteger(unscaledValue), scale);
+    }
+
+    /** Clears the vector before a batch is read into it. */
+    void reset() {
+        rowCount = 0;
+        Arrays.fill(nulls, (byte) 0);
+        if (Kind.BYTES == kind)
+            offsets[0] = 0;
+    }
+
+    void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    boolean isInts() {
+        return Kind.INT == kind;
+    }
+
+    boolean isLongs() {
+        return Kind.LONG == kind;
+    }
+
+    boolean isDoubles() {
+        return Kind.DOUBLE == kind;
+    }
+
+    boolean isBytes() {
+        return Kind.BYTES == kind;
+    }
+
+    boolean isDecimals() {
+        return Kind.DECIMAL == kind;
+    }
+
+    boolean isTimestamps() {
+        return Kind.TIMESTAMP == kind;
+    }
+
+    boolean isFloatLists() {
+        return Kind.FLOAT_LIST == kind;
+    }
+
+    void setNull(int row) {
+        nulls[row >> 3] |= (byte) (1 << (row & 7));
+        switch (kind) {
+            case INT:
+                ints[row] = 0;
+                break;
+            case LONG:
+            case TIMESTAMP:
+                longs[row] = 0;
+                break;
+            case DOUBLE:
+                doubles[row] = 0;
+                break;
+            case DECIMAL:
+                Arrays.fill(data, row * DECIMAL_BYTES, (row + 1) * DECIMAL_BYTES, (byte) 0);
+                break;
+            case FLOAT_LIST:
+                Arrays.fill(floats, row * listSize, (row + 1) * listSize, 0);
+                break;
+            default:
+                offsets[row + 1] = offsets[row];
+                break;
+        }
+    }
+
+    /**
+     * Sets the value of a row of an int, long or double vector, with the casts of the primitive getters, or of a
+     * timestamp vector.
+     */
+    void setLong(int row, long value) {
+        switch (kind) {
+            case INT:
+                ints[row] = (int) value;
+                break;
+            case LONG:
+            case TIMESTAMP:
+                longs[row] = value;
+                break;
+            default:
+                assert Kind.DOUBLE == kind;
+                doubles[row] = value;
+                break;
+        }
+    }
+
+    /** Sets the value of a row of an int, long or double vector, with the casts of the primitive getters. */
+    void setDouble(int row, double value) {
+        switch (kind) {
+            case INT:
+                ints[row] = (int) value;
+                break;
+            case LONG:
+                longs[row] = (long) value;
+                break;
+            default:
+                assert Kind.DOUBLE == kind;
+                doubles[row] = value;
+                break;
+        }
+    }
+
+    /** Sets the value of a row of a decimal vector, rounded to the scale of the vector. */
+    void setDecimal(int row, BigDecimal value) throws SQLServerException {
+        BigInteger unscaledValue = value.setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+        if (unscaledValue.bitLength() >= 8 * DECIMAL_BYTES) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_valueOutOfRange"));
+            throw new SQLServerException(form.format(new Object[] {"decimal"}), null, 0, null);
+        }
+        byte[] bigEndian = unscaledValue.toByteArray();
+        byte signExtension = (byte) ((unscaledValue.signum() < 0) ? -1 : 0);
+        int offset = row * DECIMAL_BYTES;
+        for (int i = 0; i < DECIMAL_BYTES; i++)
+            data[offset + i] = (i < bigEndian.length) ? bigEndian[bigEndian.length - 1 - i] : signExtension;
+    }
+
+    /** Sets the value of a row of a float list vector. */
+    void setFloats(int row, Object[] value) throws SQLServerException {
+        if (value.length != listSize) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidColumnVectorDimensions"));
+            throw new SQLServerException(form.format(new Object[] {value.length, listSize}), null, 0, null);
+        }
+        for (int i = 0; i < listSize; i++)
+            floats[row * listSize + i] = ((Number) value[i]).floatValue();
+    }
+
+    /**
+     * Reads a DECIMAL or NUMERIC value, a sign byte and a little-endian magnitude, whose scale is the scale of the
+     * vector, into a row of a decimal vector.
+     */
+    void readDecimal(int row, TDSReader tdsReader, int length) throws SQLServerException {
+        boolean isNegative = 0 == tdsReader.readUnsignedByte();
+        int offset = row * DECIMAL_BYTES;
+        tdsReader.readBytes(data, offset, length - 1);
+        Arrays.fill(data, offset + length - 1, offset + DECIMAL_BYTES, (byte) 0);
+        if (isNegative) {
+            // two's complement: invert the bits and add one
+            int carry = 1;
+            for (int i = offset; i < offset + DECIMAL_BYTES; i++) {
+                int b = (~data[i] & 0xFF) + carry;
+                data[i] = (byte) b;
+                carry = b >> 8;
+            }
+        }
+    }
+
+    /**
+     * Reads a DATE, DATETIME2 or DATETIMEOFFSET value into a row of a timestamp vector: the time as units of 10^-scale
+     * seconds in 3 to 5 bytes, except for a DATE, the days since 0001-01-01 in 3 bytes, and the offset in minutes of a
+     * DATETIMEOFFSET, whose date and time are in UTC.
+     */
+    void readTimestamp(int row, TDSReader tdsReader, int length, SSType ssType, int scale) throws SQLServerException {
+        int timeLength = length - 3 - ((SSType.DATETIMEOFFSET == ssType) ? 2 : 0);
+        long micros = 0;
+        if (timeLength > 0) {
+            long units = 0;
+            for (int i = 0; i < timeLength; i++)
+                units |= (long) tdsReader.readUnsignedByte() << (8 * i);
+            micros = (scale <= 6) ? units * POWERS_OF_TEN[6 - scale] : units / POWERS_OF_TEN[scale - 6];
+        }
+        int days = tdsReader.readUnsignedByte() | tdsReader.readUnsignedByte() << 8
+                | tdsReader.readUnsignedByte() << 16;
+        if (SSType.DATETIMEOFFSET == ssType)
+            tdsReader.readShort();
+        longs[row] = (days - EPOCH_DAYS_SINCE_0001) * MICROS_PER_DAY + micros;
+    }
+
+    /**
+     * Reads a FLOAT32 VECTOR value, an 8 byte header and the floats, whose number is the list size of the vector, into
+     * a row of a float list vector.
+     */
+    void readFloats(int row, TDSReader tdsReader, int length) throws SQLServerException {
+        if (length != VectorUtils.getHeaderLength() + 4 * listSize)
+            tdsReader.throwInvalidTDS();
+        tdsReader.skip(VectorUtils.getHeaderLength());
+        for (int i = row * listSize; i < (row + 1) * listSize; i++)
+            floats[i] = Float.intBitsToFloat(tdsReader.readInt());
+    }
+
+    /** Sets the value of a row of a bytes vector. */
+    void setBytes(int row, byte[] value) {
+        int offset = offsets[row];
+        ensureDataCapacity(offset + value.length);
+        System.arraycopy(value, 0, data, offset, value.length);
+        offsets[row + 1] = offset + value.length;
+    }
+
+    /**
+     * Reads the value of a row of a bytes vector from the response: a binary value, or a character value in the
+     * charset of its collation, which is encoded in UTF-8 unless it is all ASCII or the charset already is UTF-8.
+     */
+    void readBytes(int row, TDSReader tdsReader, int length, Charset charset) throws SQLServerException {
+        int offset = offsets[row];
+        ensureDataCapacity(offset + length);
+        tdsReader.readBytes(data, offset, length);
+        offsets[row + 1] = offset + length;
+
+        if (null != charset && !StandardCharsets.UTF_8.equals(charset)) {
+            for (int i = offset; i < offset + length; i++) {
+                if (data[i] < 0) {
+                    setBytes(row, new String(data, offset, length, charset).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the UTF-16LE value of an NCHAR or NVARCHAR column from the response into a row of a bytes vector,
+     * encoding it in UTF-8 like {@link String#getBytes(Charset)} does: an unpaired surrogate becomes '?'.
+     */
+    void readUTF16(int row, TDSReader tdsReader, int length) throws SQLServerException {
+        if (null == utf16Bytes || utf16Bytes.length < length)
+            utf16Bytes = new byte[Math.max(length, 256)];
+        tdsReader.readBytes(utf16Bytes, 0, length);
+
+        // A UTF-16 code unit takes at most 3 bytes in UTF-8.
+        int offset = offsets[row];
+        ensureDataCapacity(offset + (length >> 1) * 3);
+        byte[] out = data;
+        int o = offset;
+        for (int i = 0; i + 1 < length; i += 2) {
+            char c = (char) ((utf16Bytes[i] & 0xFF) | (utf16Bytes[i + 1] & 0xFF) << 8);
+            if (c < 0x80) {
+                out[o++] = (byte) c;
+            } else if (c < 0x800) {
+                out[o++] = (byte) (0xC0 | c >> 6);
+                out[o++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                char low = (i + 3 < length) ? (char) ((utf16Bytes[i + 2] & 0xFF) | (utf16Bytes[i + 3] & 0xFF) << 8)
+                                            : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    int codePoint = Character.toCodePoint(c, low);
+                    out[o++] = (byte) (0xF0 | codePoint >> 18);
+                    out[o++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    out[o++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    out[o++] = (byte) (0x80 | codePoint & 0x3F);
+                    i += 2;
+                } else {
+                    out[o++] = '?';
+                }
+            } else {
+                out[o++] = (byte) (0xE0 | c >> 12);
+                out[o++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[o++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        offsets[row + 1] = o;
+    }
+
+    private void ensureDataCapacity(int length) {
+        if (data.length < length)
+            data = Arrays.copyOf(data, Math.max(length, 2 * data.length));
+    }
+}
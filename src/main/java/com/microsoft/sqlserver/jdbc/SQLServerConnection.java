@@ -52,6 +52,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 import javax.sql.XAConnection;
@@ -492,6 +493,7 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         private boolean isDirectSql;
         private volatile boolean evictedFromCache;
         private volatile boolean explicitlyDiscarded;
+        private volatile int lastUseWindow;
         private CityHash128Key key;
 
         PreparedStatementHandle(CityHash128Key key, int handle, boolean isDirectSql, boolean isEvictedFromCache) {
@@ -534,6 +536,15 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
             return key;
         }
 
+        /** Returns the number of the statement handle cache sizing window in which the handle was last used. */
+        int getLastUseWindow() {
+            return lastUseWindow;
+        }
+
+        void setLastUseWindow(int window) {
+            this.lastUseWindow = window;
+        }
+
         boolean isDirectSql() {
             return isDirectSql;
         }
@@ -603,15 +614,170 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
     /** Keeps track of network idle status */
     transient IdleNetworkTracker idleNetworkTracker = new IdleNetworkTracker();
 
-    /** Size of the parsed SQL-text metadata cache */
-    static final private int PARSED_SQL_CACHE_SIZE = 100;
+    /** Default size of the parsed SQL-text metadata cache */
+    static final int DEFAULT_PARSED_SQL_CACHE_SIZE = 100;
+
+    /** Default size of the prepared SQL cache */
+    static final int DEFAULT_PREPARED_SQL_CACHE_SIZE = 100;
+
+    /** Default size of the shared parameter metadata cache */
+    static final int DEFAULT_SHARED_PARAMETER_METADATA_CACHE_SIZE = 100;
+
+    /** Creates the driver's own caches, used unless the application sets a cache factory */
+    private static final ISQLServerCacheFactory DEFAULT_SQL_CACHE_FACTORY = new ISQLServerCacheFactory() {
+        @Override
+        public <K, V> ISQLServerCache<K, V> createCache(int capacity) {
+            return new StripedTinyLfuCache<>(capacity);
+        }
+    };
+
+    /** Lock for replacing and resizing the SQL caches shared by all connections */
+    private static final Lock sqlCacheLock = new ReentrantLock();
+
+    /** Cache of parsed SQL meta data, shared by all connections */
+    private static volatile ISQLServerCache<CityHash128Key, ParsedSQLCacheItem> parsedSQLCache;
 
-    /** Cache of parsed SQL meta data */
-    static private ConcurrentLinkedHashMap<CityHash128Key, ParsedSQLCacheItem> parsedSQLCache;
+    /** Cache of prepared SQL text and parameter type definitions, shared by all connections */
+    private static volatile ISQLServerCache<SQLTextCacheKey, PreparedSQLCacheItem> preparedSQLCache;
+
+    /** Cache of parameter metadata, shared by all connections that describe statements in the same database */
+    private static volatile ISQLServerCache<SQLTextCacheKey, SQLServerParameterMetaData> sharedParameterMetadataCache;
 
     static {
-        parsedSQLCache = new Builder<CityHash128Key, ParsedSQLCacheItem>()
-                .maximumWeightedCapacity(PARSED_SQL_CACHE_SIZE).build();
+        parsedSQLCache = DEFAULT_SQL_CACHE_FACTORY.createCache(DEFAULT_PARSED_SQL_CACHE_SIZE);
+        preparedSQLCache = DEFAULT_SQL_CACHE_FACTORY.createCache(DEFAULT_PREPARED_SQL_CACHE_SIZE);
+        sharedParameterMetadataCache = DEFAULT_SQL_CACHE_FACTORY
+                .createCache(DEFAULT_SHARED_PARAMETER_METADATA_CACHE_SIZE);
+    }
+
+    /**
+     * Sets the factory that creates the parsed SQL-text, prepared SQL and shared parameter metadata caches, which are
+     * shared by all connections in the JVM. The current caches are replaced right away by empty caches of the same
+     * sizes, so entries cached before are parsed or described again when they are next used.
+     *
+     * @param factory
+     *        the cache factory, or null to use the driver's own caches
+     */
+    public static void setSQLCacheFactory(ISQLServerCacheFactory factory) {
+        ISQLServerCacheFactory cacheFactory = (null != factory) ? factory : DEFAULT_SQL_CACHE_FACTORY;
+        sqlCacheLock.lock();
+        try {
+            parsedSQLCache = cacheFactory.createCache(parsedSQLCache.getCapacity());
+            preparedSQLCache = cacheFactory.createCache(preparedSQLCache.getCapacity());
+            sharedParameterMetadataCache = cacheFactory.createCache(sharedParameterMetadataCache.getCapacity());
+        } finally {
+            sqlCacheLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the maximum number of parsed SQL statements kept in the parsed SQL-text cache, which is shared by all
+     * connections in the JVM. Shrinking the cache evicts entries. The default is 100.
+     *
+     * @param size
+     *        the maximum number of cached parsed statements, at least 1
+     * @throws SQLServerException
+     *         if the size is less than 1
+     */
+    public static void setParsedSQLCacheSize(int size) throws SQLServerException {
+        resizeSQLCache(() -> parsedSQLCache, size, "Parsed SQL");
+    }
+
+    /**
+     * Returns the maximum number of parsed SQL statements kept in the parsed SQL-text cache.
+     *
+     * @return the maximum number of cached parsed statements
+     */
+    public static int getParsedSQLCacheSize() {
+        return parsedSQLCache.getCapacity();
+    }
+
+    /**
+     * Sets the maximum number of prepared SQL texts and parameter type definitions kept in the cache shared by all
+     * connections in the JVM. Shrinking the cache evicts entries. The default is 100.
+     *
+     * @param size
+     *        the maximum number of cached prepared SQL texts, at least 1
+     * @throws SQLServerException
+     *         if the size is less than 1
+     */
+    public static void setPreparedSQLCacheSize(int size) throws SQLServerException {
+        resizeSQLCache(() -> preparedSQLCache, size, "Prepared SQL");
+    }
+
+    /**
+     * Returns the maximum number of prepared SQL texts and parameter type definitions kept in the shared cache.
+     *
+     * @return the maximum number of cached prepared SQL texts
+     */
+    public static int getPreparedSQLCacheSize() {
+        return preparedSQLCache.getCapacity();
+    }
+
+    /**
+     * Sets the maximum number of parameter metadata entries that connections with statement pooling share when they
+     * describe the same statements in the same database. Shrinking the cache evicts entries. The default is 100.
+     *
+     * @param size
+     *        the maximum number of cached parameter metadata entries, at least 1
+     * @throws SQLServerException
+     *         if the size is less than 1
+     */
+    public static void setSharedParameterMetadataCacheSize(int size) throws SQLServerException {
+        resizeSQLCache(() -> sharedParameterMetadataCache, size, "Shared parameter metadata");
+    }
+
+    /**
+     * Returns the maximum number of parameter metadata entries shared by connections with statement pooling.
+     *
+     * @return the maximum number of cached parameter metadata entries
+     */
+    public static int getSharedParameterMetadataCacheSize() {
+        return sharedParameterMetadataCache.getCapacity();
+    }
+
+    /*
+     * Resizes the cache the supplier returns under the cache lock, so that a cache factory set at the same time does
+     * not replace the cache with one of the old size.
+     */
+    private static void resizeSQLCache(Supplier<ISQLServerCache<?, ?>> cache, int size,
+            String cacheName) throws SQLServerException {
+        if (size < 1) {
+            MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_invalidSQLCacheSize"));
+            Object[] msgArgs = {size};
+            throw new SQLServerException(null, form.format(msgArgs), null, 0, false);
+        }
+
+        sqlCacheLock.lock();
+        try {
+            ISQLServerCache<?, ?> current = cache.get();
+            if (connectionlogger.isLoggable(Level.FINER)) {
+                connectionlogger.finer(cacheName + " cache size changed from " + current.getCapacity() + " to " + size);
+            }
+            current.setCapacity(size);
+        } finally {
+            sqlCacheLock.unlock();
+        }
+    }
+
+    @Override
+    public long getParsedSQLCacheHitCount() {
+        return parsedSQLCache.getHitCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheMissCount() {
+        return parsedSQLCache.getMissCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheEvictionCount() {
+        return parsedSQLCache.getEvictionCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheContentionCount() {
+        return parsedSQLCache.getContentionCount();
     }
 
     /** Returns prepared statement cache entry if exists, if not parse and create a new one */
@@ -634,12 +800,32 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         return cacheItem;
     }
 
+    /** Returns the prepared SQL text for the SQL text and parameter type definitions if any connection cached it */
+    static PreparedSQLCacheItem getCachedPreparedSQL(SQLTextCacheKey key) {
+        return preparedSQLCache.get(key);
+    }
+
+    /** Caches the prepared SQL text, returns the item cached by another statement in the meantime if there is one */
+    static PreparedSQLCacheItem cachePreparedSQL(SQLTextCacheKey key, PreparedSQLCacheItem cacheItem) {
+        PreparedSQLCacheItem existing = preparedSQLCache.putIfAbsent(key, cacheItem);
+        return (null != existing) ? existing : cacheItem;
+    }
+
     /** Default size for prepared statement caches */
     static final int DEFAULT_STATEMENT_POOLING_CACHE_SIZE = 0;
 
     /** Size of the prepared statement handle cache */
     private int statementPoolingCacheSize = DEFAULT_STATEMENT_POOLING_CACHE_SIZE;
 
+    /** Default memory budget in KB of the prepared statement handle cache (0 keeps the cache at its configured size) */
+    static final int DEFAULT_STATEMENT_POOLING_CACHE_MEMORY_BUDGET = 0;
+
+    /** Memory budget in KB within which the prepared statement handle cache adapts its size */
+    private int statementPoolingCacheMemoryBudget = DEFAULT_STATEMENT_POOLING_CACHE_MEMORY_BUDGET;
+
+    /** Counts the lookups in the prepared statement handle cache and adapts its size */
+    private StatementHandleCacheSizer statementHandleCacheSizer;
+
     /** Cache of prepared statement handles */
     private ConcurrentLinkedHashMap<CityHash128Key, PreparedStatementHandle> preparedStatementHandleCache;
     /** Cache of prepared statement parameter metadata */
@@ -1235,6 +1421,20 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         return socketFactoryConstructorArg;
     }
 
+    /** use a non-blocking SocketChannel with direct buffers for network I/O */
+    private boolean useSocketChannel = SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.getDefaultValue();
+
+    final boolean getUseSocketChannel() {
+        return useSocketChannel;
+    }
+
+    /** use an SSLEngine instead of an SSLSocket for TLS */
+    private boolean useSSLEngine = SQLServerDriverBooleanProperty.USE_SSL_ENGINE.getDefaultValue();
+
+    final boolean getUseSSLEngine() {
+        return useSSLEngine;
+    }
+
     /** trust manager class */
     private String trustManagerClass = null;
 
@@ -2114,9 +2314,112 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         return tdsPacketSize;
     }
 
+    /** Default maximum number of idle packets kept by the response packet pool (0 disables pooling) */
+    static final int DEFAULT_PACKET_POOL_SIZE = 0;
+
+    /** maximum number of idle packets kept by the response packet pool */
+    private int packetPoolSize = DEFAULT_PACKET_POOL_SIZE;
+
+    final int getPacketPoolSize() {
+        return packetPoolSize;
+    }
+
+    /** how connection attempts to several IP addresses are raced */
+    private ParallelConnectMode parallelConnectMode = ParallelConnectMode.THREADS;
+
+    final ParallelConnectMode getParallelConnectMode() {
+        return parallelConnectMode;
+    }
+
+    /** Default maximum number of response packets read ahead on a background thread (0 disables read-ahead) */
+    static final int DEFAULT_READ_AHEAD_PACKETS = 0;
+
+    /** maximum number of response packets read ahead on a background thread */
+    private int readAheadPackets = DEFAULT_READ_AHEAD_PACKETS;
+
+    final int getReadAheadPackets() {
+        return readAheadPackets;
+    }
+
+    /** Default maximum number of request packets gathered into a single socket write (0 disables coalescing) */
+    static final int DEFAULT_MAX_COALESCED_PACKETS = 0;
+
+    /** Largest maxCoalescedPackets accepted, which bounds the coalescing buffer to 2 MB */
+    static final int MAX_COALESCED_PACKETS_LIMIT = 64;
+
+    /** maximum number of request packets gathered into a single socket write */
+    private int maxCoalescedPackets = DEFAULT_MAX_COALESCED_PACKETS;
+
+    final int getMaxCoalescedPackets() {
+        return maxCoalescedPackets;
+    }
+
+    /** Default maximum number of batch entries coalesced into the request that (re)prepares (0 disables coalescing) */
+    static final int DEFAULT_PREPARE_BATCH_COALESCE_SIZE = 0;
+
+    /** maximum number of batch entries sent with sp_executesql in the request of an entry that (re)prepares */
+    private int prepareBatchCoalesceSize = DEFAULT_PREPARE_BATCH_COALESCE_SIZE;
+
+    final int getPrepareBatchCoalesceSize() {
+        return prepareBatchCoalesceSize;
+    }
+
+    /** Default maximum number of rows prefetched in one server cursor block (0 disables cursor prefetching) */
+    static final int DEFAULT_CURSOR_PREFETCH_MAX_ROWS = 0;
+
+    /** maximum number of rows prefetched in one server cursor block */
+    private int cursorPrefetchMaxRows = DEFAULT_CURSOR_PREFETCH_MAX_ROWS;
+
+    final int getCursorPrefetchMaxRows() {
+        return cursorPrefetchMaxRows;
+    }
+
+    @Override
+    public int getPacketPoolIdleCount() {
+        TDSPacketPool packetPool = (null != tdsChannel) ? tdsChannel.getPacketPool() : null;
+        return (null != packetPool) ? packetPool.getIdleCount() : 0;
+    }
+
+    @Override
+    public long getPacketPoolHitCount() {
+        TDSPacketPool packetPool = (null != tdsChannel) ? tdsChannel.getPacketPool() : null;
+        return (null != packetPool) ? packetPool.getHitCount() : 0;
+    }
+
+    @Override
+    public long getPacketPoolMissCount() {
+        TDSPacketPool packetPool = (null != tdsChannel) ? tdsChannel.getPacketPool() : null;
+        return (null != packetPool) ? packetPool.getMissCount() : 0;
+    }
+
+    final boolean isSSLEngineEnabled() {
+        return null != tdsChannel && tdsChannel.isSSLEngineEnabled();
+    }
+
+    @Override
+    public long getSentMessageCount() {
+        return (null != tdsChannel) ? tdsChannel.getSentMessageCount() : 0;
+    }
+
+    @Override
+    public long getSocketWriteCount() {
+        return (null != tdsChannel) ? tdsChannel.getSocketWriteCount() : 0;
+    }
+
     /** TDS channel */
     private TDSChannel tdsChannel;
 
+    /**
+     * Returns a new writer that encodes values into memory in the TDS format of this connection, for a thread that
+     * encodes values ahead of the thread that sends them.
+     */
+    final TDSWriter newBufferedTDSWriter() throws SQLServerException {
+        checkClosed();
+        TDSWriter tdsWriter = new TDSWriter(tdsChannel, this);
+        tdsWriter.startBuffer();
+        return tdsWriter;
+    }
+
     /** current command */
     private TDSCommand currentCommand = null;
 
@@ -2329,6 +2632,40 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         }
     }
 
+    /**
+     * Returns the value of an integer property, or the default value of the property if it is not set.
+     *
+     * @param property
+     *        the integer property
+     * @param min
+     *        the smallest valid value
+     * @param max
+     *        the largest valid value
+     * @param errorKey
+     *        the resource key of the error message, formatted with the value
+     * @return the value of the property
+     * @exception SQLServerException
+     *            thrown if the value is not an integer from min to max.
+     */
+    private int parseIntProperty(SQLServerDriverIntProperty property, int min, int max, String errorKey)
+            throws SQLServerException {
+        String propValue = activeConnectionProperties.getProperty(property.toString());
+        if (null == propValue || propValue.isEmpty())
+            return property.getDefaultValue();
+
+        try {
+            int n = Integer.parseInt(propValue);
+            if (n >= min && n <= max)
+                return n;
+        } catch (NumberFormatException e) {
+            // The value is reported below like one that is out of range.
+        }
+        MessageFormat form = new MessageFormat(SQLServerException.getErrString(errorKey));
+        Object[] msgArgs = {propValue};
+        SQLServerException.makeFromDriverError(this, this, form.format(msgArgs), null, false);
+        return property.getDefaultValue();
+    }
+
     /**
      * Maximum number of wide characters for a SQL login record name (such as instance name, application name, etc...).
      * See TDS specification, "Login Data Validation Rules" section.
@@ -2813,6 +3150,14 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
                             IPAddressPreference.valueOfString(sPropValue).toString());
                 }
 
+                sPropKey = SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.toString();
+                sPropValue = activeConnectionProperties.getProperty(sPropKey);
+                if (null == sPropValue) {
+                    sPropValue = SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.getDefaultValue();
+                    activeConnectionProperties.setProperty(sPropKey, sPropValue);
+                }
+                parallelConnectMode = ParallelConnectMode.valueOfString(sPropValue);
+
                 sPropKey = SQLServerDriverStringProperty.RETRY_EXEC.toString();
                 sPropValue = activeConnectionProperties.getProperty(sPropKey);
                 if (null == sPropValue) {
@@ -2841,6 +3186,22 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
 
                 calcBigDecimalPrecision = isBooleanPropertyOn(sPropKey, sPropValue);
 
+                sPropKey = SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.toString();
+                sPropValue = activeConnectionProperties.getProperty(sPropKey);
+                if (null == sPropValue) {
+                    sPropValue = Boolean.toString(SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.getDefaultValue());
+                    activeConnectionProperties.setProperty(sPropKey, sPropValue);
+                }
+                useSocketChannel = isBooleanPropertyOn(sPropKey, sPropValue);
+
+                sPropKey = SQLServerDriverBooleanProperty.USE_SSL_ENGINE.toString();
+                sPropValue = activeConnectionProperties.getProperty(sPropKey);
+                if (null == sPropValue) {
+                    sPropValue = Boolean.toString(SQLServerDriverBooleanProperty.USE_SSL_ENGINE.getDefaultValue());
+                    activeConnectionProperties.setProperty(sPropKey, sPropValue);
+                }
+                useSSLEngine = isBooleanPropertyOn(sPropKey, sPropValue);
+
                 // Validate that the defaultTransactionIsolation value is one of the levels
                 // supported by SQL Server before attempting to establish the physical connection.
                 sPropKey = SQLServerDriverStringProperty.DEFAULT_TRANSACTION_ISOLATION.toString();
@@ -3129,6 +3490,11 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
                 }
                 useFmtOnly = isBooleanPropertyOn(sPropKey, sPropValue);
 
+                // Must be set before STATEMENT_POOLING_CACHE_SIZE
+                statementPoolingCacheMemoryBudget = parseIntProperty(
+                        SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_MEMORY_BUDGET, 0, Integer.MAX_VALUE,
+                        "R_invalidStatementPoolingCacheMemoryBudget");
+
                 // Must be set before DISABLE_STATEMENT_POOLING
                 sPropKey = SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_SIZE.toString();
                 if (activeConnectionProperties.getProperty(sPropKey) != null
@@ -3547,6 +3913,21 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
                     bulkCopyForBatchInsertBatchSize = Integer.parseInt(sPropValue);
                 }
 
+                packetPoolSize = parseIntProperty(SQLServerDriverIntProperty.PACKET_POOL_SIZE, 0,
+                        Integer.MAX_VALUE, "R_invalidPacketPoolSize");
+
+                readAheadPackets = parseIntProperty(SQLServerDriverIntProperty.READ_AHEAD_PACKETS, 0,
+                        Integer.MAX_VALUE, "R_invalidReadAheadPackets");
+
+                maxCoalescedPackets = parseIntProperty(SQLServerDriverIntProperty.MAX_COALESCED_PACKETS, 0,
+                        MAX_COALESCED_PACKETS_LIMIT, "R_invalidMaxCoalescedPackets");
+
+                prepareBatchCoalesceSize = parseIntProperty(SQLServerDriverIntProperty.PREPARE_BATCH_COALESCE_SIZE, 0,
+                        Integer.MAX_VALUE, "R_invalidPrepareBatchCoalesceSize");
+
+                cursorPrefetchMaxRows = parseIntProperty(SQLServerDriverIntProperty.CURSOR_PREFETCH_MAX_ROWS, 0,
+                        Integer.MAX_VALUE, "R_invalidCursorPrefetchMaxRows");
+
                 sPropKey = SQLServerDriverBooleanProperty.BULK_COPY_FOR_BATCH_INSERT_CHECK_CONSTRAINTS.toString();
                 sPropValue = activeConnectionProperties.getProperty(sPropKey);
                 if (null != sPropValue) {
@@ -9494,11 +9875,53 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         if (!this.disableStatementPooling && value > 0) {
             prepareCache();
         }
+        // In adaptive mode the cache starts at the configured size within the memory budget
+        int capacity = (value > 0 && null != statementHandleCacheSizer) ? statementHandleCacheSizer.getCapacity()
+                                                                        : value;
         if (null != preparedStatementHandleCache)
-            preparedStatementHandleCache.setCapacity(value);
+            preparedStatementHandleCache.setCapacity(capacity);
 
         if (null != parameterMetadataCache)
-            parameterMetadataCache.setCapacity(value);
+            parameterMetadataCache.setCapacity(capacity);
+    }
+
+    @Override
+    public int getStatementHandleCacheCapacity() {
+        return isStatementPoolingEnabled() ? statementHandleCacheSizer.getCapacity() : 0;
+    }
+
+    @Override
+    public long getStatementHandleCacheHitCount() {
+        return (null != statementHandleCacheSizer) ? statementHandleCacheSizer.getHitCount() : 0;
+    }
+
+    @Override
+    public long getStatementHandleCacheMissCount() {
+        return (null != statementHandleCacheSizer) ? statementHandleCacheSizer.getMissCount() : 0;
+    }
+
+    @Override
+    public long getStatementHandleCacheEvictionCount() {
+        return (null != statementHandleCacheSizer) ? statementHandleCacheSizer.getEvictionCount() : 0;
+    }
+
+    /**
+     * Adapts the size of the prepared statement handle cache to how it was used in the last window of lookups, if the
+     * statementPoolingCacheMemoryBudget is set.
+     */
+    private void adaptStatementPoolingCacheSize() {
+        StatementHandleCacheSizer sizer = statementHandleCacheSizer;
+        int capacity = sizer.adapt(preparedStatementHandleCache.values());
+        if (0 < capacity) {
+            if (connectionlogger.isLoggable(Level.FINER)) {
+                connectionlogger.finer(toString() + " Statement handle cache capacity changed to " + capacity
+                        + " (hits: " + sizer.getHitCount() + ", misses: " + sizer.getMissCount() + ", evictions: "
+                        + sizer.getEvictionCount() + ", re-prepares after eviction: " + sizer.getReprepareCount()
+                        + ")");
+            }
+            preparedStatementHandleCache.setCapacity(capacity);
+            parameterMetadataCache.setCapacity(capacity);
+        }
     }
 
     /**
@@ -9523,12 +9946,15 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
      * Prepares the cache handle.
      */
     private void prepareCache() {
+        statementHandleCacheSizer = new StatementHandleCacheSizer(getStatementPoolingCacheSize(),
+                statementPoolingCacheMemoryBudget * 1024L);
+
         preparedStatementHandleCache = new Builder<CityHash128Key, PreparedStatementHandle>()
-                .maximumWeightedCapacity(getStatementPoolingCacheSize())
+                .maximumWeightedCapacity(statementHandleCacheSizer.getCapacity())
                 .listener(new PreparedStatementCacheEvictionListener()).build();
 
         parameterMetadataCache = new Builder<CityHash128Key, SQLServerParameterMetaData>()
-                .maximumWeightedCapacity(getStatementPoolingCacheSize()).build();
+                .maximumWeightedCapacity(statementHandleCacheSizer.getCapacity()).build();
     }
 
     /** Returns a parameter metadata cache entry if statement pooling is enabled */
@@ -9547,12 +9973,68 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         parameterMetadataCache.put(key, pmd);
     }
 
+    /**
+     * Returns the parameter metadata any connection described for the SQL text in the same database, bound to the
+     * statement, if statement pooling is enabled and the metadata can be shared
+     */
+    final SQLServerParameterMetaData getSharedParameterMetadata(CityHash128Key key, SQLServerPreparedStatement st) {
+        SQLTextCacheKey sharedKey = getSharedMetadataKey(key, st.userSQL);
+        if (null == sharedKey)
+            return null;
+
+        SQLServerParameterMetaData described = sharedParameterMetadataCache.get(sharedKey);
+        return (null != described) ? new SQLServerParameterMetaData(described, st) : null;
+    }
+
+    /**
+     * Registers parameter metadata for the other connections to the same database if statement pooling is enabled and
+     * the metadata can be shared
+     */
+    final void registerSharedParameterMetadata(CityHash128Key key, String sql, SQLServerParameterMetaData pmd) {
+        SQLTextCacheKey sharedKey = getSharedMetadataKey(key, sql);
+        if (null == sharedKey || null == pmd)
+            return;
+
+        // The cached copy is not bound to the statement, so the cache does not keep the statement's connection alive.
+        sharedParameterMetadataCache.put(sharedKey, new SQLServerParameterMetaData(pmd, null));
+    }
+
+    /**
+     * Returns the key of the shared parameter metadata of the SQL text, or null if the metadata must not be shared.
+     * 
+     * The metadata depends on the server, the current database and the database user the names in the SQL text are
+     * resolved for, whose default schema is the schema of unqualified names. The user is only known from the
+     * connection properties for a SQL Server login: with integrated, Microsoft Entra, access token or certificate
+     * authentication, connections with different logins would have the same key. Temporary tables belong to the
+     * session that created them, so SQL text that may reference them is not shared either.
+     */
+    private SQLTextCacheKey getSharedMetadataKey(CityHash128Key key, String sql) {
+        if (!isStatementPoolingEnabled() || sql.indexOf('#') >= 0)
+            return null;
+
+        String user = activeConnectionProperties.getProperty(SQLServerDriverStringProperty.USER.toString());
+        if (integratedSecurity || federatedAuthenticationInfoRequested || federatedAuthenticationRequested
+                || null != clientCertificate || null == user || user.isEmpty())
+            return null;
+
+        return new SQLTextCacheKey(key, currentConnectPlaceHolder.getFullServerName() + ":"
+                + currentConnectPlaceHolder.getPortNumber() + "/" + sCatalog + "/" + user);
+    }
+
     /** Gets or creates prepared statement handle cache entry if statement pooling is enabled */
     final PreparedStatementHandle getCachedPreparedStatementHandle(CityHash128Key key) {
         if (!isStatementPoolingEnabled())
             return null;
 
-        return preparedStatementHandleCache.get(key);
+        PreparedStatementHandle cachedHandle = preparedStatementHandleCache.get(key);
+        if (null != cachedHandle) {
+            statementHandleCacheSizer.recordHit();
+            cachedHandle.setLastUseWindow(statementHandleCacheSizer.getWindow());
+        } else {
+            statementHandleCacheSizer.recordMiss(key);
+        }
+        adaptStatementPoolingCacheSize();
+        return cachedHandle;
     }
 
     /** Gets or creates prepared statement handle cache entry if statement pooling is enabled */
@@ -9562,7 +10044,10 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
             return null;
 
         PreparedStatementHandle cacheItem = new PreparedStatementHandle(key, handle, isDirectSql, false);
-        preparedStatementHandleCache.putIfAbsent(key, cacheItem);
+        cacheItem.setLastUseWindow(statementHandleCacheSizer.getWindow());
+        if (null == preparedStatementHandleCache.putIfAbsent(key, cacheItem)) {
+            statementHandleCacheSizer.recordEntry(key);
+        }
         return cacheItem;
     }
 
@@ -9590,6 +10075,7 @@ public class SQLServerConnection implements ISQLServerConnection, java.io.Serial
         public void onEviction(CityHash128Key key, PreparedStatementHandle handle) {
             if (null != handle) {
                 handle.setIsEvictedFromCache(true); // Mark as evicted from cache.
+                statementHandleCacheSizer.recordEviction(key);
 
                 // Only discard if not referenced.
                 if (handle.tryDiscardHandle()) {
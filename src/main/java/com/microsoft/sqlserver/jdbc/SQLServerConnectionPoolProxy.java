@@ -612,6 +612,26 @@ class SQLServerConnectionPoolProxy implements ISQLServerConnection, java.io.Seri
         return wrappedConnection.getStatementHandleCacheEntryCount();
     }
 
+    @Override
+    public int getStatementHandleCacheCapacity() {
+        return wrappedConnection.getStatementHandleCacheCapacity();
+    }
+
+    @Override
+    public long getStatementHandleCacheHitCount() {
+        return wrappedConnection.getStatementHandleCacheHitCount();
+    }
+
+    @Override
+    public long getStatementHandleCacheMissCount() {
+        return wrappedConnection.getStatementHandleCacheMissCount();
+    }
+
+    @Override
+    public long getStatementHandleCacheEvictionCount() {
+        return wrappedConnection.getStatementHandleCacheEvictionCount();
+    }
+
     @Override
     public void setDisableStatementPooling(boolean value) {
         wrappedConnection.setDisableStatementPooling(value);
@@ -917,4 +937,49 @@ class SQLServerConnectionPoolProxy implements ISQLServerConnection, java.io.Seri
         wrappedConnection.setVectorTypeSupport(vectorTypeSupport);
     }
 
+    @Override
+    public int getPacketPoolIdleCount() {
+        return wrappedConnection.getPacketPoolIdleCount();
+    }
+
+    @Override
+    public long getPacketPoolHitCount() {
+        return wrappedConnection.getPacketPoolHitCount();
+    }
+
+    @Override
+    public long getPacketPoolMissCount() {
+        return wrappedConnection.getPacketPoolMissCount();
+    }
+
+    @Override
+    public long getSentMessageCount() {
+        return wrappedConnection.getSentMessageCount();
+    }
+
+    @Override
+    public long getSocketWriteCount() {
+        return wrappedConnection.getSocketWriteCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheHitCount() {
+        return wrappedConnection.getParsedSQLCacheHitCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheMissCount() {
+        return wrappedConnection.getParsedSQLCacheMissCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheEvictionCount() {
+        return wrappedConnection.getParsedSQLCacheEvictionCount();
+    }
+
+    @Override
+    public long getParsedSQLCacheContentionCount() {
+        return wrappedConnection.getParsedSQLCacheContentionCount();
+    }
+
 }
@@ -1963,6 +1963,112 @@ public class SQLServerDataSource
         return getStringProperty(connectionProps, SQLServerDriverStringProperty.DEFAULT_TRANSACTION_ISOLATION.toString(), null);
     }
 
+    @Override
+    public void setPacketPoolSize(int packetPoolSize) {
+        setIntProperty(connectionProps, SQLServerDriverIntProperty.PACKET_POOL_SIZE.toString(), packetPoolSize);
+    }
+
+    @Override
+    public int getPacketPoolSize() {
+        return getIntProperty(connectionProps, SQLServerDriverIntProperty.PACKET_POOL_SIZE.toString(),
+                SQLServerDriverIntProperty.PACKET_POOL_SIZE.getDefaultValue());
+    }
+
+    @Override
+    public void setUseSocketChannel(boolean useSocketChannel) {
+        setBooleanProperty(connectionProps, SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.toString(),
+                useSocketChannel);
+    }
+
+    @Override
+    public boolean getUseSocketChannel() {
+        return getBooleanProperty(connectionProps, SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.toString(),
+                SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.getDefaultValue());
+    }
+
+    @Override
+    public void setUseSSLEngine(boolean useSSLEngine) {
+        setBooleanProperty(connectionProps, SQLServerDriverBooleanProperty.USE_SSL_ENGINE.toString(), useSSLEngine);
+    }
+
+    @Override
+    public boolean getUseSSLEngine() {
+        return getBooleanProperty(connectionProps, SQLServerDriverBooleanProperty.USE_SSL_ENGINE.toString(),
+                SQLServerDriverBooleanProperty.USE_SSL_ENGINE.getDefaultValue());
+    }
+
+    @Override
+    public void setParallelConnectMode(String parallelConnectMode) {
+        setStringProperty(connectionProps, SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.toString(),
+                parallelConnectMode);
+    }
+
+    @Override
+    public String getParallelConnectMode() {
+        return getStringProperty(connectionProps, SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.toString(),
+                SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.getDefaultValue());
+    }
+
+    @Override
+    public void setReadAheadPackets(int readAheadPackets) {
+        setIntProperty(connectionProps, SQLServerDriverIntProperty.READ_AHEAD_PACKETS.toString(), readAheadPackets);
+    }
+
+    @Override
+    public int getReadAheadPackets() {
+        return getIntProperty(connectionProps, SQLServerDriverIntProperty.READ_AHEAD_PACKETS.toString(),
+                SQLServerDriverIntProperty.READ_AHEAD_PACKETS.getDefaultValue());
+    }
+
+    @Override
+    public void setMaxCoalescedPackets(int maxCoalescedPackets) {
+        setIntProperty(connectionProps, SQLServerDriverIntProperty.MAX_COALESCED_PACKETS.toString(),
+                maxCoalescedPackets);
+    }
+
+    @Override
+    public int getMaxCoalescedPackets() {
+        return getIntProperty(connectionProps, SQLServerDriverIntProperty.MAX_COALESCED_PACKETS.toString(),
+                SQLServerDriverIntProperty.MAX_COALESCED_PACKETS.getDefaultValue());
+    }
+
+    @Override
+    public void setPrepareBatchCoalesceSize(int prepareBatchCoalesceSize) {
+        setIntProperty(connectionProps, SQLServerDriverIntProperty.PREPARE_BATCH_COALESCE_SIZE.toString(),
+                prepareBatchCoalesceSize);
+    }
+
+    @Override
+    public int getPrepareBatchCoalesceSize() {
+        return getIntProperty(connectionProps, SQLServerDriverIntProperty.PREPARE_BATCH_COALESCE_SIZE.toString(),
+                SQLServerDriverIntProperty.PREPARE_BATCH_COALESCE_SIZE.getDefaultValue());
+    }
+
+    @Override
+    public void setStatementPoolingCacheMemoryBudget(int statementPoolingCacheMemoryBudget) {
+        setIntProperty(connectionProps, SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_MEMORY_BUDGET.toString(),
+                statementPoolingCacheMemoryBudget);
+    }
+
+    @Override
+    public int getStatementPoolingCacheMemoryBudget() {
+        return getIntProperty(connectionProps,
+                SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_MEMORY_BUDGET.toString(),
+                SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_MEMORY_BUDGET.getDefaultValue());
+    }
+
+    @Override
+    public void setCursorPrefetchMaxRows(int cursorPrefetchMaxRows) {
+        setIntProperty(connectionProps, SQLServerDriverIntProperty.CURSOR_PREFETCH_MAX_ROWS.toString(),
+                cursorPrefetchMaxRows);
+    }
+
+    @Override
+    public int getCursorPrefetchMaxRows() {
+        return getIntProperty(connectionProps, SQLServerDriverIntProperty.CURSOR_PREFETCH_MAX_ROWS.toString(),
+                SQLServerDriverIntProperty.CURSOR_PREFETCH_MAX_ROWS.getDefaultValue());
+    }
+
     /**
      * For added security/robustness, the only way to rehydrate a serialized SQLServerDataSource is to use a
      * SerializationProxy. Direct use of readObject() is not supported.
@@ -350,6 +350,43 @@ enum IPAddressPreference {
 }
 
 
+/**
+ * How the driver races the connection attempts to the IP addresses of a server when multiSubnetFailover or
+ * transparentNetworkIPResolution connects to several addresses at once.
+ */
+enum ParallelConnectMode {
+    // one pooled thread per address, each making a blocking connect
+    THREADS("threads"),
+    // non-blocking connects to all addresses driven by the connecting thread through a single Selector
+    SELECTOR("selector"),
+    // like SELECTOR, but the addresses that connected fastest recently are tried first and the others are started
+    // one at a time after a short delay (RFC 8305 style)
+    STAGGERED("staggered");
+
+    private final String name;
+
+    ParallelConnectMode(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    static ParallelConnectMode valueOfString(String value) throws SQLServerException {
+        for (ParallelConnectMode mode : values()) {
+            if (mode.toString().equalsIgnoreCase(value))
+                return mode;
+        }
+
+        MessageFormat form = new MessageFormat(SQLServerException.getErrString("R_InvalidParallelConnectMode"));
+        Object[] msgArgs = {value};
+        throw new SQLServerException(form.format(msgArgs), null);
+    }
+}
+
+
 enum KeyStoreAuthentication {
     JAVA_KEYSTORE_PASSWORD("JavaKeyStorePassword"),
     KEYVAULT_CLIENT_SECRET("KeyVaultClientSecret"),
@@ -647,6 +684,7 @@ enum SQLServerDriverStringProperty {
     DOMAIN("domain", ""),
     SERVER_NAME("serverName", ""),
     IPADDRESS_PREFERENCE("iPAddressPreference", IPAddressPreference.IPV4_FIRST.toString()),
+    PARALLEL_CONNECT_MODE("parallelConnectMode", ParallelConnectMode.THREADS.toString()),
     SERVER_SPN("serverSpn", ""),
     REALM("realm", ""),
     SOCKET_FACTORY_CLASS("socketFactoryClass", ""),
@@ -720,7 +758,14 @@ enum SQLServerDriverIntProperty {
     CANCEL_QUERY_TIMEOUT("cancelQueryTimeout", -1),
     CONNECT_RETRY_COUNT("connectRetryCount", 1, 0, 255),
     CONNECT_RETRY_INTERVAL("connectRetryInterval", 10, 1, 60),
-    BULK_COPY_FOR_BATCH_INSERT_BATCH_SIZE("bulkCopyForBatchInsertBatchSize", 0);
+    BULK_COPY_FOR_BATCH_INSERT_BATCH_SIZE("bulkCopyForBatchInsertBatchSize", 0),
+    PACKET_POOL_SIZE("packetPoolSize", SQLServerConnection.DEFAULT_PACKET_POOL_SIZE),
+    READ_AHEAD_PACKETS("readAheadPackets", SQLServerConnection.DEFAULT_READ_AHEAD_PACKETS),
+    MAX_COALESCED_PACKETS("maxCoalescedPackets", SQLServerConnection.DEFAULT_MAX_COALESCED_PACKETS),
+    PREPARE_BATCH_COALESCE_SIZE("prepareBatchCoalesceSize", SQLServerConnection.DEFAULT_PREPARE_BATCH_COALESCE_SIZE),
+    STATEMENT_POOLING_CACHE_MEMORY_BUDGET("statementPoolingCacheMemoryBudget",
+            SQLServerConnection.DEFAULT_STATEMENT_POOLING_CACHE_MEMORY_BUDGET),
+    CURSOR_PREFETCH_MAX_ROWS("cursorPrefetchMaxRows", SQLServerConnection.DEFAULT_CURSOR_PREFETCH_MAX_ROWS);
 
     private final String name;
     private final int defaultValue;
@@ -782,7 +827,9 @@ enum SQLServerDriverBooleanProperty {
     IGNORE_OFFSET_ON_DATE_TIME_OFFSET_CONVERSION("ignoreOffsetOnDateTimeOffsetConversion", false),
     USE_DEFAULT_JAAS_CONFIG("useDefaultJaasConfig", false),
     USE_DEFAULT_GSS_CREDENTIAL("useDefaultGSSCredential", false),
-    CALC_BIG_DECIMAL_PRECISION("calcBigDecimalPrecision", false);
+    CALC_BIG_DECIMAL_PRECISION("calcBigDecimalPrecision", false),
+    USE_SOCKET_CHANNEL("useSocketChannel", false),
+    USE_SSL_ENGINE("useSSLEngine", false);
 
     private final String name;
     private final boolean defaultValue;
@@ -972,6 +1019,10 @@ public final class SQLServerDriver implements java.sql.Driver {
                     SQLServerDriverStringProperty.IPADDRESS_PREFERENCE.getDefaultValue(), false,
                     new String[] {IPAddressPreference.IPV4_FIRST.toString(), IPAddressPreference.IPV6_FIRST.toString(),
                             IPAddressPreference.USE_PLATFORM_DEFAULT.toString()}),
+            new SQLServerDriverPropertyInfo(SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.toString(),
+                    SQLServerDriverStringProperty.PARALLEL_CONNECT_MODE.getDefaultValue(), false,
+                    new String[] {ParallelConnectMode.THREADS.toString(), ParallelConnectMode.SELECTOR.toString(),
+                            ParallelConnectMode.STAGGERED.toString()}),
             new SQLServerDriverPropertyInfo(SQLServerDriverStringProperty.SERVER_SPN.toString(),
                     SQLServerDriverStringProperty.SERVER_SPN.getDefaultValue(), false, null),
             new SQLServerDriverPropertyInfo(SQLServerDriverStringProperty.REALM.toString(),
@@ -1061,6 +1112,12 @@ public final class SQLServerDriver implements java.sql.Driver {
             new SQLServerDriverPropertyInfo(SQLServerDriverBooleanProperty.CALC_BIG_DECIMAL_PRECISION.toString(),
                     Boolean.toString(SQLServerDriverBooleanProperty.CALC_BIG_DECIMAL_PRECISION.getDefaultValue()),
                     false, TRUE_FALSE),
+            new SQLServerDriverPropertyInfo(SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.toString(),
+                    Boolean.toString(SQLServerDriverBooleanProperty.USE_SOCKET_CHANNEL.getDefaultValue()), false,
+                    TRUE_FALSE),
+            new SQLServerDriverPropertyInfo(SQLServerDriverBooleanProperty.USE_SSL_ENGINE.toString(),
+                    Boolean.toString(SQLServerDriverBooleanProperty.USE_SSL_ENGINE.getDefaultValue()), false,
+                    TRUE_FALSE),
             new SQLServerDriverPropertyInfo(SQLServerDriverStringProperty.SSL_PROTOCOL.toString(),
                     SQLServerDriverStringProperty.SSL_PROTOCOL.getDefaultValue(), false,
                     new String[] {SSLProtocol.TLS.toString(), SSLProtocol.TLS_V10.toString(),
@@ -1123,6 +1180,22 @@ public final class SQLServerDriver implements java.sql.Driver {
                     Integer.toString(SQLServerDriverIntProperty.CONNECT_RETRY_COUNT.getDefaultValue()), false, null),
             new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.CONNECT_RETRY_INTERVAL.toString(),
                     Integer.toString(SQLServerDriverIntProperty.CONNECT_RETRY_INTERVAL.getDefaultValue()), false, null),
+            new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.PACKET_POOL_SIZE.toString(),
+                    Integer.toString(SQLServerDriverIntProperty.PACKET_POOL_SIZE.getDefaultValue()), false, null),
+            new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.READ_AHEAD_PACKETS.toString(),
+                    Integer.toString(SQLServerDriverIntProperty.READ_AHEAD_PACKETS.getDefaultValue()), false, null),
+            new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.MAX_COALESCED_PACKETS.toString(),
+                    Integer.toString(SQLServerDriverIntProperty.MAX_COALESCED_PACKETS.getDefaultValue()), false, null),
+            new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.PREPARE_BATCH_COALESCE_SIZE.toString(),
+                    Integer.toString(SQLServerDriverIntProperty.PREPARE_BATCH_COALESCE_SIZE.getDefaultValue()), false,
+                    null),
+            new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_MEMORY_BUDGET.toString(),
+                    Integer.toString(
+                            SQLServerDriverIntProperty.STATEMENT_POOLING_CACHE_MEMORY_BUDGET.getDefaultValue()),
+                    false, null),
+            new SQLServerDriverPropertyInfo(SQLServerDriverIntProperty.CURSOR_PREFETCH_MAX_ROWS.toString(),
+                    Integer.toString(SQLServerDriverIntProperty.CURSOR_PREFETCH_MAX_ROWS.getDefaultValue()), false,
+                    null),
             new SQLServerDriverPropertyInfo(SQLServerDriverStringProperty.QUOTED_IDENTIFIER.toString(),
                     SQLServerDriverStringProperty.QUOTED_IDENTIFIER.getDefaultValue(), false,
                     new String[] {OnOffOption.ON.toString(), OnOffOption.OFF.toString()}),
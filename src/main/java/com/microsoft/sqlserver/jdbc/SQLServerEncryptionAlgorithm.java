@@ -29,4 +29,21 @@ abstract class SQLServerEncryptionAlgorithm {
      * @return plain text after decryption
      */
     abstract byte[] decryptData(byte[] cipherText) throws SQLServerException;
+
+    /**
+     * Decrypt several cipher texts, such as the encrypted columns of a row, to plain texts. Algorithms that can share
+     * work between the values override this method.
+     * 
+     * @param cipherTexts
+     *        data to be decrypted; null entries are skipped
+     * @return plain texts after decryption, null where the cipher text was null
+     */
+    byte[][] decryptData(byte[][] cipherTexts) throws SQLServerException {
+        byte[][] plainTexts = new byte[cipherTexts.length][];
+        for (int i = 0; i < cipherTexts.length; i++) {
+            if (null != cipherTexts[i])
+                plainTexts[i] = decryptData(cipherTexts[i]);
+        }
+        return plainTexts;
+    }
 }
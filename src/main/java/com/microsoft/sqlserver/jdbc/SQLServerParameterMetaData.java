@@ -389,6 +389,26 @@ public final class SQLServerParameterMetaData implements ParameterMetaData {
         }
     }
 
+    /**
+     * Construct a SQLServerParameterMetaData with the parameter meta data described for another statement with the same
+     * SQL text, so that it need not be described again.
+     * 
+     * @param described
+     *        the parameter meta data to copy
+     * @param st
+     *        the prepared statement, or null for a copy that is only kept in the shared parameter meta data cache
+     */
+    SQLServerParameterMetaData(SQLServerParameterMetaData described, SQLServerPreparedStatement st) {
+        stmtParent = st;
+        con = (null != st) ? st.connection : null;
+        procMetadata = described.procMetadata;
+        procedureIsFound = described.procedureIsFound;
+        queryMetaMap = described.queryMetaMap;
+        if (null != st && logger.isLoggable(java.util.logging.Level.FINE)) {
+            logger.fine(toString() + " copied from " + described.toString() + " for (" + st.toString() + ")");
+        }
+    }
+
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         return iface.isInstance(this);
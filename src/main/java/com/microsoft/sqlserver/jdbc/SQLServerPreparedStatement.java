@@ -5,12 +5,15 @@
 
 package com.microsoft.sqlserver.jdbc;
 
+import static com.microsoft.sqlserver.jdbc.SQLServerConnection.cachePreparedSQL;
 import static com.microsoft.sqlserver.jdbc.SQLServerConnection.getCachedParsedSQL;
+import static com.microsoft.sqlserver.jdbc.SQLServerConnection.getCachedPreparedSQL;
 import static com.microsoft.sqlserver.jdbc.SQLServerConnection.parseAndCacheSQL;
 
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -72,6 +75,9 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
     /** The prepared type definitions */
     private String preparedTypeDefinitions;
 
+    /** The shared cache item the prepared SQL text and type definitions were taken from */
+    private PreparedSQLCacheItem preparedSQLCacheItem;
+
     /** Processed SQL statement text, may not be same as what user initially passed. */
     final String userSQL;
 
@@ -533,13 +539,23 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
         if (null != preparedTypeDefinitions && newTypeDefinitions.equalsIgnoreCase(preparedTypeDefinitions))
             return false;
 
-        preparedTypeDefinitions = newTypeDefinitions;
+        // The prepared SQL text only depends on the SQL text, the parameter type definitions (which include the
+        // OUTPUT flags) and whether generated keys are requested, so it is shared by all statements and connections.
+        SQLTextCacheKey key = new SQLTextCacheKey(sqlTextCacheKey,
+                bRequestedGeneratedKeys ? newTypeDefinitions + IDENTITY_QUERY : newTypeDefinitions);
+        PreparedSQLCacheItem cacheItem = getCachedPreparedSQL(key);
+        if (null == cacheItem) {
+            /* Replace the parameter marker '?' with the param numbers @p1, @p2 etc */
+            String sql = replaceParameterMarkers(userSQL, userSQLParamPositions, params, bReturnValueSyntax);
+            if (bRequestedGeneratedKeys)
+                sql = sql + IDENTITY_QUERY;
 
-        /* Replace the parameter marker '?' with the param numbers @p1, @p2 etc */
-        preparedSQL = replaceParameterMarkers(userSQL, userSQLParamPositions, params, bReturnValueSyntax);
-        if (bRequestedGeneratedKeys)
-            preparedSQL = preparedSQL + IDENTITY_QUERY;
+            cacheItem = cachePreparedSQL(key, new PreparedSQLCacheItem(sql, newTypeDefinitions));
+        }
 
+        preparedSQLCacheItem = cacheItem;
+        preparedTypeDefinitions = cacheItem.preparedTypeDefinitions;
+        preparedSQL = cacheItem.preparedSQL;
         return true;
     }
 
@@ -936,7 +952,7 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
                 // Cache the reference to the newly created handle, NOT for cursorable handles.
                 if (null == cachedPreparedStatementHandle && !isCursorable(executeMethod)) {
                     cachedPreparedStatementHandle = connection.registerCachedPreparedStatementHandle(
-                            new CityHash128Key(preparedSQL, preparedTypeDefinitions), prepStmtHandle,
+                            preparedSQLCacheItem.preparedStatementHandleCacheKey, prepStmtHandle,
                             executedSqlDirectly);
                 }
 
@@ -1313,7 +1329,7 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
         // Check for new cache reference.
         if (null == cachedPreparedStatementHandle) {
             PreparedStatementHandle cachedHandle = connection
-                    .getCachedPreparedStatementHandle(new CityHash128Key(preparedSQL, preparedTypeDefinitions));
+                    .getCachedPreparedStatementHandle(preparedSQLCacheItem.preparedStatementHandleCacheKey);
             // If handle was found then re-use, only if AE is not on and is not a batch query with new type definitions
             // (We shouldn't reuse handle
             // if it is batch query and has new type definition, or if it is on, make sure encryptionMetadataIsRetrieved
@@ -1818,6 +1834,22 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
         }
     }
 
+    @Override
+    public final void setBytes(int n, ByteBuffer x) throws SQLServerException {
+        if (loggerExternal.isLoggable(Level.FINER))
+            loggerExternal.entering(getClassNameLogging(), "setBytes", new Object[] {n, x});
+        checkClosed();
+        if (null == x) {
+            setValue(n, JDBCType.BINARY, null, JavaType.BYTEARRAY, false);
+        } else {
+            ByteBufferInputStream stream = new ByteBufferInputStream(x);
+            setStream(n, StreamType.BINARY, stream, JavaType.INPUTSTREAM, stream.length());
+        }
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.exiting(getClassNameLogging(), "setBytes");
+        }
+    }
+
     @Override
     public final void setUniqueIdentifier(int index, String guid) throws SQLServerException {
         if (loggerExternal.isLoggable(Level.FINER))
@@ -1977,6 +2009,10 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
 
             setObject(param, null, JavaType.OBJECT, targetJDBCType, null, null, forceEncrypt, index, null);
         } else {
+            // ByteBuffer values are sent as binary streams of known length.
+            if (obj instanceof ByteBuffer)
+                obj = new ByteBufferInputStream((ByteBuffer) obj);
+
             JavaType javaType = JavaType.of(obj);
             if (JavaType.TVP == javaType) {
                 // May return null if called from preparedStatement.
@@ -2146,6 +2182,12 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
             Integer precision, boolean forceEncrypt, int parameterIndex, String tvpName) throws SQLServerException {
         assert JDBCType.UNKNOWN != jdbcType;
 
+        // ByteBuffer values are sent as binary streams of known length.
+        if (obj instanceof ByteBuffer) {
+            obj = new ByteBufferInputStream((ByteBuffer) obj);
+            javaType = JavaType.INPUTSTREAM;
+        }
+
         // For non-null values, infer the object's JDBC type from its Java type
         // and check whether the object is settable via the specified JDBC type.
         if ((null != obj) || (JavaType.TVP == javaType)) {
@@ -2166,7 +2208,8 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
                 case INPUTSTREAM:
                     streamSetterArgs = new StreamSetterArgs(
                             jdbcType.isTextual() ? StreamType.CHARACTER : StreamType.BINARY,
-                            DataTypes.UNKNOWN_STREAM_LENGTH);
+                            (obj instanceof ByteBufferInputStream) ? ((ByteBufferInputStream) obj).length()
+                                                                   : DataTypes.UNKNOWN_STREAM_LENGTH);
                     break;
 
                 case SQLXML:
@@ -3498,6 +3541,12 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
         if (loggerExternal.isLoggable(Level.FINER) && Util.isActivityTraceOn()) {
             loggerExternal.finer(toString() + ACTIVITY_ID + ActivityCorrelator.getCurrent().toString());
         }
+
+        if (isPrepareBatchCoalescingEnabled()) {
+            doExecutePreparedStatementBatchCoalesced(batchCommand);
+            return;
+        }
+
         // Create the parameter array that we'll use for all the items in this batch.
         Parameter[] batchParam = new Parameter[inOutParam.length];
 
@@ -3749,6 +3798,185 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
         }
     }
 
+    /**
+     * The statement state that reading the response of an entry that (re)prepared the statement depends on, saved when
+     * the entry is written so that it can be restored after the coalesced batch entries that follow it.
+     */
+    private final class PreparedState {
+        private final String savedPreparedSQL = preparedSQL;
+        private final String savedPreparedTypeDefinitions = preparedTypeDefinitions;
+        private final PreparedSQLCacheItem savedPreparedSQLCacheItem = preparedSQLCacheItem;
+        private final ArrayList<String> savedParameterNames = parameterNames;
+        private final boolean savedExpectPrepStmtHandle = expectPrepStmtHandle;
+        private final boolean savedExecutedSqlDirectly = executedSqlDirectly;
+        private final boolean savedExpectCursorOutParams = expectCursorOutParams;
+        private final int savedOutParamIndexAdjustment = outParamIndexAdjustment;
+        private final int savedPrepStmtHandle = prepStmtHandle;
+
+        void restore() {
+            preparedSQL = savedPreparedSQL;
+            preparedTypeDefinitions = savedPreparedTypeDefinitions;
+            preparedSQLCacheItem = savedPreparedSQLCacheItem;
+            parameterNames = savedParameterNames;
+            expectPrepStmtHandle = savedExpectPrepStmtHandle;
+            executedSqlDirectly = savedExecutedSqlDirectly;
+            expectCursorOutParams = savedExpectCursorOutParams;
+            outParamIndexAdjustment = savedOutParamIndexAdjustment;
+            prepStmtHandle = savedPrepStmtHandle;
+        }
+    }
+
+    /**
+     * Returns whether executeBatch can coalesce batch entries into the request that (re)prepares the statement. The
+     * path only writes sp_prepexec, sp_execute and sp_executesql calls; statements that need anything else between the
+     * batch entries use the regular path: callable statements, Always Encrypted parameters, prepareMethod=prepare
+     * (sp_prepare needs its own request), and statement pooling (a pooled handle that turns out to be stale must be
+     * re-prepared and the failed entries retried in order, which is only possible while the entries after it have not
+     * been sent yet).
+     */
+    private boolean isPrepareBatchCoalescingEnabled() {
+        return connection.getPrepareBatchCoalesceSize() > 0 && usePrepExec
+                && !(this instanceof SQLServerCallableStatement) && !connection.isStatementPoolingEnabled()
+                && !connection.isAEv2()
+                && !Util.shouldHonorAEForParameters(stmtColumnEncriptionSetting, connection);
+    }
+
+    /**
+     * Executes the batch like the regular path, except for the request of an entry that (re)prepares the statement.
+     *
+     * The regular path ends that request so that the new handle can be read before the next entry is written, and sends
+     * the remaining entries with sp_execute in the next request. Here, the request goes on after that entry: up to
+     * prepareBatchCoalesceSize entries that use the same parameter type definitions are sent with sp_executesql, which
+     * needs no handle, and the new handle is used from the next request on. Requests are still sent one at a time, each
+     * after the response of the one before; what is saved is the round trip, usually one per executeBatch, that the
+     * regular path spends on the new handle. A request never ends before the point where the regular path would end
+     * it, so the batch takes at most as many round trips.
+     */
+    private void doExecutePreparedStatementBatchCoalesced(PrepStmtBatchExecCmd batchCommand)
+            throws SQLServerException {
+        final int numBatches = batchParamValues.size();
+        final int coalesceSize = connection.getPrepareBatchCoalesceSize();
+        Parameter[] batchParam = new Parameter[inOutParam.length];
+
+        try (PerformanceLog.Scope executeScope = PerformanceLog.createScope(PerformanceLog.perfLoggerStatement,
+                connection.getConnectionID(), getStatementID(), this, userSQL, PerformanceActivity.STATEMENT_EXECUTE)) {
+            try {
+                int numBatchesExecuted = 0;
+                while (numBatchesExecuted < numBatches) {
+                    // If the command was interrupted, the cancel request was sent to the server. Process it and
+                    // return, as the regular path does.
+                    if (batchCommand.wasInterrupted()) {
+                        ensureExecuteResultsReader(batchCommand.startResponse(getIsResponseBufferingAdaptive()));
+                        startResults();
+                        getNextResult(true);
+                        return;
+                    }
+
+                    // Write the entries as the regular path does until one of them (re)prepares the statement. The
+                    // handle it gets is not known until the response is read, so the entries after it that use the same
+                    // parameter type definitions are sent with sp_executesql, up to prepareBatchCoalesceSize. An entry
+                    // that needs other type definitions starts the next request, where the regular path would end
+                    // this one.
+                    TDSWriter tdsWriter = null;
+                    PreparedState preparedState = null;
+                    int numBatchesInRequest = 0;
+                    int numBatchesWithoutHandle = 0;
+                    while (numBatchesExecuted + numBatchesInRequest < numBatches) {
+                        System.arraycopy(batchParamValues.get(numBatchesExecuted + numBatchesInRequest), 0, batchParam,
+                                0, batchParam.length);
+                        boolean hasExistingTypeDefinitions = preparedTypeDefinitions != null;
+                        boolean hasNewTypeDefinitions = buildPreparedStrings(batchParam, false);
+
+                        if (null != preparedState) {
+                            if (hasNewTypeDefinitions || ++numBatchesWithoutHandle > coalesceSize)
+                                break;
+
+                            tdsWriter.writeByte((byte) NBATCH_STATEMENT_DELIMITER);
+                            buildExecSQLParams(tdsWriter);
+                            sendParamsByRPC(tdsWriter, batchParam);
+                        } else {
+                            // Re-use handle if available, requires parameter definitions which are not available until
+                            // here.
+                            if (reuseCachedHandle(hasNewTypeDefinitions, false)) {
+                                hasNewTypeDefinitions = false;
+                            }
+
+                            if (0 == numBatchesInRequest) {
+                                resetForReexecute();
+                                tdsWriter = batchCommand.startRequest(TDS.PKT_RPC);
+                            } else {
+                                tdsWriter.writeByte((byte) NBATCH_STATEMENT_DELIMITER);
+                            }
+
+                            if (doPrepExec(tdsWriter, batchParam, hasNewTypeDefinitions, hasExistingTypeDefinitions,
+                                    batchCommand))
+                                preparedState = new PreparedState();
+                        }
+                        ++numBatchesInRequest;
+                    }
+
+                    // Writing the entries after the one that (re)prepared the statement changes the statement state
+                    // that reading its response (and the next execution) depends on, so it is restored.
+                    if (null != preparedState)
+                        preparedState.restore();
+
+                    // End request build time tracking
+                    endCreationToFirstPacketTracking();
+
+                    // Track server roundtrip time
+                    startFirstPacketToFirstResponseTracking();
+                    try {
+                        ensureExecuteResultsReader(batchCommand.startResponse(getIsResponseBufferingAdaptive()));
+                    } finally {
+                        endFirstPacketToFirstResponseTracking();
+                    }
+
+                    final int numBatchesToExecute = numBatchesExecuted + numBatchesInRequest;
+                    while (numBatchesExecuted < numBatchesToExecute) {
+                        startResults();
+
+                        try {
+                            // Get the result of the next batch entry. If there is none then bail, leaving
+                            // EXECUTE_FAILED in the current and remaining slots of the update count array.
+                            if (!getNextResult(true))
+                                return;
+
+                            // A ResultSet (rather than an update count) is turned into a batch failure below.
+                            if (null != resultSet) {
+                                SQLServerException.makeFromDriverError(connection, this,
+                                        SQLServerException.getErrString("R_resultsetGeneratedForUpdate"), null, false);
+                            }
+                        } catch (SQLServerException e) {
+                            // If the failure was severe enough to close the connection or roll back a manual
+                            // transaction, then propagate it now rather than continue with the batch.
+                            if (connection.isSessionUnAvailable() || connection.rolledBackTransaction())
+                                throw e;
+
+                            // Otherwise just record the failure for the particular batch entry.
+                            updateCount = Statement.EXECUTE_FAILED;
+                            if (null == batchCommand.batchException)
+                                batchCommand.batchException = e;
+
+                            String sqlState = batchCommand.batchException.getSQLState();
+                            if (null != sqlState && sqlState.equals(SQLState.STATEMENT_CANCELED.getSQLStateCode())) {
+                                processBatch();
+                                continue;
+                            }
+                        }
+
+                        batchCommand.updateCounts[numBatchesExecuted] = (-1 == updateCount) ? Statement.SUCCESS_NO_INFO
+                                                                                            : updateCount;
+                        processBatch();
+                        numBatchesExecuted++;
+                    }
+                }
+            } catch (SQLServerException e) {
+                executeScope.setException(e);
+                throw e;
+            }
+        }
+    }
+
 
     /**
      * Executes batch using EXEC method by combining all batch entries into a single
@@ -4146,7 +4374,11 @@ public class SQLServerPreparedStatement extends SQLServerStatement implements IS
                 loggerExternal.entering(getClassNameLogging(), "getParameterMetaData");
             }
             checkClosed();
-            pmd = new SQLServerParameterMetaData(this, userSQL);
+            pmd = forceRefresh ? null : connection.getSharedParameterMetadata(sqlTextCacheKey, this);
+            if (null == pmd) {
+                pmd = new SQLServerParameterMetaData(this, userSQL);
+                connection.registerSharedParameterMetadata(sqlTextCacheKey, userSQL, pmd);
+            }
             connection.registerCachedParameterMetadata(sqlTextCacheKey, pmd);
             if (loggerExternal.isLoggable(Level.FINER)) {
                 loggerExternal.exiting(getClassNameLogging(), "getParameterMetaData", pmd);
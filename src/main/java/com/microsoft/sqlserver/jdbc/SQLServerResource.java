@@ -469,6 +469,26 @@ public final class SQLServerResource extends ListResourceBundle {
         {"R_TVPnotWorkWithSetObjectResultSet", "setObject() with ResultSet is not supported for Table-Valued Parameter. Please use setStructured()."},
         {"R_invalidQueryTimeout", "The queryTimeout {0} is not valid."},
         {"R_invalidSocketTimeout", "The socketTimeout {0} is not valid."},
+        {"R_invalidPacketPoolSize", "The packetPoolSize {0} is not valid."},
+        {"R_invalidReadAheadPackets", "The readAheadPackets {0} is not valid."},
+        {"R_invalidMaxCoalescedPackets", "The maxCoalescedPackets {0} is not valid."},
+        {"R_invalidPrepareBatchCoalesceSize", "The prepareBatchCoalesceSize {0} is not valid."},
+        {"R_invalidSQLCacheSize", "The SQL cache size {0} is not valid."},
+        {"R_invalidStatementPoolingCacheMemoryBudget", "The statementPoolingCacheMemoryBudget {0} is not valid."},
+        {"R_invalidCursorPrefetchMaxRows", "The cursorPrefetchMaxRows {0} is not valid."},
+        {"R_invalidColumnVectorOffsets", "The offsets of a column vector must hold at least one offset."},
+        {"R_invalidColumnVectorListSize", "The list size of a column vector must be at least 1."},
+        {"R_invalidColumnVectorDimensions", "A vector of {0} dimensions cannot be read into a column vector of lists of {1} floats."},
+        {"R_invalidParallelStreams", "The parallelStreams {0} is not valid."},
+        {"R_parallelBulkCopyConnection", "A parallel bulk copy needs a SQLServerBulkCopy constructed with a connection string or a DataSource."},
+        {"R_bulkCopyInterrupted", "The bulk copy was interrupted."},
+        {"R_invalidEncodingThreads", "The encodingThreads {0} is not valid."},
+        {"R_invalidParsingThreads", "The parsingThreads {0} is not valid."},
+        {"R_csvParsingInterrupted", "Parsing the CSV file was interrupted."},
+        {"R_readTimedOut", "Read timed out"},
+        {"R_socketClosed", "Socket closed"},
+        {"R_useSocketChannelPropertyDescription", "Determines whether the driver uses a non-blocking SocketChannel with direct buffers for network I/O instead of socket streams. TLS over the SocketChannel always uses an SSLEngine. Ignored when socketFactoryClass is set."},
+        {"R_useSSLEnginePropertyDescription", "Determines whether the driver encrypts the connection with an SSLEngine that wraps and unwraps whole TDS packets instead of an SSLSocket."},
         {"R_fipsPropertyDescription", "Determines if FIPS mode is enabled."},
         {"R_invalidFipsConfig", "Unable to verify FIPS mode settings."},
         {"R_serverPreparedStatementDiscardThreshold", "The serverPreparedStatementDiscardThreshold {0} is not valid."},
@@ -495,6 +515,12 @@ public final class SQLServerResource extends ListResourceBundle {
         {"R_bulkCopyForBatchInsertKeepIdentityPropertyDescription", "Determines whether to keep identity values during bulk copy operations created from batch insert operations."},
         {"R_bulkCopyForBatchInsertKeepNullsPropertyDescription", "Determines whether to keep null values during bulk copy operations created from batch insert operations."},
         {"R_bulkCopyForBatchInsertTableLockPropertyDescription", "Determines whether to use table lock during bulk copy operations created from batch insert operations."},
+        {"R_packetPoolSizePropertyDescription", "The maximum number of idle response packet buffers kept for reuse by a connection. A value of 0 disables packet pooling."},
+        {"R_readAheadPacketsPropertyDescription", "The maximum number of response packets read ahead on a background thread while a response is processed, also bounded by maxResultBuffer. A value of 0 disables read-ahead."},
+        {"R_maxCoalescedPacketsPropertyDescription", "The maximum number of complete packets of a request message that are gathered into a single socket write. Packets of different messages are never gathered, so a message that fits in one packet always takes one write. A value of 0 or 1 writes each packet on its own."},
+        {"R_prepareBatchCoalesceSizePropertyDescription", "The maximum number of prepared statement batch entries that are added, as sp_executesql calls, to the request of a batch entry that prepares or reprepares the statement, instead of starting a new request once its handle is known. This usually saves one round trip per executeBatch call. A value of 0 disables it."},
+        {"R_statementPoolingCacheMemoryBudgetPropertyDescription", "The memory budget in KB of the prepared statement cache of a connection. When it is set, the cache size adapts to how often evicted statements are prepared again and how many cached statements go unused, starting at statementPoolingCacheSize. A value of 0 keeps the cache at statementPoolingCacheSize."},
+        {"R_cursorPrefetchMaxRowsPropertyDescription", "The maximum number of rows that a forward only, read only server cursor requests in one fetch when it requests the next block of rows while the application reads the current one. The blocks start at the fetch size and double with every block read to the end. A value of 0 disables cursor prefetching."},
         {"R_bulkCopyForBatchInsertAllowEncryptedValueModificationsPropertyDescription", "Determines whether to allow encrypted value modifications during bulk copy operations created from batch insert operations."},        
         {"R_UnknownDataClsTokenNumber", "Unknown token for Data Classification."}, // From Server
         {"R_InvalidDataClsVersionNumber", "Invalid version number {0} for Data Classification."}, // From Server
@@ -568,6 +594,8 @@ public final class SQLServerResource extends ListResourceBundle {
         {"R_crClientSSLStateNotRecoverable", "The server did not preserve SSL encryption during a recovery attempt, connection recovery is not possible."},
         {"R_crCommandCannotTimeOut", "Request failed to time out and SQLServerConnection does not exist"},
         {"R_InvalidIPAddressPreference", "IP address preference {0} is not valid."},
+        {"R_InvalidParallelConnectMode", "The parallelConnectMode {0} is not valid."},
+        {"R_parallelConnectModePropertyDescription", "Determines how the driver races connection attempts to several IP addresses of a server: \"threads\" uses a pooled thread per address, \"selector\" drives non-blocking connects from the connecting thread, \"staggered\" does the same but tries the addresses that connected fastest recently first and starts the others one at a time after a short delay."},
         {"R_UnableLoadAuthDll", "Unable to load authentication DLL {0}"},
         {"R_illegalArgumentTrustManager", "Internal error. Peer certificate chain or key exchange algorithm can not be null or empty."},
         {"R_serverCertExpired", "Server Certificate has expired: {0}: {1}"},
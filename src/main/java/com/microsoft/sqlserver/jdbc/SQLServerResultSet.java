@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -24,11 +25,15 @@ import java.sql.SQLType;
 import java.sql.SQLWarning;
 import java.sql.SQLXML;
 import java.text.MessageFormat;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
@@ -127,6 +132,12 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
     /** the desired fetch size to optimize cursor performance */
     private int fetchSize;
 
+    /** the request for the next block of rows of a forward only server cursor, sent ahead of time, or null */
+    private CursorFetchCommand prefetchedFetch;
+
+    /** the number of rows requested by the last prefetch, from which the next prefetch grows */
+    private int prefetchRows;
+
     /** true if the cursor is positioned on the insert row */
     private boolean isOnInsertRow = false;
 
@@ -141,6 +152,12 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
      */
     private boolean areNullCompressedColumnsInitialized = false;
 
+    /** Executor that decrypts the encrypted columns of each row in parallel, or null to decrypt them as they are read */
+    private Executor columnDecryptionExecutor;
+
+    /** Indicates if the encrypted columns of the current row have been decrypted with the columnDecryptionExecutor */
+    private boolean isCurrentRowDecrypted = false;
+
     /** Indicates the type of the current row in the result set */
     private RowType resultSetCurrentRowType = RowType.UNKNOWN;
 
@@ -680,6 +697,9 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         // Discard the current fetch buffer contents.
         discardFetchBuffer();
 
+        // Drop the prefetched block, if any. Closing the server cursor buffers its response off the wire.
+        prefetchedFetch = null;
+
         // Close the server cursor if there is one.
         closeServerCursor();
 
@@ -842,6 +862,9 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         if (!areNullCompressedColumnsInitialized)
             initializeNullCompressedColumns();
 
+        if (null != columnDecryptionExecutor && !isCurrentRowDecrypted)
+            decryptCurrentRow();
+
         // Skip any columns between the last indexed column and the target column,
         // retaining their values so they can be retrieved later.
         if (index > lastColumnIndex && (!this.columns[index - 1].isInitialized()))
@@ -851,6 +874,45 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         return getColumn(index);
     }
 
+    /**
+     * Decrypts the values of all encrypted columns of the current row with the columnDecryptionExecutor, so that
+     * getters only need to convert the plain text.
+     */
+    private void decryptCurrentRow() throws SQLServerException {
+        isCurrentRowDecrypted = true;
+
+        // Mark all columns, retaining their values, so that the cipher texts can be read in any order. Reading them
+        // moves the TDS reader, so every column, the last one included, is read from its mark from then on.
+        if (lastColumnIndex < columns.length)
+            skipColumns(columns.length - lastColumnIndex, false);
+        if (lastColumnIndex == columns.length)
+            getColumn(lastColumnIndex).skipValue(tdsReader, false);
+
+        int count = 0;
+        Column[] encryptedColumns = new Column[columns.length];
+        byte[][] cipherTexts = new byte[columns.length][];
+        CryptoMetadata[] cryptoMetadata = new CryptoMetadata[columns.length];
+        for (int i = columns.length - 1; i >= 0; i--) {
+            if (null != columns[i].getCryptoMetadata()) {
+                byte[] cipherText = columns[i].getCipherText(tdsReader);
+                if (null != cipherText) {
+                    encryptedColumns[count] = columns[i];
+                    cipherTexts[count] = cipherText;
+                    cryptoMetadata[count] = columns[i].getCryptoMetadata();
+                    ++count;
+                }
+            }
+        }
+
+        if (0 == count)
+            return;
+
+        byte[][] plainTexts = SQLServerSecurityUtility.decryptWithKeys(Arrays.copyOf(cipherTexts, count),
+                Arrays.copyOf(cryptoMetadata, count), stmt.connection, stmt, columnDecryptionExecutor);
+        for (int i = 0; i < count; i++)
+            encryptedColumns[i].setDecryptedValue(plainTexts[i]);
+    }
+
     /**
      * Clears result set warnings.
      * 
@@ -1140,9 +1202,15 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
 
         // We're out of rows in the fetch buffer. If this is a server
         // cursor, then try to load up the fetch buffer with the next
-        // set of fetchSize rows.
+        // set of fetchSize rows, unless they were requested ahead.
         if (0 != serverCursorId) {
-            doServerFetch(TDS.FETCH_NEXT, 0, fetchSize);
+            CursorFetchCommand cursorFetch = prefetchedFetch;
+            if (null != cursorFetch) {
+                prefetchedFetch = null;
+                doServerFetch(cursorFetch);
+            } else {
+                doServerFetch(TDS.FETCH_NEXT, 0, fetchSize);
+            }
 
             // If there are rows in the freshly-loaded fetch buffer
             // then return the first of them.
@@ -1153,6 +1221,7 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
                     updateCurrentRow(1);
 
                 assert 0 == maxRows || currentRow <= maxRows;
+                prefetchNextBlock();
                 if (loggerExternal.isLoggable(Level.FINER)) {
                     loggerExternal.exiting(getClassNameLogging(), "next", true);
                 }
@@ -1177,6 +1246,283 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         return false;
     }
 
+    @Override
+    public int nextColumns(SQLServerColumnVector... vectors) throws SQLServerException {
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.entering(getClassNameLogging(), "nextColumns", vectors.length);
+        }
+        checkClosed();
+        if (vectors.length > getColumnCount())
+            verifyValidColumnIndex(vectors.length);
+
+        int capacity = 0;
+        for (SQLServerColumnVector vector : vectors) {
+            if (null != vector) {
+                vector.reset();
+                capacity = (0 == capacity) ? vector.getCapacity() : Math.min(capacity, vector.getCapacity());
+            }
+        }
+
+        // Scrollable result sets may hold deleted rows and encrypted rows may be decrypted ahead, so their values are
+        // read with the getters.
+        boolean readsResponse = isForwardOnly() && null == columnDecryptionExecutor;
+        int rows = 0;
+        while (rows < capacity && next()) {
+            // The cursor stays on the last row of the batch, so its values must be read again by the getters.
+            TDSReaderMark rowMark = (readsResponse && rows + 1 == capacity) ? tdsReader.markInRow() : null;
+            for (int i = 0; i < vectors.length; i++) {
+                if (null != vectors[i])
+                    readColumn(i + 1, vectors[i], rows, readsResponse);
+            }
+            if (null != rowMark)
+                rewindCurrentRow(rowMark);
+            ++rows;
+        }
+
+        for (SQLServerColumnVector vector : vectors) {
+            if (null != vector)
+                vector.setRowCount(rows);
+        }
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.exiting(getClassNameLogging(), "nextColumns", rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the value of a column of the current row into a vector: straight from the response when the column is the
+     * next one in the response and its type matches the vector, and with a getter otherwise.
+     */
+    private void readColumn(int index, SQLServerColumnVector vector, int row,
+            boolean readsResponse) throws SQLServerException {
+        Column column = columns[index - 1];
+        if (readsResponse && column.canReadIntoVector()) {
+            if (!areNullCompressedColumnsInitialized)
+                initializeNullCompressedColumns();
+
+            // Skip the columns without a vector, retaining their values like loadColumn does.
+            if (index > lastColumnIndex)
+                skipColumns(index - lastColumnIndex, false);
+
+            if (index == lastColumnIndex && readColumnValue(column, vector, row)) {
+                ++lastColumnIndex;
+                return;
+            }
+        }
+
+        SSType ssType = column.getValueTypeInfo().getSSType();
+        if (vector.isBytes()) {
+            byte[] value;
+            if (ssType.getJDBCType().isBinary()) {
+                value = (byte[]) getValue(index, JDBCType.BINARY);
+            } else {
+                Object objectValue = getValue(index, JDBCType.CHAR);
+                value = (null != objectValue) ? objectValue.toString().getBytes(StandardCharsets.UTF_8) : null;
+            }
+            if (null == value)
+                vector.setNull(row);
+            else
+                vector.setBytes(row, value);
+        } else if (vector.isDecimals()) {
+            BigDecimal value = (BigDecimal) getValue(index, JDBCType.DECIMAL);
+            if (null == value)
+                vector.setNull(row);
+            else
+                vector.setDecimal(row, value);
+        } else if (vector.isTimestamps()) {
+            readTimestamp(index, ssType, vector, row);
+        } else if (vector.isFloatLists()) {
+            Object value = getValue(index, JDBCType.VECTOR);
+            if (null == value) {
+                vector.setNull(row);
+            } else if (value instanceof byte[]) {
+                vector.setFloats(row, VectorUtils.fromBytes((byte[]) value).getData());
+            } else {
+                MessageFormat form = new MessageFormat(
+                        SQLServerException.getErrString("R_unsupportedConversionFromTo"));
+                throw new SQLServerException(form.format(new Object[] {ssType, JDBCType.VECTOR}), null, 0, null);
+            }
+        } else if (vector.isDoubles()) {
+            double value = getDoubleValue(index);
+            if (lastValueWasNull)
+                vector.setNull(row);
+            else
+                vector.setDouble(row, value);
+        } else {
+            long value = vector.isInts() ? getIntValue(index) : getLongValue(index);
+            if (lastValueWasNull)
+                vector.setNull(row);
+            else
+                vector.setLong(row, value);
+        }
+    }
+
+    /**
+     * Reads the value of a date or time column into a timestamp vector with a getter: a DATETIMEOFFSET value as the
+     * microseconds since the epoch, a TIME value as the microseconds since midnight, and any other value as the
+     * microseconds from the epoch to its local date and time.
+     */
+    private void readTimestamp(int index, SSType ssType, SQLServerColumnVector vector,
+            int row) throws SQLServerException {
+        if (SSType.DATETIMEOFFSET == ssType) {
+            microsoft.sql.DateTimeOffset value = (microsoft.sql.DateTimeOffset) getValue(index,
+                    JDBCType.DATETIMEOFFSET);
+            if (null == value) {
+                vector.setNull(row);
+            } else {
+                Instant instant = value.getOffsetDateTime().toInstant();
+                vector.setLong(row, instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000);
+            }
+            return;
+        }
+
+        LocalDateTime value = (LocalDateTime) getValue(index, JDBCType.LOCALDATETIME);
+        if (null == value) {
+            vector.setNull(row);
+        } else if (SSType.TIME == ssType) {
+            vector.setLong(row, value.toLocalTime().toNanoOfDay() / 1000);
+        } else {
+            vector.setLong(row, value.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + value.getNano() / 1000);
+        }
+    }
+
+    /**
+     * Reads the value of a column at the current position of the TDS reader into a vector, if the type of the column
+     * matches the vector: an integer or floating point value into an int, long or double vector, a character or binary
+     * value that is not a PLP value into a bytes vector, a decimal value of the scale of the vector into a decimal
+     * vector, a DATE, DATETIME2 or DATETIMEOFFSET value into a timestamp vector, or a FLOAT32 VECTOR value into a float
+     * list vector. Returns false, without reading anything, otherwise.
+     */
+    private boolean readColumnValue(Column column, SQLServerColumnVector vector, int row) throws SQLServerException {
+        // A null value of an NBCROW is only in the null bitmap of the row.
+        if (column.isInitialized()) {
+            assert column.isNull();
+            vector.setNull(row);
+            return true;
+        }
+
+        TypeInfo typeInfo = column.getTypeInfo();
+        SSType ssType = typeInfo.getSSType();
+        switch (ssType) {
+            case BIT:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case REAL:
+            case FLOAT: {
+                if (!vector.isInts() && !vector.isLongs() && !vector.isDoubles())
+                    return false;
+
+                boolean isFloatingPoint = SSType.REAL == ssType || SSType.FLOAT == ssType;
+                int length = (SSLenType.FIXEDLENTYPE == typeInfo.getSSLenType()) ? typeInfo.getMaxLength()
+                                                                                 : tdsReader.readUnsignedByte();
+                if (0 == length) {
+                    vector.setNull(row);
+                } else if (isFloatingPoint && 4 == length) {
+                    vector.setDouble(row, Float.intBitsToFloat(tdsReader.readInt()));
+                } else if (isFloatingPoint && 8 == length) {
+                    vector.setDouble(row, Double.longBitsToDouble(tdsReader.readLong()));
+                } else if (!isFloatingPoint && 1 == length) {
+                    vector.setLong(row, tdsReader.readUnsignedByte());
+                } else if (!isFloatingPoint && 2 == length) {
+                    vector.setLong(row, tdsReader.readShort());
+                } else if (!isFloatingPoint && 4 == length) {
+                    vector.setLong(row, tdsReader.readInt());
+                } else if (!isFloatingPoint && 8 == length) {
+                    vector.setLong(row, tdsReader.readLong());
+                } else {
+                    tdsReader.throwInvalidTDS();
+                }
+                return true;
+            }
+
+            case CHAR:
+            case VARCHAR:
+            case NCHAR:
+            case NVARCHAR:
+            case BINARY:
+            case VARBINARY: {
+                if (!vector.isBytes() || SSLenType.USHORTLENTYPE != typeInfo.getSSLenType())
+                    return false;
+
+                int length = tdsReader.readUnsignedShort();
+                if (65535 == length) {
+                    vector.setNull(row);
+                } else if (length > typeInfo.getMaxLength()) {
+                    tdsReader.throwInvalidTDS();
+                } else if (SSType.NCHAR == ssType || SSType.NVARCHAR == ssType) {
+                    vector.readUTF16(row, tdsReader, length);
+                } else if (SSType.BINARY == ssType || SSType.VARBINARY == ssType) {
+                    vector.readBytes(row, tdsReader, length, null);
+                } else {
+                    vector.readBytes(row, tdsReader, length, typeInfo.getCharset());
+                }
+                return true;
+            }
+
+            case DECIMAL:
+            case NUMERIC: {
+                if (!vector.isDecimals() || typeInfo.getScale() != vector.getScale())
+                    return false;
+
+                int length = tdsReader.readUnsignedByte();
+                if (0 == length) {
+                    vector.setNull(row);
+                } else if (length > 1 + SQLServerColumnVector.DECIMAL_BYTES) {
+                    tdsReader.throwInvalidTDS();
+                } else {
+                    vector.readDecimal(row, tdsReader, length);
+                }
+                return true;
+            }
+
+            case DATE:
+            case DATETIME2:
+            case DATETIMEOFFSET: {
+                if (!vector.isTimestamps())
+                    return false;
+
+                int length = tdsReader.readUnsignedByte();
+                if (0 == length)
+                    vector.setNull(row);
+                else
+                    vector.readTimestamp(row, tdsReader, length, ssType, typeInfo.getScale());
+                return true;
+            }
+
+            case VECTOR: {
+                // only FLOAT32 vectors, with 4 bytes per dimension, of the list size of the vector
+                if (!vector.isFloatLists() || 4 != typeInfo.getScale()
+                        || typeInfo.getPrecision() != vector.getListSize())
+                    return false;
+
+                int length = tdsReader.readUnsignedShort();
+                if (65535 == length) {
+                    vector.setNull(row);
+                } else {
+                    vector.readFloats(row, tdsReader, length);
+                }
+                return true;
+            }
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Moves the TDS reader back to the start of the current row after nextColumns read its values, so that the getters
+     * read them again.
+     */
+    private void rewindCurrentRow(TDSReaderMark rowMark) throws SQLServerException {
+        for (Column column : columns)
+            column.clear();
+        tdsReader.reset(rowMark);
+        lastColumnIndex = 1;
+        areNullCompressedColumnsInitialized = false;
+    }
+
     @Override
     public boolean wasNull() throws SQLServerException {
         if (loggerExternal.isLoggable(Level.FINER)) {
@@ -1860,6 +2206,7 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         // reset areNullCompressedColumnsInitialized to false and row type to unknown
         resultSetCurrentRowType = RowType.UNKNOWN;
         areNullCompressedColumnsInitialized = false;
+        isCurrentRowDecrypted = false;
     }
 
     final int fetchBufferGetRow() {
@@ -1909,6 +2256,12 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         // We do have a fetch buffer. So discard the current row in the fetch buffer and ...
         discardCurrentRow();
 
+        // Client-side forward only result sets never go back to a discarded row, so packets holding only
+        // discarded rows can be recycled.
+        boolean isRowScoped = isForwardOnly() && 0 == serverCursorId;
+        if (isRowScoped)
+            tdsReader.endRowScope();
+
         // ... scan for the next row.
         // If we didn't find one, then we're done.
         RowType fetchBufferCurrentRowType = RowType.UNKNOWN;
@@ -1929,6 +2282,8 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         // Otherwise, we found a row.
         ++numFetchedRows;
         lastColumnIndex = 1;
+        if (isRowScoped)
+            tdsReader.beginRowScope();
         return true;
     }
 
@@ -2135,11 +2490,38 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
                     SQLServerException.getErrString("R_invalidFetchSize"), null, false);
 
         fetchSize = (0 == rows) ? stmt.defaultFetchSize : rows;
+
+        // Prefetched blocks grow again from the new fetch size
+        prefetchRows = 0;
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "setFetchSize");
         }
     }
 
+    @Override
+    public void setColumnDecryptionExecutor(Executor executor) throws SQLServerException {
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.entering(getClassNameLogging(), "setColumnDecryptionExecutor", executor);
+        }
+        checkClosed();
+        columnDecryptionExecutor = executor;
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.exiting(getClassNameLogging(), "setColumnDecryptionExecutor");
+        }
+    }
+
+    @Override
+    public Executor getColumnDecryptionExecutor() throws SQLServerException {
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.entering(getClassNameLogging(), "getColumnDecryptionExecutor");
+        }
+        checkClosed();
+        if (loggerExternal.isLoggable(Level.FINER)) {
+            loggerExternal.exiting(getClassNameLogging(), "getColumnDecryptionExecutor", columnDecryptionExecutor);
+        }
+        return columnDecryptionExecutor;
+    }
+
     @Override
     public int getFetchSize() throws SQLException {
         if (loggerExternal.isLoggable(Level.FINER)) {
@@ -2234,6 +2616,109 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         return o;
     }
 
+    /*
+     * The primitive getters below read BIT, TINYINT, SMALLINT, INTEGER, BIGINT, REAL and FLOAT values straight from the
+     * response into a long or a double, instead of converting them to an object with getValue and unboxing it. The
+     * casts give the same results as the conversions in DDC. Values of any other type, encrypted values and values of
+     * filtered columns still go through getValue.
+     */
+
+    private int getIntValue(int columnIndex) throws SQLServerException {
+        Column column = getterGetColumn(columnIndex);
+        int value;
+        if (column.hasIntegerValue()) {
+            value = (int) column.getLongValue(tdsReader);
+        } else if (column.hasFloatingPointValue()) {
+            value = (int) column.getDoubleValue(tdsReader);
+        } else {
+            Integer o = (Integer) column.getValue(JDBCType.INTEGER, null, null, tdsReader, stmt);
+            lastValueWasNull = (null == o);
+            return null != o ? o : 0;
+        }
+        lastValueWasNull = column.isNull();
+        return value;
+    }
+
+    private long getLongValue(int columnIndex) throws SQLServerException {
+        Column column = getterGetColumn(columnIndex);
+        long value;
+        if (column.hasIntegerValue()) {
+            value = column.getLongValue(tdsReader);
+        } else if (column.hasFloatingPointValue()) {
+            value = (long) column.getDoubleValue(tdsReader);
+        } else {
+            Long o = (Long) column.getValue(JDBCType.BIGINT, null, null, tdsReader, stmt);
+            lastValueWasNull = (null == o);
+            return null != o ? o : 0;
+        }
+        lastValueWasNull = column.isNull();
+        return value;
+    }
+
+    private short getShortValue(int columnIndex, JDBCType jdbcType) throws SQLServerException {
+        Column column = getterGetColumn(columnIndex);
+        short value;
+        if (column.hasIntegerValue()) {
+            value = (short) column.getLongValue(tdsReader);
+        } else if (column.hasFloatingPointValue()) {
+            value = (short) column.getDoubleValue(tdsReader);
+        } else {
+            Short o = (Short) column.getValue(jdbcType, null, null, tdsReader, stmt);
+            lastValueWasNull = (null == o);
+            return null != o ? o : 0;
+        }
+        lastValueWasNull = column.isNull();
+        return value;
+    }
+
+    private boolean getBooleanValue(int columnIndex) throws SQLServerException {
+        Column column = getterGetColumn(columnIndex);
+        boolean value;
+        if (column.hasIntegerValue()) {
+            value = 0 != column.getLongValue(tdsReader);
+        } else if (column.hasFloatingPointValue()) {
+            value = 0 != Double.compare(0.0d, column.getDoubleValue(tdsReader));
+        } else {
+            Boolean o = (Boolean) column.getValue(JDBCType.BIT, null, null, tdsReader, stmt);
+            lastValueWasNull = (null == o);
+            return null != o ? o : false;
+        }
+        lastValueWasNull = column.isNull();
+        return value;
+    }
+
+    private double getDoubleValue(int columnIndex) throws SQLServerException {
+        Column column = getterGetColumn(columnIndex);
+        double value;
+        if (column.hasIntegerValue()) {
+            value = column.getLongValue(tdsReader);
+        } else if (column.hasFloatingPointValue()) {
+            value = column.getDoubleValue(tdsReader);
+        } else {
+            Double o = (Double) column.getValue(JDBCType.DOUBLE, null, null, tdsReader, stmt);
+            lastValueWasNull = (null == o);
+            return null != o ? o : 0;
+        }
+        lastValueWasNull = column.isNull();
+        return value;
+    }
+
+    private float getFloatValue(int columnIndex) throws SQLServerException {
+        Column column = getterGetColumn(columnIndex);
+        float value;
+        if (column.hasIntegerValue()) {
+            value = column.getLongValue(tdsReader);
+        } else if (column.hasFloatingPointValue()) {
+            value = (float) column.getDoubleValue(tdsReader);
+        } else {
+            Float o = (Float) column.getValue(JDBCType.REAL, null, null, tdsReader, stmt);
+            lastValueWasNull = (null == o);
+            return null != o ? o : 0;
+        }
+        lastValueWasNull = column.isNull();
+        return value;
+    }
+
     void setInternalVariantType(int columnIndex, SqlVariant type) throws SQLServerException {
         getterGetColumn(columnIndex).setInternalVariant(type);
     }
@@ -2269,6 +2754,10 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             }
         }
         activeLOB = lob;
+
+        // A LOB may outlive the row it was read from, so keep the row's packets out of the packet pool.
+        if (null != tdsReader)
+            tdsReader.cancelRowScope();
     }
 
     @Override
@@ -2365,11 +2854,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getBoolean", columnIndex);
         }
         checkClosed();
-        Boolean value = (Boolean) getValue(columnIndex, JDBCType.BIT);
+        boolean value = getBooleanValue(columnIndex);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getBoolean", value);
         }
-        return null != value ? value : false;
+        return value;
     }
 
     @Override
@@ -2378,11 +2867,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getBoolean", columnName);
         }
         checkClosed();
-        Boolean value = (Boolean) getValue(findColumn(columnName), JDBCType.BIT);
+        boolean value = getBooleanValue(findColumn(columnName));
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getBoolean", value);
         }
-        return null != value ? value : false;
+        return value;
     }
 
     @Override
@@ -2391,11 +2880,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getByte", columnIndex);
         }
         checkClosed();
-        Short value = (Short) getValue(columnIndex, JDBCType.TINYINT);
+        byte value = (byte) getShortValue(columnIndex, JDBCType.TINYINT);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getByte", value);
         }
-        return null != value ? value.byteValue() : 0;
+        return value;
     }
 
     @Override
@@ -2404,11 +2893,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getByte", columnName);
         }
         checkClosed();
-        Short value = (Short) getValue(findColumn(columnName), JDBCType.TINYINT);
+        byte value = (byte) getShortValue(findColumn(columnName), JDBCType.TINYINT);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getByte", value);
         }
-        return null != value ? value.byteValue() : 0;
+        return value;
     }
 
     @Override
@@ -2493,11 +2982,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getDouble", columnIndex);
         }
         checkClosed();
-        Double value = (Double) getValue(columnIndex, JDBCType.DOUBLE);
+        double value = getDoubleValue(columnIndex);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getDouble", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2506,11 +2995,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getDouble", columnName);
         }
         checkClosed();
-        Double value = (Double) getValue(findColumn(columnName), JDBCType.DOUBLE);
+        double value = getDoubleValue(findColumn(columnName));
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getDouble", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2519,11 +3008,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getFloat", columnIndex);
         }
         checkClosed();
-        Float value = (Float) getValue(columnIndex, JDBCType.REAL);
+        float value = getFloatValue(columnIndex);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getFloat", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2532,11 +3021,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getFloat", columnName);
         }
         checkClosed();
-        Float value = (Float) getValue(findColumn(columnName), JDBCType.REAL);
+        float value = getFloatValue(findColumn(columnName));
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getFloat", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2597,11 +3086,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getInt", columnIndex);
         }
         checkClosed();
-        Integer value = (Integer) getValue(columnIndex, JDBCType.INTEGER);
+        int value = getIntValue(columnIndex);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getInt", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2610,11 +3099,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getInt", columnName);
         }
         checkClosed();
-        Integer value = (Integer) getValue(findColumn(columnName), JDBCType.INTEGER);
+        int value = getIntValue(findColumn(columnName));
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getInt", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2623,11 +3112,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getLong", columnIndex);
         }
         checkClosed();
-        Long value = (Long) getValue(columnIndex, JDBCType.BIGINT);
+        long value = getLongValue(columnIndex);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getLong", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2636,11 +3125,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getLong", columnName);
         }
         checkClosed();
-        Long value = (Long) getValue(findColumn(columnName), JDBCType.BIGINT);
+        long value = getLongValue(findColumn(columnName));
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getLong", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2802,11 +3291,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getShort", columnIndex);
         }
         checkClosed();
-        Short value = (Short) getValue(columnIndex, JDBCType.SMALLINT);
+        short value = getShortValue(columnIndex, JDBCType.SMALLINT);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getShort", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -2815,11 +3304,11 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             loggerExternal.entering(getClassNameLogging(), "getShort", columnName);
         }
         checkClosed();
-        Short value = (Short) getValue(findColumn(columnName), JDBCType.SMALLINT);
+        short value = getShortValue(findColumn(columnName), JDBCType.SMALLINT);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getShort", value);
         }
-        return null != value ? value : 0;
+        return value;
     }
 
     @Override
@@ -3182,9 +3671,8 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             throw new SQLServerException(SQLServerException.getErrString("R_notSupported"),
                     SQLState.DATA_EXCEPTION_NOT_SPECIFIC, DriverError.NOT_SET, null);
 
-        microsoft.sql.DateTimeOffset value = (microsoft.sql.DateTimeOffset) getValue(columnIndex,
-                JDBCType.DATETIMEOFFSET);
-        java.time.OffsetDateTime result = (value == null) ? null : value.getOffsetDateTime();
+        java.time.OffsetDateTime result = (java.time.OffsetDateTime) getValue(columnIndex,
+                JDBCType.OFFSETDATETIME);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getOffsetDateTime", result);
         }
@@ -3203,9 +3691,8 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             throw new SQLServerException(SQLServerException.getErrString("R_notSupported"),
                     SQLState.DATA_EXCEPTION_NOT_SPECIFIC, DriverError.NOT_SET, null);
 
-        microsoft.sql.DateTimeOffset value = (microsoft.sql.DateTimeOffset) getValue(findColumn(columnName),
-                JDBCType.DATETIMEOFFSET);
-        java.time.OffsetDateTime result = (value == null) ? null : value.getOffsetDateTime();
+        java.time.OffsetDateTime result = (java.time.OffsetDateTime) getValue(findColumn(columnName),
+                JDBCType.OFFSETDATETIME);
         if (loggerExternal.isLoggable(Level.FINER)) {
             loggerExternal.exiting(getClassNameLogging(), "getOffsetDateTime", result);
         }
@@ -6519,13 +7006,15 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         private int fetchType;
         private int startRow;
         private int numRows;
+        private final boolean isPrefetch;
 
-        CursorFetchCommand(int serverCursorId, int fetchType, int startRow, int numRows) {
+        CursorFetchCommand(int serverCursorId, int fetchType, int startRow, int numRows, boolean isPrefetch) {
             super("doServerFetch", stmt.queryTimeout, stmt.cancelQueryTimeoutSeconds);
             this.serverCursorId = serverCursorId;
             this.fetchType = fetchType;
             this.startRow = startRow;
             this.numRows = numRows;
+            this.isPrefetch = isPrefetch;
         }
 
         final boolean doExecute() throws SQLServerException {
@@ -6540,6 +7029,12 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             tdsWriter.writeRPCInt(null, startRow, false);
             tdsWriter.writeRPCInt(null, numRows, false);
 
+            // A prefetch leaves the response on the wire until the application has read the current block.
+            if (isPrefetch) {
+                endRequest();
+                return false;
+            }
+
             // To free up the thread on the server that is feeding us these results,
             // read the entire response off the wire UNLESS this is a forward only
             // updatable result set AND responseBuffering was explicitly set to adaptive
@@ -6553,6 +7048,14 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
             return false;
         }
 
+        /**
+         * Reads the response to a prefetch, which the server has usually sent by now, into the fetch buffer.
+         */
+        final void readPrefetchedResponse() throws SQLServerException {
+            assert isPrefetch;
+            tdsReader = readResponse(false);
+        }
+
         @Override
         final void processResponse(TDSReader responseTDSReader) throws SQLServerException {
             tdsReader = responseTDSReader;
@@ -6574,8 +7077,24 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
      *            The cursor was invalid.
      */
     final void doServerFetch(int fetchType, int startRow, int numRows) throws SQLServerException {
+        doServerFetch(new CursorFetchCommand(serverCursorId, fetchType, startRow, numRows, false));
+    }
+
+    /**
+     * Position a server side cursor with a fetch command, or read the rows of a prefetch.
+     *
+     * @param cursorFetch
+     *        The fetch command, or the prefetch whose request was already sent
+     * @exception SQLServerException
+     *            The cursor was invalid.
+     */
+    private void doServerFetch(CursorFetchCommand cursorFetch) throws SQLServerException {
+        int fetchType = cursorFetch.fetchType;
+        int startRow = cursorFetch.startRow;
+        int numRows = cursorFetch.numRows;
         if (logger.isLoggable(Level.FINER))
-            logger.finer(toString() + " fetchType:" + fetchType + " startRow:" + startRow + " numRows:" + numRows);
+            logger.finer(toString() + " fetchType:" + fetchType + " startRow:" + startRow + " numRows:" + numRows
+                    + " prefetched:" + cursorFetch.isPrefetch);
 
         // Discard the current fetch buffer contents
         discardFetchBuffer();
@@ -6583,13 +7102,16 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         // Reinitialize the fetch buffer
         fetchBuffer.init();
 
-        // Fetch the requested block of rows from the server
-        CursorFetchCommand cursorFetch = new CursorFetchCommand(serverCursorId, fetchType, startRow, numRows);
-        stmt.executeCommand(cursorFetch);
+        // Fetch the requested block of rows from the server, or read the block that was requested ahead
+        if (cursorFetch.isPrefetch)
+            cursorFetch.readPrefetchedResponse();
+        else
+            stmt.executeCommand(cursorFetch);
 
         numFetchedRows = 0;
         resultSetCurrentRowType = RowType.UNKNOWN;
         areNullCompressedColumnsInitialized = false;
+        isCurrentRowDecrypted = false;
         lastColumnIndex = 0;
 
         // If necessary, resize the scroll window to the new fetch size
@@ -6628,6 +7150,31 @@ public class SQLServerResultSet implements ISQLServerResultSet, java.io.Serializ
         }
     }
 
+    /**
+     * Requests the block of rows after the current one of a forward only, read only server cursor, so that the server
+     * fetches the rows while the application reads the current block. The response is read when the application
+     * reaches the end of the current block, or buffered if another command runs on the connection first. The blocks
+     * start at the fetch size and double with every block that is read to the end, up to cursorPrefetchMaxRows.
+     *
+     * Scrollable and updatable cursors do not prefetch: their relative fetches and positioned updates refer to the
+     * block at which the server cursor is positioned, which a prefetch would move.
+     */
+    private void prefetchNextBlock() throws SQLServerException {
+        int cursorPrefetchMaxRows = stmt.connection.getCursorPrefetchMaxRows();
+        if (0 == cursorPrefetchMaxRows || CONCUR_READ_ONLY != stmt.resultSetConcurrency)
+            return;
+
+        prefetchRows = Math.max(fetchSize, (int) Math.min(2L * prefetchRows, cursorPrefetchMaxRows));
+
+        // Server forward only cursors do not honor SET ROWCOUNT, so never fetch more than maxRows at once.
+        if (maxRows > 0)
+            prefetchRows = Math.min(prefetchRows, maxRows);
+
+        CursorFetchCommand cursorFetch = new CursorFetchCommand(serverCursorId, TDS.FETCH_NEXT, 0, prefetchRows, true);
+        stmt.executeCommand(cursorFetch);
+        prefetchedFetch = cursorFetch;
+    }
+
     /*
      * Checks for any LOBs which need to be available after the RS is closed, and loads their contents from stream into
      * memory. Closed LOBs will not be populated.
@@ -15,6 +15,10 @@ import java.util.HashMap;
 import java.util.Optional;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -303,6 +307,120 @@ class SQLServerSecurityUtility {
         return plainText;
     }
 
+    /*
+     * Decrypts several ciphertexts, such as the encrypted columns of one row. cipherTexts[i] is decrypted with the key
+     * of md[i]; null ciphertexts are skipped. Ciphertexts that share a cipher algorithm are decrypted in one call to it.
+     */
+    static byte[][] decryptWithKeys(byte[][] cipherTexts, CryptoMetadata[] md, SQLServerConnection connection,
+            SQLServerStatement statement) throws SQLServerException {
+        assert cipherTexts.length == md.length : "Each ciphertext needs its crypto metadata in DecryptWithKeys.";
+        String serverName = connection.getTrustedServerNameAE();
+        assert null != serverName : "serverName should not be null in DecryptWithKeys.";
+
+        // Initialize cipherAlgo if not already done.
+        for (int i = 0; i < cipherTexts.length; i++) {
+            if (null != cipherTexts[i] && !md[i].isAlgorithmInitialized()) {
+                SQLServerSecurityUtility.decryptSymmetricKey(md[i], connection, statement);
+            }
+        }
+
+        byte[][] plainTexts = new byte[cipherTexts.length][];
+        boolean[] done = new boolean[cipherTexts.length];
+        for (int i = 0; i < cipherTexts.length; i++) {
+            if (done[i] || null == cipherTexts[i])
+                continue;
+
+            SQLServerEncryptionAlgorithm cipherAlgorithm = md[i].cipherAlgorithm;
+            assert null != cipherAlgorithm : "Decryption Algorithm is not initialized";
+
+            // Collect the remaining ciphertexts that use the same algorithm, and so the same key.
+            int count = 0;
+            int[] indexes = new int[cipherTexts.length - i];
+            for (int j = i; j < cipherTexts.length; j++) {
+                if (!done[j] && null != cipherTexts[j] && cipherAlgorithm == md[j].cipherAlgorithm) {
+                    indexes[count++] = j;
+                    done[j] = true;
+                }
+            }
+
+            byte[][] group = new byte[count][];
+            for (int k = 0; k < count; k++) {
+                group[k] = cipherTexts[indexes[k]];
+            }
+            byte[][] decrypted = cipherAlgorithm.decryptData(group); // this call succeeds or throws.
+            for (int k = 0; k < count; k++) {
+                if (null == decrypted[k]) {
+                    throw new SQLServerException(null, SQLServerException.getErrString("R_PlainTextNullAE"), null, 0,
+                            false);
+                }
+                plainTexts[indexes[k]] = decrypted[k];
+            }
+        }
+
+        return plainTexts;
+    }
+
+    /*
+     * Decrypts several ciphertexts like decryptWithKeys, split into one part per processor. The executor decrypts all
+     * parts but the first, which is decrypted on the calling thread. Keys are decrypted on the calling thread before
+     * any part is started, since key store providers are not required to be thread safe.
+     */
+    static byte[][] decryptWithKeys(byte[][] cipherTexts, CryptoMetadata[] md, SQLServerConnection connection,
+            SQLServerStatement statement, Executor executor) throws SQLServerException {
+        int parts = Math.min(cipherTexts.length, Runtime.getRuntime().availableProcessors());
+        if (parts <= 1)
+            return decryptWithKeys(cipherTexts, md, connection, statement);
+
+        for (int i = 0; i < cipherTexts.length; i++) {
+            if (null != cipherTexts[i] && !md[i].isAlgorithmInitialized()) {
+                SQLServerSecurityUtility.decryptSymmetricKey(md[i], connection, statement);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        FutureTask<byte[][]>[] tasks = new FutureTask[parts];
+        for (int part = parts - 1; part >= 0; part--) {
+            int from = part * cipherTexts.length / parts;
+            int to = (part + 1) * cipherTexts.length / parts;
+            byte[][] partCipherTexts = Arrays.copyOfRange(cipherTexts, from, to);
+            CryptoMetadata[] partMd = Arrays.copyOfRange(md, from, to);
+            tasks[part] = new FutureTask<>(() -> decryptWithKeys(partCipherTexts, partMd, connection, statement));
+            if (0 == part) {
+                tasks[part].run();
+            } else {
+                try {
+                    executor.execute(tasks[part]);
+                } catch (RejectedExecutionException e) {
+                    tasks[part].run();
+                }
+            }
+        }
+
+        byte[][] plainTexts = new byte[cipherTexts.length][];
+        try {
+            for (int part = 0; part < parts; part++) {
+                byte[][] partPlainTexts = tasks[part].get();
+                System.arraycopy(partPlainTexts, 0, plainTexts, part * cipherTexts.length / parts,
+                        partPlainTexts.length);
+            }
+        } catch (InterruptedException e) {
+            // re-interrupt thread
+            Thread.currentThread().interrupt();
+
+            throw new SQLServerException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLServerException)
+                throw (SQLServerException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new SQLServerException(cause.getMessage(), cause);
+        }
+        return plainTexts;
+    }
+
     /*
      * Verify the signature for the CMK
      */
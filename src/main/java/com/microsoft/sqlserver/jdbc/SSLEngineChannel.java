@@ -0,0 +1,399 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+
+/**
+ * SSLEngineChannel implements TLS for the TDS channel with an {@link SSLEngine}.
+ *
+ * Network and application buffers are sized from the SSL session up front, so that a whole TDS packet is wrapped into
+ * its TLS records with one pass over the packet and sent with a single write, and received records are unwrapped
+ * straight out of the network buffer. The encrypted bytes travel over a pair of raw streams, which carry TDS-framed
+ * handshake messages during a TDS 7.x handshake, or over the channel transport, in which case the network buffers are
+ * direct and no intermediate copies are made.
+ *
+ * Reads are serialized by the caller (TDSChannel's input stream lock). Writes may be issued by the reader as well, to
+ * answer post-handshake messages, so they are serialized here.
+ */
+final class SSLEngineChannel {
+    /** Largest plaintext fragment a single TLS record can carry. */
+    private static final int MAX_RECORD_PLAINTEXT = 16 * 1024;
+
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    private final SSLEngine engine;
+    private final boolean isDirect;
+
+    // Raw transport for the encrypted bytes; the socket channel is used when set, otherwise the streams.
+    private TDSSocketChannel socketChannel;
+    private InputStream rawInputStream;
+    private OutputStream rawOutputStream;
+
+    // Buffers are kept ready for reading: position to limit is the data not consumed yet.
+    private ByteBuffer netInBuffer;
+    private ByteBuffer appInBuffer;
+
+    private ByteBuffer netOutBuffer;
+    private final Lock wrapLock = new ReentrantLock();
+
+    private final InputStream inputStream = new EngineInputStream();
+    private final OutputStream outputStream = new EngineOutputStream();
+
+    private final String traceID;
+
+    final public String toString() {
+        return traceID;
+    }
+
+    /**
+     * Creates a channel for the given client mode engine.
+     *
+     * @param isDirect
+     *        true to allocate the network buffers as direct buffers, for use with the channel transport
+     */
+    SSLEngineChannel(SSLEngine engine, boolean isDirect, String traceID) {
+        this.engine = engine;
+        this.isDirect = isDirect;
+        this.traceID = traceID + " (SSLEngineChannel)";
+
+        SSLSession session = engine.getSession();
+        netInBuffer = allocate(session.getPacketBufferSize(), isDirect);
+        appInBuffer = allocate(session.getApplicationBufferSize(), false);
+
+        // Room for all of the records of a maximum size TDS packet, so that each packet goes out in one write.
+        int recordsPerPacket = (TDS.MAX_PACKET_SIZE + MAX_RECORD_PLAINTEXT - 1) / MAX_RECORD_PLAINTEXT;
+        netOutBuffer = allocate(recordsPerPacket * session.getPacketBufferSize(), isDirect);
+        ((Buffer) netOutBuffer).clear();
+    }
+
+    final InputStream getInputStream() {
+        return inputStream;
+    }
+
+    final OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    final SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    final String getApplicationProtocol() {
+        return engine.getApplicationProtocol();
+    }
+
+    /**
+     * Sends and receives the encrypted bytes over a pair of streams.
+     */
+    final void setTransport(InputStream is, OutputStream os) {
+        socketChannel = null;
+        rawInputStream = is;
+        rawOutputStream = os;
+    }
+
+    /**
+     * Sends and receives the encrypted bytes over the channel transport.
+     */
+    final void setTransport(TDSSocketChannel channel) {
+        socketChannel = channel;
+        rawInputStream = null;
+        rawOutputStream = null;
+    }
+
+    /**
+     * Runs the TLS handshake to completion over the current transport.
+     */
+    final void handshake() throws IOException {
+        engine.beginHandshake();
+
+        HandshakeStatus status = engine.getHandshakeStatus();
+        while (HandshakeStatus.FINISHED != status && HandshakeStatus.NOT_HANDSHAKING != status) {
+            switch (status) {
+                case NEED_TASK:
+                    runDelegatedTasks();
+                    status = engine.getHandshakeStatus();
+                    break;
+
+                case NEED_WRAP:
+                    status = wrapHandshake();
+                    break;
+
+                default:
+                    SSLEngineResult result = unwrap();
+                    if (null == result)
+                        throw new IOException(SQLServerException.getErrString("R_truncatedServerResponse"));
+                    if (SSLEngineResult.Status.CLOSED == result.getStatus())
+                        throw new SSLException(SQLServerException.getErrString("R_socketClosed"));
+                    status = result.getHandshakeStatus();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads decrypted bytes, unwrapping another record when none are left over from the last one.
+     *
+     * @return the number of bytes read, or -1 at end of stream
+     */
+    final int read(byte[] data, int offset, int length) throws IOException {
+        if (0 == length)
+            return 0;
+
+        while (!appInBuffer.hasRemaining()) {
+            SSLEngineResult result = unwrap();
+            if (null == result || SSLEngineResult.Status.CLOSED == result.getStatus())
+                return -1;
+            completePostHandshake(result.getHandshakeStatus());
+        }
+
+        int bytesToCopy = Math.min(length, appInBuffer.remaining());
+        appInBuffer.get(data, offset, bytesToCopy);
+        return bytesToCopy;
+    }
+
+    final int available() {
+        return appInBuffer.remaining();
+    }
+
+    /**
+     * Encrypts and sends all remaining bytes of src. All of the records for src are produced before anything is sent,
+     * so a TDS packet goes out with one write.
+     */
+    final void write(ByteBuffer src) throws IOException {
+        write(new ByteBuffer[] {src});
+    }
+
+    /**
+     * Encrypts and sends all remaining bytes of srcs, in order, as if they were one buffer. The records are produced
+     * straight from the source buffers, so a packet split between a header buffer and a payload buffer is not copied
+     * into one before it is encrypted.
+     */
+    final void write(ByteBuffer[] srcs) throws IOException {
+        wrapLock.lock();
+        try {
+            while (TDSSocketChannel.hasRemaining(srcs)) {
+                ((Buffer) netOutBuffer).clear();
+                while (TDSSocketChannel.hasRemaining(srcs)) {
+                    SSLEngineResult result = engine.wrap(srcs, netOutBuffer);
+                    if (SSLEngineResult.Status.BUFFER_OVERFLOW == result.getStatus()) {
+                        // Send what has been produced so far, or make room for a record if nothing has.
+                        if (netOutBuffer.position() > 0)
+                            break;
+                        netOutBuffer = allocate(netOutBuffer.capacity() + engine.getSession().getPacketBufferSize(),
+                                isDirect);
+                        ((Buffer) netOutBuffer).clear();
+                    } else if (SSLEngineResult.Status.CLOSED == result.getStatus()) {
+                        throw new SSLException(SQLServerException.getErrString("R_socketClosed"));
+                    } else if (HandshakeStatus.NEED_TASK == result.getHandshakeStatus()) {
+                        runDelegatedTasks();
+                    }
+                }
+                ((Buffer) netOutBuffer).flip();
+                writeRaw(netOutBuffer);
+            }
+        } finally {
+            wrapLock.unlock();
+        }
+    }
+
+    /**
+     * Discards the engine without sending a close_notify. The caller closes or reuses the underlying transport.
+     */
+    final void close() {
+        engine.closeOutbound();
+    }
+
+    private HandshakeStatus wrapHandshake() throws IOException {
+        wrapLock.lock();
+        try {
+            SSLEngineResult result;
+            while (true) {
+                ((Buffer) netOutBuffer).clear();
+                result = engine.wrap(EMPTY_BUFFER, netOutBuffer);
+                if (SSLEngineResult.Status.BUFFER_OVERFLOW != result.getStatus())
+                    break;
+                netOutBuffer = allocate(netOutBuffer.capacity() + engine.getSession().getPacketBufferSize(),
+                        isDirect);
+            }
+
+            ((Buffer) netOutBuffer).flip();
+            if (netOutBuffer.hasRemaining())
+                writeRaw(netOutBuffer);
+
+            if (SSLEngineResult.Status.CLOSED == result.getStatus())
+                throw new SSLException(SQLServerException.getErrString("R_socketClosed"));
+
+            return result.getHandshakeStatus();
+        } finally {
+            wrapLock.unlock();
+        }
+    }
+
+    /**
+     * Answers handshake messages received after the initial handshake, such as TLS 1.3 key updates.
+     */
+    private void completePostHandshake(HandshakeStatus status) throws IOException {
+        while (true) {
+            if (HandshakeStatus.NEED_TASK == status) {
+                runDelegatedTasks();
+                status = engine.getHandshakeStatus();
+            } else if (HandshakeStatus.NEED_WRAP == status) {
+                status = wrapHandshake();
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unwraps the next record into the application buffer, reading from the transport as needed.
+     *
+     * @return the result of the unwrap, or null if the transport reached end of stream before a whole record arrived
+     */
+    private SSLEngineResult unwrap() throws IOException {
+        while (true) {
+            SSLEngineResult result;
+            appInBuffer.compact();
+            try {
+                result = engine.unwrap(netInBuffer, appInBuffer);
+            } finally {
+                ((Buffer) appInBuffer).flip();
+            }
+
+            switch (result.getStatus()) {
+                case BUFFER_UNDERFLOW:
+                    if (!fillNetInBuffer())
+                        return null;
+                    break;
+
+                case BUFFER_OVERFLOW:
+                    appInBuffer = grow(appInBuffer, engine.getSession().getApplicationBufferSize());
+                    break;
+
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private boolean fillNetInBuffer() throws IOException {
+        if (netInBuffer.remaining() == netInBuffer.capacity())
+            netInBuffer = grow(netInBuffer, engine.getSession().getPacketBufferSize());
+
+        int bytesRead;
+        netInBuffer.compact();
+        try {
+            bytesRead = readRaw(netInBuffer);
+        } finally {
+            ((Buffer) netInBuffer).flip();
+        }
+        return bytesRead >= 0;
+    }
+
+    private int readRaw(ByteBuffer dst) throws IOException {
+        if (null != socketChannel)
+            return socketChannel.read(dst);
+
+        if (dst.hasArray()) {
+            int bytesRead = rawInputStream.read(dst.array(), dst.arrayOffset() + ((Buffer) dst).position(),
+                    dst.remaining());
+            if (bytesRead > 0)
+                ((Buffer) dst).position(((Buffer) dst).position() + bytesRead);
+            return bytesRead;
+        }
+
+        byte[] bytes = new byte[dst.remaining()];
+        int bytesRead = rawInputStream.read(bytes, 0, bytes.length);
+        if (bytesRead > 0)
+            dst.put(bytes, 0, bytesRead);
+        return bytesRead;
+    }
+
+    private void writeRaw(ByteBuffer src) throws IOException {
+        if (null != socketChannel) {
+            socketChannel.write(src);
+        } else if (src.hasArray()) {
+            rawOutputStream.write(src.array(), src.arrayOffset() + ((Buffer) src).position(), src.remaining());
+            ((Buffer) src).position(((Buffer) src).limit());
+        } else {
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            rawOutputStream.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while (null != (task = engine.getDelegatedTask()))
+            task.run();
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean isDirect) {
+        ByteBuffer buffer = isDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        ((Buffer) buffer).flip(); // start out empty
+        return buffer;
+    }
+
+    /**
+     * Returns a copy of a buffer that is ready for reading, with room for at least extra more bytes.
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int extra) {
+        ByteBuffer grown = buffer.isDirect() ? ByteBuffer.allocateDirect(buffer.remaining() + extra)
+                                             : ByteBuffer.allocate(buffer.remaining() + extra);
+        grown.put(buffer);
+        ((Buffer) grown).flip();
+        return grown;
+    }
+
+    private final class EngineInputStream extends InputStream {
+        private final byte[] oneByte = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int bytesRead = SSLEngineChannel.this.read(oneByte, 0, 1);
+            return 1 == bytesRead ? (oneByte[0] & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return SSLEngineChannel.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return SSLEngineChannel.this.available();
+        }
+    }
+
+    private final class EngineOutputStream extends OutputStream {
+        private final byte[] oneByte = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            oneByte[0] = (byte) b;
+            SSLEngineChannel.this.write(ByteBuffer.wrap(oneByte));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            SSLEngineChannel.this.write(ByteBuffer.wrap(b, off, len));
+        }
+    }
+}
@@ -65,11 +65,22 @@ abstract class BaseInputStream extends InputStream {
         if (isAdaptive)
             clearCurrentMark();
         else
-            currentMark = tdsReader.mark();
+            setCurrentMark();
         this.dtv = dtv;
     }
 
+    /**
+     * Marks the current position of the TDSReader as the position to reset the stream to, releasing the previous mark.
+     * Until the stream is closed, the mark keeps the packets of the row it is read from out of the packet pool.
+     */
+    final void setCurrentMark() {
+        TDSReaderMark previousMark = currentMark;
+        currentMark = tdsReader.mark();
+        tdsReader.release(previousMark);
+    }
+
     final void clearCurrentMark() {
+        tdsReader.release(currentMark);
         currentMark = null;
         isReadLimitSet = false;
         if (isAdaptive && isStreaming)
@@ -82,6 +93,7 @@ abstract class BaseInputStream extends InputStream {
                 logger.finer(toString() + " closing the adaptive stream.");
             dtv.setPositionAfterStreamed(tdsReader);
         }
+        tdsReader.release(currentMark);
         currentMark = null;
         tdsReader = null;
         dtv = null;
@@ -325,7 +337,7 @@ final class SimpleInputStream extends BaseInputStream {
     @Override
     public void mark(int readLimit) {
         if (null != tdsReader && readLimit > 0) {
-            currentMark = tdsReader.mark();
+            setCurrentMark();
             markedStreamPos = streamPos;
             setReadLimit(readLimit);
         }
@@ -0,0 +1,218 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.microsoft.sqlserver.jdbc.SQLServerConnection.CityHash128Key;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection.PreparedStatementHandle;
+
+
+/**
+ * Counts the lookups in a connection's prepared statement handle cache and, in adaptive mode, chooses the capacity of
+ * the cache from them.
+ *
+ * The lookups are counted in windows of at least {@link #MIN_WINDOW_LOOKUPS} lookups, and at least as many lookups as
+ * the capacity. At the end of a window the capacity grows by a quarter if statements evicted shortly before had to be
+ * prepared again for a noticeable share of the lookups. Otherwise it shrinks when many cached statements were not used
+ * in the last two windows. The estimated client memory of the cached statements never exceeds the memory budget, and
+ * within the budget the capacity never drops below a quarter of the configured statementPoolingCacheSize.
+ */
+final class StatementHandleCacheSizer {
+    /** Minimum number of lookups before the capacity is adapted. */
+    static final int MIN_WINDOW_LOOKUPS = 100;
+
+    /**
+     * Estimated client memory of a cache entry besides its SQL text: the key with its hash, the handle, the cache nodes
+     * and the cached parameter metadata reference.
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    // The capacity grows when more than one in GROW_REPREPARE_RATIO lookups prepares a recently evicted statement.
+    private static final int GROW_REPREPARE_RATIO = 16;
+
+    // The number of evicted keys kept for each entry of the cache.
+    private static final int EVICTED_KEYS_PER_ENTRY = 4;
+
+    private final int minCapacity;
+    private final long memoryBudgetBytes;
+    private volatile int capacity;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder reprepareCount = new LongAdder();
+
+    private final AtomicInteger windowLookups = new AtomicInteger();
+    private final AtomicInteger windowReprepares = new AtomicInteger();
+    private volatile int window;
+
+    private final Lock lock = new ReentrantLock();
+    // Guarded by lock: the keys of recently evicted statements and the average estimated size of an entry. More keys
+    // than the capacity are kept, so that a statement evicted from a cache that is much too small is still recognized.
+    private final Map<CityHash128Key, Boolean> evictedKeys = new LinkedHashMap<CityHash128Key, Boolean>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CityHash128Key, Boolean> eldest) {
+            return size() > EVICTED_KEYS_PER_ENTRY * capacity;
+        }
+    };
+    private long averageEntryBytes = ENTRY_OVERHEAD_BYTES;
+
+    /**
+     * Creates a sizer for a cache with the configured capacity.
+     *
+     * @param configuredCapacity
+     *        the statementPoolingCacheSize
+     * @param memoryBudgetBytes
+     *        the memory budget of the cached statements, or 0 to keep the configured capacity
+     */
+    StatementHandleCacheSizer(int configuredCapacity, long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.minCapacity = Math.max(1, configuredCapacity / 4);
+        this.capacity = isAdaptive() ? boundCapacity(configuredCapacity) : configuredCapacity;
+    }
+
+    boolean isAdaptive() {
+        return memoryBudgetBytes > 0;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /** Returns the number of the current window, for recording when a cached statement was last used. */
+    int getWindow() {
+        return window;
+    }
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /** Returns the number of lookups that missed a statement evicted shortly before. */
+    long getReprepareCount() {
+        return reprepareCount.sum();
+    }
+
+    static int estimateEntryBytes(CityHash128Key key) {
+        return ENTRY_OVERHEAD_BYTES + 2 * key.unhashedString.length();
+    }
+
+    // Must be called with the lock held, or from the constructor.
+    private int getBudgetCapacity() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudgetBytes / averageEntryBytes));
+    }
+
+    // Must be called with the lock held, or from the constructor.
+    private int boundCapacity(int newCapacity) {
+        return Math.min(getBudgetCapacity(), Math.max(minCapacity, newCapacity));
+    }
+
+    void recordHit() {
+        hitCount.increment();
+        windowLookups.incrementAndGet();
+    }
+
+    void recordMiss(CityHash128Key key) {
+        missCount.increment();
+        windowLookups.incrementAndGet();
+        if (isAdaptive()) {
+            boolean evicted;
+            lock.lock();
+            try {
+                evicted = null != evictedKeys.remove(key);
+            } finally {
+                lock.unlock();
+            }
+            if (evicted) {
+                reprepareCount.increment();
+                windowReprepares.incrementAndGet();
+            }
+        }
+    }
+
+    void recordEviction(CityHash128Key key) {
+        evictionCount.increment();
+        if (isAdaptive()) {
+            lock.lock();
+            try {
+                evictedKeys.put(key, Boolean.TRUE);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    void recordEntry(CityHash128Key key) {
+        if (isAdaptive()) {
+            lock.lock();
+            try {
+                // moving average of the last few dozen entries
+                averageEntryBytes += (estimateEntryBytes(key) - averageEntryBytes) / 16;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ends the current window if it is long enough and chooses the capacity for the next one.
+     *
+     * @param entries
+     *        the cached statements
+     * @return the new capacity, or 0 if the capacity stays as it is
+     */
+    int adapt(Iterable<PreparedStatementHandle> entries) {
+        int currentCapacity = capacity;
+        if (!isAdaptive() || windowLookups.get() < Math.max(MIN_WINDOW_LOOKUPS, currentCapacity) || !lock.tryLock()) {
+            return 0;
+        }
+        try {
+            int lookups = windowLookups.getAndSet(0);
+            int reprepares = windowReprepares.getAndSet(0);
+            int currentWindow = window;
+            window = currentWindow + 1;
+
+            int newCapacity = currentCapacity;
+            if (reprepares * GROW_REPREPARE_RATIO > lookups) {
+                newCapacity = currentCapacity + Math.max(1, currentCapacity / 4);
+            } else {
+                int unused = 0;
+                for (PreparedStatementHandle entry : entries) {
+                    if (entry.getLastUseWindow() < currentWindow - 1) {
+                        unused++;
+                    }
+                }
+                if (unused > currentCapacity / 4) {
+                    newCapacity = currentCapacity - unused / 2;
+                }
+            }
+            newCapacity = boundCapacity(newCapacity);
+            if (newCapacity == currentCapacity) {
+                return 0;
+            }
+            capacity = newCapacity;
+            return newCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * A bounded cache for values that are expensive to compute and shared by all connections, such as parsed SQL text.
+ * This is the cache the driver uses unless an application plugs in its own {@link ISQLServerCacheFactory}.
+ *
+ * The entries are spread over independent segments by key hash. Each segment looks its entries up in a
+ * ConcurrentHashMap, so a lookup never takes a lock. Lookups are recorded in a small per segment ring buffer and
+ * applied to the eviction policy later by whichever thread gets the segment lock; when the buffer is full the
+ * recording is simply dropped. Only inserts take the segment lock.
+ *
+ * Eviction follows W-TinyLFU: a new entry first goes to a small LRU window. An entry leaving the window is admitted to
+ * the main space, a segmented LRU with probation and protected parts, only if a count-min sketch of recent accesses
+ * says it is used more often than the entry it would replace. This keeps a burst of one-time statements from flushing
+ * out the statements an application runs all the time.
+ *
+ * Each segment holds at least one entry, so the capacity is only approximate for capacities below the number of
+ * segments.
+ */
+final class StripedTinyLfuCache<K, V> implements ISQLServerCache<K, V> {
+    /** Upper bound of the number of segments. */
+    static final int MAX_SEGMENTS = 16;
+
+    /** Number of recorded lookups a segment buffers before they are applied to its eviction policy. */
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    /** Share of a segment's capacity used for the admission window, in percent. */
+    private static final int WINDOW_PERCENT = 1;
+
+    /** Share of the main space used for the protected part, in percent. */
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private volatile int capacity;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder contentionCount = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    StripedTinyLfuCache(int capacity) {
+        int segmentCount = ceilingPowerOfTwo(
+                Math.min(MAX_SEGMENTS, Runtime.getRuntime().availableProcessors()));
+        segments = new Segment[segmentCount];
+        segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(this);
+        }
+        setCapacity(capacity);
+    }
+
+    private static int ceilingPowerOfTwo(int n) {
+        return (n <= 1) ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /*
+     * Spreads the bits of the key's hash code, so that keys whose hash codes only differ in the high bits still land in
+     * different segments and sketch counters.
+     */
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    @Override
+    public V get(K key) {
+        int hash = spread(key);
+        Segment<K, V> segment = segmentFor(hash);
+        Node<K, V> node = segment.map.get(key);
+        if (null == node) {
+            missCount.increment();
+            segment.recordMiss(hash);
+            return null;
+        }
+        hitCount.increment();
+        segment.recordHit(node);
+        return node.value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        int hash = spread(key);
+        return segmentFor(hash).putIfAbsent(key, hash, value);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int hash = spread(key);
+        segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Changes the maximum number of entries. Entries above the new capacity are evicted right away.
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity");
+        }
+        this.capacity = capacity;
+        int segmentCapacity = capacity / segments.length;
+        int remainder = capacity % segments.length;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].setCapacity(Math.max(1, segmentCapacity + ((i < remainder) ? 1 : 0)));
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    int getSegmentCount() {
+        return segments.length;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /** Returns the number of entries removed to stay within the capacity, including rejected new entries. */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns how often a thread had to wait for a segment lock, plus the number of lookups that were not applied to
+     * the eviction policy because the segment's ring buffer was full.
+     */
+    @Override
+    public long getContentionCount() {
+        return contentionCount.sum();
+    }
+
+    // Which part of the segment's eviction policy a node is in.
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte REMOVED = 3;
+
+    private static final class Node<K, V> {
+        final K key;
+        final int hash;
+        final V value;
+
+        // The following fields are guarded by the segment lock.
+        byte queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    /** Doubly linked list of nodes in access order, least recently used first. Guarded by the segment lock. */
+    private static final class AccessQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int size;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (null == tail) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            if (null == node.prev) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (null == node.next) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * A count-min sketch of how often keys were accessed, with four 4-bit counters per key packed into longs. All
+     * counters are halved once the number of increments reaches ten times the capacity, so that the sketch follows
+     * changes in the workload. Guarded by the segment lock.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(int capacity) {
+            int length = ceilingPowerOfTwo(Math.max(8, capacity));
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = 10 * capacity;
+        }
+
+        private int indexOf(int hash, int depth) {
+            long h = (hash + SEEDS[depth]) * SEEDS[depth];
+            h += h >>> 32;
+            return ((int) h) & tableMask;
+        }
+
+        int frequency(int hash) {
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int depth = 0; depth < 4; depth++) {
+                int shift = (start + depth) << 2;
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, depth)] >>> shift) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int depth = 0; depth < 4; depth++) {
+                int index = indexOf(hash, depth);
+                int shift = (start + depth) << 2;
+                long mask = 0xfL << shift;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++size >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                size >>>= 1;
+            }
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private final StripedTinyLfuCache<K, V> cache;
+        final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /*
+         * Lookups not yet applied to the eviction policy. A node records a hit, a key hash wrapped in an Integer
+         * records a miss, which only counts towards the key's frequency.
+         */
+        private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong readBufferWriteCount = new AtomicLong();
+        private volatile long readBufferReadCount;
+
+        // The following fields are guarded by the lock.
+        private final AccessQueue<K, V> window = new AccessQueue<>();
+        private final AccessQueue<K, V> probation = new AccessQueue<>();
+        private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+        private FrequencySketch sketch;
+        private int maximum;
+        private int maximumWindow;
+        private int maximumProtected;
+
+        Segment(StripedTinyLfuCache<K, V> cache) {
+            this.cache = cache;
+        }
+
+        private void lock() {
+            if (!lock.tryLock()) {
+                cache.contentionCount.increment();
+                lock.lock();
+            }
+        }
+
+        void setCapacity(int capacity) {
+            lock();
+            try {
+                maximum = capacity;
+                maximumWindow = Math.max(1, capacity * WINDOW_PERCENT / 100);
+                maximumProtected = (capacity - maximumWindow) * PROTECTED_PERCENT / 100;
+                if (null == sketch || sketch.table.length < capacity) {
+                    sketch = new FrequencySketch(capacity);
+                }
+                drainReadBuffer();
+                while (protectedQueue.size > maximumProtected) {
+                    demote(protectedQueue.head);
+                }
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordHit(Node<K, V> node) {
+            record(node);
+        }
+
+        void recordMiss(int hash) {
+            record(hash);
+        }
+
+        private void record(Object access) {
+            long writeCount = readBufferWriteCount.get();
+            long pending = writeCount - readBufferReadCount;
+            if (pending < READ_BUFFER_SIZE && readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+                readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), access);
+                if (pending + 1 >= READ_BUFFER_DRAIN_THRESHOLD) {
+                    tryDrain();
+                }
+            } else {
+                // The buffer is full or another thread won the slot: drop the recording.
+                cache.contentionCount.increment();
+                tryDrain();
+            }
+        }
+
+        private void tryDrain() {
+            if (lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drainReadBuffer() {
+            long readCount = readBufferReadCount;
+            long writeCount = readBufferWriteCount.get();
+            for (; readCount < writeCount; readCount++) {
+                int index = (int) (readCount & READ_BUFFER_MASK);
+                Object access = readBuffer.get(index);
+                if (null == access) {
+                    // The slot was claimed but is not published yet. It is drained next time.
+                    break;
+                }
+                readBuffer.lazySet(index, null);
+                if (access instanceof Node) {
+                    onHit((Node<K, V>) access);
+                } else {
+                    sketch.increment((Integer) access);
+                }
+            }
+            readBufferReadCount = readCount;
+        }
+
+        private void onHit(Node<K, V> node) {
+            sketch.increment(node.hash);
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    probation.remove(node);
+                    node.queue = PROTECTED;
+                    protectedQueue.addLast(node);
+                    while (protectedQueue.size > maximumProtected) {
+                        demote(protectedQueue.head);
+                    }
+                    break;
+                case PROTECTED:
+                    protectedQueue.moveToLast(node);
+                    break;
+                default:
+                    // evicted since the lookup
+                    break;
+            }
+        }
+
+        private void demote(Node<K, V> node) {
+            protectedQueue.remove(node);
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+
+        V putIfAbsent(K key, int hash, V value) {
+            Node<K, V> node = new Node<>(key, hash, value);
+            lock();
+            try {
+                // Drained first: a lookup may find the new node as soon as it is in the map, but it must be linked into
+                // the window before a drain can apply that lookup.
+                drainReadBuffer();
+                Node<K, V> existing = map.putIfAbsent(key, node);
+                if (null != existing) {
+                    return existing.value;
+                }
+                node.queue = WINDOW;
+                window.addLast(node);
+                evict();
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(K key, int hash, V value) {
+            Node<K, V> node = new Node<>(key, hash, value);
+            lock();
+            try {
+                drainReadBuffer();
+                Node<K, V> replaced = map.put(key, node);
+                if (null != replaced) {
+                    unlink(replaced);
+                }
+                node.queue = WINDOW;
+                window.addLast(node);
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /*
+         * Moves the entries that overflow the window to probation as candidates, then, while the segment is over its
+         * capacity, evicts either the candidate or the least recently used probation entry, whichever the sketch
+         * considers less frequently used.
+         */
+        private void evict() {
+            Node<K, V> candidate = null;
+            while (window.size > maximumWindow) {
+                Node<K, V> node = window.head;
+                window.remove(node);
+                node.queue = PROBATION;
+                probation.addLast(node);
+                if (null == candidate) {
+                    candidate = node;
+                }
+            }
+
+            while (window.size + probation.size + protectedQueue.size > maximum) {
+                Node<K, V> victim = probation.head;
+                if (null == victim) {
+                    victim = (protectedQueue.size > 0) ? protectedQueue.head : window.head;
+                } else if (null != candidate && candidate != victim
+                        && sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+                    // The candidate is not used more often than the entry it would replace, so it is rejected.
+                    Node<K, V> rejected = candidate;
+                    candidate = candidate.next;
+                    victim = rejected;
+                } else if (candidate == victim) {
+                    candidate = candidate.next;
+                }
+                remove(victim);
+            }
+        }
+
+        private void remove(Node<K, V> node) {
+            unlink(node);
+            map.remove(node.key, node);
+            cache.evictionCount.increment();
+        }
+
+        private void unlink(Node<K, V> node) {
+            switch (node.queue) {
+                case WINDOW:
+                    window.remove(node);
+                    break;
+                case PROBATION:
+                    probation.remove(node);
+                    break;
+                default:
+                    protectedQueue.remove(node);
+                    break;
+            }
+            node.queue = REMOVED;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * TDSSocketChannel implements the TDS channel transport over a non-blocking {@link SocketChannel}.
+ *
+ * Reads fill a direct receive buffer in bulk, so that a TDS packet header and its payload (and usually several whole
+ * packets) are returned by a single read from the socket. Writes are sent from direct buffers, either the caller's own
+ * or a direct send buffer the caller's bytes are copied into.
+ *
+ * Reads through {@link #getInputStream()} still copy every byte once, from the receive buffer into the heap array of
+ * the TDS packet, as a socket stream read copies once from the native buffer of the JDK. Only
+ * {@link #read(ByteBuffer)} reads from the socket straight into the caller's buffer; SSLEngineChannel reads the
+ * encrypted bytes that way into its direct network buffer, so with TLS the decryption is the only copy.
+ *
+ * The channel is used in non-blocking mode so that reads can honor the socket timeout of the underlying socket, which
+ * blocking SocketChannel reads ignore. The timeout is read from {@link Socket#getSoTimeout()} on every wait, so the
+ * existing code that sets the socket timeout (login timeout, socket timeout, network timeout, connection polling)
+ * works unchanged.
+ */
+final class TDSSocketChannel {
+    /** Size of the direct receive buffer. Large enough to hold a couple of maximum-size TDS packets. */
+    static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
+
+    /** Size of the direct send buffer used for writes from heap byte arrays. */
+    static final int SEND_BUFFER_SIZE = TDS.MAX_PACKET_SIZE + 1;
+
+    private final SocketChannel channel;
+    private final Socket socket;
+
+    // Separate selectors so that a write (e.g. an attention) can wait while another thread waits for a read.
+    private final Selector readSelector;
+    private final Selector writeSelector;
+
+    private final ByteBuffer receiveBuffer;
+    private final ByteBuffer sendBuffer;
+
+    private final InputStream inputStream = new ChannelInputStream();
+    private final OutputStream outputStream = new ChannelOutputStream();
+
+    private final String traceID;
+
+    final public String toString() {
+        return traceID;
+    }
+
+    TDSSocketChannel(SocketChannel channel, String traceID) throws IOException {
+        this.channel = channel;
+        this.socket = channel.socket();
+        this.traceID = traceID + " (TDSSocketChannel)";
+
+        Selector rs = null;
+        Selector ws = null;
+        try {
+            rs = Selector.open();
+            ws = Selector.open();
+            channel.configureBlocking(false);
+            channel.register(rs, SelectionKey.OP_READ);
+            channel.register(ws, SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            closeSelector(rs);
+            closeSelector(ws);
+            throw e;
+        }
+        this.readSelector = rs;
+        this.writeSelector = ws;
+
+        receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        ((Buffer) receiveBuffer).flip(); // start out empty
+        sendBuffer = ByteBuffer.allocateDirect(SEND_BUFFER_SIZE);
+    }
+
+    final InputStream getInputStream() {
+        return inputStream;
+    }
+
+    final OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Reads up to length bytes, blocking until at least one byte is available, the socket timeout expires or the peer
+     * closes the connection.
+     *
+     * @return the number of bytes read, or -1 at end of stream
+     */
+    final int read(byte[] data, int offset, int length) throws IOException {
+        if (0 == length)
+            return 0;
+
+        if (!receiveBuffer.hasRemaining()) {
+            ((Buffer) receiveBuffer).clear();
+            int bytesRead;
+            try {
+                bytesRead = fill(receiveBuffer);
+            } finally {
+                ((Buffer) receiveBuffer).flip();
+            }
+            if (bytesRead < 0)
+                return -1;
+        }
+
+        int bytesToCopy = Math.min(length, receiveBuffer.remaining());
+        receiveBuffer.get(data, offset, bytesToCopy);
+        return bytesToCopy;
+    }
+
+    /**
+     * Reads into the remaining space of dst, blocking until at least one byte is available, the socket timeout expires
+     * or the peer closes the connection. Bytes already received are returned first; otherwise the read goes straight
+     * from the socket into dst.
+     *
+     * @return the number of bytes read, or -1 at end of stream
+     */
+    final int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining())
+            return 0;
+
+        if (receiveBuffer.hasRemaining()) {
+            int bytesToCopy = Math.min(dst.remaining(), receiveBuffer.remaining());
+            ByteBuffer src = receiveBuffer.duplicate();
+            ((Buffer) src).limit(src.position() + bytesToCopy);
+            dst.put(src);
+            ((Buffer) receiveBuffer).position(receiveBuffer.position() + bytesToCopy);
+            return bytesToCopy;
+        }
+
+        return fill(dst);
+    }
+
+    /**
+     * Returns the number of bytes that have been received but not yet read.
+     */
+    final int available() {
+        return receiveBuffer.remaining();
+    }
+
+    private int fill(ByteBuffer dst) throws IOException {
+        long deadline = 0;
+        while (true) {
+            int bytesRead = channel.read(dst);
+            if (0 != bytesRead)
+                return bytesRead;
+
+            // Nothing available yet. Wait for the socket to become readable.
+            int timeout = socket.getSoTimeout();
+            if (0 != timeout && 0 == deadline)
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            await(readSelector, deadline);
+        }
+    }
+
+    /**
+     * Writes length bytes of data through the direct send buffer.
+     */
+    final void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            int bytesToCopy = Math.min(length, sendBuffer.capacity());
+            ((Buffer) sendBuffer).clear();
+            sendBuffer.put(data, offset, bytesToCopy);
+            ((Buffer) sendBuffer).flip();
+            write(sendBuffer);
+            offset += bytesToCopy;
+            length -= bytesToCopy;
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of src. When src is a direct buffer, no copy is made.
+     */
+    final void write(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            if (0 == channel.write(src))
+                await(writeSelector, 0);
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of srcs, in order, with gathering writes. Direct buffers are written without a copy.
+     */
+    final void write(ByteBuffer[] srcs) throws IOException {
+        while (hasRemaining(srcs)) {
+            if (0 == channel.write(srcs))
+                await(writeSelector, 0);
+        }
+    }
+
+    static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the channel to become ready on the given selector.
+     *
+     * @param deadline
+     *        System.nanoTime() value by which the channel must be ready, or 0 to wait indefinitely
+     */
+    private void await(Selector selector, long deadline) throws IOException {
+        try {
+            if (0 == deadline) {
+                selector.select();
+            } else {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0)
+                    throw new SocketTimeoutException(SQLServerException.getErrString("R_readTimedOut"));
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+            }
+            selector.selectedKeys().clear();
+        } catch (ClosedSelectorException e) {
+            throw new SocketException(SQLServerException.getErrString("R_socketClosed"));
+        }
+
+        if (!channel.isOpen())
+            throw new SocketException(SQLServerException.getErrString("R_socketClosed"));
+    }
+
+    /**
+     * Releases the selectors. The socket itself is closed by the owning TDSChannel.
+     */
+    final void close() {
+        closeSelector(readSelector);
+        closeSelector(writeSelector);
+    }
+
+    private static void closeSelector(Selector selector) {
+        if (null != selector) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing to clean up beyond this point.
+            }
+        }
+    }
+
+    private final class ChannelInputStream extends InputStream {
+        private final byte[] oneByte = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int bytesRead = TDSSocketChannel.this.read(oneByte, 0, 1);
+            return 1 == bytesRead ? (oneByte[0] & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return TDSSocketChannel.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return TDSSocketChannel.this.available();
+        }
+
+        @Override
+        public void close() {
+            TDSSocketChannel.this.close();
+        }
+    }
+
+    private final class ChannelOutputStream extends OutputStream {
+        private final byte[] oneByte = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            oneByte[0] = (byte) b;
+            TDSSocketChannel.this.write(oneByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            TDSSocketChannel.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            TDSSocketChannel.this.close();
+        }
+    }
+}
@@ -283,6 +283,52 @@ final class DTV {
                 statement);
     }
 
+    /**
+     * Returns whether the DTV's current value comes from the server, so that it can be read with getLongValue or
+     * getDoubleValue.
+     */
+    final boolean isServerValue() {
+        return null == impl || impl instanceof ServerDTVImpl;
+    }
+
+    /**
+     * Returns the DTV's current value, an unencrypted BIT, TINYINT, SMALLINT, INTEGER or BIGINT value from the server,
+     * as a long. Returns 0 if the value is null.
+     */
+    final long getLongValue(TypeInfo typeInfo, TDSReader tdsReader) throws SQLServerException {
+        if (null == impl)
+            impl = acquireServerImpl();
+        return ((ServerDTVImpl) impl).getLongValue(typeInfo, tdsReader);
+    }
+
+    /**
+     * Returns the DTV's current value, an unencrypted REAL or FLOAT value from the server, as a double. Returns 0 if the
+     * value is null.
+     */
+    final double getDoubleValue(TypeInfo typeInfo, TDSReader tdsReader) throws SQLServerException {
+        if (null == impl)
+            impl = acquireServerImpl();
+        return ((ServerDTVImpl) impl).getDoubleValue(typeInfo, tdsReader);
+    }
+
+    /**
+     * Returns the DTV's current value, an encrypted value from the server, as the cipher text read from the response.
+     * Returns null if the value is null.
+     */
+    final byte[] getCipherText(TypeInfo typeInfo, TDSReader tdsReader) throws SQLServerException {
+        if (null == impl)
+            impl = acquireServerImpl();
+        return ((ServerDTVImpl) impl).getCipherText(typeInfo, tdsReader);
+    }
+
+    /**
+     * Sets the plain text of the DTV's current value, an encrypted value from the server, so that getValue does not
+     * need to decrypt it.
+     */
+    final void setDecryptedValue(byte[] decryptedValue) {
+        ((ServerDTVImpl) impl).setDecryptedValue(decryptedValue);
+    }
+
     Object getSetterValue() {
         return impl.getSetterValue();
     }
@@ -1930,7 +1976,11 @@ final class DTV {
                     break;
 
                 case INPUTSTREAM:
-                    op.execute(this, (InputStream) value);
+                    // A ByteBuffer value is sent from a new stream every time, so it is still set after an execution.
+                    if (value instanceof ByteBufferInputStream)
+                        op.execute(this, ((ByteBufferInputStream) value).newStream());
+                    else
+                        op.execute(this, (InputStream) value);
                     break;
 
                 case READER:
@@ -3346,6 +3396,8 @@ final class ServerDTVImpl extends DTVImpl {
     private TDSReaderMark valueMark;
     private boolean isNull;
     private SqlVariant internalVariant;
+    // plain text of an encrypted value, when it was decrypted before getValue was called
+    private byte[] decryptedValue;
 
     /**
      * Resets all wire-side state (length, mark, null indicator, SQL_VARIANT context) so this instance can be reused
@@ -3357,6 +3409,7 @@ final class ServerDTVImpl extends DTVImpl {
         valueMark = null;
         isNull = false;
         internalVariant = null;
+        decryptedValue = null;
     }
 
     /**
@@ -3383,7 +3436,7 @@ final class ServerDTVImpl extends DTVImpl {
     // whole value of the stream has been consumed.
     // Note this only to be used by the streams returned to the user.
     void setPositionAfterStreamed(TDSReader tdsReader) {
-        valueMark = tdsReader.mark();
+        valueMark = tdsReader.markInRow();
         valueLength = STREAMCONSUMED;
     }
 
@@ -3540,7 +3593,7 @@ final class ServerDTVImpl extends DTVImpl {
         if (valueLength > typeInfo.getMaxLength())
             tdsReader.throwInvalidTDS();
 
-        valueMark = tdsReader.mark();
+        valueMark = tdsReader.markInRow();
     }
 
     Object denormalizedValue(byte[] decryptedValue, JDBCType jdbcType, TypeInfo baseTypeInfo, SQLServerConnection con,
@@ -3761,6 +3814,103 @@ final class ServerDTVImpl extends DTVImpl {
         }
     }
 
+    /**
+     * Reads an unencrypted BIT, TINYINT, SMALLINT, INTEGER or BIGINT value without converting it to an object. Returns
+     * 0 if the value is null; isNull() tells the two apart.
+     */
+    long getLongValue(TypeInfo typeInfo, TDSReader tdsReader) throws SQLServerException {
+        if (null == valueMark && !isNull)
+            getValuePrep(typeInfo, tdsReader);
+
+        if (isNull)
+            return 0;
+
+        tdsReader.reset(valueMark);
+        switch (valueLength) {
+            case 8:
+                return tdsReader.readLong();
+            case 4:
+                return tdsReader.readInt();
+            case 2:
+                return tdsReader.readShort();
+            case 1:
+                return tdsReader.readUnsignedByte();
+            default:
+                tdsReader.throwInvalidTDS();
+                return 0;
+        }
+    }
+
+    /**
+     * Reads an unencrypted REAL or FLOAT value without converting it to an object. Returns 0 if the value is null;
+     * isNull() tells the two apart.
+     */
+    double getDoubleValue(TypeInfo typeInfo, TDSReader tdsReader) throws SQLServerException {
+        if (null == valueMark && !isNull)
+            getValuePrep(typeInfo, tdsReader);
+
+        if (isNull)
+            return 0;
+
+        tdsReader.reset(valueMark);
+        switch (valueLength) {
+            case 8:
+                return Double.longBitsToDouble(tdsReader.readLong());
+            case 4:
+                return Float.intBitsToFloat(tdsReader.readInt());
+            default:
+                tdsReader.throwInvalidTDS();
+                return 0;
+        }
+    }
+
+    /**
+     * Reads the cipher text of an encrypted value from the current position of the TDS reader.
+     */
+    private byte[] readCipherText(TypeInfo typeInfo, TDSReader tdsReader,
+            InputStreamGetterArgs streamGetterArgs) throws SQLServerException {
+        Object convertedValue;
+        if (DataTypes.UNKNOWN_STREAM_LENGTH == valueLength) {
+            convertedValue = DDC.convertStreamToObject(PLPInputStream.makeStream(tdsReader, streamGetterArgs, this),
+                    typeInfo, JDBCType.VARBINARY, streamGetterArgs);
+        } else {
+            convertedValue = DDC.convertStreamToObject(
+                    new SimpleInputStream(tdsReader, valueLength, streamGetterArgs, this), typeInfo,
+                    JDBCType.VARBINARY, streamGetterArgs);
+        }
+
+        aeLogger.fine("Encrypted data is retrieved.");
+
+        // AE does not support streaming types
+        if ((convertedValue instanceof SimpleInputStream) || (convertedValue instanceof PLPInputStream)) {
+            throw new SQLServerException(SQLServerException.getErrString("R_notSupported"), null);
+        }
+        return (byte[]) convertedValue;
+    }
+
+    /**
+     * Returns the cipher text of an encrypted value, or null if the value is null.
+     */
+    byte[] getCipherText(TypeInfo typeInfo, TDSReader tdsReader) throws SQLServerException {
+        if (null == valueMark && (!isNull))
+            getValuePrep(typeInfo, tdsReader);
+
+        if (isNull)
+            return null;
+
+        if (STREAMCONSUMED == valueLength) {
+            throw new SQLServerException(null, SQLServerException.getErrString("R_dataAlreadyAccessed"), null, 0,
+                    false);
+        }
+
+        tdsReader.reset(valueMark);
+        return readCipherText(typeInfo, tdsReader, InputStreamGetterArgs.getDefaultArgs());
+    }
+
+    void setDecryptedValue(byte[] decryptedValue) {
+        this.decryptedValue = decryptedValue;
+    }
+
     Object getValue(DTV dtv, JDBCType jdbcType, int scale, InputStreamGetterArgs streamGetterArgs, Calendar cal,
             TypeInfo typeInfo, CryptoMetadata cryptoMetadata, TDSReader tdsReader,
             SQLServerStatement statement) throws SQLServerException {
@@ -3822,25 +3972,14 @@ final class ServerDTVImpl extends DTVImpl {
             tdsReader.reset(valueMark);
 
             if (encrypted) {
-                if (DataTypes.UNKNOWN_STREAM_LENGTH == valueLength) {
-                    convertedValue = DDC.convertStreamToObject(
-                            PLPInputStream.makeStream(tdsReader, streamGetterArgs, this), typeInfo, JDBCType.VARBINARY,
-                            streamGetterArgs);
+                // Use the plain text if the value was already decrypted, unless a stream was asked for: AE does not
+                // support streaming types, and reading the cipher text fails for them below.
+                if (null != this.decryptedValue && StreamType.NONE == streamGetterArgs.streamType) {
+                    decryptedValue = this.decryptedValue;
                 } else {
-                    convertedValue = DDC.convertStreamToObject(
-                            new SimpleInputStream(tdsReader, valueLength, streamGetterArgs, this), typeInfo,
-                            JDBCType.VARBINARY, streamGetterArgs);
+                    decryptedValue = SQLServerSecurityUtility.decryptWithKey(
+                            readCipherText(typeInfo, tdsReader, streamGetterArgs), cryptoMetadata, con, statement);
                 }
-
-                aeLogger.fine("Encrypted data is retrieved.");
-
-                // AE does not support streaming types
-                if ((convertedValue instanceof SimpleInputStream) || (convertedValue instanceof PLPInputStream)) {
-                    throw new SQLServerException(SQLServerException.getErrString("R_notSupported"), null);
-                }
-
-                decryptedValue = SQLServerSecurityUtility.decryptWithKey((byte[]) convertedValue, cryptoMetadata, con,
-                        statement);
                 return denormalizedValue(decryptedValue, jdbcType, cryptoMetadata.baseTypeInfo, con, streamGetterArgs,
                         cryptoMetadata.normalizationRuleVersion, cal);
             }
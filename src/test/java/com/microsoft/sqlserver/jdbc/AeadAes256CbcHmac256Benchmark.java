@@ -0,0 +1,131 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Measures how many Always Encrypted cells per second AEAD_AES_256_CBC_HMAC_SHA256 decrypts. decryptWithNewInstances
+ * creates the Cipher and Mac objects for every cell, as the driver used to do; decrypt reuses them one cell at a time
+ * and decryptRow decrypts all cells of a row in one call.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.microsoft.sqlserver.jdbc.AeadAes256CbcHmac256Benchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AeadAes256CbcHmac256Benchmark {
+
+    static final int CELLS_PER_ROW = 8;
+
+    /** Length of the plain text of each cell, e.g. an int, a short string or a longer string. */
+    @Param({"4", "32", "256"})
+    public int cellLength;
+
+    private SQLServerAeadAes256CbcHmac256EncryptionKey key;
+    private SQLServerAeadAes256CbcHmac256Algorithm algorithm;
+    private byte[][] row;
+
+    @Setup
+    public void setup() throws SQLServerException {
+        Random random = new Random(0);
+        byte[] rootKey = new byte[32];
+        random.nextBytes(rootKey);
+        key = new SQLServerAeadAes256CbcHmac256EncryptionKey(rootKey,
+                SQLServerAeadAes256CbcHmac256Algorithm.AEAD_AES_256_CBC_HMAC_SHA256);
+        algorithm = new SQLServerAeadAes256CbcHmac256Algorithm(key, SQLServerEncryptionType.RANDOMIZED, (byte) 0x01);
+
+        row = new byte[CELLS_PER_ROW][];
+        for (int i = 0; i < CELLS_PER_ROW; i++) {
+            byte[] plainText = new byte[cellLength];
+            random.nextBytes(plainText);
+            row[i] = algorithm.encryptData(plainText);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS_PER_ROW)
+    public void decryptWithNewInstances(Blackhole blackhole) throws Exception {
+        for (byte[] cell : row) {
+            blackhole.consume(decryptWithNewInstances(cell));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS_PER_ROW)
+    public void decrypt(Blackhole blackhole) throws SQLServerException {
+        for (byte[] cell : row) {
+            blackhole.consume(algorithm.decryptData(cell));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS_PER_ROW)
+    public void decryptRow(Blackhole blackhole) throws SQLServerException {
+        blackhole.consume(algorithm.decryptData(row));
+    }
+
+    /*
+     * Decrypts a cell the way the driver did before the Cipher and Mac objects were reused: version byte,
+     * authentication tag, IV and cipher text, with new Cipher and Mac objects and keys for every cell.
+     */
+    private byte[] decryptWithNewInstances(byte[] cipherText) throws Exception {
+        int tagLength = SQLServerAeadAes256CbcHmac256EncryptionKey.KEYSIZE_IN_BYTES;
+        int ivOffset = 1 + tagLength;
+        int cipherTextOffset = ivOffset + 16;
+
+        Mac hmac = Mac.getInstance("HmacSHA256");
+        hmac.init(new SecretKeySpec(key.getMacKey(), "HmacSHA256"));
+        hmac.update(cipherText, 0, 1);
+        hmac.update(cipherText, ivOffset, 16);
+        hmac.update(cipherText, cipherTextOffset, cipherText.length - cipherTextOffset);
+        hmac.update(new byte[] {1}, 0, 1);
+        byte[] tag = new byte[tagLength];
+        System.arraycopy(cipherText, 1, tag, 0, tagLength);
+        if (!MessageDigest.isEqual(tag, hmac.doFinal())) {
+            throw new IllegalStateException("authentication tag mismatch");
+        }
+
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key.getEncryptionKey(), "AES"),
+                new IvParameterSpec(cipherText, ivOffset, 16));
+        return cipher.doFinal(cipherText, cipherTextOffset, cipherText.length - cipherTextOffset);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AeadAes256CbcHmac256Benchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -30,6 +30,8 @@ import com.azure.identity.ClientSecretCredentialBuilder;
 
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -399,6 +401,36 @@ public class JDBCEncryptionDecryptionTest extends AESetup {
         }
     }
 
+    /**
+     * Junit test case for reading encrypted char columns that are decrypted in parallel by a column decryption executor
+     * 
+     * @throws SQLException
+     */
+    @ParameterizedTest
+    @MethodSource("enclaveParams")
+    public void testCharParallelColumnDecryption(String serverName, String url, String protocol) throws Exception {
+        setAEConnectionString(serverName, url, protocol);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (SQLServerConnection con = PrepUtil.getConnection(AETestConnectionString, AEInfo);
+                SQLServerStatement stmt = (SQLServerStatement) con.createStatement()) {
+            String[] values = createCharValues(nullable);
+
+            testChars(stmt, cekJks, charTable, values, TestCase.NORMAL, false);
+
+            try (SQLServerResultSet rs = (SQLServerResultSet) stmt.executeQuery("select * from " + CHAR_TABLE_AE)) {
+                rs.setColumnDecryptionExecutor(executor);
+                int numberOfColumns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    AECommon.testGetString(rs, numberOfColumns, values);
+                    AECommon.testGetObject(rs, numberOfColumns, values);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /** Builds a deterministic ASCII string of the given length: char i == 'A' + (i % 26). */
     private static String makeBoundaryString(int length) {
         StringBuilder sb = new StringBuilder(length);
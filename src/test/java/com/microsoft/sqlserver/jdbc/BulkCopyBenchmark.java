@@ -0,0 +1,162 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Measures how many bulk copies of {@link #rowCount} rows per second SQLServerBulkCopy sends to a
+ * {@link MockTdsServer}. The server answers the destination metadata queries and INSERT BULK, so most of the time is
+ * spent encoding the rows.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.microsoft.sqlserver.jdbc.BulkCopyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkCopyBenchmark {
+
+    static final String TABLE_NAME = "BenchmarkTable";
+
+    @Param({"10000"})
+    public int rowCount;
+
+    /** Number of threads that encode the rows ahead of the thread that sends them, 0 to encode them as they are sent */
+    @Param({"0", "2"})
+    public int encodingThreads;
+
+    private MockTdsServer server;
+    private Connection connection;
+
+    /**
+     * Generates the rows of the bulk copy: an int, a float and a string column.
+     */
+    static final class RowSource implements ISQLServerBulkData {
+        private static final long serialVersionUID = 1L;
+
+        private final int rowCount;
+        private int row;
+
+        RowSource(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            return new LinkedHashSet<>(Arrays.asList(1, 2, 3));
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return (1 == column) ? "id" : (2 == column) ? "price" : "name";
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return (1 == column) ? Types.INTEGER : (2 == column) ? Types.DOUBLE : Types.NVARCHAR;
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            return (3 == column) ? 50 : 0;
+        }
+
+        @Override
+        public int getScale(int column) {
+            return 0;
+        }
+
+        @Override
+        public Object[] getRowData() {
+            return new Object[] {row, row + 0.5, "name " + row};
+        }
+
+        @Override
+        public boolean next() {
+            return ++row <= rowCount;
+        }
+    }
+
+    /** Returns the replies of a server with the destination table of {@link RowSource} */
+    static MockTdsServer.Responder bulkCopyResponder(int rowCount) {
+        byte[] destinationMetadata = new TdsTokenStream()
+                .colMetadata(TdsTokenStream.intColumn("id"), TdsTokenStream.floatColumn("price"),
+                        TdsTokenStream.nvarcharColumn("name", 50))
+                .done(TDS.DONE_FINAL, 0).toByteArray();
+        byte[] columnProperties = new TdsTokenStream()
+                .colMetadata(TdsTokenStream.nvarcharColumn("collation_name", 128),
+                        TdsTokenStream.bitColumn("is_computed"))
+                .row(null, false).row(null, false).row("Latin1_General_CI_AS", false).done(TDS.DONE_COUNT, 3)
+                .toByteArray();
+        byte[] bulkLoadDone = new TdsTokenStream().done(TDS.DONE_COUNT, rowCount).toByteArray();
+        byte[] done = new TdsTokenStream().done(TDS.DONE_FINAL, 0).toByteArray();
+        return request -> {
+            if (TDS.PKT_BULK == request.getType()) {
+                return bulkLoadDone;
+            }
+            String sql = request.getSQLText();
+            if (null != sql && sql.contains("SET FMTONLY ON")) {
+                return destinationMetadata;
+            } else if (null != sql && sql.startsWith("select collation_name")) {
+                return columnProperties;
+            }
+            return done;
+        };
+    }
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        server = new MockTdsServer(bulkCopyResponder(rowCount));
+        connection = DriverManager.getConnection(server.getURL());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void writeToServer() throws SQLException {
+        try (SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection)) {
+            bulkCopy.setDestinationTableName(TABLE_NAME);
+            bulkCopy.getBulkCopyOptions().setEncodingThreads(encodingThreads);
+            bulkCopy.writeToServer(new RowSource(rowCount));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BulkCopyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
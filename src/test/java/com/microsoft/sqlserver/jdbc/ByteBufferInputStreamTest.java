@@ -0,0 +1,121 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the InputStream adapter used for ByteBuffer parameter values, and ByteBuffer parameters sent to the
+ * mock TDS server.
+ */
+class ByteBufferInputStreamTest {
+
+    private static ByteBuffer directBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    void testReadsBetweenPositionAndLimit() {
+        ByteBuffer value = ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6});
+        value.position(1);
+        value.limit(5);
+
+        ByteBufferInputStream stream = new ByteBufferInputStream(value);
+        assertEquals(4, stream.length(), TestResource.getResource("R_valuesAreDifferent"));
+
+        byte[] bytes = new byte[10];
+        assertEquals(4, stream.read(bytes, 0, bytes.length), TestResource.getResource("R_valuesAreDifferent"));
+        assertArrayEquals(new byte[] {2, 3, 4, 5}, Arrays.copyOf(bytes, 4));
+        assertEquals(-1, stream.read(), TestResource.getResource("R_valuesAreDifferent"));
+
+        // The application's buffer is not moved.
+        assertEquals(1, value.position(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(5, value.limit(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testTakeRemainingAfterRead() {
+        ByteBuffer value = directBuffer(new byte[] {10, 20, (byte) 200, 40});
+        ByteBufferInputStream stream = new ByteBufferInputStream(value);
+
+        assertEquals(10, stream.read(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, stream.skip(1), TestResource.getResource("R_valuesAreDifferent"));
+
+        ByteBuffer remaining = stream.takeRemaining();
+        assertEquals(2, remaining.remaining(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals((byte) 200, remaining.get(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, stream.available(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(-1, stream.read(new byte[1], 0, 1), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, value.position(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testNewStreamAfterRead() {
+        ByteBufferInputStream stream = new ByteBufferInputStream(directBuffer(new byte[] {1, 2, 3}));
+        assertEquals(3, stream.takeRemaining().remaining(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ByteBufferInputStream newStream = stream.newStream();
+        assertEquals(3, newStream.length(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, newStream.read(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(2, newStream.available(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(3, stream.newStream().available(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    private static boolean contains(byte[] payload, byte[] value) {
+        for (int i = 0; i + value.length <= payload.length; i++) {
+            if (Arrays.equals(value, Arrays.copyOfRange(payload, i, i + value.length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testExecuteAgain() throws Exception {
+        // A value of several packets, sent from a direct buffer
+        byte[] bytes = new byte[3 * TDS.MIN_PACKET_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        AtomicInteger valueCount = new AtomicInteger();
+        try (MockTdsServer server = new MockTdsServer(request -> {
+            if (contains(request.getPayload(), bytes)) {
+                valueCount.incrementAndGet();
+            }
+            return MockTdsServer.rpcReply(request, 1);
+        })) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            try (Connection connection = DriverManager.getConnection(server.getURL() + ";useSocketChannel=true");
+                    PreparedStatement statement = connection.prepareStatement("UPDATE t SET data = ?")) {
+                ByteBuffer value = directBuffer(bytes);
+                statement.unwrap(ISQLServerPreparedStatement.class).setBytes(1, value);
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(1, statement.executeUpdate(), TestResource.getResource("R_valuesAreDifferent"));
+                }
+                statement.setObject(1, value);
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(1, statement.executeUpdate(), TestResource.getResource("R_valuesAreDifferent"));
+                }
+                assertEquals(0, value.position(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+            assertEquals(5, valueCount.get(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+}
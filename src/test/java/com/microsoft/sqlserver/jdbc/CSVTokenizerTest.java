@@ -0,0 +1,177 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.sqlserver.testframework.TestResource;
+
+
+/**
+ * Splits delimited text with {@link CSVTokenizer} and reads it with SQLServerBulkCSVFileRecord, without a server.
+ */
+class CSVTokenizerTest {
+
+    private static List<List<String>> records(String text, String delimiter, boolean escapeDelimiters)
+            throws Exception {
+        CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(text), delimiter);
+        List<List<String>> records = new ArrayList<>();
+        while (tokenizer.nextRecord(escapeDelimiters)) {
+            tokenizer.splitFields();
+            records.add(Arrays.asList(tokenizer.getFields()));
+        }
+        return records;
+    }
+
+    @Test
+    void testLineBreaks() throws Exception {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", ""), Arrays.asList(""),
+                Arrays.asList("d")), records("a,b\r\nc,\r\n\nd", ",", false),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b")), records("a\rb\n", ",", false),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(Arrays.asList(Arrays.asList("", "a", "", "")), records("||a||||", "||", false),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testEscapedDelimiters() throws Exception {
+        assertEquals(Arrays.asList(Arrays.asList("1", "a,\r\nb", "say \"hi\""), Arrays.asList("2", "", "c")),
+                records("1,\"a,\r\nb\", \"say \"\"hi\"\"\" \n2,,c", ",", true),
+                TestResource.getResource("R_valuesAreDifferent"));
+
+        // The double quotes of a field have to enclose it.
+        assertThrows(SQLServerException.class, () -> records("1,a\"b\"\n", ",", true));
+        // A field still between double quotes at the end of the input is not valid.
+        assertThrows(SQLServerException.class, () -> records("1,\"a\n", ",", true));
+    }
+
+    @Test
+    void testLongRecords() throws Exception {
+        // Records longer than the buffer, with line breaks between reads of the reader
+        char[] value = new char[200000];
+        Arrays.fill(value, 'x');
+        String field = new String(value);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            text.append(i).append(',').append(field).append("\r\n");
+        }
+        List<List<String>> records = records(text.toString(), ",", true);
+        assertEquals(3, records.size(), TestResource.getResource("R_valuesAreDifferent"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Arrays.asList(Integer.toString(i), field), records.get(i),
+                    TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testNumbers() throws Exception {
+        CSVTokenizer tokenizer = new CSVTokenizer(
+                new StringReader("-42,+7,123456789012345678,1234567890123456789,1.5, 2.25 ,"), ",");
+        assertTrue(tokenizer.nextRecord(false), TestResource.getResource("R_valuesAreDifferent"));
+        tokenizer.splitFields();
+        assertEquals(-42L, tokenizer.getLongField(0), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(7L, tokenizer.getLongField(1), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(123456789012345678L, tokenizer.getLongField(2), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(CSVTokenizer.NOT_A_LONG, tokenizer.getLongField(3),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(CSVTokenizer.NOT_A_LONG, tokenizer.getLongField(4),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(new BigDecimal("2.25"), tokenizer.getBigDecimalField(5),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertTrue(tokenizer.isEmpty(6), TestResource.getResource("R_valuesAreDifferent"));
+        assertFalse(tokenizer.nextRecord(false), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testFileRecordRowData() throws Exception {
+        String csv = "id,amount,price,name,active\n1,9000000000,12.5,\"a, b\",1\n2,,3,c,0\n";
+        try (SQLServerBulkCSVFileRecord fileRecord = new SQLServerBulkCSVFileRecord(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "UTF-8", ",", true)) {
+            fileRecord.setEscapeColumnDelimitersCSV(true);
+            fileRecord.addColumnMetadata(1, null, Types.INTEGER, 0, 0);
+            fileRecord.addColumnMetadata(2, null, Types.BIGINT, 0, 0);
+            fileRecord.addColumnMetadata(3, null, Types.DECIMAL, 10, 2);
+            fileRecord.addColumnMetadata(4, null, Types.VARCHAR, 10, 0);
+            fileRecord.addColumnMetadata(5, null, Types.BIT, 0, 0);
+
+            assertTrue(fileRecord.next(), TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new Object[] {1, 9000000000L, new BigDecimal("12.50"), "a, b", true},
+                    fileRecord.getRowData(), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(fileRecord.next(), TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new Object[] {2, null, new BigDecimal("3.00"), "c", false}, fileRecord.getRowData(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(fileRecord.next(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    private static List<String> rows(String file, int parsingThreads) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (SQLServerBulkCSVFileRecord fileRecord = new SQLServerBulkCSVFileRecord(file, "UTF-8", ",", true)) {
+            fileRecord.setEscapeColumnDelimitersCSV(true);
+            fileRecord.setParsingThreads(parsingThreads);
+            fileRecord.addColumnMetadata(1, null, Types.INTEGER, 0, 0);
+            fileRecord.addColumnMetadata(2, null, Types.VARCHAR, 50, 0);
+            fileRecord.addColumnMetadata(3, null, Types.DECIMAL, 10, 2);
+            while (fileRecord.next()) {
+                try {
+                    rows.add(Arrays.toString(fileRecord.getRowData()));
+                } catch (SQLServerException e) {
+                    rows.add(e.getMessage());
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void testParsingThreads() throws Exception {
+        // Enough records for several chunks, with line breaks and double quotes in fields and a row that fails
+        StringBuilder text = new StringBuilder("id,name,amount\r\n");
+        for (int i = 0; text.length() < 3 * ParallelCSVReader.CHUNK_BYTES; i++) {
+            text.append(i).append(',');
+            text.append((0 == i % 3) ? "\"caf\u00e9,\r\n\"\"" + i + "\"\"\"" : "plain " + i);
+            text.append(',').append((50000 == i) ? "x" : i + ".5").append((0 == i % 2) ? "\r\n" : "\n");
+        }
+        File file = File.createTempFile("parsingThreads", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<String> rows = rows(file.getPath(), 0);
+        assertEquals(rows, rows(file.getPath(), 3), TestResource.getResource("R_valuesAreDifferent"));
+
+        // The threads of the pipeline come from the daemon thread pool shared by all pipelines.
+        int pipelineThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(OrderedChunkPipeline.THREAD_PREFIX)) {
+                assertTrue(thread.isDaemon(), TestResource.getResource("R_valuesAreDifferent"));
+                pipelineThreads++;
+            }
+        }
+        assertTrue(0 < pipelineThreads && pipelineThreads <= OrderedChunkPipeline.MAX_THREADS,
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals("[0, caf\u00e9,\r\n\"0\", 0.50]", rows.get(0), TestResource.getResource("R_valuesAreDifferent"));
+        assertTrue(rows.get(50000).contains("'x'"), TestResource.getResource("R_valuesAreDifferent"));
+        assertTrue(file.delete(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
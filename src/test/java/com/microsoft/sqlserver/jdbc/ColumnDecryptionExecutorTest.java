@@ -0,0 +1,148 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Reads Always Encrypted columns with a column decryption executor against the mock TDS server, from a table whose
+ * last column is plain text after the encrypted ones.
+ */
+class ColumnDecryptionExecutorTest {
+
+    private static final String KEY_STORE_NAME = "MOCK_KEY_STORE";
+    private static final byte[] ROOT_KEY = new byte[32];
+
+    static {
+        new Random(13).nextBytes(ROOT_KEY);
+    }
+
+    /** A key store provider that decrypts every column encryption key to the root key */
+    private static final class KeyStoreProvider extends SQLServerColumnEncryptionKeyStoreProvider {
+        private String name = KEY_STORE_NAME;
+
+        @Override
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public byte[] decryptColumnEncryptionKey(String masterKeyPath, String encryptionAlgorithm,
+                byte[] encryptedColumnEncryptionKey) {
+            return ROOT_KEY.clone();
+        }
+
+        @Override
+        public byte[] encryptColumnEncryptionKey(String masterKeyPath, String encryptionAlgorithm,
+                byte[] columnEncryptionKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean verifyColumnMasterKeyMetadata(String masterKeyPath, boolean allowEnclaveComputations,
+                byte[] signature) {
+            return true;
+        }
+    }
+
+    private static byte[] encrypt(SQLServerAeadAes256CbcHmac256Algorithm algorithm, byte[] plainText)
+            throws SQLServerException {
+        return algorithm.encryptData(plainText);
+    }
+
+    private static byte[] encrypt(SQLServerAeadAes256CbcHmac256Algorithm algorithm, String value)
+            throws SQLServerException {
+        return encrypt(algorithm, value.getBytes(StandardCharsets.UTF_16LE));
+    }
+
+    // Integers are normalized to bigint before they are encrypted.
+    private static byte[] encrypt(SQLServerAeadAes256CbcHmac256Algorithm algorithm, long value)
+            throws SQLServerException {
+        return encrypt(algorithm, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array());
+    }
+
+    private static byte[] rows() throws SQLServerException {
+        SQLServerAeadAes256CbcHmac256Algorithm algorithm = new SQLServerAeadAes256CbcHmac256Algorithm(
+                new SQLServerAeadAes256CbcHmac256EncryptionKey(ROOT_KEY,
+                        SQLServerAeadAes256CbcHmac256Algorithm.AEAD_AES_256_CBC_HMAC_SHA256),
+                SQLServerEncryptionType.RANDOMIZED, (byte) 0x01);
+        return new TdsTokenStream().cekTable(new byte[] {1, 2, 3}, KEY_STORE_NAME, "mock/key")
+                .colMetadata(TdsTokenStream.intColumn("id"),
+                        TdsTokenStream.encryptedColumn(TdsTokenStream.nvarcharColumn("name", 50)),
+                        TdsTokenStream.encryptedColumn(TdsTokenStream.bigintColumn("amount")),
+                        TdsTokenStream.nvarcharColumn("note", 50))
+                .row(1, encrypt(algorithm, "alice"), encrypt(algorithm, 100L), "first")
+                .row(2, null, encrypt(algorithm, -5L), "second")
+                .row(3, encrypt(algorithm, "carol"), null, null).done(TDS.DONE_COUNT, 3).toByteArray();
+    }
+
+    private static void assertRow(SQLServerResultSet rs, int id, String name, Long amount, String note)
+            throws Exception {
+        assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+
+        // The plain text column after the encrypted ones is read first.
+        assertEquals(note, rs.getString("note"), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(name, rs.getString("name"), TestResource.getResource("R_valuesAreDifferent"));
+        if (null == amount) {
+            assertNull(rs.getObject("amount"), TestResource.getResource("R_valuesAreDifferent"));
+        } else {
+            assertEquals(amount.longValue(), rs.getLong("amount"), TestResource.getResource("R_valuesAreDifferent"));
+        }
+        assertEquals(id, rs.getInt("id"), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(note, rs.getString(4), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testPlainTextLastColumn() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(rows()))) {
+            server.setColumnEncryption(true);
+            try (Connection connection = DriverManager
+                    .getConnection(server.getURL() + ";columnEncryptionSetting=Enabled");
+                    Statement statement = connection.createStatement()) {
+                connection.unwrap(SQLServerConnection.class).registerColumnEncryptionKeyStoreProvidersOnConnection(
+                        Collections.singletonMap(KEY_STORE_NAME, new KeyStoreProvider()));
+
+                // With and without the executor, which decrypts all columns of a row on the first getter
+                for (boolean parallel : new boolean[] {true, false}) {
+                    try (SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t")) {
+                        if (parallel) {
+                            rs.setColumnDecryptionExecutor(executor);
+                        }
+                        assertRow(rs, 1, "alice", 100L, "first");
+                        assertRow(rs, 2, null, -5L, "second");
+                        assertRow(rs, 3, "carol", null, null);
+                        assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the per-host connect latency history used by the staggered parallel connect mode.
+ */
+class ConnectLatencyHistoryTest {
+
+    private static InetAddress address(int lastByte) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) lastByte});
+    }
+
+    @Test
+    void testOrdersByRecentLatency() throws UnknownHostException {
+        ConnectLatencyHistory history = new ConnectLatencyHistory(ConnectLatencyHistory.MAX_HOSTS);
+        InetAddress[] addresses = {address(1), address(2), address(3), address(4)};
+
+        // Nothing is known yet, so the resolved order is kept.
+        assertArrayEquals(addresses, history.order("server", 1433, addresses));
+
+        history.recordFailure("server", 1433, address(1));
+        history.recordSuccess("server", 1433, address(3), TimeUnit.MILLISECONDS.toNanos(20));
+        history.recordSuccess("server", 1433, address(4), TimeUnit.MILLISECONDS.toNanos(5));
+
+        // Fastest first, then unknown, then failed. Host names are not case sensitive.
+        assertArrayEquals(new InetAddress[] {address(4), address(3), address(2), address(1)},
+                history.order("SERVER", 1433, addresses));
+
+        // Another port of the same host has its own history.
+        assertArrayEquals(addresses, history.order("server", 1434, addresses));
+
+        // A failed address is moved back once it connects again.
+        history.recordSuccess("server", 1433, address(1), TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(address(1), history.order("server", 1433, addresses)[0],
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testAttemptDelay() throws UnknownHostException {
+        ConnectLatencyHistory history = new ConnectLatencyHistory(ConnectLatencyHistory.MAX_HOSTS);
+
+        assertEquals(ConnectLatencyHistory.DEFAULT_ATTEMPT_DELAY_MS,
+                history.getAttemptDelayMillis("server", 1433, address(1)),
+                TestResource.getResource("R_valuesAreDifferent"));
+
+        history.recordSuccess("server", 1433, address(1), TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(ConnectLatencyHistory.MIN_ATTEMPT_DELAY_MS,
+                history.getAttemptDelayMillis("server", 1433, address(1)),
+                TestResource.getResource("R_valuesAreDifferent"));
+
+        history.recordSuccess("server", 1433, address(2), TimeUnit.MILLISECONDS.toNanos(60));
+        assertEquals(120, history.getAttemptDelayMillis("server", 1433, address(2)),
+                TestResource.getResource("R_valuesAreDifferent"));
+
+        history.recordFailure("server", 1433, address(2));
+        assertEquals(ConnectLatencyHistory.DEFAULT_ATTEMPT_DELAY_MS,
+                history.getAttemptDelayMillis("server", 1433, address(2)),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testForgetsLeastRecentlyUsedHost() throws UnknownHostException {
+        ConnectLatencyHistory history = new ConnectLatencyHistory(2);
+        InetAddress[] addresses = {address(1), address(2)};
+
+        history.recordSuccess("a", 1433, address(2), 1);
+        history.recordSuccess("b", 1433, address(2), 1);
+        history.order("a", 1433, addresses);
+        history.recordSuccess("c", 1433, address(2), 1);
+
+        // "b" was used least recently, so it was forgotten.
+        assertArrayEquals(addresses, history.order("b", 1433, addresses));
+        assertEquals(address(2), history.order("a", 1433, addresses)[0],
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Measures how many queries, updates and logins per second concurrent connections get from a {@link MockTdsServer}
+ * that delays every reply by {@link #latencyMicros}, like a server across a network. With a latency the throughput
+ * shows how well the driver overlaps the round trips of the connections; without one it shows the CPU cost of the
+ * driver per request.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.microsoft.sqlserver.jdbc.ConnectionThroughputBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ConnectionThroughputBenchmark {
+
+    static final String QUERY = "SELECT id, name, price FROM BenchmarkTable WHERE id > ?";
+    static final String UPDATE = "UPDATE BenchmarkTable SET price = ? WHERE id = ?";
+
+    /** Latency of every reply of the server, in microseconds */
+    @Param({"0", "500"})
+    public long latencyMicros;
+
+    private MockTdsServer server;
+
+    /**
+     * The connection and prepared statements of a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        Connection connection;
+        PreparedStatement query;
+        PreparedStatement update;
+
+        @Setup
+        public void setup(ConnectionThroughputBenchmark benchmark) throws SQLException {
+            connection = DriverManager.getConnection(benchmark.server.getURL());
+            query = connection.prepareStatement(QUERY);
+            update = connection.prepareStatement(UPDATE);
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        Object[][] rows = new Object[10][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[] {i, "name " + i, i + 0.5};
+        }
+        server = new MockTdsServer(new MockTdsServer.Script()
+                .onQuery("SELECT id, name, price FROM BenchmarkTable",
+                        new TdsTokenStream.Column[] {TdsTokenStream.intColumn("id"),
+                                TdsTokenStream.nvarcharColumn("name", 50), TdsTokenStream.floatColumn("price")},
+                        rows)
+                .onUpdate("UPDATE BenchmarkTable", 1));
+        server.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public void query(ThreadState state, Blackhole blackhole) throws SQLException {
+        state.query.setInt(1, 0);
+        try (ResultSet rs = state.query.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(rs.getInt(1));
+                blackhole.consume(rs.getString(2));
+                blackhole.consume(rs.getDouble(3));
+            }
+        }
+    }
+
+    @Benchmark
+    public int update(ThreadState state) throws SQLException {
+        state.update.setDouble(1, 1.5);
+        state.update.setInt(2, 42);
+        return state.update.executeUpdate();
+    }
+
+    @Benchmark
+    public boolean connect() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(server.getURL())) {
+            return connection.isClosed();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ConnectionThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
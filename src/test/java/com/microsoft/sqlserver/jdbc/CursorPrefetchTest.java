@@ -0,0 +1,146 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Reads a forward only server cursor in several sp_cursorfetch blocks against the mock TDS server, with and without
+ * requesting the next block ahead.
+ */
+class CursorPrefetchTest {
+
+    private static final int ROW_COUNT = 100;
+    private static final int FETCH_SIZE = 10;
+    private static final int CURSOR_ID = 42;
+
+    /**
+     * A server cursor over ROW_COUNT rows, which records the number of rows requested by each sp_cursorfetch.
+     */
+    private static final class Cursor implements MockTdsServer.Responder {
+        final List<Integer> fetches = new CopyOnWriteArrayList<>();
+        private int position;
+
+        @Override
+        public synchronized byte[] respond(MockTdsServer.Request request) {
+            TdsTokenStream reply = new TdsTokenStream();
+            if (TDS.PROCID_SP_CURSOROPEN == request.getProcId()) {
+                position = 0;
+                reply.colMetadata(TdsTokenStream.intColumn("id"), TdsTokenStream.nvarcharColumn("name", 20),
+                        TdsTokenStream.intColumn("ROWSTAT")).doneInProc(TDS.DONE_MORE, 0).returnStatus(0)
+                        .returnValue(0, CURSOR_ID).returnValue(4, -1);
+            } else if (TDS.PROCID_SP_CURSORFETCH == request.getProcId()) {
+                // The number of rows is the last parameter.
+                byte[] payload = request.getPayload();
+                int numRows = (payload[payload.length - 4] & 0xFF) | (payload[payload.length - 3] & 0xFF) << 8
+                        | (payload[payload.length - 2] & 0xFF) << 16 | (payload[payload.length - 1] & 0xFF) << 24;
+                fetches.add(numRows);
+                reply.colMetadata(TdsTokenStream.intColumn("id"), TdsTokenStream.nvarcharColumn("name", 20),
+                        TdsTokenStream.intColumn("ROWSTAT"));
+                int start = position;
+                int end = Math.min(position + numRows, ROW_COUNT);
+                for (; position < end; position++) {
+                    reply.row(position, "row" + position, TDS.ROWSTAT_FETCH_SUCCEEDED);
+                }
+                reply.doneInProc(TDS.DONE_COUNT, end - start).returnStatus(0);
+            } else if (TDS.PKT_RPC != request.getType()) {
+                return reply.done(TDS.DONE_FINAL, 0).toByteArray();
+            } else {
+                reply.returnStatus(0);
+            }
+            return reply.doneProc(TDS.DONE_FINAL).toByteArray();
+        }
+    }
+
+    /**
+     * Reads the rows of the cursor and checks at the first row of each block that the next block has been requested
+     * if the blocks are prefetched, and not otherwise.
+     */
+    private static Cursor readRows(String properties, boolean prefetched) throws Exception {
+        Cursor cursor = new Cursor();
+        try (MockTdsServer server = new MockTdsServer(cursor);
+                Connection connection = DriverManager
+                        .getConnection(server.getURL() + ";selectMethod=cursor" + properties);
+                Statement statement = connection.createStatement()) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery("SELECT id, name FROM t")) {
+                int block = 0;
+                int blockEnd = 0;
+                for (int i = 0; i < ROW_COUNT; i++) {
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    if (i == blockEnd) {
+                        // The request of a prefetch is sent, but may not have been received yet.
+                        int requested = block + (prefetched ? 2 : 1);
+                        long deadline = System.currentTimeMillis() + 5000;
+                        while (cursor.fetches.size() < requested && System.currentTimeMillis() < deadline) {
+                            Thread.sleep(1);
+                        }
+                        assertEquals(requested, cursor.fetches.size(),
+                                TestResource.getResource("R_valuesAreDifferent"));
+                        blockEnd += cursor.fetches.get(block++);
+                    }
+                    assertEquals(i, rs.getInt(1), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals("row" + i, rs.getString(2), TestResource.getResource("R_valuesAreDifferent"));
+                }
+                assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+        return cursor;
+    }
+
+    @Test
+    void testPrefetch() throws Exception {
+        Cursor cursor = readRows(";cursorPrefetchMaxRows=40", true);
+        // The prefetched blocks double up to cursorPrefetchMaxRows; the last one finds no more rows.
+        assertEquals(Arrays.asList(10, 10, 20, 40, 40, 40), cursor.fetches,
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testCloseWithPrefetchPending() throws Exception {
+        Cursor cursor = new Cursor();
+        try (MockTdsServer server = new MockTdsServer(cursor);
+                Connection connection = DriverManager
+                        .getConnection(server.getURL() + ";selectMethod=cursor;cursorPrefetchMaxRows=40");
+                Statement statement = connection.createStatement()) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery("SELECT id, name FROM t")) {
+                for (int i = 0; i < FETCH_SIZE + 1; i++) {
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                }
+            }
+
+            // The reply to the pending prefetch does not get mixed up with the replies of the next statement.
+            try (ResultSet rs = statement.executeQuery("SELECT id, name FROM t")) {
+                for (int i = 0; i < ROW_COUNT; i++) {
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals(i, rs.getInt(1), TestResource.getResource("R_valuesAreDifferent"));
+                }
+                assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+
+    @Test
+    void testNoPrefetch() throws Exception {
+        Cursor cursor = readRows("", false);
+        assertEquals(ROW_COUNT / FETCH_SIZE + 1, cursor.fetches.size(),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the Calendar-free conversion of DATETIMEOFFSET values to java.time.OffsetDateTime.
+ */
+class DateTimeOffsetConversionTest {
+
+    private static int daysIntoCE(int year, int month, int day) {
+        return (int) ChronoUnit.DAYS.between(LocalDate.of(1, 1, 1), LocalDate.of(year, month, day));
+    }
+
+    private static Object convertWithCalendar(int utcDaysIntoCE, long utcNanosSinceMidnight,
+            int minutesOffset) throws SQLServerException {
+        return DDC.convertTemporalToObject(null, JDBCType.OFFSETDATETIME, SSType.DATETIMEOFFSET,
+                new GregorianCalendar(new SimpleTimeZone(minutesOffset * 60 * 1000, ""), Locale.US), utcDaysIntoCE,
+                utcNanosSinceMidnight, 7);
+    }
+
+    @Test
+    void testOffsetDateTime() {
+        OffsetDateTime value = (OffsetDateTime) DDC.convertDateTimeOffsetToJavaTime(null, JDBCType.OFFSETDATETIME,
+                daysIntoCE(2024, 2, 29), 23L * 3600 * Nanos.PER_SECOND + 1234500, 90);
+
+        // The UTC parts are moved to the value's own offset, into the next day.
+        assertEquals(OffsetDateTime.of(2024, 3, 1, 0, 30, 0, 1234500, ZoneOffset.ofHoursMinutes(1, 30)), value,
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testSameAsCalendarConversion() throws SQLServerException {
+        int[][] dates = {{1583, 1, 1}, {1900, 1, 1}, {1970, 1, 1}, {2000, 2, 29}, {2021, 12, 31}, {9999, 12, 31}};
+        long[] nanos = {0, 100, 1234500, 59999999900L, 43200L * Nanos.PER_SECOND, Nanos.PER_DAY - 100};
+        int[] offsets = {0, 60, -300, 330, 14 * 60, -14 * 60};
+
+        for (int[] date : dates) {
+            for (long n : nanos) {
+                for (int offset : offsets) {
+                    int days = daysIntoCE(date[0], date[1], date[2]);
+                    assertEquals(convertWithCalendar(days, n, offset),
+                            DDC.convertDateTimeOffsetToJavaTime(null, JDBCType.OFFSETDATETIME, days, n, offset),
+                            TestResource.getResource("R_valuesAreDifferent"));
+                }
+            }
+        }
+    }
+}
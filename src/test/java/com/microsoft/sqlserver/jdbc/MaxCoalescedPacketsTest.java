@@ -0,0 +1,77 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Counts the socket writes of request messages against the mock TDS server with and without write coalescing.
+ */
+class MaxCoalescedPacketsTest {
+
+    // A parameter that spans about sixteen packets of the smallest size
+    private static final byte[] PARAMETER = new byte[16 * TDS.MIN_PACKET_SIZE];
+
+    /**
+     * Returns the socket writes of the request messages sent by one execution: a one-packet batch, then an RPC with
+     * the large parameter.
+     */
+    private static long[] countWrites(String properties) throws Exception {
+        byte[] done = new TdsTokenStream().done(TDS.DONE_COUNT, 1).toByteArray();
+        try (MockTdsServer server = new MockTdsServer(request -> done)) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            try (Connection connection = DriverManager.getConnection(server.getURL() + properties);
+                    Statement statement = connection.createStatement();
+                    PreparedStatement preparedStatement = connection
+                            .prepareStatement("UPDATE t SET data = ? WHERE id = 1")) {
+                ISQLServerConnection con = connection.unwrap(ISQLServerConnection.class);
+                Arrays.fill(PARAMETER, (byte) 7);
+                preparedStatement.setBytes(1, PARAMETER);
+
+                long writes = con.getSocketWriteCount();
+                long messages = con.getSentMessageCount();
+                statement.executeUpdate("UPDATE t SET data = 0x07 WHERE id = 1");
+                long smallWrites = con.getSocketWriteCount() - writes;
+                assertEquals(messages + 1, con.getSentMessageCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+                writes = con.getSocketWriteCount();
+                messages = con.getSentMessageCount();
+                preparedStatement.executeUpdate();
+                long largeWrites = con.getSocketWriteCount() - writes;
+                assertEquals(messages + 1, con.getSentMessageCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+                return new long[] {smallWrites, largeWrites};
+            }
+        }
+    }
+
+    @Test
+    void testCoalescing() throws Exception {
+        long[] separate = countWrites("");
+        long[] coalesced = countWrites(";maxCoalescedPackets=8");
+        long[] all = countWrites(";maxCoalescedPackets=64");
+
+        // A message that fits in one packet takes one write whatever the setting.
+        assertEquals(1, separate[0], TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, coalesced[0], TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, all[0], TestResource.getResource("R_valuesAreDifferent"));
+
+        // The packets of a larger message are gathered up to the limit.
+        assertTrue(separate[1] > 16, TestResource.getResource("R_valuesAreDifferent"));
+        assertTrue(coalesced[1] <= (separate[1] + 7) / 8 + 1, TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, all[1], TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
@@ -0,0 +1,813 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+
+/**
+ * An in-process TDS server on the loopback interface for running the driver without SQL Server, e.g. in benchmarks and
+ * load tests.
+ * <p>
+ * The server answers PRELOGIN without encryption and accepts any LOGIN7, so connections need encrypt=false, unless
+ * TLS is turned on with {@link #setEncrypt(String)}. SQL batches, RPCs and bulk load messages are passed to a
+ * {@link Responder}, which returns the token stream of the reply, e.g. one recorded with {@link TdsTokenStream} or a
+ * {@link Script}. The server splits the reply into packets of the negotiated packet size.
+ * <p>
+ * For testing timeout, retry and failover logic the server can delay its replies, like a slow network or query, and can
+ * fail logins, fail requests with an error or drop connections. An attention cancels a delayed reply, as SQL Server
+ * cancels a running query.
+ */
+final class MockTdsServer implements Closeable {
+    static final String SERVER_NAME = "MockTdsServer";
+    static final String DATABASE_NAME = "master";
+
+    /** Password of the key store of {@link #getKeyStore()} */
+    static final String KEY_STORE_PASSWORD = "mockpassword";
+    private static volatile File keyStore;
+
+    /**
+     * Returns the token stream of the reply to a request.
+     */
+    interface Responder {
+        byte[] respond(Request request) throws IOException;
+    }
+
+    /**
+     * A request message of the driver.
+     */
+    static final class Request {
+        private final byte type;
+        private final byte[] payload;
+
+        Request(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+        /** Returns the message type, e.g. TDS.PKT_QUERY or TDS.PKT_RPC */
+        byte getType() {
+            return type;
+        }
+
+        byte[] getPayload() {
+            return payload;
+        }
+
+        /** Returns the SQL text of a SQL batch, or null for other messages */
+        String getSQLText() {
+            if (TDS.PKT_QUERY != type) {
+                return null;
+            }
+            int offset = getHeadersLength();
+            return new String(payload, offset, payload.length - offset, StandardCharsets.UTF_16LE);
+        }
+
+        /** Returns the id of the first stored procedure of an RPC, or -1 if it is called by name or not an RPC */
+        int getProcId() {
+            if (TDS.PKT_RPC != type) {
+                return -1;
+            }
+            int offset = getHeadersLength();
+            if (0xFFFF != readUnsignedShort(payload, offset)) {
+                return -1;
+            }
+            return readUnsignedShort(payload, offset + 2);
+        }
+
+        /** Returns the statement handle that an sp_execute RPC executes, or -1 for other messages */
+        int getPreparedStatementHandle() {
+            if (TDS.PROCID_SP_EXECUTE != getProcId()) {
+                return -1;
+            }
+            // the first parameter follows the procedure id and the options: name, status, INTN type info and value
+            int offset = getHeadersLength() + 6;
+            offset += 1 + 2 * (payload[offset] & 0xFF) + 1;
+            if (TDSType.INTN.byteValue() != payload[offset] || 4 != payload[offset + 2]) {
+                return -1;
+            }
+            return readInt(payload, offset + 3);
+        }
+
+        /** Returns whether the message contains the text, e.g. the SQL text of a SQL batch or of an RPC parameter */
+        boolean contains(String text) {
+            byte[] textBytes = text.getBytes(StandardCharsets.UTF_16LE);
+            for (int start = 0; start <= payload.length - textBytes.length; start++) {
+                int i = 0;
+                while (i < textBytes.length && payload[start + i] == textBytes[i]) {
+                    i++;
+                }
+                if (i == textBytes.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int getHeadersLength() {
+            return readInt(payload, 0);
+        }
+    }
+
+    /**
+     * A responder that replies to the requests containing an SQL text with scripted rows or an update count. A
+     * statement prepared by sp_prepexec or sp_prepare gets the same reply when sp_execute executes its handle. Other
+     * SQL batches and RPCs get an update count of 0. The driver sends the parameter markers of a prepared statement as
+     * {@code @P0}, {@code @P1} and so on, so the SQL text of a rule usually leaves them out.
+     */
+    static final class Script implements Responder {
+        private static final class Rule {
+            final String sqlText;
+            final TdsTokenStream.Column[] columns;
+            final Object[][] rows;
+            final long updateCount;
+
+            Rule(String sqlText, TdsTokenStream.Column[] columns, Object[][] rows, long updateCount) {
+                this.sqlText = sqlText;
+                this.columns = columns;
+                this.rows = rows;
+                this.updateCount = updateCount;
+            }
+        }
+
+        private final List<Rule> rules = new CopyOnWriteArrayList<>();
+        private final Map<Integer, Rule> preparedRules = new ConcurrentHashMap<>();
+        private final AtomicInteger lastHandle = new AtomicInteger();
+
+        /** Replies with the rows to the requests containing the SQL text */
+        Script onQuery(String sqlText, TdsTokenStream.Column[] columns, Object[][] rows) {
+            rules.add(new Rule(sqlText, columns, rows, rows.length));
+            return this;
+        }
+
+        /** Replies with the update count to the requests containing the SQL text */
+        Script onUpdate(String sqlText, long updateCount) {
+            rules.add(new Rule(sqlText, null, null, updateCount));
+            return this;
+        }
+
+        @Override
+        public byte[] respond(Request request) {
+            Rule rule = findRule(request);
+            TdsTokenStream reply = new TdsTokenStream();
+            if (null != rule && null != rule.columns) {
+                reply.colMetadata(rule.columns);
+                for (Object[] row : rule.rows) {
+                    reply.row(row);
+                }
+            }
+            long count = (null != rule) ? rule.updateCount : 0;
+            if (TDS.PKT_RPC != request.getType()) {
+                if (null != rule && null != rule.columns) {
+                    return reply.done(TDS.DONE_COUNT, count).toByteArray();
+                }
+                return reply.doneUpdate(TDS.DONE_COUNT, count).toByteArray();
+            }
+
+            reply.doneInProc(TDS.DONE_COUNT, count).returnStatus(0);
+            int procId = request.getProcId();
+            if (TDS.PROCID_SP_PREPEXEC == procId || TDS.PROCID_SP_PREPARE == procId) {
+                int handle = lastHandle.incrementAndGet();
+                if (null != rule) {
+                    preparedRules.put(handle, rule);
+                }
+                reply.returnValue(0, handle);
+            }
+            return reply.doneProc(TDS.DONE_FINAL).toByteArray();
+        }
+
+        private Rule findRule(Request request) {
+            int handle = request.getPreparedStatementHandle();
+            if (-1 != handle) {
+                return preparedRules.get(handle);
+            }
+            for (Rule rule : rules) {
+                if (request.contains(rule.sqlText)) {
+                    return rule;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An error that the server replies with instead of the reply of the responder.
+     */
+    private static final class InjectedError {
+        final int number;
+        final int severity;
+        final String message;
+
+        InjectedError(int number, int severity, String message) {
+            this.number = number;
+            this.severity = severity;
+            this.message = message;
+        }
+
+        byte[] toReply(Request request) {
+            TdsTokenStream reply = new TdsTokenStream().error(number, severity, message);
+            if (TDS.PKT_RPC == request.getType()) {
+                return reply.doneProc(TDS.DONE_ERROR).toByteArray();
+            }
+            return reply.done(TDS.DONE_ERROR, 0).toByteArray();
+        }
+    }
+
+    /** Returns a responder that replies with the same recorded token stream to every request */
+    static Responder replay(byte[] tokens) {
+        return request -> tokens;
+    }
+
+    /**
+     * Returns the reply to an RPC that updates rows: the update count, the return status, a statement handle for
+     * sp_prepexec and sp_prepare, and DONEPROC.
+     */
+    static byte[] rpcReply(Request request, long updateCount) {
+        TdsTokenStream reply = new TdsTokenStream().doneInProc(TDS.DONE_COUNT, updateCount).returnStatus(0);
+        int procId = request.getProcId();
+        if (TDS.PROCID_SP_PREPEXEC == procId || TDS.PROCID_SP_PREPARE == procId) {
+            reply.returnValue(0, 1);
+        }
+        return reply.doneProc(TDS.DONE_FINAL).toByteArray();
+    }
+
+    private final ServerSocket serverSocket;
+    private final Responder responder;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private volatile long latencyNanos;
+    private volatile int packetSize = TDS.SERVER_PACKET_SIZE;
+    private volatile InjectedError loginError;
+    private final AtomicInteger failingLogins = new AtomicInteger();
+    private volatile InjectedError requestError;
+    private final AtomicInteger failingRequests = new AtomicInteger();
+    private final AtomicInteger droppedRequests = new AtomicInteger();
+    private final AtomicInteger cutReplies = new AtomicInteger();
+    private volatile int cutReplyBytes;
+    private volatile String encrypt = "false";
+    private volatile boolean columnEncryption;
+    private volatile SSLContext sslContext;
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     *
+     * @param responder
+     *        replies to the SQL batches, RPCs and bulk load messages
+     * @throws IOException
+     *         if the server socket cannot be opened
+     */
+    MockTdsServer(Responder responder) throws IOException {
+        this.responder = responder;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptThread = new Thread(this::accept, SERVER_NAME + ":" + getPort());
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Returns a connection URL for the server, which trusts the certificate of the server when TLS is on */
+    String getURL() {
+        String url = "jdbc:sqlserver://" + serverSocket.getInetAddress().getHostAddress() + ":" + getPort()
+                + ";encrypt=" + encrypt + ";user=mock;password=mock;databaseName=" + DATABASE_NAME;
+        if (!"false".equals(encrypt)) {
+            url += ";trustStore=" + keyStore.getPath() + ";trustStorePassword=" + KEY_STORE_PASSWORD
+                    + ";trustStoreType=PKCS12;hostNameInCertificate=localhost";
+        }
+        return url;
+    }
+
+    /**
+     * Sets the encryption of the connections from now on, as the encrypt property of the driver names it: false for
+     * none, true for TLS 1.2 negotiated in PRELOGIN packets (TDS 7.4) or strict for TLS from the first byte (TDS 8).
+     */
+    void setEncrypt(String encrypt) throws IOException {
+        if (!"false".equals(encrypt) && null == sslContext) {
+            try {
+                KeyStore keys = KeyStore.getInstance("PKCS12");
+                try (InputStream is = new FileInputStream(getKeyStore())) {
+                    keys.load(is, KEY_STORE_PASSWORD.toCharArray());
+                }
+                KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+                kmf.init(keys, KEY_STORE_PASSWORD.toCharArray());
+                SSLContext context = SSLContext.getInstance("TLS");
+                context.init(kmf.getKeyManagers(), null, null);
+                sslContext = context;
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+        }
+        this.encrypt = encrypt;
+    }
+
+    /**
+     * Returns a PKCS12 key store with the self-signed certificate for localhost that the server encrypts with, which
+     * is also the trust store of the driver. keytool creates it once.
+     */
+    static synchronized File getKeyStore() throws IOException {
+        if (null == keyStore) {
+            File file = File.createTempFile(SERVER_NAME, ".p12");
+            file.deleteOnExit();
+            // keytool does not add a key to an empty file
+            Files.delete(file.toPath());
+            String keytoolPath = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+            Process keytool = new ProcessBuilder(keytoolPath, "-genkeypair", "-alias", "mock", "-keyalg", "RSA",
+                    "-keysize", "2048", "-validity", "30", "-dname", "CN=localhost", "-ext",
+                    "SAN=dns:localhost,ip:127.0.0.1", "-storetype", "PKCS12", "-keystore", file.getPath(), "-storepass",
+                    KEY_STORE_PASSWORD, "-keypass", KEY_STORE_PASSWORD).redirectErrorStream(true).start();
+            keytool.getOutputStream().close();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (InputStream is = keytool.getInputStream()) {
+                byte[] buffer = new byte[1024];
+                for (int n; -1 != (n = is.read(buffer));) {
+                    output.write(buffer, 0, n);
+                }
+            }
+            try {
+                if (0 != keytool.waitFor()) {
+                    throw new IOException("keytool failed: " + output.toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            keyStore = file;
+        }
+        return keyStore;
+    }
+
+    /** Returns the number of connections accepted so far */
+    int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /** Returns the number of SQL batches, RPCs and bulk load messages received so far */
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** Delays every reply by the latency, e.g. of the network and of the query */
+    void setLatency(long latency, TimeUnit unit) {
+        latencyNanos = unit.toNanos(latency);
+    }
+
+    /** Sets the packet size of the connections that log in from now on, or 0 to accept the packet size of the driver */
+    void setPacketSize(int packetSize) {
+        this.packetSize = packetSize;
+    }
+
+    /**
+     * Acknowledges Always Encrypted without enclaves at the logins from now on, after which the driver expects every
+     * COLMETADATA token to carry a column encryption key table, see {@link TdsTokenStream#cekTable}
+     */
+    void setColumnEncryption(boolean columnEncryption) {
+        this.columnEncryption = columnEncryption;
+    }
+
+    /** Fails the next logins with an error, e.g. a transient error that the driver retries */
+    void failLogins(int count, int errorNumber, int severity, String message) {
+        loginError = new InjectedError(errorNumber, severity, message);
+        failingLogins.set(count);
+    }
+
+    /** Replies to the next SQL batches, RPCs and bulk load messages with an error instead of the responder's reply */
+    void failRequests(int count, int errorNumber, int severity, String message) {
+        requestError = new InjectedError(errorNumber, severity, message);
+        failingRequests.set(count);
+    }
+
+    /** Closes the connections that send the next SQL batches, RPCs or bulk load messages, like a server that failed */
+    void dropConnections(int count) {
+        droppedRequests.set(count);
+    }
+
+    /** Closes the connections after sending the first bytes of the next replies, like a server that failed mid-reply */
+    void cutReplies(int count, int bytes) {
+        cutReplyBytes = bytes;
+        cutReplies.set(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            sockets.add(socket);
+            connectionCount.incrementAndGet();
+            Thread connectionThread = new Thread(() -> serve(socket), SERVER_NAME + ":" + socket.getPort());
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            String connectionEncrypt = encrypt;
+            Socket transport = s;
+            if ("strict".equals(connectionEncrypt)) {
+                // TDS 8 starts with the TLS handshake, before PRELOGIN.
+                SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(s, null, s.getPort(),
+                        true);
+                sslSocket.setUseClientMode(false);
+                SSLParameters sslParameters = sslSocket.getSSLParameters();
+                sslParameters.setApplicationProtocols(new String[] {TDS.PROTOCOL_TDS80});
+                sslSocket.setSSLParameters(sslParameters);
+                sslSocket.startHandshake();
+                transport = sslSocket;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(transport.getInputStream(), 65536));
+            OutputStream out = new BufferedOutputStream(transport.getOutputStream(), 65536);
+            int connectionPacketSize = TDS.INITIAL_PACKET_SIZE;
+            while (true) {
+                Request request = readMessage(in);
+                long receivedNanos = System.nanoTime();
+                byte[] reply;
+                int newPacketSize = connectionPacketSize;
+                boolean cut = false;
+                switch (request.getType()) {
+                    case TDS.PKT_PRELOGIN:
+                        if ("true".equals(connectionEncrypt)) {
+                            // TDS 7.4 carries the TLS handshake in PRELOGIN packets after the reply, and then
+                            // sends TLS records as they are.
+                            writeMessage(out, preloginReply(TDS.ENCRYPT_ON), connectionPacketSize);
+                            HandshakeSocket handshakeSocket = new HandshakeSocket(s, in, out);
+                            SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory()
+                                    .createSocket(handshakeSocket, null, s.getPort(), false);
+                            sslSocket.setUseClientMode(false);
+                            // The driver reads no more PRELOGIN packets after the handshake, so no TLS 1.3 tickets.
+                            sslSocket.setEnabledProtocols(new String[] {"TLSv1.2"});
+                            sslSocket.startHandshake();
+                            handshakeSocket.endHandshake();
+                            in = new DataInputStream(new BufferedInputStream(sslSocket.getInputStream(), 65536));
+                            out = new BufferedOutputStream(sslSocket.getOutputStream(), 65536);
+                            continue;
+                        }
+                        reply = preloginReply(TDS.ENCRYPT_NOT_SUP);
+                        break;
+                    case TDS.PKT_LOGON70:
+                        if (takeOne(failingLogins)) {
+                            reply = loginError.toReply(request);
+                        } else {
+                            // the packet size follows the length and the TDS version
+                            newPacketSize = packetSize;
+                            if (TDS.SERVER_PACKET_SIZE == newPacketSize) {
+                                newPacketSize = readInt(request.getPayload(), 8);
+                            }
+                            if (TDS.SERVER_PACKET_SIZE == newPacketSize) {
+                                newPacketSize = TDS.DEFAULT_PACKET_SIZE;
+                            }
+                            reply = loginReply(newPacketSize, connectionPacketSize, columnEncryption);
+                        }
+                        break;
+                    case TDS.PKT_CANCEL_REQ:
+                        reply = attentionReply();
+                        break;
+                    default:
+                        requestCount.incrementAndGet();
+                        if (takeOne(droppedRequests)) {
+                            return;
+                        }
+                        reply = takeOne(failingRequests) ? requestError.toReply(request) : responder.respond(request);
+                        cut = takeOne(cutReplies);
+                        break;
+                }
+                if (null != awaitLatency(in, receivedNanos)) {
+                    // The driver cancelled the request, e.g. after the query timeout. Like SQL Server, end the
+                    // reply with an error and acknowledge the attention in a message of its own.
+                    writeMessage(out, new TdsTokenStream().done(TDS.DONE_ERROR, 0).toByteArray(),
+                            connectionPacketSize);
+                    reply = attentionReply();
+                    newPacketSize = connectionPacketSize;
+                } else if (cut) {
+                    ByteArrayOutputStream packets = new ByteArrayOutputStream();
+                    writeMessage(packets, reply, connectionPacketSize);
+                    out.write(packets.toByteArray(), 0, Math.min(cutReplyBytes, packets.size()));
+                    out.flush();
+                    return;
+                }
+                writeMessage(out, reply, connectionPacketSize);
+                connectionPacketSize = newPacketSize;
+            }
+        } catch (IOException e) {
+            // the driver closed the connection, or the server was closed
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /*
+     * Waits until the latency has passed since the request was received. Returns an attention that the driver sent in
+     * the meantime, or null.
+     */
+    private Request awaitLatency(DataInputStream in, long receivedNanos) throws IOException {
+        long remainingNanos;
+        while ((remainingNanos = latencyNanos - (System.nanoTime() - receivedNanos)) > 0) {
+            if (in.available() > 0) {
+                Request request = readMessage(in);
+                if (TDS.PKT_CANCEL_REQ != request.getType()) {
+                    throw new IOException("unexpected message type " + request.getType() + " before the reply");
+                }
+                return request;
+            }
+            LockSupport.parkNanos(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        return null;
+    }
+
+    private static boolean takeOne(AtomicInteger counter) {
+        return counter.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+    }
+
+    private static byte[] attentionReply() {
+        return new TdsTokenStream().done(TDS.DONE_ATTN, 0).toByteArray();
+    }
+
+    private static byte[] preloginReply(byte encryption) {
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        // option tokens: VERSION at offset 11 with length 6 and ENCRYPTION at offset 17 with length 1
+        reply.write(TDS.B_PRELOGIN_OPTION_VERSION);
+        reply.write(new byte[] {0, 11, 0, 6}, 0, 4);
+        reply.write(TDS.B_PRELOGIN_OPTION_ENCRYPTION);
+        reply.write(new byte[] {0, 17, 0, 1}, 0, 4);
+        reply.write(TDS.B_PRELOGIN_OPTION_TERMINATOR);
+        reply.write(new byte[] {16, 0, 0, 1, 0, 0}, 0, 6);
+        reply.write(encryption);
+        return reply.toByteArray();
+    }
+
+    private static byte[] loginReply(int newPacketSize, int oldPacketSize, boolean columnEncryption) {
+        TdsTokenStream reply = new TdsTokenStream()
+                .envChange(TdsTokenStream.ENVCHANGE_DATABASE, DATABASE_NAME, DATABASE_NAME)
+                .envChangeCollation(TdsTokenStream.COLLATION)
+                .envChange(TdsTokenStream.ENVCHANGE_PACKETSIZE, Integer.toString(newPacketSize),
+                        Integer.toString(oldPacketSize))
+                .loginAck();
+        if (columnEncryption) {
+            reply.featureExtAck(TDS.TDS_FEATURE_EXT_AE, new byte[] {TDS.COLUMNENCRYPTION_VERSION1});
+        }
+        return reply.done(TDS.DONE_FINAL, 0).toByteArray();
+    }
+
+    private static Request readMessage(DataInputStream in) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        byte[] header = new byte[TDS.PACKET_HEADER_SIZE];
+        byte type;
+        do {
+            in.readFully(header);
+            type = header[TDS.PACKET_HEADER_MESSAGE_TYPE];
+            int length = ((header[TDS.PACKET_HEADER_MESSAGE_LENGTH] & 0xFF) << 8)
+                    | (header[TDS.PACKET_HEADER_MESSAGE_LENGTH + 1] & 0xFF);
+            if (length < TDS.PACKET_HEADER_SIZE) {
+                throw new EOFException("invalid packet length " + length);
+            }
+            byte[] data = new byte[length - TDS.PACKET_HEADER_SIZE];
+            in.readFully(data);
+            payload.write(data, 0, data.length);
+        } while (0 == (header[TDS.PACKET_HEADER_MESSAGE_STATUS] & TDS.STATUS_BIT_EOM));
+        return new Request(type, payload.toByteArray());
+    }
+
+    private static void writeMessage(OutputStream out, byte[] reply, int packetSize) throws IOException {
+        writeMessage(out, TDS.PKT_REPLY, reply, packetSize);
+    }
+
+    private static void writeMessage(OutputStream out, byte type, byte[] reply, int packetSize) throws IOException {
+        int maxData = packetSize - TDS.PACKET_HEADER_SIZE;
+        int offset = 0;
+        int packetNumber = 1;
+        byte[] header = new byte[TDS.PACKET_HEADER_SIZE];
+        do {
+            int length = Math.min(maxData, reply.length - offset);
+            boolean last = offset + length == reply.length;
+            header[TDS.PACKET_HEADER_MESSAGE_TYPE] = type;
+            header[TDS.PACKET_HEADER_MESSAGE_STATUS] = last ? TDS.STATUS_BIT_EOM : TDS.STATUS_NORMAL;
+            header[TDS.PACKET_HEADER_MESSAGE_LENGTH] = (byte) ((length + TDS.PACKET_HEADER_SIZE) >>> 8);
+            header[TDS.PACKET_HEADER_MESSAGE_LENGTH + 1] = (byte) (length + TDS.PACKET_HEADER_SIZE);
+            header[TDS.PACKET_HEADER_SPID + 1] = 51;
+            header[TDS.PACKET_HEADER_SEQUENCE_NUM] = (byte) packetNumber++;
+            out.write(header);
+            out.write(reply, offset, length);
+            offset += length;
+        } while (offset < reply.length);
+        out.flush();
+    }
+
+    /**
+     * The socket that the server's SSL socket is layered over for the TLS handshake of TDS 7.4, which carries the
+     * handshake in PRELOGIN packets. The server's handshake messages are sent as one message when the server waits for
+     * the next message of the driver, as the driver sends its own. After the handshake the TLS records are sent and
+     * received as they are.
+     */
+    private static final class HandshakeSocket extends Socket {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final OutputStream out;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private byte[] message = new byte[0];
+        private int position;
+        private volatile boolean handshake = true;
+
+        private final InputStream inputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return (-1 == read(b, 0, 1)) ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (!handshake) {
+                    return in.read(b, off, len);
+                }
+                while (position == message.length) {
+                    sendPending();
+                    message = readMessage(in).getPayload();
+                    position = 0;
+                }
+                int length = Math.min(len, message.length - position);
+                System.arraycopy(message, position, b, off, length);
+                position += length;
+                return length;
+            }
+        };
+
+        private final OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (handshake) {
+                    pending.write(b, off, len);
+                } else {
+                    out.write(b, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                // The handshake messages wait for the end of the message.
+                if (!handshake) {
+                    out.flush();
+                }
+            }
+        };
+
+        HandshakeSocket(Socket socket, DataInputStream in, OutputStream out) {
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+        }
+
+        /** Sends the last handshake messages of the server and switches to TLS records as they are */
+        void endHandshake() throws IOException {
+            sendPending();
+            handshake = false;
+        }
+
+        private void sendPending() throws IOException {
+            if (pending.size() > 0) {
+                writeMessage(out, TDS.PKT_PRELOGIN, pending.toByteArray(), TDS.INITIAL_PACKET_SIZE);
+                pending.reset();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return socket.isConnected();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return socket.isClosed();
+        }
+
+        @Override
+        public boolean isInputShutdown() {
+            return socket.isInputShutdown();
+        }
+
+        @Override
+        public boolean isOutputShutdown() {
+            return socket.isOutputShutdown();
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return socket.getInetAddress();
+        }
+
+        @Override
+        public int getPort() {
+            return socket.getPort();
+        }
+
+        @Override
+        public InetAddress getLocalAddress() {
+            return socket.getLocalAddress();
+        }
+
+        @Override
+        public int getLocalPort() {
+            return socket.getLocalPort();
+        }
+
+        @Override
+        public SocketAddress getRemoteSocketAddress() {
+            return socket.getRemoteSocketAddress();
+        }
+
+        @Override
+        public SocketAddress getLocalSocketAddress() {
+            return socket.getLocalSocketAddress();
+        }
+
+        @Override
+        public int getSoTimeout() throws SocketException {
+            return socket.getSoTimeout();
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) throws SocketException {
+            socket.setSoTimeout(timeout);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static int readUnsignedShort(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return readUnsignedShort(data, offset) | readUnsignedShort(data, offset + 2) << 16;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Runs the driver against the mock TDS server: the replies the benchmarks use, and the latency and failures that the
+ * timeout, retry and failover logic of the driver handle.
+ */
+class MockTdsServerTest {
+
+    @Test
+    void testReplayRows() throws Exception {
+        byte[] tokens = new TdsTokenStream()
+                .colMetadata(TdsTokenStream.intColumn("id"), TdsTokenStream.bigintColumn("amount"),
+                        TdsTokenStream.floatColumn("price"), TdsTokenStream.nvarcharColumn("name", 50),
+                        TdsTokenStream.bitColumn("active"))
+                .row(1, 1000L, 1.5, "first", true).nbcRow(2, null, 2.5, null, false).row(3, 3000L, null, null, null)
+                .done(TDS.DONE_COUNT, 3).toByteArray();
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(tokens));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT * FROM t")) {
+            assertEquals(MockTdsServer.DATABASE_NAME, connection.getCatalog(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+
+            assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(1, rs.getInt(1), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(1000L, rs.getLong(2), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(1.5, rs.getDouble(3), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals("first", rs.getString(4), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(rs.getBoolean(5), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2, rs.getInt("id"), TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(rs.getObject("amount"), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2.5, rs.getDouble("price"), TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(rs.getString("name"), TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(rs.getBoolean("active"), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(3000L, rs.getLong(2), TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(rs.getObject(3), TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testPreparedStatementUpdates() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(request -> MockTdsServer.rpcReply(request, 1));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                PreparedStatement statement = connection.prepareStatement("UPDATE t SET a = ? WHERE b = ?")) {
+            for (int i = 0; i < 5; i++) {
+                statement.setInt(1, i);
+                statement.setString(2, "b" + i);
+                assertEquals(1, statement.executeUpdate(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+            assertEquals(5, server.getRequestCount(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testBulkCopy() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(BulkCopyBenchmark.bulkCopyResponder(100));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection)) {
+            bulkCopy.setDestinationTableName(BulkCopyBenchmark.TABLE_NAME);
+            bulkCopy.writeToServer(new BulkCopyBenchmark.RowSource(100));
+
+            // the destination metadata queries, INSERT BULK and the rows
+            assertEquals(4, server.getRequestCount(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testParallelBulkCopy() throws Exception {
+        int rowCount = 10 * ParallelBulkCopy.CHUNK_ROWS + 1;
+        try (MockTdsServer server = new MockTdsServer(BulkCopyBenchmark.bulkCopyResponder(rowCount));
+                SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(server.getURL())) {
+            bulkCopy.setDestinationTableName(BulkCopyBenchmark.TABLE_NAME);
+            bulkCopy.getBulkCopyOptions().setParallelStreams(4);
+            bulkCopy.writeToServer(new BulkCopyBenchmark.RowSource(rowCount));
+
+            long[] streamRowCounts = bulkCopy.getStreamRowCounts();
+            assertEquals(4, streamRowCounts.length, TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(rowCount, Arrays.stream(streamRowCounts).sum(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(4, server.getConnectionCount(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+
+        // The destination metadata query of one stream fails, which cancels the other.
+        try (MockTdsServer server = new MockTdsServer(BulkCopyBenchmark.bulkCopyResponder(rowCount));
+                SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(server.getURL())) {
+            bulkCopy.setDestinationTableName(BulkCopyBenchmark.TABLE_NAME);
+            bulkCopy.getBulkCopyOptions().setParallelStreams(2);
+            server.failRequests(1, 208, 16, "Invalid object name 'BenchmarkTable'.");
+            SQLException e = assertThrows(SQLException.class,
+                    () -> bulkCopy.writeToServer(new BulkCopyBenchmark.RowSource(rowCount)));
+            assertEquals(208, ((SQLException) e.getCause()).getErrorCode(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(e.getNextException(), TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(bulkCopy.getStreamRowCounts(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+
+        try (MockTdsServer server = new MockTdsServer(BulkCopyBenchmark.bulkCopyResponder(rowCount));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection)) {
+            bulkCopy.setDestinationTableName(BulkCopyBenchmark.TABLE_NAME);
+            bulkCopy.getBulkCopyOptions().setParallelStreams(2);
+            assertThrows(SQLServerException.class,
+                    () -> bulkCopy.writeToServer(new BulkCopyBenchmark.RowSource(rowCount)));
+        }
+    }
+
+    @Test
+    void testBulkCopyEncodingThreads() throws Exception {
+        // The batches end in the middle of the chunks that are encoded ahead.
+        int rowCount = 3 * BulkCopyPipeline.CHUNK_ROWS + 7;
+        List<byte[]> expected = bulkLoadPayloads(rowCount, 0);
+        List<byte[]> actual = bulkLoadPayloads(rowCount, 3);
+        assertEquals(expected.size(), actual.size(), TestResource.getResource("R_valuesAreDifferent"));
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), TestResource.getResource("R_valuesAreDifferent"));
+        }
+
+        assertThrows(SQLServerException.class, () -> new SQLServerBulkCopyOptions().setEncodingThreads(-1));
+    }
+
+    /** Returns the bulk load messages of a bulk copy of {@code rowCount} rows in batches of 100 */
+    private static List<byte[]> bulkLoadPayloads(int rowCount, int encodingThreads) throws Exception {
+        List<byte[]> payloads = Collections.synchronizedList(new ArrayList<>());
+        MockTdsServer.Responder responder = BulkCopyBenchmark.bulkCopyResponder(rowCount);
+        try (MockTdsServer server = new MockTdsServer(request -> {
+            if (TDS.PKT_BULK == request.getType()) {
+                payloads.add(request.getPayload());
+            }
+            return responder.respond(request);
+        }); Connection connection = DriverManager.getConnection(server.getURL());
+                SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection)) {
+            bulkCopy.setDestinationTableName(BulkCopyBenchmark.TABLE_NAME);
+            bulkCopy.getBulkCopyOptions().setBatchSize(100);
+            bulkCopy.getBulkCopyOptions().setEncodingThreads(encodingThreads);
+            bulkCopy.writeToServer(new BulkCopyBenchmark.RowSource(rowCount));
+        }
+        assertEquals((rowCount + 99) / 100, payloads.size(), TestResource.getResource("R_valuesAreDifferent"));
+        return payloads;
+    }
+
+    @Test
+    void testScript() throws Exception {
+        TdsTokenStream.Column[] columns = {TdsTokenStream.intColumn("id"), TdsTokenStream.nvarcharColumn("name", 20)};
+        MockTdsServer.Script script = new MockTdsServer.Script()
+                .onQuery("SELECT id, name FROM t", columns, new Object[][] {{1, "one"}, {2, "two"}})
+                .onUpdate("DELETE FROM t", 7);
+
+        try (MockTdsServer server = new MockTdsServer(script);
+                Connection connection = DriverManager.getConnection(server.getURL());
+                PreparedStatement query = connection.prepareStatement("SELECT id, name FROM t WHERE id > ?");
+                Statement statement = connection.createStatement()) {
+            // sp_executesql, sp_prepexec and sp_execute
+            for (int i = 0; i < 3; i++) {
+                query.setInt(1, 0);
+                try (ResultSet rs = query.executeQuery()) {
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals("one", rs.getString("name"), TestResource.getResource("R_valuesAreDifferent"));
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals(2, rs.getInt("id"), TestResource.getResource("R_valuesAreDifferent"));
+                    assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                }
+            }
+            assertEquals(7, statement.executeUpdate("DELETE FROM t"),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(0, statement.executeUpdate("UPDATE t SET id = 0"),
+                    TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testServerPacketSize() throws Exception {
+        TdsTokenStream tokens = new TdsTokenStream().colMetadata(TdsTokenStream.nvarcharColumn("name", 4000));
+        for (int i = 0; i < 10; i++) {
+            tokens.row(new String(new char[1000]).replace('\0', (char) ('a' + i)));
+        }
+        tokens.done(TDS.DONE_COUNT, 10);
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(tokens.toByteArray()))) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            try (Connection connection = DriverManager.getConnection(server.getURL());
+                    Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT name FROM t")) {
+                assertEquals(TDS.MIN_PACKET_SIZE, connection.unwrap(SQLServerConnection.class).getTDSPacketSize(),
+                        TestResource.getResource("R_valuesAreDifferent"));
+                for (int i = 0; i < 10; i++) {
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals(1000, rs.getString(1).length(), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals((char) ('a' + i), rs.getString(1).charAt(999),
+                            TestResource.getResource("R_valuesAreDifferent"));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testQueryTimeout() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(new MockTdsServer.Script());
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement()) {
+            server.setLatency(10, TimeUnit.SECONDS);
+            statement.setQueryTimeout(1);
+            long start = System.nanoTime();
+            assertThrows(SQLTimeoutException.class, () -> statement.executeUpdate("WAITFOR DELAY '00:00:10'"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5),
+                    TestResource.getResource("R_valuesAreDifferent"));
+
+            // The attention cancelled the request, and the connection still works.
+            server.setLatency(0, TimeUnit.SECONDS);
+            assertEquals(0, statement.executeUpdate("UPDATE t SET id = 0"),
+                    TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testRequestErrors() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(new MockTdsServer.Script());
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement()) {
+            server.failRequests(1, 2627, 14, "Violation of PRIMARY KEY constraint");
+            SQLException e = assertThrows(SQLException.class,
+                    () -> statement.executeUpdate("INSERT INTO t VALUES (1)"));
+            assertEquals(2627, e.getErrorCode(), TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(connection.isClosed(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testStatementRetry() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(request -> MockTdsServer.rpcReply(request, 1));
+                Connection connection = DriverManager.getConnection(server.getURL() + ";retryExec={1205:1;}");
+                PreparedStatement statement = connection.prepareStatement("UPDATE t SET id = ?")) {
+            server.failRequests(1, 1205, 13, "Transaction was deadlocked");
+            statement.setInt(1, 1);
+            assertEquals(1, statement.executeUpdate(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2, server.getRequestCount(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testConnectRetry() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(new MockTdsServer.Script())) {
+            server.failLogins(1, 4060, 11, "Cannot open database requested by the login");
+            try (Connection connection = DriverManager
+                    .getConnection(server.getURL() + ";connectRetryCount=1;connectRetryInterval=1")) {
+                assertFalse(connection.isClosed(), TestResource.getResource("R_valuesAreDifferent"));
+                assertEquals(2, server.getConnectionCount(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+
+    @Test
+    void testDroppedConnection() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(new MockTdsServer.Script())) {
+            try (Connection connection = DriverManager.getConnection(server.getURL());
+                    Statement statement = connection.createStatement()) {
+                server.dropConnections(1);
+                assertThrows(SQLException.class, () -> statement.executeUpdate("UPDATE t SET id = 0"));
+                assertTrue(connection.isClosed(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+
+            // The server is available again, like after a failover.
+            try (Connection connection = DriverManager.getConnection(server.getURL());
+                    Statement statement = connection.createStatement()) {
+                assertEquals(0, statement.executeUpdate("UPDATE t SET id = 0"),
+                        TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+}
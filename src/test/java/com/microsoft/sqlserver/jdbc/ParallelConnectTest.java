@@ -0,0 +1,90 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Races connection attempts to several loopback addresses with each parallelConnectMode, where a server socket listens
+ * on one of them.
+ */
+class ParallelConnectTest {
+
+    private static final InetAddress SERVER_ADDRESS = InetAddress.getLoopbackAddress();
+
+    // An address without a server, which either refuses the attempt or does not answer it
+    private static InetAddress otherAddress() throws IOException {
+        return InetAddress.getByAddress(new byte[] {127, 0, 0, 2});
+    }
+
+    static SocketFinder newSocketFinder() {
+        return new SocketFinder("ParallelConnectTest", new SQLServerConnection("ParallelConnectTest"));
+    }
+
+    static void connectInParallel(ParallelConnectMode mode) throws Exception {
+        String hostName = "parallel-" + mode;
+        InetAddress[] addresses = {otherAddress(), SERVER_ADDRESS};
+        try (ServerSocket server = new ServerSocket(0, 10, SERVER_ADDRESS)) {
+            try (Socket socket = newSocketFinder().findSocketInParallel(hostName, addresses, server.getLocalPort(),
+                    5000, mode)) {
+                assertTrue(socket.isConnected(), TestResource.getResource("R_valuesAreDifferent"));
+                assertEquals(SERVER_ADDRESS, socket.getInetAddress(),
+                        TestResource.getResource("R_valuesAreDifferent"));
+            }
+
+            if (ParallelConnectMode.STAGGERED == mode) {
+                // The address that connected is tried first from now on.
+                assertEquals(SERVER_ADDRESS, ConnectLatencyHistory.getInstance().order(hostName,
+                        server.getLocalPort(), addresses)[0], TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+
+        // No address has a server on a port that is not listened on.
+        int closedPort;
+        try (ServerSocket closed = new ServerSocket(0, 1, SERVER_ADDRESS)) {
+            closedPort = closed.getLocalPort();
+        }
+        assertThrows(IOException.class,
+                () -> newSocketFinder().findSocketInParallel(hostName, addresses, closedPort, 2000, mode));
+    }
+
+    @Test
+    void testThreads() throws Exception {
+        connectInParallel(ParallelConnectMode.THREADS);
+    }
+
+    @Test
+    void testSelector() throws Exception {
+        connectInParallel(ParallelConnectMode.SELECTOR);
+    }
+
+    @Test
+    void testStaggered() throws Exception {
+        connectInParallel(ParallelConnectMode.STAGGERED);
+    }
+
+    @Test
+    void testInvalidMode() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, SERVER_ADDRESS)) {
+            // The mode is rejected before connecting.
+            SQLException e = assertThrows(SQLException.class, () -> DriverManager.getConnection(
+                    "jdbc:sqlserver://localhost:" + server.getLocalPort() + ";parallelConnectMode=fibers"));
+            assertTrue(e.getMessage().contains("fibers"), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Counts the requests of prepared statement batches against the mock TDS server with and without coalescing the batch
+ * entries after one that (re)prepares the statement into its request.
+ */
+class PrepareBatchCoalesceTest {
+
+    private static final int BATCH_SIZE = 6;
+
+    /**
+     * Returns the stored procedure ids of the RPCs of a request, found by the procedure id that starts each RPC.
+     */
+    private static List<Integer> procIds(byte[] payload) {
+        List<Integer> procIds = new ArrayList<>();
+        for (int i = 0; i + 3 < payload.length; i++) {
+            int procId = payload[i + 2] & 0xFF;
+            if ((byte) 0xFF == payload[i] && (byte) 0xFF == payload[i + 1] && 0 == payload[i + 3]
+                    && (TDS.PROCID_SP_EXECUTESQL == procId || TDS.PROCID_SP_EXECUTE == procId
+                            || TDS.PROCID_SP_PREPEXEC == procId)) {
+                procIds.add(procId);
+                i += 3;
+            }
+        }
+        return procIds;
+    }
+
+    /** Replies to each RPC of a request with an update count of 1 and a statement handle for sp_prepexec */
+    private static byte[] reply(MockTdsServer.Request request) {
+        if (TDS.PKT_RPC != request.getType()) {
+            return new TdsTokenStream().done(TDS.DONE_FINAL, 0).toByteArray();
+        }
+        List<Integer> procIds = procIds(request.getPayload());
+        TdsTokenStream reply = new TdsTokenStream();
+        for (int i = 0; i < procIds.size(); i++) {
+            reply.doneInProc(TDS.DONE_COUNT, 1).returnStatus(0);
+            if (TDS.PROCID_SP_PREPEXEC == procIds.get(i)) {
+                reply.returnValue(0, 1);
+            }
+            reply.doneProc((i < procIds.size() - 1) ? TDS.DONE_MORE : TDS.DONE_FINAL);
+        }
+        return reply.toByteArray();
+    }
+
+    /**
+     * Returns the number of requests of three batches: the first binds ints, the second changes to bigint halfway and
+     * the third binds bigints.
+     */
+    private static long countRequests(String properties) throws Exception {
+        try (MockTdsServer server = new MockTdsServer(PrepareBatchCoalesceTest::reply);
+                Connection connection = DriverManager.getConnection(server.getURL() + properties);
+                PreparedStatement statement = connection.prepareStatement("UPDATE t SET v = ? WHERE id = 1")) {
+            long requests = server.getRequestCount();
+            for (int batch = 0; batch < 3; batch++) {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    if (0 == batch || (1 == batch && i < BATCH_SIZE / 2)) {
+                        statement.setInt(1, i + 1);
+                    } else {
+                        statement.setLong(1, i + 1);
+                    }
+                    statement.addBatch();
+                }
+                int[] updateCounts = new int[BATCH_SIZE];
+                Arrays.fill(updateCounts, 1);
+                assertArrayEquals(updateCounts, statement.executeBatch(),
+                        TestResource.getResource("R_valuesAreDifferent"));
+            }
+            return server.getRequestCount() - requests;
+        }
+    }
+
+    @Test
+    void testRequestCount() throws Exception {
+        long regular = countRequests("");
+        long prepareOnFirstCall = countRequests(";enablePrepareOnFirstPreparedStatementCall=true");
+
+        // Coalescing never takes more round trips than the regular path.
+        for (int size : new int[] {1, 2, BATCH_SIZE}) {
+            long coalesced = countRequests(";prepareBatchCoalesceSize=" + size);
+            assertTrue(coalesced <= regular, TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(countRequests(";enablePrepareOnFirstPreparedStatementCall=true;prepareBatchCoalesceSize=" + size)
+                    <= prepareOnFirstCall, TestResource.getResource("R_valuesAreDifferent"));
+        }
+
+        // With the size of a batch, a statement prepared on its first call takes one request per batch: the change
+        // to bigint reprepares the statement in the middle of the second batch without ending the request.
+        assertEquals(3,
+                countRequests(";enablePrepareOnFirstPreparedStatementCall=true;prepareBatchCoalesceSize=" + BATCH_SIZE),
+                TestResource.getResource("R_valuesAreDifferent"));
+        // Otherwise, each of the two batches that (re)prepare the statement saves the one round trip that the regular
+        // path spends on reading the new handle.
+        assertEquals(regular - 2, countRequests(";prepareBatchCoalesceSize=" + BATCH_SIZE),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
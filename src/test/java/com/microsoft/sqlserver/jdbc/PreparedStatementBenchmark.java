@@ -0,0 +1,94 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Measures how many prepared statement executions per second the driver sends to a {@link MockTdsServer}, which is
+ * mostly TDSWriter encoding the RPC and its parameters, with a loopback round trip for each execution.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.microsoft.sqlserver.jdbc.PreparedStatementBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreparedStatementBenchmark {
+
+    /** Length of the string parameter */
+    @Param({"10", "1000"})
+    public int stringLength;
+
+    private MockTdsServer server;
+    private Connection connection;
+    private PreparedStatement statement;
+    private String stringValue;
+    private final BigDecimal decimalValue = new BigDecimal("12345.6789");
+    private final Timestamp timestampValue = Timestamp.valueOf("2024-01-02 03:04:05.678");
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        byte[] batchReply = new TdsTokenStream().done(TDS.DONE_FINAL, 0).toByteArray();
+        server = new MockTdsServer(request -> (TDS.PKT_RPC == request.getType()) ? MockTdsServer.rpcReply(request, 1)
+                                                                                 : batchReply);
+        connection = DriverManager.getConnection(server.getURL());
+        statement = connection.prepareStatement(
+                "UPDATE BenchmarkTable SET amount = ?, price = ?, name = ?, modified = ?, active = ? WHERE id = ?");
+
+        char[] chars = new char[stringLength];
+        Arrays.fill(chars, 'x');
+        stringValue = new String(chars);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int executeUpdate() throws SQLException {
+        statement.setLong(1, 1000L);
+        statement.setBigDecimal(2, decimalValue);
+        statement.setString(3, stringValue);
+        statement.setTimestamp(4, timestampValue);
+        statement.setBoolean(5, true);
+        statement.setInt(6, 42);
+        return statement.executeUpdate();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PreparedStatementBenchmark.class.getSimpleName()).build()).run();
+    }
+}
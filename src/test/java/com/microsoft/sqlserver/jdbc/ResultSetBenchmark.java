@@ -0,0 +1,138 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Measures how many result sets of {@link #rowCount} rows per second the driver reads from a {@link MockTdsServer}:
+ * TDSReader decoding the ROW or NBCROW tokens, SQLServerResultSet.next() and the getters, or nextColumns reading
+ * batches of rows into column vectors. Every fifth row has a null string.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.microsoft.sqlserver.jdbc.ResultSetBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSetBenchmark {
+
+    static final int BATCH_SIZE = 256;
+
+    @Param({"1000"})
+    public int rowCount;
+
+    /** Whether the server sends NBCROW tokens, which leave out null values, instead of ROW tokens */
+    @Param({"false", "true"})
+    public boolean nullBitmapRows;
+
+    private MockTdsServer server;
+    private Connection connection;
+    private Statement statement;
+
+    // the column vectors of readColumnBatches, reused for every batch
+    private final SQLServerColumnVector ids = SQLServerColumnVector.ofInts(new int[BATCH_SIZE]);
+    private final SQLServerColumnVector amounts = SQLServerColumnVector.ofLongs(new long[BATCH_SIZE]);
+    private final SQLServerColumnVector prices = SQLServerColumnVector.ofDoubles(new double[BATCH_SIZE]);
+    private final SQLServerColumnVector names = SQLServerColumnVector.ofBytes(new int[BATCH_SIZE + 1], null);
+    private final SQLServerColumnVector actives = SQLServerColumnVector.ofInts(new int[BATCH_SIZE]);
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        TdsTokenStream tokens = new TdsTokenStream().colMetadata(TdsTokenStream.intColumn("id"),
+                TdsTokenStream.bigintColumn("amount"), TdsTokenStream.floatColumn("price"),
+                TdsTokenStream.nvarcharColumn("name", 50), TdsTokenStream.bitColumn("active"));
+        for (int i = 0; i < rowCount; i++) {
+            Object[] row = {i, i * 1000L, i + 0.5, (0 == i % 5) ? null : "name " + i, 0 == i % 2};
+            if (nullBitmapRows) {
+                tokens.nbcRow(row);
+            } else {
+                tokens.row(row);
+            }
+        }
+        tokens.done(TDS.DONE_COUNT, rowCount);
+
+        server = new MockTdsServer(MockTdsServer.replay(tokens.toByteArray()));
+        connection = DriverManager.getConnection(server.getURL());
+        statement = connection.createStatement();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void readRows(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT id, amount, price, name, active FROM BenchmarkTable")) {
+            while (rs.next()) {
+                blackhole.consume(rs.getInt(1));
+                blackhole.consume(rs.getLong(2));
+                blackhole.consume(rs.getDouble(3));
+                blackhole.consume(rs.getString(4));
+                blackhole.consume(rs.getBoolean(5));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readRowsByColumnName(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT id, amount, price, name, active FROM BenchmarkTable")) {
+            while (rs.next()) {
+                blackhole.consume(rs.getInt("id"));
+                blackhole.consume(rs.getLong("amount"));
+                blackhole.consume(rs.getDouble("price"));
+                blackhole.consume(rs.getString("name"));
+                blackhole.consume(rs.getBoolean("active"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readColumnBatches(Blackhole blackhole) throws SQLException {
+        try (ISQLServerResultSet rs = (ISQLServerResultSet) statement
+                .executeQuery("SELECT id, amount, price, name, active FROM BenchmarkTable")) {
+            while (rs.nextColumns(ids, amounts, prices, names, actives) > 0) {
+                blackhole.consume(ids.getInts());
+                blackhole.consume(amounts.getLongs());
+                blackhole.consume(prices.getDoubles());
+                blackhole.consume(names.getData());
+                blackhole.consume(actives.getInts());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResultSetBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.microsoft.sqlserver.jdbc.SQLServerConnection.CityHash128Key;
+
+
+/**
+ * Measures how many SQL texts per second the driver parses: the JDBC escape syntax translation and parameter marker
+ * search done for every statement text missing from the parsed SQL cache, and the SQLServerParser pass that builds the
+ * FMTONLY query for parameter metadata when useFmtOnly is set.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.microsoft.sqlserver.jdbc.SQLParserBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SQLParserBenchmark {
+
+    @Param({"SELECT id, name, price FROM dbo.Products WHERE category = ? AND price < ? ORDER BY name",
+            "INSERT INTO dbo.Orders (customer_id, product_id, quantity, ordered) VALUES (?, ?, ?, {fn NOW()})",
+            "UPDATE dbo.Products SET price = ?, modified = ? WHERE id = ? AND name NOT LIKE '%?%'"})
+    public String sql;
+
+    private CityHash128Key key;
+
+    @Setup
+    public void setup() {
+        key = new CityHash128Key(sql);
+    }
+
+    @Benchmark
+    public ParsedSQLCacheItem parseAndCacheSQL() throws SQLServerException {
+        return SQLServerConnection.parseAndCacheSQL(key, sql);
+    }
+
+    @Benchmark
+    public String parseFMTQuery() throws SQLServerException {
+        return new SQLServerFMTQuery(sql).getFMTQuery();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SQLParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
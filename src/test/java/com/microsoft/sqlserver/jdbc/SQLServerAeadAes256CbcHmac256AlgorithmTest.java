@@ -0,0 +1,140 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for AEAD_AES_256_CBC_HMAC_SHA256 encryption with reused Cipher and Mac objects.
+ */
+class SQLServerAeadAes256CbcHmac256AlgorithmTest {
+
+    private static SQLServerAeadAes256CbcHmac256Algorithm algorithm(int seed,
+            SQLServerEncryptionType encryptionType) throws SQLServerException {
+        byte[] rootKey = new byte[32];
+        new Random(seed).nextBytes(rootKey);
+        return new SQLServerAeadAes256CbcHmac256Algorithm(
+                new SQLServerAeadAes256CbcHmac256EncryptionKey(rootKey,
+                        SQLServerAeadAes256CbcHmac256Algorithm.AEAD_AES_256_CBC_HMAC_SHA256),
+                encryptionType, (byte) 0x01);
+    }
+
+    private static byte[] plainText(Random random, int length) {
+        byte[] value = new byte[length];
+        random.nextBytes(value);
+        return value;
+    }
+
+    @Test
+    void testRoundTrip() throws SQLServerException {
+        Random random = new Random(1);
+        for (SQLServerEncryptionType encryptionType : new SQLServerEncryptionType[] {
+                SQLServerEncryptionType.DETERMINISTIC, SQLServerEncryptionType.RANDOMIZED}) {
+            SQLServerAeadAes256CbcHmac256Algorithm algorithm = algorithm(1, encryptionType);
+            for (int length : new int[] {0, 1, 15, 16, 17, 4000}) {
+                byte[] value = plainText(random, length);
+                assertArrayEquals(value, algorithm.decryptData(algorithm.encryptData(value)),
+                        TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+
+    @Test
+    void testDeterministicAndRandomized() throws SQLServerException {
+        byte[] value = plainText(new Random(2), 20);
+
+        // The same key and plain text always give the same cipher text, also from another instance.
+        SQLServerAeadAes256CbcHmac256Algorithm deterministic = algorithm(2, SQLServerEncryptionType.DETERMINISTIC);
+        byte[] cipherText = deterministic.encryptData(value);
+        assertArrayEquals(cipherText, deterministic.encryptData(value),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertArrayEquals(cipherText, algorithm(2, SQLServerEncryptionType.DETERMINISTIC).encryptData(value),
+                TestResource.getResource("R_valuesAreDifferent"));
+
+        SQLServerAeadAes256CbcHmac256Algorithm randomized = algorithm(2, SQLServerEncryptionType.RANDOMIZED);
+        assertFalse(Arrays.equals(randomized.encryptData(value), randomized.encryptData(value)),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testTamperedCipherText() throws SQLServerException {
+        SQLServerAeadAes256CbcHmac256Algorithm algorithm = algorithm(3, SQLServerEncryptionType.RANDOMIZED);
+        byte[] value = plainText(new Random(3), 40);
+        byte[] cipherText = algorithm.encryptData(value);
+        cipherText[cipherText.length - 1] ^= 1;
+
+        assertThrows(SQLServerException.class, () -> algorithm.decryptData(cipherText));
+
+        // A failed decryption leaves nothing behind that breaks the next one.
+        cipherText[cipherText.length - 1] ^= 1;
+        assertArrayEquals(value, algorithm.decryptData(cipherText), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testDecryptRow() throws SQLServerException {
+        SQLServerAeadAes256CbcHmac256Algorithm algorithm = algorithm(4, SQLServerEncryptionType.RANDOMIZED);
+        Random random = new Random(4);
+        byte[][] values = {plainText(random, 4), null, plainText(random, 100), plainText(random, 0)};
+        byte[][] cipherTexts = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            if (null != values[i])
+                cipherTexts[i] = algorithm.encryptData(values[i]);
+        }
+
+        byte[][] decrypted = algorithm.decryptData(cipherTexts);
+        for (int i = 0; i < values.length; i++) {
+            if (null == values[i]) {
+                assertNull(decrypted[i], TestResource.getResource("R_valuesAreDifferent"));
+            } else {
+                assertArrayEquals(values[i], decrypted[i], TestResource.getResource("R_valuesAreDifferent"));
+                assertArrayEquals(algorithm.decryptData(cipherTexts[i]), decrypted[i],
+                        TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentUse() throws Exception {
+        SQLServerAeadAes256CbcHmac256Algorithm deterministic = algorithm(5, SQLServerEncryptionType.DETERMINISTIC);
+        SQLServerAeadAes256CbcHmac256Algorithm randomized = algorithm(5, SQLServerEncryptionType.RANDOMIZED);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 500; i++) {
+                        byte[] value = plainText(random, random.nextInt(64));
+                        SQLServerAeadAes256CbcHmac256Algorithm algorithm = (i % 2 == 0) ? deterministic : randomized;
+                        assertArrayEquals(value, algorithm.decryptData(algorithm.encryptData(value)),
+                                TestResource.getResource("R_valuesAreDifferent"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Reads a result set of the mock TDS server into Apache Arrow vectors with {@link SQLServerArrowReader}.
+ */
+class SQLServerArrowReaderTest {
+
+    private static final Object[][] ROWS = {{1, 100L, 1.5, "first", new BigDecimal("1.25")},
+            {2, null, 2.5, null, null}, {3, 300L, null, "caf\u00e9", new BigDecimal("-3.50")},
+            {4, 400L, 4.5, "", new BigDecimal("0.00")}, {5, 500L, 5.5, "fifth", new BigDecimal("12345678.99")}};
+
+    private static byte[] rows() {
+        TdsTokenStream tokens = new TdsTokenStream().colMetadata(TdsTokenStream.intColumn("id"),
+                TdsTokenStream.bigintColumn("amount"), TdsTokenStream.floatColumn("price"),
+                TdsTokenStream.varcharColumn("name", 20), TdsTokenStream.decimalColumn("total", 10, 2));
+        for (int i = 0; i < ROWS.length; i++) {
+            if (1 == i) {
+                tokens.nbcRow(ROWS[i]);
+            } else {
+                tokens.row(ROWS[i]);
+            }
+        }
+        return tokens.done(TDS.DONE_COUNT, ROWS.length).toByteArray();
+    }
+
+    @Test
+    void testLoadBatches() throws Exception {
+        try (BufferAllocator allocator = new RootAllocator();
+                MockTdsServer server = new MockTdsServer(MockTdsServer.replay(rows()));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t");
+                SQLServerArrowReader reader = new SQLServerArrowReader(rs, allocator, 2)) {
+            List<Field> fields = reader.getSchema().getFields();
+            assertEquals("id", fields.get(0).getName(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new ArrowType.Int(32, true), fields.get(0).getType(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new ArrowType.Int(64, true), fields.get(1).getType(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE), fields.get(2).getType(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(ArrowType.Utf8.INSTANCE, fields.get(3).getType(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new ArrowType.Decimal(10, 2, 128), fields.get(4).getType(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+
+            // Batches of 2, 2 and 1 rows, all in the same vectors
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            int row = 0;
+            while (reader.loadNextBatch()) {
+                assertSame(root, reader.getVectorSchemaRoot(), TestResource.getResource("R_valuesAreDifferent"));
+                assertEquals(Math.min(2, ROWS.length - row), root.getRowCount(),
+                        TestResource.getResource("R_valuesAreDifferent"));
+                for (int i = 0; i < root.getRowCount(); i++, row++) {
+                    for (int column = 0; column < ROWS[row].length; column++) {
+                        Object value = root.getVector(column).getObject(i);
+                        // VarCharVector values are Arrow Text
+                        assertEquals(ROWS[row][column], (3 == column && null != value) ? value.toString() : value,
+                                TestResource.getResource("R_valuesAreDifferent"));
+                        assertEquals(null == ROWS[row][column], root.getVector(column).isNull(i),
+                                TestResource.getResource("R_valuesAreDifferent"));
+                    }
+                }
+            }
+            assertEquals(ROWS.length, row, TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(0, root.getRowCount(), TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(reader.loadNextBatch(), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+}
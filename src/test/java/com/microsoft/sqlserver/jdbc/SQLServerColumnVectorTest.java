@@ -0,0 +1,206 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Reads result sets of the mock TDS server into column vectors with {@link ISQLServerResultSet#nextColumns}.
+ */
+class SQLServerColumnVectorTest {
+
+    private static final String NAME = "caf\u00e9 \u20ac \ud83d\ude00";
+
+    private static byte[] rows() {
+        return new TdsTokenStream()
+                .colMetadata(TdsTokenStream.intColumn("id"), TdsTokenStream.bigintColumn("amount"),
+                        TdsTokenStream.floatColumn("price"), TdsTokenStream.nvarcharColumn("name", 50),
+                        TdsTokenStream.bitColumn("active"))
+                .row(1, 1000L, 1.5, "first", true).nbcRow(2, null, 2.5, null, false).row(3, 3000L, null, NAME, null)
+                .row(4, 4000L, 4.5, "", true).row(5, 5000L, 5.5, "fifth", false).done(TDS.DONE_COUNT, 5)
+                .toByteArray();
+    }
+
+    @Test
+    void testNextColumns() throws Exception {
+        int[] ids = new int[2];
+        long[] amounts = new long[2];
+        double[] prices = new double[2];
+        SQLServerColumnVector id = SQLServerColumnVector.ofInts(ids);
+        SQLServerColumnVector amount = SQLServerColumnVector.ofLongs(amounts);
+        SQLServerColumnVector price = SQLServerColumnVector.ofDoubles(prices);
+        SQLServerColumnVector name = SQLServerColumnVector.ofBytes(new int[3], new byte[4]);
+        SQLServerColumnVector active = SQLServerColumnVector.ofInts(new int[2]);
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(rows()));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t")) {
+            assertEquals(2, rs.nextColumns(id, amount, price, name, active),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new int[] {1, 2}, ids, TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new long[] {1000L, 0L}, amounts, TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(amount.isNull(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(amount.isNull(1), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2.5, prices[1], TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals("first", name.getString(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(name.getString(1), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(1, active.getInts()[0], TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(0, active.getInts()[1], TestResource.getResource("R_valuesAreDifferent"));
+
+            // The cursor is on the last row of the batch, whose values the getters still return.
+            assertEquals(2, rs.getRow(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2, rs.getInt("id"), TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(rs.getString("name"), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2.5, rs.getDouble("price"), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertEquals(2, rs.nextColumns(id, amount, price, name, active),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new int[] {3, 4}, ids, TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(price.isNull(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(active.isNull(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(NAME, name.getString(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(NAME.getBytes(StandardCharsets.UTF_8),
+                    Arrays.copyOfRange(name.getData(), name.getOffsets()[0], name.getOffsets()[1]),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals("", name.getString(1), TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(name.isNull(1), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertEquals(1, rs.nextColumns(id, amount, price, name, active),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(1, id.getRowCount(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(5, ids[0], TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals("fifth", name.getString(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(rs.isAfterLast(), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertEquals(0, rs.nextColumns(id, amount, price, name, active),
+                    TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testNextColumnsConversions() throws Exception {
+        double[] ids = new double[3];
+        int[] prices = new int[3];
+        SQLServerColumnVector id = SQLServerColumnVector.ofDoubles(ids);
+        SQLServerColumnVector price = SQLServerColumnVector.ofInts(prices);
+        SQLServerColumnVector amount = SQLServerColumnVector.ofBytes(new int[4], null);
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(rows()));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t")) {
+            // The name column is skipped, and the amounts are read with getString.
+            assertEquals(3, rs.nextColumns(id, amount, price), TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new double[] {1, 2, 3}, ids, TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals("1000", amount.getString(0), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(amount.isNull(1), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals("3000", amount.getString(2), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(1, prices[0], TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(2, prices[1], TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(price.isNull(2), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertEquals(NAME, rs.getString(4), TestResource.getResource("R_valuesAreDifferent"));
+            assertThrows(SQLServerException.class,
+                    () -> rs.nextColumns(id, id, id, id, id, SQLServerColumnVector.ofInts(new int[1])));
+        }
+    }
+
+    private static byte[] typedRows() {
+        return new TdsTokenStream()
+                .colMetadata(TdsTokenStream.intColumn("id"), TdsTokenStream.decimalColumn("price", 10, 2),
+                        TdsTokenStream.datetimeoffsetColumn("ordered", 7), TdsTokenStream.vectorColumn("embedding", 3))
+                .row(1, new BigDecimal("12.34"), OffsetDateTime.parse("2024-01-02T03:04:05.123456+02:00"),
+                        new float[] {1f, 2f, 3f})
+                .nbcRow(2, new BigDecimal("-0.05"), null, null)
+                .row(3, null, OffsetDateTime.parse("1969-12-31T23:59:59.5Z"), new float[] {-1.5f, 0f, 4.25f})
+                .done(TDS.DONE_COUNT, 3).toByteArray();
+    }
+
+    @Test
+    void testNextColumnsDecimalsTimestampsAndFloatLists() throws Exception {
+        long[] ordered = new long[3];
+        float[] embeddings = new float[9];
+        SQLServerColumnVector id = SQLServerColumnVector.ofDecimals(new byte[3 * 16], 0);
+        SQLServerColumnVector price = SQLServerColumnVector.ofDecimals(new byte[3 * 16], 2);
+        SQLServerColumnVector orderedVector = SQLServerColumnVector.ofTimestamps(ordered);
+        SQLServerColumnVector embedding = SQLServerColumnVector.ofFloatLists(embeddings, 3);
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(typedRows()));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t")) {
+            assertEquals(3, rs.nextColumns(id, price, orderedVector, embedding),
+                    TestResource.getResource("R_valuesAreDifferent"));
+
+            // The ids are read with getBigDecimal, the prices straight from the response.
+            assertEquals(new BigDecimal(3), id.getBigDecimal(2), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new BigDecimal("12.34"), price.getBigDecimal(0),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new BigDecimal("-0.05"), price.getBigDecimal(1),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertArrayEquals(new byte[] {-5, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+                    Arrays.copyOfRange(price.getData(), 16, 32), TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(price.isNull(2), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertArrayEquals(new long[] {1704157445123456L, 0L, -500000L}, ordered,
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(orderedVector.isNull(1), TestResource.getResource("R_valuesAreDifferent"));
+
+            assertArrayEquals(new float[] {1f, 2f, 3f, 0f, 0f, 0f, -1.5f, 0f, 4.25f}, embeddings,
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertTrue(embedding.isNull(1), TestResource.getResource("R_valuesAreDifferent"));
+            assertFalse(embedding.isNull(2), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testNextColumnsRoundsDecimals() throws Exception {
+        SQLServerColumnVector id = SQLServerColumnVector.ofInts(new int[3]);
+        SQLServerColumnVector price = SQLServerColumnVector.ofDecimals(new byte[3 * 16], 1);
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(typedRows()));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t")) {
+            // The scale of the vector differs from the scale of the column, so the prices are read with a getter.
+            assertEquals(3, rs.nextColumns(id, price), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new BigDecimal("12.3"), price.getBigDecimal(0),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(new BigDecimal("-0.1"), price.getBigDecimal(1),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(price.getBigDecimal(2), TestResource.getResource("R_valuesAreDifferent"));
+        }
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(typedRows()));
+                Connection connection = DriverManager.getConnection(server.getURL());
+                Statement statement = connection.createStatement();
+                SQLServerResultSet rs = (SQLServerResultSet) statement.executeQuery("SELECT * FROM t")) {
+            // The vectors of the column have 3 dimensions, not 2.
+            assertThrows(SQLServerException.class,
+                    () -> rs.nextColumns(id, SQLServerColumnVector.ofDecimals(new byte[3 * 16], 2),
+                            SQLServerColumnVector.ofTimestamps(new long[3]),
+                            SQLServerColumnVector.ofFloatLists(new float[6], 2)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> SQLServerColumnVector.ofFloatLists(new float[1], 0));
+    }
+}
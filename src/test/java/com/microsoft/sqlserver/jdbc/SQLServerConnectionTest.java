@@ -157,6 +157,34 @@ public class SQLServerConnectionTest extends AbstractTest {
         ds.setStatementPoolingCacheSize(intPropValue);
         assertEquals(intPropValue, ds.getStatementPoolingCacheSize(), TestResource.getResource("R_valuesAreDifferent"));
 
+        ds.setPacketPoolSize(intPropValue);
+        assertEquals(intPropValue, ds.getPacketPoolSize(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setReadAheadPackets(intPropValue);
+        assertEquals(intPropValue, ds.getReadAheadPackets(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setMaxCoalescedPackets(intPropValue);
+        assertEquals(intPropValue, ds.getMaxCoalescedPackets(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setPrepareBatchCoalesceSize(intPropValue);
+        assertEquals(intPropValue, ds.getPrepareBatchCoalesceSize(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setStatementPoolingCacheMemoryBudget(intPropValue);
+        assertEquals(intPropValue, ds.getStatementPoolingCacheMemoryBudget(),
+                TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setCursorPrefetchMaxRows(intPropValue);
+        assertEquals(intPropValue, ds.getCursorPrefetchMaxRows(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setParallelConnectMode(stringPropValue);
+        assertEquals(stringPropValue, ds.getParallelConnectMode(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setUseSocketChannel(booleanPropValue);
+        assertEquals(booleanPropValue, ds.getUseSocketChannel(), TestResource.getResource("R_valuesAreDifferent"));
+
+        ds.setUseSSLEngine(booleanPropValue);
+        assertEquals(booleanPropValue, ds.getUseSSLEngine(), TestResource.getResource("R_valuesAreDifferent"));
+
         ds.setDisableStatementPooling(booleanPropValue);
         assertEquals(booleanPropValue, ds.getDisableStatementPooling(),
                 TestResource.getResource("R_valuesAreDifferent"));
@@ -0,0 +1,83 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Counts the parameter metadata descriptions of the same SQL text on two connections against the mock TDS server:
+ * the second connection uses the metadata described on the first one only if both log in as the same SQL Server
+ * user and the SQL text references no temporary table.
+ */
+class SharedParameterMetadataTest {
+
+    private static final String DESCRIBE = "sp_describe_undeclared_parameters";
+    private static final String POOLING = ";disableStatementPooling=false;statementPoolingCacheSize=10";
+
+    /** Returns the number of descriptions when each URL prepares the SQL text and gets its parameter metadata */
+    private static int countDescriptions(String sql, String... properties) throws Exception {
+        AtomicInteger descriptions = new AtomicInteger();
+        MockTdsServer.Script script = new MockTdsServer.Script().onQuery(DESCRIBE,
+                new TdsTokenStream.Column[] {TdsTokenStream.intColumn("parameter_ordinal"),
+                        TdsTokenStream.nvarcharColumn("suggested_system_type_name", 256),
+                        TdsTokenStream.intColumn("suggested_precision"), TdsTokenStream.intColumn("suggested_scale")},
+                new Object[][] {{1, "int", 10, 0}});
+        try (MockTdsServer server = new MockTdsServer(request -> {
+            if (request.contains(DESCRIBE)) {
+                descriptions.incrementAndGet();
+            }
+            return script.respond(request);
+        })) {
+            for (String connectionProperties : properties) {
+                try (Connection connection = DriverManager
+                        .getConnection(server.getURL() + POOLING + connectionProperties);
+                        PreparedStatement statement = connection.prepareStatement(sql)) {
+                    ParameterMetaData metadata = statement.getParameterMetaData();
+                    assertEquals(1, metadata.getParameterCount(), TestResource.getResource("R_valuesAreDifferent"));
+                    assertEquals(java.sql.Types.INTEGER, metadata.getParameterType(1),
+                            TestResource.getResource("R_valuesAreDifferent"));
+                }
+            }
+        }
+        return descriptions.get();
+    }
+
+    @Test
+    void testSameUser() throws Exception {
+        assertEquals(1, countDescriptions("SELECT v FROM t WHERE id = ?", "", ""),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testOtherUser() throws Exception {
+        assertEquals(2, countDescriptions("SELECT v FROM t WHERE id = ?", "", ";user=other"),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testNoUser() throws Exception {
+        // Without a SQL Server login the user is not known, e.g. with integrated or Microsoft Entra authentication.
+        assertEquals(2, countDescriptions("SELECT v FROM t WHERE id = ?", ";user=", ";user="),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testTemporaryTable() throws Exception {
+        assertEquals(2, countDescriptions("SELECT v FROM #t WHERE id = ?", "", ""),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(2, countDescriptions("SELECT v FROM ##t WHERE id = ?", "", ""),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.sqlserver.jdbc.SQLServerConnection.CityHash128Key;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection.PreparedStatementHandle;
+
+
+/**
+ * Unit tests for the adaptive sizing of the prepared statement handle cache.
+ */
+class StatementHandleCacheSizerTest {
+
+    private static final List<PreparedStatementHandle> NO_ENTRIES = Collections.emptyList();
+
+    private static CityHash128Key key(int i) {
+        return new CityHash128Key("select * from t where c = @P0 -- " + i, "@P0 int");
+    }
+
+    /* Records a window of lookups, of which the given number prepare a statement that was evicted just before. */
+    private static void recordWindow(StatementHandleCacheSizer sizer, int lookups, int reprepares) {
+        for (int i = 0; i < lookups; i++) {
+            if (i < reprepares) {
+                sizer.recordEviction(key(i));
+                sizer.recordMiss(key(i));
+            } else {
+                sizer.recordHit();
+            }
+        }
+    }
+
+    @Test
+    void testFixedSize() {
+        StatementHandleCacheSizer sizer = new StatementHandleCacheSizer(10, 0);
+        assertFalse(sizer.isAdaptive(), TestResource.getResource("R_valuesAreDifferent"));
+
+        recordWindow(sizer, 1000, 500);
+        assertEquals(0, sizer.adapt(NO_ENTRIES), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(10, sizer.getCapacity(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(500, sizer.getMissCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(500, sizer.getHitCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(500, sizer.getEvictionCount(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testGrowOnReprepares() {
+        StatementHandleCacheSizer sizer = new StatementHandleCacheSizer(16, 1024 * 1024);
+        assertEquals(16, sizer.getCapacity(), TestResource.getResource("R_valuesAreDifferent"));
+
+        // The window is not complete yet.
+        recordWindow(sizer, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS - 1, 20);
+        assertEquals(0, sizer.adapt(NO_ENTRIES), TestResource.getResource("R_valuesAreDifferent"));
+
+        sizer.recordHit();
+        assertEquals(20, sizer.adapt(NO_ENTRIES), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(20, sizer.getReprepareCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+        // A few re-prepares are not worth a larger cache.
+        recordWindow(sizer, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS, 2);
+        assertEquals(0, sizer.adapt(NO_ENTRIES), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(20, sizer.getCapacity(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testGrowOnStatementCycle() {
+        StatementHandleCacheSizer sizer = new StatementHandleCacheSizer(4, 1024 * 1024);
+
+        // The application cycles through 12 statements, so each one is evicted before it is used again.
+        for (int i = 0; i < 10 * StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS; i++) {
+            sizer.recordMiss(key(i % 12));
+            sizer.recordEviction(key(i % 12));
+            sizer.adapt(NO_ENTRIES);
+        }
+        assertTrue(sizer.getCapacity() >= 12, TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testShrinkOnUnusedEntries() {
+        SQLServerConnection connection = new SQLServerConnection("test");
+        StatementHandleCacheSizer sizer = new StatementHandleCacheSizer(40, 1024 * 1024);
+        List<PreparedStatementHandle> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            PreparedStatementHandle handle = connection.new PreparedStatementHandle(key(i), i + 1, false, false);
+            handle.setLastUseWindow(sizer.getWindow());
+            entries.add(handle);
+        }
+
+        // Entries are only unused once they were not used in two whole windows.
+        for (int window = 0; window < 2; window++) {
+            recordWindow(sizer, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS, 0);
+            assertEquals(0, sizer.adapt(entries), TestResource.getResource("R_valuesAreDifferent"));
+        }
+        recordWindow(sizer, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS, 0);
+        assertEquals(20, sizer.adapt(entries), TestResource.getResource("R_valuesAreDifferent"));
+
+        // Never below a quarter of the configured size.
+        for (int window = 0; window < 10; window++) {
+            recordWindow(sizer, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS, 0);
+            sizer.adapt(entries);
+        }
+        assertEquals(10, sizer.getCapacity(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testMemoryBudget() {
+        int budget = 64 * 1024;
+        StatementHandleCacheSizer sizer = new StatementHandleCacheSizer(100, budget);
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sql.append("select c1, c2, c3 from t ");
+        }
+        CityHash128Key largeKey = new CityHash128Key(sql.toString(), "@P0 int");
+        for (int i = 0; i < 200; i++) {
+            sizer.recordEntry(largeKey);
+        }
+
+        // The statements are large, so the cache shrinks although every lookup re-prepares an evicted statement.
+        recordWindow(sizer, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS, StatementHandleCacheSizer.MIN_WINDOW_LOOKUPS);
+        int capacity = sizer.adapt(NO_ENTRIES);
+        assertTrue(0 < capacity && capacity < 100, TestResource.getResource("R_valuesAreDifferent"));
+        assertTrue((long) capacity * StatementHandleCacheSizer.estimateEntryBytes(largeKey) <= budget * 11L / 10,
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.sqlserver.jdbc.SQLServerConnection.CityHash128Key;
+
+
+/**
+ * Unit tests for the striped W-TinyLFU cache that holds the parsed SQL-text metadata, and for the static settings of
+ * the SQL caches shared by all connections.
+ */
+class StripedTinyLfuCacheTest {
+
+    @Test
+    void testGetAndPutIfAbsent() {
+        StripedTinyLfuCache<String, String> cache = new StripedTinyLfuCache<>(100);
+
+        assertNull(cache.get("a"), TestResource.getResource("R_valuesAreDifferent"));
+        assertNull(cache.putIfAbsent("a", "1"), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals("1", cache.putIfAbsent("a", "2"), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals("1", cache.get("a"), TestResource.getResource("R_valuesAreDifferent"));
+
+        assertEquals(1, cache.getHitCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, cache.getMissCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, cache.getEvictionCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, cache.size(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testPut() {
+        StripedTinyLfuCache<String, String> cache = new StripedTinyLfuCache<>(100);
+        cache.put("a", "1");
+        cache.put("a", "2");
+        assertEquals("2", cache.get("a"), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, cache.size(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, cache.getEvictionCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("b" + i, "1");
+            cache.put("b" + i, "2");
+        }
+        assertTrue(cache.size() <= 100, TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testBoundedSize() {
+        StripedTinyLfuCache<Integer, Integer> cache = new StripedTinyLfuCache<>(64);
+        for (int i = 0; i < 10000; i++) {
+            if (null == cache.get(i)) {
+                cache.putIfAbsent(i, i);
+            }
+            assertTrue(cache.size() <= 64, TestResource.getResource("R_valuesAreDifferent"));
+        }
+        assertEquals(10000 - cache.size(), cache.getEvictionCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+        cache.setCapacity(StripedTinyLfuCache.MAX_SEGMENTS);
+        assertEquals(StripedTinyLfuCache.MAX_SEGMENTS, cache.getCapacity(),
+                TestResource.getResource("R_valuesAreDifferent"));
+        assertTrue(cache.size() <= StripedTinyLfuCache.MAX_SEGMENTS, TestResource.getResource("R_valuesAreDifferent"));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.setCapacity(0));
+    }
+
+    @Test
+    void testFrequentEntriesSurviveScan() {
+        StripedTinyLfuCache<String, String> cache = new StripedTinyLfuCache<>(256);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 32; i++) {
+                String key = "hot" + i;
+                if (null == cache.get(key)) {
+                    cache.putIfAbsent(key, key);
+                }
+            }
+        }
+
+        // A long run of statements that are used once does not flush out the statements still used all the time.
+        for (int i = 0; i < 10000; i++) {
+            String key = "once" + i;
+            if (null == cache.get(key)) {
+                cache.putIfAbsent(key, key);
+            }
+            key = "hot" + (i % 32);
+            if (null == cache.get(key)) {
+                cache.putIfAbsent(key, key);
+            }
+        }
+
+        for (int i = 0; i < 32; i++) {
+            String key = "hot" + i;
+            assertEquals(key, cache.get(key), TestResource.getResource("R_valuesAreDifferent"));
+        }
+    }
+
+    @Test
+    void testConcurrentUse() throws Exception {
+        StripedTinyLfuCache<Integer, String> cache = new StripedTinyLfuCache<>(100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        // skewed towards the low keys, like the statements of an application
+                        int key = (int) Math.abs(random.nextGaussian() * 100);
+                        String value = cache.get(key);
+                        if (null == value) {
+                            cache.putIfAbsent(key, Integer.toString(key));
+                        } else {
+                            assertEquals(Integer.toString(key), value,
+                                    TestResource.getResource("R_valuesAreDifferent"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= 100, TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(8 * 20000, cache.getHitCount() + cache.getMissCount(),
+                TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testSQLCacheSizes() throws Exception {
+        try {
+            SQLServerConnection.setParsedSQLCacheSize(300);
+            SQLServerConnection.setPreparedSQLCacheSize(200);
+            SQLServerConnection.setSharedParameterMetadataCacheSize(50);
+
+            // Each shared cache has its own size.
+            assertEquals(300, SQLServerConnection.getParsedSQLCacheSize(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(200, SQLServerConnection.getPreparedSQLCacheSize(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(50, SQLServerConnection.getSharedParameterMetadataCacheSize(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+
+            assertThrows(SQLServerException.class, () -> SQLServerConnection.setParsedSQLCacheSize(0));
+            assertThrows(SQLServerException.class, () -> SQLServerConnection.setPreparedSQLCacheSize(-1));
+            assertThrows(SQLServerException.class, () -> SQLServerConnection.setSharedParameterMetadataCacheSize(0));
+            assertEquals(300, SQLServerConnection.getParsedSQLCacheSize(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+        } finally {
+            SQLServerConnection.setParsedSQLCacheSize(SQLServerConnection.DEFAULT_PARSED_SQL_CACHE_SIZE);
+            SQLServerConnection.setPreparedSQLCacheSize(SQLServerConnection.DEFAULT_PREPARED_SQL_CACHE_SIZE);
+            SQLServerConnection.setSharedParameterMetadataCacheSize(
+                    SQLServerConnection.DEFAULT_SHARED_PARAMETER_METADATA_CACHE_SIZE);
+        }
+    }
+
+    @Test
+    void testSQLCacheFactory() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        ISQLServerCacheFactory factory = new ISQLServerCacheFactory() {
+            @Override
+            public <K, V> ISQLServerCache<K, V> createCache(int capacity) {
+                created.incrementAndGet();
+                return new StripedTinyLfuCache<>(capacity);
+            }
+        };
+
+        String sql = "select ? from StripedTinyLfuCacheTest";
+        CityHash128Key key = new CityHash128Key(sql);
+        try {
+            SQLServerConnection.setParsedSQLCacheSize(150);
+            SQLServerConnection.parseAndCacheSQL(key, sql);
+            assertNotNull(SQLServerConnection.getCachedParsedSQL(key), TestResource.getResource("R_valuesAreDifferent"));
+
+            // The plugged caches replace the current ones, empty and with the same sizes.
+            SQLServerConnection.setSQLCacheFactory(factory);
+            assertEquals(3, created.get(), TestResource.getResource("R_valuesAreDifferent"));
+            assertEquals(150, SQLServerConnection.getParsedSQLCacheSize(),
+                    TestResource.getResource("R_valuesAreDifferent"));
+            assertNull(SQLServerConnection.getCachedParsedSQL(key), TestResource.getResource("R_valuesAreDifferent"));
+
+            SQLServerConnection.parseAndCacheSQL(key, sql);
+            assertNotNull(SQLServerConnection.getCachedParsedSQL(key), TestResource.getResource("R_valuesAreDifferent"));
+        } finally {
+            SQLServerConnection.setSQLCacheFactory(null);
+            SQLServerConnection.setParsedSQLCacheSize(SQLServerConnection.DEFAULT_PARSED_SQL_CACHE_SIZE);
+        }
+        assertEquals(3, created.get(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the response packet pool used by TDSReader.
+ */
+class TDSPacketPoolTest {
+
+    @Test
+    void testAcquireReusesReleasedPacket() {
+        TDSPacketPool pool = new TDSPacketPool(4);
+
+        TDSPacket packet = pool.acquire(TDS.DEFAULT_PACKET_SIZE);
+        assertEquals(0, pool.getHitCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, pool.getMissCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+        packet.payloadLength = 100;
+        packet.packetNum = 7;
+        packet.next = new TDSPacket(0);
+        pool.release(packet);
+        assertEquals(1, pool.getIdleCount(), TestResource.getResource("R_valuesAreDifferent"));
+
+        TDSPacket reused = pool.acquire(TDS.DEFAULT_PACKET_SIZE);
+        assertSame(packet, reused);
+        assertEquals(0, reused.payloadLength, TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, reused.packetNum, TestResource.getResource("R_valuesAreDifferent"));
+        assertNull(reused.next);
+        assertEquals(1, pool.getHitCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, pool.getIdleCount(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testAcquireDiscardsPacketsOfOtherSize() {
+        TDSPacketPool pool = new TDSPacketPool(4);
+        TDSPacket small = new TDSPacket(TDS.INITIAL_PACKET_SIZE);
+        pool.release(small);
+
+        TDSPacket packet = pool.acquire(TDS.DEFAULT_PACKET_SIZE);
+        assertNotSame(small, packet);
+        assertEquals(TDS.DEFAULT_PACKET_SIZE, packet.payload.length, TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(0, pool.getIdleCount(), TestResource.getResource("R_valuesAreDifferent"));
+        assertEquals(1, pool.getMissCount(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testReleaseIsBounded() {
+        TDSPacketPool pool = new TDSPacketPool(2);
+        for (int i = 0; i < 5; i++) {
+            pool.release(new TDSPacket(TDS.DEFAULT_PACKET_SIZE));
+        }
+        assertEquals(2, pool.getIdleCount(), TestResource.getResource("R_valuesAreDifferent"));
+    }
+
+    @Test
+    void testStreamLeftOpenAcrossRows() throws Exception {
+        // Values of several packets each, so that the packets of a row are recycled for the rows after it
+        byte[][] values = new byte[8][];
+        TdsTokenStream tokens = new TdsTokenStream().colMetadata(TdsTokenStream.intColumn("id"),
+                TdsTokenStream.varbinaryMaxColumn("data"));
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new byte[3 * TDS.MIN_PACKET_SIZE];
+            Arrays.fill(values[i], (byte) i);
+            tokens.row(i, values[i]);
+        }
+        tokens.done(TDS.DONE_COUNT, values.length);
+
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(tokens.toByteArray()))) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            try (Connection connection = DriverManager.getConnection(server.getURL() + ";packetPoolSize=16");
+                    Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT id, data FROM t")) {
+                for (int i = 0; i < values.length; i += 2) {
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+
+                    // A stream read half way, marked and left open when the result set moves to the next row
+                    InputStream stream = rs.getBinaryStream(2);
+                    byte[] half = new byte[values[i].length / 2];
+                    assertEquals(half.length, stream.read(half), TestResource.getResource("R_valuesAreDifferent"));
+                    assertArrayEquals(Arrays.copyOf(values[i], half.length), half,
+                            TestResource.getResource("R_valuesAreDifferent"));
+                    stream.mark(values[i].length);
+                    assertEquals(i, stream.read(), TestResource.getResource("R_valuesAreDifferent"));
+                    stream.reset();
+                    assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+
+                    // The stream was closed with its row, and did not keep the rest of the rows from being read
+                    assertThrows(IOException.class, () -> stream.read());
+                    assertEquals(i + 1, rs.getInt(1), TestResource.getResource("R_valuesAreDifferent"));
+                    assertArrayEquals(values[i + 1], rs.getBytes(2),
+                            TestResource.getResource("R_valuesAreDifferent"));
+                }
+                assertTrue(connection.unwrap(ISQLServerConnection.class).getPacketPoolHitCount() > 0,
+                        TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+}
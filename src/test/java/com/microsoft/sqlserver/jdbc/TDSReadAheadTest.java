@@ -0,0 +1,91 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Reads responses of many packets against the mock TDS server with the packets read ahead on a background thread.
+ */
+class TDSReadAheadTest {
+
+    private static final int ROW_COUNT = 200;
+
+    private static String value(int row) {
+        return row + new String(new char[500]).replace('\0', (char) ('a' + row % 26));
+    }
+
+    private static byte[] rows() {
+        TdsTokenStream tokens = new TdsTokenStream().colMetadata(TdsTokenStream.intColumn("id"),
+                TdsTokenStream.nvarcharColumn("name", 4000));
+        for (int i = 0; i < ROW_COUNT; i++) {
+            tokens.row(i, value(i));
+        }
+        return tokens.done(TDS.DONE_COUNT, ROW_COUNT).toByteArray();
+    }
+
+    private static boolean isReadAheadThreadStarted() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(TDSReadAhead.THREAD_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testReadAhead() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(rows()))) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            try (Connection connection = DriverManager.getConnection(server.getURL() + ";readAheadPackets=4");
+                    Statement statement = connection.createStatement()) {
+                for (int execution = 0; execution < 2; execution++) {
+                    try (ResultSet rs = statement.executeQuery("SELECT id, name FROM t")) {
+                        for (int i = 0; i < ROW_COUNT; i++) {
+                            assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                            assertEquals(i, rs.getInt(1), TestResource.getResource("R_valuesAreDifferent"));
+                            assertEquals(value(i), rs.getString(2), TestResource.getResource("R_valuesAreDifferent"));
+                        }
+                        assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    }
+                }
+                assertTrue(isReadAheadThreadStarted(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+
+    @Test
+    void testReadAheadFailure() throws Exception {
+        try (MockTdsServer server = new MockTdsServer(MockTdsServer.replay(rows()))) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            try (Connection connection = DriverManager.getConnection(server.getURL() + ";readAheadPackets=4");
+                    Statement statement = connection.createStatement()) {
+                // The connection fails while the read-ahead thread is reading the reply.
+                server.cutReplies(1, 20 * TDS.MIN_PACKET_SIZE);
+                assertThrows(SQLException.class, () -> {
+                    try (ResultSet rs = statement.executeQuery("SELECT id, name FROM t")) {
+                        while (rs.next()) {
+                            rs.getString(2);
+                        }
+                    }
+                });
+                assertTrue(connection.isClosed(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Runs queries against the mock TDS server over the socket streams and the SocketChannel transport, each without
+ * encryption and with the TLS of TDS 7.4 and TDS 8.
+ */
+class TDSTransportTest {
+
+    private static final int ROW_COUNT = 20;
+
+    private static byte[] value(int row) {
+        // Values of several packets each
+        byte[] value = new byte[3 * TDS.MIN_PACKET_SIZE + row];
+        Arrays.fill(value, (byte) row);
+        return value;
+    }
+
+    private static boolean contains(byte[] payload, byte[] value) {
+        for (int i = 0; i + value.length <= payload.length; i++) {
+            if (Arrays.equals(value, Arrays.copyOfRange(payload, i, i + value.length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void runQueries(String encrypt, String properties, boolean sslEngine) throws Exception {
+        TdsTokenStream tokens = new TdsTokenStream().colMetadata(TdsTokenStream.intColumn("id"),
+                TdsTokenStream.varbinaryMaxColumn("data"));
+        for (int i = 0; i < ROW_COUNT; i++) {
+            tokens.row(i, value(i));
+        }
+        byte[] rows = tokens.done(TDS.DONE_COUNT, ROW_COUNT).toByteArray();
+
+        // A parameter sent in several packets, which has to arrive whole
+        byte[] parameter = value(ROW_COUNT);
+        AtomicInteger parameterCount = new AtomicInteger();
+        try (MockTdsServer server = new MockTdsServer(request -> {
+            if (contains(request.getPayload(), parameter)) {
+                parameterCount.incrementAndGet();
+            }
+            return rows;
+        })) {
+            server.setPacketSize(TDS.MIN_PACKET_SIZE);
+            server.setEncrypt(encrypt);
+            try (Connection connection = DriverManager.getConnection(server.getURL() + properties);
+                    PreparedStatement statement = connection
+                            .prepareStatement("SELECT id, data FROM t WHERE data = ?")) {
+                assertEquals(sslEngine, connection.unwrap(SQLServerConnection.class).isSSLEngineEnabled(),
+                        TestResource.getResource("R_valuesAreDifferent"));
+                statement.setBytes(1, parameter);
+                for (int execution = 0; execution < 2; execution++) {
+                    try (ResultSet rs = statement.executeQuery()) {
+                        for (int i = 0; i < ROW_COUNT; i++) {
+                            assertTrue(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                            assertEquals(i, rs.getInt(1), TestResource.getResource("R_valuesAreDifferent"));
+                            assertArrayEquals(value(i), rs.getBytes(2),
+                                    TestResource.getResource("R_valuesAreDifferent"));
+                        }
+                        assertFalse(rs.next(), TestResource.getResource("R_valuesAreDifferent"));
+                    }
+                }
+                assertEquals(2, parameterCount.get(), TestResource.getResource("R_valuesAreDifferent"));
+            }
+        }
+    }
+
+    @Test
+    void testSocketStreams() throws Exception {
+        runQueries("false", "", false);
+        runQueries("true", "", false);
+        runQueries("strict", "", false);
+    }
+
+    @Test
+    void testSocketStreamsWithSSLEngine() throws Exception {
+        runQueries("true", ";useSSLEngine=true", true);
+        runQueries("strict", ";useSSLEngine=true", true);
+    }
+
+    @Test
+    void testSocketChannel() throws Exception {
+        runQueries("false", ";useSocketChannel=true", false);
+        // TLS over the channel always uses the SSL engine.
+        runQueries("true", ";useSocketChannel=true", true);
+        runQueries("strict", ";useSocketChannel=true", true);
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Microsoft JDBC Driver for SQL Server Copyright(c) Microsoft Corporation All rights reserved. This program is made
+ * available under the terms of the MIT License. See the LICENSE file in the project root for more information.
+ */
+
+package com.microsoft.sqlserver.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+
+/**
+ * Builds the token stream of a server reply, e.g. COLMETADATA, ROW, NBCROW and DONE tokens, for {@link MockTdsServer}
+ * to replay.
+ */
+final class TdsTokenStream {
+    /** Latin1_General_CI_AS, the collation of the string columns and of the server */
+    static final byte[] COLLATION = {0x09, 0x04, (byte) 0xD0, 0x00, 0x34};
+
+    // ENVCHANGE types
+    static final int ENVCHANGE_DATABASE = 1;
+    static final int ENVCHANGE_PACKETSIZE = 4;
+    static final int ENVCHANGE_SQLCOLLATION = 7;
+
+    // Size of the chunks PLP values are sent in
+    private static final int PLP_CHUNK_BYTES = 1000;
+
+    // Column flags: nullable and updatable
+    private static final int COLUMN_FLAGS = 0x0009;
+
+    // Column flag of the columns encrypted with Always Encrypted
+    private static final int COLUMN_FLAG_ENCRYPTED = 0x0800;
+
+    // AEAD_AES_256_CBC_HMAC_SHA256, randomized encryption and normalization rule version 1
+    private static final int CIPHER_ALGORITHM_ID = 2;
+    private static final int ENCRYPTION_TYPE_RANDOMIZED = 2;
+    private static final int NORMALIZATION_RULE_VERSION = 1;
+
+    /**
+     * A column of a result set.
+     */
+    static final class Column {
+        final String name;
+        final TDSType type;
+        final int length;
+        final int precision;
+        final int scale;
+        // the type of the plain text values of an encrypted column, or null
+        final Column baseColumn;
+
+        private Column(String name, TDSType type, int length) {
+            this(name, type, length, 0, 0);
+        }
+
+        private Column(String name, TDSType type, int length, int precision, int scale) {
+            this(name, type, length, precision, scale, null);
+        }
+
+        private Column(String name, TDSType type, int length, int precision, int scale, Column baseColumn) {
+            this.name = name;
+            this.type = type;
+            this.length = length;
+            this.precision = precision;
+            this.scale = scale;
+            this.baseColumn = baseColumn;
+        }
+    }
+
+    static Column intColumn(String name) {
+        return new Column(name, TDSType.INTN, 4);
+    }
+
+    static Column bigintColumn(String name) {
+        return new Column(name, TDSType.INTN, 8);
+    }
+
+    static Column floatColumn(String name) {
+        return new Column(name, TDSType.FLOATN, 8);
+    }
+
+    static Column bitColumn(String name) {
+        return new Column(name, TDSType.BITN, 1);
+    }
+
+    static Column nvarcharColumn(String name, int maxCharacters) {
+        return new Column(name, TDSType.NVARCHAR, 2 * maxCharacters);
+    }
+
+    /** A varchar column of the collation {@link #COLLATION}, whose values are sent in code page 1252 */
+    static Column varcharColumn(String name, int maxBytes) {
+        return new Column(name, TDSType.BIGVARCHAR, maxBytes);
+    }
+
+    static Column decimalColumn(String name, int precision, int scale) {
+        return new Column(name, TDSType.DECIMALN, 17, precision, scale);
+    }
+
+    /** A datetimeoffset column, whose values are OffsetDateTimes */
+    static Column datetimeoffsetColumn(String name, int scale) {
+        int timeLength = (scale <= 2) ? 3 : (scale <= 4) ? 4 : 5;
+        return new Column(name, TDSType.DATETIMEOFFSETN, timeLength + 5, 0, scale);
+    }
+
+    /** A varbinary(max) column, whose values are byte arrays sent as PLP chunks */
+    static Column varbinaryMaxColumn(String name) {
+        return new Column(name, TDSType.BIGVARBINARY, 0xFFFF);
+    }
+
+    /** A FLOAT32 vector column, whose values are float arrays */
+    static Column vectorColumn(String name, int dimensions) {
+        return new Column(name, TDSType.VECTOR, 8 + 4 * dimensions, dimensions, 4);
+    }
+
+    /**
+     * A column encrypted with the key of {@link #cekTable}, whose values are the cipher texts of the values of the base
+     * column as byte arrays
+     */
+    static Column encryptedColumn(Column baseColumn) {
+        return new Column(baseColumn.name, TDSType.BIGVARBINARY, 8000, 0, 0, baseColumn);
+    }
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private Column[] columns = new Column[0];
+    private byte[] encryptedKey;
+    private String keyStoreName;
+    private String keyPath;
+
+    /**
+     * Writes the following COLMETADATA tokens with a column encryption key table of one key, as the server does once
+     * it acknowledged column encryption at login
+     */
+    TdsTokenStream cekTable(byte[] encryptedKey, String keyStoreName, String keyPath) {
+        this.encryptedKey = encryptedKey;
+        this.keyStoreName = keyStoreName;
+        this.keyPath = keyPath;
+        return this;
+    }
+
+    /** Writes a COLMETADATA token, the following rows have these columns */
+    TdsTokenStream colMetadata(Column... columns) {
+        this.columns = columns;
+        writeByte(TDS.TDS_COLMETADATA);
+        writeShort(columns.length);
+        if (null != encryptedKey) {
+            writeShort(1);
+            writeInt(1); // database id
+            writeInt(1); // key id
+            writeInt(1); // key version
+            writeLong(0); // key metadata version
+            writeByte(1); // number of encrypted values of the key
+            writeShort(encryptedKey.length);
+            writeBytes(encryptedKey);
+            writeByteString(keyStoreName);
+            writeShort(keyPath.length());
+            writeBytes(keyPath.getBytes(StandardCharsets.UTF_16LE));
+            writeByteString("RSA_OAEP");
+        }
+        for (Column column : columns) {
+            writeInt(0); // user type
+            writeShort((null != column.baseColumn) ? COLUMN_FLAGS | COLUMN_FLAG_ENCRYPTED : COLUMN_FLAGS);
+            writeTypeInfo(column);
+            if (null != column.baseColumn) {
+                writeShort(0); // ordinal of the key in the key table
+                writeInt(0); // user type
+                writeTypeInfo(column.baseColumn);
+                writeByte(CIPHER_ALGORITHM_ID);
+                writeByte(ENCRYPTION_TYPE_RANDOMIZED);
+                writeByte(NORMALIZATION_RULE_VERSION);
+            }
+            writeByteString(column.name);
+        }
+        return this;
+    }
+
+    /** Writes a ROW token with a value, which may be null, for every column */
+    TdsTokenStream row(Object... values) {
+        checkValues(values);
+        writeByte(TDS.TDS_ROW);
+        for (int i = 0; i < values.length; i++) {
+            writeValue(columns[i], values[i]);
+        }
+        return this;
+    }
+
+    /** Writes an NBCROW token, which leaves out the null values and marks them in a bitmap instead */
+    TdsTokenStream nbcRow(Object... values) {
+        checkValues(values);
+        writeByte(TDS.TDS_NBCROW);
+        byte[] nullBitmap = new byte[(values.length + 7) / 8];
+        for (int i = 0; i < values.length; i++) {
+            if (null == values[i]) {
+                nullBitmap[i / 8] |= (byte) (1 << (i % 8));
+            }
+        }
+        writeBytes(nullBitmap);
+        for (int i = 0; i < values.length; i++) {
+            if (null != values[i]) {
+                writeValue(columns[i], values[i]);
+            }
+        }
+        return this;
+    }
+
+    /** Writes a DONE token */
+    TdsTokenStream done(int status, long rowCount) {
+        return writeDone(TDS.TDS_DONE, status, StreamDone.CMD_SELECT, rowCount);
+    }
+
+    /** Writes a DONE token with the update count of a DML statement in an SQL batch */
+    TdsTokenStream doneUpdate(int status, long rowCount) {
+        return writeDone(TDS.TDS_DONE, status, StreamDone.CMD_UPDATE, rowCount);
+    }
+
+    /** Writes a DONEINPROC token, with the update count of a statement in a stored procedure */
+    TdsTokenStream doneInProc(int status, long rowCount) {
+        return writeDone(TDS.TDS_DONEINPROC, status, StreamDone.CMD_INSERT, rowCount);
+    }
+
+    /** Writes a DONEPROC token, which ends the reply to an RPC */
+    TdsTokenStream doneProc(int status) {
+        return writeDone(TDS.TDS_DONEPROC, status, StreamDone.CMD_EXECUTE, 0);
+    }
+
+    /** Writes a RETSTAT token */
+    TdsTokenStream returnStatus(int status) {
+        writeByte(TDS.TDS_RET_STAT);
+        writeInt(status);
+        return this;
+    }
+
+    /** Writes a RETURNVALUE token with the value of an int output parameter, e.g. a prepared statement handle */
+    TdsTokenStream returnValue(int ordinal, int value) {
+        writeByte(TDS.TDS_RETURN_VALUE);
+        writeShort(ordinal);
+        writeByteString("");
+        writeByte(1); // status: output parameter
+        writeInt(0); // user type
+        writeShort(0); // flags
+        writeByte(TDSType.INTN.byteValue());
+        writeByte(4);
+        writeByte(4);
+        writeInt(value);
+        return this;
+    }
+
+    /** Writes an ERROR token */
+    TdsTokenStream error(int number, int severity, String message) {
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_16LE);
+        byte[] serverBytes = MockTdsServer.SERVER_NAME.getBytes(StandardCharsets.UTF_16LE);
+        writeByte(TDS.TDS_ERR);
+        writeShort(4 + 1 + 1 + 2 + messageBytes.length + 1 + serverBytes.length + 1 + 4);
+        writeInt(number);
+        writeByte(1); // state
+        writeByte(severity);
+        writeShort(message.length());
+        writeBytes(messageBytes);
+        writeByteString(MockTdsServer.SERVER_NAME);
+        writeByteString(""); // procedure
+        writeInt(1); // line
+        return this;
+    }
+
+    /** Writes an ENVCHANGE token that changes a string value, e.g. the database or the packet size */
+    TdsTokenStream envChange(int type, String newValue, String oldValue) {
+        byte[] newBytes = newValue.getBytes(StandardCharsets.UTF_16LE);
+        byte[] oldBytes = oldValue.getBytes(StandardCharsets.UTF_16LE);
+        writeByte(TDS.TDS_ENV_CHG);
+        writeShort(1 + 1 + newBytes.length + 1 + oldBytes.length);
+        writeByte(type);
+        writeByteString(newValue);
+        writeByteString(oldValue);
+        return this;
+    }
+
+    /** Writes an ENVCHANGE token that sets the SQL collation */
+    TdsTokenStream envChangeCollation(byte[] collation) {
+        writeByte(TDS.TDS_ENV_CHG);
+        writeShort(1 + 1 + collation.length + 1);
+        writeByte(ENVCHANGE_SQLCOLLATION);
+        writeByte(collation.length);
+        writeBytes(collation);
+        writeByte(0);
+        return this;
+    }
+
+    /** Writes a FEATUREEXTACK token that acknowledges one feature extension */
+    TdsTokenStream featureExtAck(int featureId, byte[] data) {
+        writeByte(TDS.TDS_FEATURE_EXTENSION_ACK);
+        writeByte(featureId);
+        writeInt(data.length);
+        writeBytes(data);
+        writeByte(TDS.FEATURE_EXT_TERMINATOR);
+        return this;
+    }
+
+    /** Writes a LOGINACK token for TDS 7.4 */
+    TdsTokenStream loginAck() {
+        byte[] nameBytes = MockTdsServer.SERVER_NAME.getBytes(StandardCharsets.UTF_16LE);
+        writeByte(TDS.TDS_LOGIN_ACK);
+        writeShort(1 + 4 + 1 + nameBytes.length + 4);
+        writeByte(1); // interface: SQL
+        writeByte(TDS.VER_DENALI >>> 24);
+        writeByte(TDS.VER_DENALI >>> 16);
+        writeByte(TDS.VER_DENALI >>> 8);
+        writeByte(TDS.VER_DENALI);
+        writeByteString(MockTdsServer.SERVER_NAME);
+        writeBytes(new byte[] {16, 0, 0, 1}); // server version 16.0.1
+        return this;
+    }
+
+    /** Appends a recorded token stream */
+    TdsTokenStream append(byte[] tokens) {
+        writeBytes(tokens);
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    private void checkValues(Object[] values) {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException(values.length + " values for " + columns.length + " columns");
+        }
+    }
+
+    private TdsTokenStream writeDone(int token, int status, int command, long rowCount) {
+        writeByte(token);
+        writeShort(status);
+        writeShort(command);
+        writeLong(rowCount);
+        return this;
+    }
+
+    private void writeTypeInfo(Column column) {
+        writeByte(column.type.byteValue());
+        if (TDSType.NVARCHAR == column.type || TDSType.BIGVARCHAR == column.type) {
+            writeShort(column.length);
+            writeBytes(COLLATION);
+        } else if (TDSType.BIGVARBINARY == column.type) {
+            writeShort(column.length);
+        } else if (TDSType.DECIMALN == column.type) {
+            writeByte(column.length);
+            writeByte(column.precision);
+            writeByte(column.scale);
+        } else if (TDSType.DATETIMEOFFSETN == column.type) {
+            writeByte(column.scale);
+        } else if (TDSType.VECTOR == column.type) {
+            writeShort(column.length);
+            writeByte(0); // FLOAT32
+        } else {
+            writeByte(column.length);
+        }
+    }
+
+    private void writeValue(Column column, Object value) {
+        if (TDSType.NVARCHAR == column.type || TDSType.BIGVARCHAR == column.type) {
+            if (null == value) {
+                writeShort(0xFFFF);
+            } else {
+                Charset charset = (TDSType.NVARCHAR == column.type) ? StandardCharsets.UTF_16LE
+                                                                    : Charset.forName("windows-1252");
+                byte[] valueBytes = value.toString().getBytes(charset);
+                writeShort(valueBytes.length);
+                writeBytes(valueBytes);
+            }
+        } else if (TDSType.BIGVARBINARY == column.type && 0xFFFF != column.length) {
+            if (null == value) {
+                writeShort(0xFFFF);
+            } else {
+                byte[] valueBytes = (byte[]) value;
+                writeShort(valueBytes.length);
+                writeBytes(valueBytes);
+            }
+        } else if (TDSType.BIGVARBINARY == column.type) {
+            if (null == value) {
+                writeLong(PLPInputStream.PLP_NULL);
+            } else {
+                // the total length, then chunks of at most PLP_CHUNK_BYTES and a terminating empty chunk
+                byte[] valueBytes = (byte[]) value;
+                writeLong(valueBytes.length);
+                for (int offset = 0; offset < valueBytes.length; offset += PLP_CHUNK_BYTES) {
+                    int length = Math.min(PLP_CHUNK_BYTES, valueBytes.length - offset);
+                    writeInt(length);
+                    bytes.write(valueBytes, offset, length);
+                }
+                writeInt(0);
+            }
+        } else if (TDSType.VECTOR == column.type) {
+            if (null == value) {
+                writeShort(0xFFFF);
+            } else {
+                // an 8 byte header: the layout, its version, the number of dimensions, FLOAT32 and 3 reserved bytes
+                float[] floats = (float[]) value;
+                writeShort(8 + 4 * floats.length);
+                writeByte(0xA9);
+                writeByte(0x01);
+                writeShort(floats.length);
+                writeInt(0);
+                for (float f : floats) {
+                    writeInt(Float.floatToIntBits(f));
+                }
+            }
+        } else if (null == value) {
+            writeByte(0);
+        } else if (TDSType.DECIMALN == column.type) {
+            // a sign byte, 1 for positive, and the little-endian magnitude
+            BigInteger unscaledValue = ((BigDecimal) value).setScale(column.scale, RoundingMode.UNNECESSARY)
+                    .unscaledValue();
+            byte[] magnitude = unscaledValue.abs().toByteArray();
+            writeByte(column.length);
+            writeByte((unscaledValue.signum() < 0) ? 0 : 1);
+            for (int i = 0; i < column.length - 1; i++) {
+                writeByte((i < magnitude.length) ? magnitude[magnitude.length - 1 - i] : 0);
+            }
+        } else if (TDSType.DATETIMEOFFSETN == column.type) {
+            // the time and date in UTC, then the offset in minutes
+            OffsetDateTime offsetDateTime = (OffsetDateTime) value;
+            LocalDateTime utc = offsetDateTime.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+            long timeUnits = utc.toLocalTime().toNanoOfDay() / BigInteger.TEN.pow(9 - column.scale).longValue();
+            writeByte(column.length);
+            for (int i = 0; i < column.length - 5; i++) {
+                writeByte((int) (timeUnits >>> (8 * i)));
+            }
+            int days = (int) utc.toLocalDate().toEpochDay() + 719162;
+            writeByte(days);
+            writeShort(days >>> 8);
+            writeShort(offsetDateTime.getOffset().getTotalSeconds() / 60);
+        } else {
+            writeByte(column.length);
+            if (TDSType.BITN == column.type) {
+                writeByte((Boolean) value ? 1 : 0);
+            } else if (TDSType.FLOATN == column.type) {
+                writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (8 == column.length) {
+                writeLong(((Number) value).longValue());
+            } else {
+                writeInt(((Number) value).intValue());
+            }
+        }
+    }
+
+    private void writeByteString(String value) {
+        writeByte(value.length());
+        writeBytes(value.getBytes(StandardCharsets.UTF_16LE));
+    }
+
+    private void writeByte(int value) {
+        bytes.write(value);
+    }
+
+    private void writeBytes(byte[] value) {
+        bytes.write(value, 0, value.length);
+    }
+
+    private void writeShort(int value) {
+        writeByte(value);
+        writeByte(value >>> 8);
+    }
+
+    private void writeInt(int value) {
+        writeShort(value);
+        writeShort(value >>> 16);
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) value);
+        writeInt((int) (value >>> 32));
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.platform.runner.JUnitPlatform;
 import org.junit.runner.RunWith;
 
 import com.microsoft.sqlserver.jdbc.RandomUtil;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
 import com.microsoft.sqlserver.jdbc.SQLServerPreparedStatement;
 import com.microsoft.sqlserver.jdbc.SQLServerResultSet;
 import com.microsoft.sqlserver.jdbc.TestUtils;
@@ -159,6 +160,42 @@ public class ParameterMetaDataTest extends AbstractTest {
         }
     }
 
+    /**
+     * Test that parameter metadata described on one connection is used by another connection after the first one is
+     * closed.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    @Tag(Constants.xAzureSQLDW)
+    public void testParameterMetaDataSharedByConnections() throws SQLException {
+        try (Connection con = getConnection(); Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("create table " + AbstractSQLGenerator.escapeIdentifier(tableName)
+                    + " (c1 int, c2 decimal(20,4))");
+            try {
+                String query = "select * from " + AbstractSQLGenerator.escapeIdentifier(tableName)
+                        + " where c1 = ? and c2 = ?";
+
+                for (int i = 0; i < 2; i++) {
+                    try (SQLServerConnection pooledCon = getConnection()) {
+                        pooledCon.setStatementPoolingCacheSize(10);
+                        pooledCon.setDisableStatementPooling(false);
+                        try (PreparedStatement pstmt = pooledCon.prepareStatement(query)) {
+                            ParameterMetaData metadata = pstmt.getParameterMetaData();
+                            assertEquals(2, metadata.getParameterCount());
+                            assertEquals(java.sql.Types.INTEGER, metadata.getParameterType(1));
+                            assertEquals(java.sql.Types.DECIMAL, metadata.getParameterType(2));
+                            assertEquals(20, metadata.getPrecision(2));
+                            assertEquals(4, metadata.getScale(2));
+                        }
+                    }
+                }
+            } finally {
+                TestUtils.dropTableIfExists(AbstractSQLGenerator.escapeIdentifier(tableName), stmt);
+            }
+        }
+    }
+
     /**
      * Test MetaData for Stored procedure sp_help
      * 
@@ -501,6 +501,82 @@ public class ResultSetTest extends AbstractTest {
         }
     }
 
+    /**
+     * Tests the primitive getters on int, bigint, float and bit columns, which are read without boxing, on a column
+     * that is converted through getValue, on NULLs and on values that cannot be converted.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void testPrimitiveGetters() throws SQLException {
+        long big = 5000000000L;
+        String query = "SELECT i, b, f, bt, s FROM (VALUES"
+                + " (1, CAST(-7 AS int), CAST(5000000000 AS bigint), CAST(2.75 AS float), CAST(1 AS bit), N'12'),"
+                + " (2, CAST(NULL AS int), CAST(NULL AS bigint), CAST(NULL AS float), CAST(NULL AS bit), NULL),"
+                + " (3, CAST(0 AS int), CAST(-1 AS bigint), CAST(-0.5 AS float), CAST(0 AS bit), N'abc'))"
+                + " AS v(n, i, b, f, bt, s) ORDER BY n";
+        try (Connection con = getConnection(); Statement stmt = con.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            assertTrue(rs.next());
+            assertEquals(-7, rs.getInt(1));
+            assertFalse(rs.wasNull());
+            assertEquals(-7L, rs.getLong("i"));
+            assertEquals((short) -7, rs.getShort(1));
+            assertEquals((byte) -7, rs.getByte(1));
+            assertTrue(rs.getBoolean(1));
+            assertEquals(-7.0, rs.getDouble(1), 0);
+            assertEquals(-7.0f, rs.getFloat(1), 0);
+
+            // Narrowing conversions cast as the conversions of getObject do.
+            assertEquals(big, rs.getLong(2));
+            assertEquals((int) big, rs.getInt(2));
+            assertEquals((short) big, rs.getShort(2));
+            assertEquals((double) big, rs.getDouble(2), 0);
+
+            assertEquals(2.75, rs.getDouble(3), 0);
+            assertEquals(2.75f, rs.getFloat(3), 0);
+            assertEquals(2, rs.getInt(3));
+            assertEquals(2L, rs.getLong(3));
+            assertTrue(rs.getBoolean(3));
+
+            assertTrue(rs.getBoolean(4));
+            assertEquals(1, rs.getInt(4));
+
+            // Other types are converted through getValue.
+            assertEquals(12, rs.getInt(5));
+            assertEquals(12.0, rs.getDouble(5), 0);
+            assertFalse(rs.wasNull());
+
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+            assertTrue(rs.wasNull());
+            assertEquals(0L, rs.getLong(2));
+            assertTrue(rs.wasNull());
+            assertEquals(0.0, rs.getDouble(3), 0);
+            assertTrue(rs.wasNull());
+            assertFalse(rs.getBoolean(4));
+            assertTrue(rs.wasNull());
+            assertEquals(0, rs.getInt(5));
+            assertTrue(rs.wasNull());
+
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+            assertFalse(rs.wasNull());
+            assertFalse(rs.getBoolean(1));
+            assertEquals(-1, rs.getInt(2));
+            assertEquals((byte) -1, rs.getByte(2));
+            assertEquals(0, rs.getInt(3));
+            assertTrue(rs.getBoolean(3));
+            assertFalse(rs.getBoolean(4));
+            assertFalse(rs.wasNull());
+
+            // Text that is not a number cannot be converted.
+            assertThrows(SQLException.class, () -> rs.getInt(5));
+            assertThrows(SQLException.class, () -> rs.getDouble("s"));
+            assertFalse(rs.next());
+        }
+    }
+
     /**
      * Tests getters and setters for holdability.
      * 